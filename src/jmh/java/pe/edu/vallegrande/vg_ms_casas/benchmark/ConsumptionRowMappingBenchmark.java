@@ -0,0 +1,140 @@
+package pe.edu.vallegrande.vg_ms_casas.benchmark;
+
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.R2dbcType;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.r2dbc.convert.MappingR2dbcConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.PostgresDialect;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Conversión fila → Consumption que hace Spring Data R2DBC con las columnas de los @Query
+ * con JOIN a home de ConsumptionRepository (incluye names, de solo lectura).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConsumptionRowMappingBenchmark {
+
+    private static final String[] COLUMNS = {
+            "id_consumption", "date", "id_home", "product_id", "quantity", "weight", "price", "salevalue", "status", "names"};
+    private static final R2dbcType[] TYPES = {
+            R2dbcType.INTEGER, R2dbcType.DATE, R2dbcType.INTEGER, R2dbcType.BIGINT, R2dbcType.INTEGER,
+            R2dbcType.DOUBLE, R2dbcType.INTEGER, R2dbcType.DOUBLE, R2dbcType.VARCHAR, R2dbcType.VARCHAR};
+
+    private MappingR2dbcConverter converter;
+    private StubRowMetadata metadata;
+    private StubRow row;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        R2dbcMappingContext mappingContext = new R2dbcMappingContext();
+        R2dbcCustomConversions conversions = R2dbcCustomConversions.of(PostgresDialect.INSTANCE);
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingR2dbcConverter(mappingContext, conversions);
+
+        metadata = new StubRowMetadata();
+        row = new StubRow(metadata, new Object[]{
+                1024, LocalDate.of(2024, 3, 15), 7, 42L, 12, 3.5, 18, 63.0, "A", "Familia Quispe"});
+        // Primera lectura fuera de la medición para poblar las entidades persistentes del contexto
+        converter.read(Consumption.class, row, metadata);
+    }
+
+    @Benchmark
+    public Consumption readRow() {
+        return converter.read(Consumption.class, row, metadata);
+    }
+
+    private static final class StubRow implements Row {
+
+        private final RowMetadata metadata;
+        private final Object[] values;
+
+        private StubRow(RowMetadata metadata, Object[] values) {
+            this.metadata = metadata;
+            this.values = values;
+        }
+
+        @Override
+        public RowMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public <T> T get(int index, Class<T> type) {
+            return type.cast(values[index]);
+        }
+
+        @Override
+        public <T> T get(String name, Class<T> type) {
+            return get(StubRowMetadata.INDEX.get(name), type);
+        }
+    }
+
+    private static final class StubRowMetadata implements RowMetadata {
+
+        private static final Map<String, Integer> INDEX = IntStream.range(0, COLUMNS.length).boxed()
+                .collect(Collectors.toMap(i -> COLUMNS[i], i -> i));
+
+        private final List<ColumnMetadata> columns = new ArrayList<>();
+
+        private StubRowMetadata() {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                columns.add(new StubColumnMetadata(COLUMNS[i], TYPES[i]));
+            }
+        }
+
+        @Override
+        public ColumnMetadata getColumnMetadata(int index) {
+            return columns.get(index);
+        }
+
+        @Override
+        public ColumnMetadata getColumnMetadata(String name) {
+            return columns.get(INDEX.get(name));
+        }
+
+        @Override
+        public List<? extends ColumnMetadata> getColumnMetadatas() {
+            return columns;
+        }
+
+        @Override
+        public boolean contains(String columnName) {
+            return INDEX.containsKey(columnName);
+        }
+    }
+
+    private record StubColumnMetadata(String name, Type type) implements ColumnMetadata {
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Type getType() {
+            return type;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package pe.edu.vallegrande.vg_ms_casas.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Codificación y decodificación Jackson de Flux grandes de Transaction y Consumption,
+ * como JSON (arreglo) y NDJSON, con los mismos codecs que usa WebFlux.
+ * La decodificación recibe el cuerpo en bloques de 8 KB, como llegaría por la red.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JsonCodecBenchmark {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final ResolvableType TRANSACTION = ResolvableType.forClass(Transaction.class);
+    private static final ResolvableType CONSUMPTION = ResolvableType.forClass(Consumption.class);
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    @Param({"application/json", "application/x-ndjson"})
+    private String mediaType;
+
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private Jackson2JsonEncoder encoder;
+    private Jackson2JsonDecoder decoder;
+    private MediaType mimeType;
+    private List<Transaction> transactions;
+    private List<Consumption> consumptions;
+    private byte[] transactionBody;
+    private byte[] consumptionBody;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        encoder = new Jackson2JsonEncoder(objectMapper);
+        decoder = new Jackson2JsonDecoder(objectMapper);
+        decoder.setMaxInMemorySize(-1);
+        mimeType = MediaType.parseMediaType(mediaType);
+
+        transactions = new ArrayList<>(size);
+        consumptions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            transactions.add(new Transaction(i + 1, i % 50 + 1, i % 200 + 1, i % 2 == 0 ? "ENTRADA" : "SALIDA", 5,
+                    100 + i, i % 2 == 0 ? 105 + i : 95 + i, "Reposición semanal", LocalDateTime.of(2024, 1, 1, 8, 0).plusMinutes(i),
+                    i % 20 + 1, "A", null, null));
+            consumptions.add(new Consumption(i + 1, LocalDate.of(2024, 1, 1).plusDays(i % 365), i % 80 + 1,
+                    (long) (i % 200 + 1), "Familia " + (i % 80 + 1), 3, 1.5, 12, 36.0, "A", null));
+        }
+        transactionBody = join(encode(transactions, TRANSACTION));
+        consumptionBody = join(encode(consumptions, CONSUMPTION));
+    }
+
+    @Benchmark
+    public long encodeTransactions() {
+        return readableBytes(encode(transactions, TRANSACTION));
+    }
+
+    @Benchmark
+    public long encodeConsumptions() {
+        return readableBytes(encode(consumptions, CONSUMPTION));
+    }
+
+    @Benchmark
+    public long decodeTransactions() {
+        return decode(transactionBody, TRANSACTION);
+    }
+
+    @Benchmark
+    public long decodeConsumptions() {
+        return decode(consumptionBody, CONSUMPTION);
+    }
+
+    private Flux<DataBuffer> encode(List<?> values, ResolvableType type) {
+        return encoder.encode(Flux.fromIterable(values), bufferFactory, type, mimeType, Collections.emptyMap());
+    }
+
+    private long decode(byte[] body, ResolvableType type) {
+        Flux<DataBuffer> chunks = Flux.range(0, (body.length + CHUNK_SIZE - 1) / CHUNK_SIZE)
+                .map(i -> bufferFactory.wrap(Arrays.copyOfRange(body, i * CHUNK_SIZE, Math.min(body.length, (i + 1) * CHUNK_SIZE))));
+        Long count = decoder.decode(chunks, type, mimeType, Collections.emptyMap()).count().block();
+        return count == null ? 0 : count;
+    }
+
+    private static long readableBytes(Flux<DataBuffer> buffers) {
+        Long total = buffers.map(buffer -> (long) buffer.readableByteCount()).reduce(0L, Long::sum).block();
+        return total == null ? 0 : total;
+    }
+
+    private static byte[] join(Flux<DataBuffer> buffers) {
+        return buffers.reduce(new ByteArrayOutputStream(), (out, buffer) -> {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            out.writeBytes(bytes);
+            return out;
+        }).map(ByteArrayOutputStream::toByteArray).block();
+    }
+}
@@ -0,0 +1,59 @@
+package pe.edu.vallegrande.vg_ms_casas.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.oauth2.jwt.Jwt;
+import pe.edu.vallegrande.vg_ms_casas.config.CustomAuthenticationToken;
+import pe.edu.vallegrande.vg_ms_casas.config.JwtAuthorityConverter;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión JWT → CustomAuthenticationToken que SecurityConfig aplica en cada petición autenticada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtAuthorityConverterBenchmark {
+
+    private final JwtAuthorityConverter converter = new JwtAuthorityConverter();
+    private Jwt withRole;
+    private Jwt withoutRole;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        withRole = jwt("admin");
+        withoutRole = jwt(null);
+    }
+
+    @Benchmark
+    public CustomAuthenticationToken convertWithRole() {
+        return converter.convert(withRole).block();
+    }
+
+    @Benchmark
+    public CustomAuthenticationToken convertWithoutRole() {
+        return converter.convert(withoutRole).block();
+    }
+
+    private static Jwt jwt(String role) {
+        Instant issuedAt = Instant.parse("2024-01-01T08:00:00Z");
+        Jwt.Builder builder = Jwt.withTokenValue("benchmark-token")
+                .header("alg", "RS256")
+                .subject("user-1")
+                .claim("email", "user@vallegrande.edu.pe")
+                .issuedAt(issuedAt)
+                .expiresAt(issuedAt.plusSeconds(3600));
+        if (role != null) {
+            builder.claim("role", role);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,80 @@
+package pe.edu.vallegrande.vg_ms_casas.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.aop.framework.ProxyFactory;
+import pe.edu.vallegrande.vg_ms_casas.config.RepositoryMetrics;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo fijo de RepositoryMetrics por llamada: el mismo repositorio en memoria (sin base de datos,
+ * así solo queda el proxy, el timer y el conteo de filas) llamado directo y a través del interceptor.
+ * Una consulta real tarda milisegundos; la diferencia entre ambos es lo que agrega la instrumentación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RepositoryMetricsBenchmark {
+
+    public interface Rows {
+
+        Flux<Integer> findAll();
+
+        Mono<Integer> findById(Integer id);
+    }
+
+    private static final List<Integer> ROWS = Flux.range(0, 20).collectList().block();
+
+    private Rows plain;
+    private Rows instrumented;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        plain = new Rows() {
+            @Override
+            public Flux<Integer> findAll() {
+                return Flux.fromIterable(ROWS);
+            }
+
+            @Override
+            public Mono<Integer> findById(Integer id) {
+                return Mono.just(id);
+            }
+        };
+        ProxyFactory proxyFactory = new ProxyFactory(plain);
+        proxyFactory.addInterface(Rows.class);
+        proxyFactory.addAdvice(new RepositoryMetrics(new SimpleMeterRegistry(), "Rows"));
+        instrumented = (Rows) proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public List<Integer> plainFlux() {
+        return plain.findAll().collectList().block();
+    }
+
+    @Benchmark
+    public List<Integer> instrumentedFlux() {
+        return instrumented.findAll().collectList().block();
+    }
+
+    @Benchmark
+    public Integer plainMono() {
+        return plain.findById(7).block();
+    }
+
+    @Benchmark
+    public Integer instrumentedMono() {
+        return instrumented.findById(7).block();
+    }
+}
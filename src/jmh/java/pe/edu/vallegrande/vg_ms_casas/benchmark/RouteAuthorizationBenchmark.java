@@ -0,0 +1,80 @@
+package pe.edu.vallegrande.vg_ms_casas.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.web.server.authorization.DelegatingReactiveAuthorizationManager;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcherEntry;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.web.server.ServerWebExchange;
+import pe.edu.vallegrande.vg_ms_casas.LegacyRouteAuthorization;
+import pe.edu.vallegrande.vg_ms_casas.config.JwtAuthorityConverter;
+import pe.edu.vallegrande.vg_ms_casas.config.SecurityConfig;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de autorizar una petición: la cadena de pathMatchers anterior frente a la tabla
+ * (método, primer segmento), montada igual que en SecurityConfig (anyExchange().access(...)).
+ * Las rutas van de la primera regla (/consumption) a la última (/transactions) y al caso por defecto.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RouteAuthorizationBenchmark {
+
+    private ReactiveAuthorizationManager<ServerWebExchange> legacy;
+    private ReactiveAuthorizationManager<ServerWebExchange> table;
+    private ServerWebExchange[] exchanges;
+    private Mono<Authentication> authentication;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        legacy = LegacyRouteAuthorization.build();
+        table = DelegatingReactiveAuthorizationManager.builder()
+                .add(new ServerWebExchangeMatcherEntry<>(ServerWebExchangeMatchers.anyExchange(), SecurityConfig.routeAuthorization()))
+                .build();
+        exchanges = new ServerWebExchange[]{
+                exchange(HttpMethod.GET, "/consumption/15"),
+                exchange(HttpMethod.POST, "/inventories"),
+                exchange(HttpMethod.GET, "/homes/2"),
+                exchange(HttpMethod.PUT, "/transactions/9"),
+                exchange(HttpMethod.GET, "/transactions/inventory/1"),
+                exchange(HttpMethod.GET, "/unknown/path")};
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject("user-1").claim("role", "admin").build();
+        authentication = Mono.just(new JwtAuthorityConverter().convert(jwt).block());
+    }
+
+    @Benchmark
+    public AuthorizationDecision legacyMatcherChain() {
+        return legacy.check(authentication, nextExchange()).block();
+    }
+
+    @Benchmark
+    public AuthorizationDecision routeTable() {
+        return table.check(authentication, nextExchange()).block();
+    }
+
+    private ServerWebExchange nextExchange() {
+        next = (next + 1) % exchanges.length;
+        return exchanges[next];
+    }
+
+    private static ServerWebExchange exchange(HttpMethod method, String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.method(method, path));
+    }
+}
@@ -0,0 +1,147 @@
+package pe.edu.vallegrande.vg_ms_casas.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.reactive.TransactionCallback;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import pe.edu.vallegrande.vg_ms_casas.repository.ChangeLogRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.TransactionRepository;
+import pe.edu.vallegrande.vg_ms_casas.service.InventoryCache;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionEventStream;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validación y guardado de TransactionService.save sin base de datos: los repositorios son
+ * sustitutos en memoria que aplican el stock igual que los UPDATE condicionales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TransactionSaveBenchmark {
+
+    private static final int INVENTORIES = 64;
+
+    private final Map<Integer, Integer> stocks = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private TransactionService transactionService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactionService = new TransactionService();
+        ReflectionTestUtils.setField(transactionService, "inventoryRepository", inventoryRepository());
+        ReflectionTestUtils.setField(transactionService, "transactionRepository", transactionRepository());
+        ReflectionTestUtils.setField(transactionService, "transactionalOperator", new PassThroughTransactionalOperator());
+        ReflectionTestUtils.setField(transactionService, "inventoryCache", new InventoryCache(10_000, Duration.ofMinutes(10)));
+        ReflectionTestUtils.setField(transactionService, "transactionEventStream", new TransactionEventStream(1000, 256, Duration.ofSeconds(15)));
+        ReflectionTestUtils.setField(transactionService, "changeLogRepository", new ChangeLogRepository() {
+            @Override
+            public Mono<Void> append(String entity, Integer entityId, Number refId, String action) {
+                return Mono.empty();
+            }
+        });
+    }
+
+    // Stock suficiente para que ninguna SALIDA de una iteración se rechace
+    @Setup(Level.Iteration)
+    public void resetStocks() {
+        for (int id = 1; id <= INVENTORIES; id++) {
+            stocks.put(id, 1_000_000_000);
+        }
+    }
+
+    @Benchmark
+    public Transaction saveValid() {
+        int n = sequence.incrementAndGet();
+        Transaction transaction = transaction(n % INVENTORIES + 1, (n & 1) == 0 ? "ENTRADA" : "SALIDA");
+        return transactionService.save(transaction).block();
+    }
+
+    @Benchmark
+    public Throwable saveInvalidType() {
+        Transaction transaction = transaction(1, "TRASPASO");
+        return transactionService.save(transaction)
+                .then(Mono.<Throwable>empty())
+                .onErrorResume(Mono::just)
+                .block();
+    }
+
+    private static Transaction transaction(int inventoryId, String type) {
+        Transaction transaction = new Transaction();
+        transaction.setInventoryId(inventoryId);
+        transaction.setProductId(inventoryId);
+        transaction.setType(type);
+        transaction.setQuantity(3);
+        transaction.setReason("benchmark");
+        transaction.setUserId(1);
+        transaction.setDate(LocalDateTime.of(2024, 1, 1, 8, 0));
+        return transaction;
+    }
+
+    private InventoryRepository inventoryRepository() {
+        return (InventoryRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{InventoryRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "applyStockDelta" -> {
+                        Integer delta = (Integer) args[1];
+                        Integer stock = stocks.computeIfPresent((Integer) args[0],
+                                (id, current) -> current + delta >= 0 ? current + delta : current);
+                        yield Mono.justOrEmpty(stock);
+                    }
+                    case "overwriteStock" -> Mono.justOrEmpty(stocks.put((Integer) args[0], (Integer) args[1]));
+                    case "findById" -> Mono.justOrEmpty(stocks.get((Integer) args[0]))
+                            .map(stock -> new Inventory((Integer) args[0], (Integer) args[0], stock, stock, "A", null));
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private TransactionRepository transactionRepository() {
+        AtomicInteger ids = new AtomicInteger();
+        return (TransactionRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{TransactionRepository.class}, (proxy, method, args) -> {
+                    if (!"save".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Transaction transaction = (Transaction) args[0];
+                    transaction.setIdTransaction(ids.incrementAndGet());
+                    return Mono.just(transaction);
+                });
+    }
+
+    // Ejecuta el callback sin abrir transacción
+    private static final class PassThroughTransactionalOperator implements TransactionalOperator {
+
+        @Override
+        public <T> Flux<T> execute(TransactionCallback<T> action) {
+            return Flux.from(action.doInTransaction(null));
+        }
+
+        @Override
+        public <T> Mono<T> transactional(Mono<T> mono) {
+            return mono;
+        }
+
+        @Override
+        public <T> Flux<T> transactional(Flux<T> flux) {
+            return flux;
+        }
+    }
+}
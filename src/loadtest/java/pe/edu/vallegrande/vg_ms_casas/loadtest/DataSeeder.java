@@ -0,0 +1,64 @@
+package pe.edu.vallegrande.vg_ms_casas.loadtest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Carga datos sintéticos en la base embebida antes de levantar la aplicación.
+ * Los ids quedan densos desde 1, así las rutas pueden elegirlos al azar.
+ * El stock inicial es alto para que las SALIDA de la prueba no se rechacen.
+ */
+public final class DataSeeder {
+
+    private DataSeeder() {
+    }
+
+    public static void seed(DataSource dataSource, LoadTestConfig config) {
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("""
+                        TRUNCATE transactions, consumption, consumption_daily_rollup, inventory_consumption, home
+                        RESTART IDENTITY CASCADE
+                        """);
+            }
+            execute(connection, """
+                    INSERT INTO home (names, address, status)
+                    SELECT 'Hogar ' || g, 'Calle ' || g, 'A' FROM generate_series(1, ?) g
+                    """, config.homes());
+            execute(connection, """
+                    INSERT INTO inventory_consumption (product_id, initial_stock, current_stock, status)
+                    SELECT g, 1000000, 1000000, 'A' FROM generate_series(1, ?) g
+                    """, config.inventories());
+            execute(connection, """
+                    INSERT INTO consumption (date, id_home, product_id, quantity, weight, price, salevalue, status)
+                    SELECT DATE '2024-01-01' + (g % 365), 1 + g % ?, 1 + g % ?, 1 + g % 10, (1 + g % 10) * 0.5,
+                           12, (1 + g % 10) * 12.0, CASE WHEN g % 10 = 0 THEN 'I' ELSE 'A' END
+                    FROM generate_series(1, ?) g
+                    """, config.homes(), config.inventories(), config.consumptions());
+            execute(connection, """
+                    INSERT INTO transactions (inventory_id, product_id, type, quantity, previous_stock, new_stock,
+                                              reason, date, user_id, status)
+                    SELECT 1 + g % ?, 1 + g % ?, 'ENTRADA', 1, 1000000, 1000000, 'seed',
+                           TIMESTAMP '2024-01-01 00:00:00' + g * INTERVAL '1 minute', 1, 'A'
+                    FROM generate_series(1, ?) g
+                    """, config.inventories(), config.inventories(), config.transactions());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not seed the load test database", e);
+        }
+    }
+
+    private static void execute(Connection connection, String sql, int... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setInt(i + 1, parameters[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+}
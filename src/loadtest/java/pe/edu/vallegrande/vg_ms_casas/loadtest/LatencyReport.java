@@ -0,0 +1,124 @@
+package pe.edu.vallegrande.vg_ms_casas.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias por ruta en histogramas HdrHistogram (microsegundos).
+ * En modo abierto la latencia se mide desde el instante en que la petición debía salir,
+ * no desde que salió, para que la espera en cola no quede oculta (omisión coordinada).
+ */
+public class LatencyReport {
+
+    private static final double[] PERCENTILES = {50, 95, 99, 99.9};
+
+    private final Map<String, RouteStats> routes = new LinkedHashMap<>();
+
+    public LatencyReport(List<LoadRoutes.Route> routes) {
+        routes.forEach(route -> this.routes.put(route.name(), new RouteStats()));
+    }
+
+    public void record(String route, long intendedStartNanos, long sentNanos, long endNanos, boolean success) {
+        RouteStats stats = routes.get(route);
+        stats.responseTime.recordValue(TimeUnit.NANOSECONDS.toMicros(endNanos - intendedStartNanos));
+        stats.serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(endNanos - sentNanos));
+        if (!success) {
+            stats.errors.increment();
+        }
+    }
+
+    public Map<String, Object> summarize(LoadTestConfig config, double seconds, long incomplete) {
+        Map<String, Object> perRoute = new LinkedHashMap<>();
+        Histogram total = new Histogram(3);
+        long errors = 0;
+        for (Map.Entry<String, RouteStats> entry : routes.entrySet()) {
+            Histogram responseTime = entry.getValue().responseTime.getIntervalHistogram();
+            Histogram serviceTime = entry.getValue().serviceTime.getIntervalHistogram();
+            long routeErrors = entry.getValue().errors.sum();
+            total.add(responseTime);
+            errors += routeErrors;
+            if (responseTime.getTotalCount() > 0) {
+                Map<String, Object> stats = stats(responseTime, routeErrors, seconds);
+                stats.put("serviceTimeP99Ms", millis(serviceTime.getValueAtPercentile(99)));
+                perRoute.put(entry.getKey(), stats);
+            }
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("mode", config.mode().name().toLowerCase());
+        summary.put("targetRate", config.mode() == LoadTestConfig.Mode.OPEN ? config.rate() : null);
+        summary.put("concurrency", config.mode() == LoadTestConfig.Mode.CLOSED ? config.concurrency() : null);
+        summary.put("durationSeconds", seconds);
+        summary.put("incomplete", incomplete);
+        summary.put("total", stats(total, errors, seconds));
+        summary.put("routes", perRoute);
+        return summary;
+    }
+
+    public static void print(Map<String, Object> summary) {
+        System.out.printf("%n%-26s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "route", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> routes = (Map<String, Map<String, Object>>) summary.get("routes");
+        routes.forEach(LatencyReport::printRow);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> total = (Map<String, Object>) summary.get("total");
+        printRow("TOTAL", total);
+        System.out.printf("mode=%s durationSeconds=%.1f incomplete=%s%n",
+                summary.get("mode"), (double) summary.get("durationSeconds"), summary.get("incomplete"));
+    }
+
+    public static void write(Map<String, Object> summary, String file) {
+        try {
+            Path path = Path.of(file);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), summary);
+            System.out.println("Load test result is saved to " + path.toAbsolutePath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void printRow(String route, Map<String, Object> stats) {
+        System.out.printf("%-26s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", route,
+                stats.get("count"), stats.get("errors"), stats.get("throughput"), stats.get("p50Ms"),
+                stats.get("p95Ms"), stats.get("p99Ms"), stats.get("p999Ms"), stats.get("maxMs"));
+    }
+
+    private static Map<String, Object> stats(Histogram histogram, long errors, double seconds) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", histogram.getTotalCount());
+        stats.put("errors", errors);
+        stats.put("throughput", seconds > 0 ? histogram.getTotalCount() / seconds : 0.0);
+        stats.put("p50Ms", millis(histogram.getValueAtPercentile(PERCENTILES[0])));
+        stats.put("p95Ms", millis(histogram.getValueAtPercentile(PERCENTILES[1])));
+        stats.put("p99Ms", millis(histogram.getValueAtPercentile(PERCENTILES[2])));
+        stats.put("p999Ms", millis(histogram.getValueAtPercentile(PERCENTILES[3])));
+        stats.put("maxMs", millis(histogram.getMaxValue()));
+        return stats;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class RouteStats {
+        private final Recorder responseTime = new Recorder(3);
+        private final Recorder serviceTime = new Recorder(3);
+        private final LongAdder errors = new LongAdder();
+    }
+}
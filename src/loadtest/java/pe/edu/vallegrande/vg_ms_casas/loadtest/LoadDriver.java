@@ -0,0 +1,143 @@
+package pe.edu.vallegrande.vg_ms_casas.loadtest;
+
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Genera la carga contra la aplicación y registra cada respuesta en el LatencyReport.
+ *
+ * En modo abierto las peticiones salen a tasa fija según un calendario (start + i / rate)
+ * sin esperar a las anteriores, y la latencia se cuenta desde la hora programada.
+ * En modo cerrado cada cliente envía la siguiente petición al recibir la respuesta.
+ * Solo se registran las peticiones programadas después del calentamiento.
+ */
+public class LoadDriver implements AutoCloseable {
+
+    private final LoadTestConfig config;
+    private final LoadRoutes.Mix mix;
+    private final String userToken;
+    private final String adminToken;
+    private final ConnectionProvider connectionProvider;
+    private final LoopResources loopResources;
+    private final WebClient webClient;
+    private final LatencyReport report;
+    private final AtomicLong inFlight = new AtomicLong();
+
+    public LoadDriver(String baseUrl, LoadTestConfig config, LoadRoutes.Mix mix, String userToken, String adminToken) {
+        this.config = config;
+        this.mix = mix;
+        this.userToken = userToken;
+        this.adminToken = adminToken;
+        this.report = new LatencyReport(mix.routes());
+        this.connectionProvider = ConnectionProvider.builder("loadtest")
+                .maxConnections(config.maxConnections())
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(config.drainTimeout())
+                .build();
+        // Event loops propios para no competir con los del servidor dentro de la misma JVM
+        this.loopResources = LoopResources.create("loadtest-client");
+        this.webClient = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider).runOn(loopResources)))
+                .build();
+    }
+
+    // Recalcula el rollup diario de los consumos sembrados, que el reporte necesita
+    public void prepare() {
+        webClient.post()
+                .uri("/consumption/report/rollup/rebuild")
+                .headers(headers -> headers.setBearerAuth(adminToken))
+                .retrieve()
+                .toBodilessEntity()
+                .block(Duration.ofMinutes(5));
+    }
+
+    public Map<String, Object> run() {
+        long start = System.nanoTime();
+        long measureStart = start + config.warmup().toNanos();
+        long end = measureStart + config.duration().toNanos();
+
+        if (config.mode() == LoadTestConfig.Mode.OPEN) {
+            runOpen(start, measureStart, end);
+        } else {
+            runClosed(measureStart, end);
+        }
+        long incomplete = drain();
+        return report.summarize(config, config.duration().toNanos() / 1e9, incomplete);
+    }
+
+    private void runOpen(long start, long measureStart, long end) {
+        double intervalNanos = 1e9 / config.rate();
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            LoadRoutes.Route route = mix.next();
+            boolean measured = intended >= measureStart;
+            long sent = System.nanoTime();
+            inFlight.incrementAndGet();
+            call(route)
+                    .doFinally(signal -> inFlight.decrementAndGet())
+                    .subscribe(success -> {
+                        if (measured) {
+                            report.record(route.name(), intended, sent, System.nanoTime(), success);
+                        }
+                    });
+        }
+    }
+
+    private void runClosed(long measureStart, long end) {
+        Flux.range(0, config.concurrency())
+                .flatMap(worker -> Mono.defer(() -> {
+                            LoadRoutes.Route route = mix.next();
+                            long sent = System.nanoTime();
+                            return call(route).doOnNext(success -> {
+                                if (sent >= measureStart) {
+                                    report.record(route.name(), sent, sent, System.nanoTime(), success);
+                                }
+                            });
+                        })
+                        .repeat(() -> System.nanoTime() < end), config.concurrency())
+                .blockLast();
+    }
+
+    // Espera las peticiones en curso; devuelve cuántas no terminaron a tiempo
+    private long drain() {
+        long deadline = System.nanoTime() + config.drainTimeout().toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(Duration.ofMillis(50).toNanos());
+        }
+        return inFlight.get();
+    }
+
+    private Mono<Boolean> call(LoadRoutes.Route route) {
+        WebClient.RequestBodySpec request = webClient.method(route.method())
+                .uri(route.uri().get())
+                .headers(headers -> headers.setBearerAuth(route.write() ? adminToken : userToken));
+        Object body = route.body().get();
+        return (body == null ? request : request.bodyValue(body))
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().is2xxSuccessful()))
+                .onErrorReturn(false);
+    }
+
+    @Override
+    public void close() {
+        connectionProvider.dispose();
+        loopResources.dispose();
+    }
+}
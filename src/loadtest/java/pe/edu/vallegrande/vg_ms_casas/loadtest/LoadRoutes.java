@@ -0,0 +1,142 @@
+package pe.edu.vallegrande.vg_ms_casas.loadtest;
+
+import org.springframework.http.HttpMethod;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Rutas que ejercita la prueba de carga y la mezcla ponderada entre ellas.
+ * Las lecturas usan un token USER y las escrituras uno ADMIN, como en SecurityConfig.
+ */
+public final class LoadRoutes {
+
+    public static final String DEFAULT_MIX = "transactions.page=15,transactions.byId=10,transactions.byInventory=5,"
+            + "transactions.create=5,consumption.page=10,consumption.byId=10,consumption.report=5,consumption.create=5,"
+            + "inventories.byId=10,inventories.byProduct=5,inventories.active=5,homes.page=10,homes.byId=5";
+
+    public record Route(String name, HttpMethod method, boolean write, Supplier<String> uri, Supplier<Object> body) {
+    }
+
+    private LoadRoutes() {
+    }
+
+    public static Map<String, Route> all(LoadTestConfig config) {
+        int homes = config.homes();
+        int inventories = config.inventories();
+        int consumptions = config.consumptions();
+        int transactions = config.transactions();
+
+        Map<String, Route> routes = new LinkedHashMap<>();
+        add(routes, read("transactions.page", () -> "/transactions?limit=50"));
+        add(routes, read("transactions.byId", () -> "/transactions/" + id(transactions)));
+        add(routes, read("transactions.byInventory", () -> "/transactions/inventory/" + id(inventories) + "?limit=20"));
+        add(routes, new Route("transactions.create", HttpMethod.POST, true, () -> "/transactions", () -> {
+            int inventoryId = id(inventories);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("inventoryId", inventoryId);
+            body.put("productId", inventoryId);
+            body.put("type", ThreadLocalRandom.current().nextBoolean() ? "ENTRADA" : "SALIDA");
+            body.put("quantity", 1);
+            body.put("reason", "loadtest");
+            body.put("userId", 1);
+            return body;
+        }));
+        add(routes, read("consumption.page", () -> "/consumption?limit=50"));
+        add(routes, read("consumption.byId", () -> "/consumption/" + id(consumptions)));
+        add(routes, read("consumption.report", () -> {
+            LocalDate start = LocalDate.of(2024, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(300));
+            return "/consumption/report?startDate=" + start + "&endDate=" + start.plusDays(60) + "&period=week&groupBy=home";
+        }));
+        add(routes, new Route("consumption.create", HttpMethod.POST, true, () -> "/consumption", () -> {
+            int quantity = 1 + ThreadLocalRandom.current().nextInt(10);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("date", LocalDate.of(2024, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(365)).toString());
+            body.put("id_home", id(homes));
+            body.put("productId", id(inventories));
+            body.put("quantity", quantity);
+            body.put("weight", quantity * 0.5);
+            body.put("price", 12);
+            body.put("salevalue", quantity * 12.0);
+            return body;
+        }));
+        add(routes, read("inventories.byId", () -> "/inventories/" + id(inventories)));
+        add(routes, read("inventories.byProduct", () -> "/inventories/product/" + id(inventories)));
+        add(routes, read("inventories.active", () -> "/inventories/active?limit=50"));
+        add(routes, read("homes.page", () -> "/homes?limit=50"));
+        add(routes, read("homes.byId", () -> "/homes/" + id(homes)));
+        return routes;
+    }
+
+    /**
+     * Interpreta la mezcla "ruta=peso,..."; las rutas que no aparecen no se ejecutan.
+     */
+    public static Mix mix(LoadTestConfig config) {
+        Map<String, Route> routes = all(config);
+        List<Route> selected = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (String entry : config.mix().split(",")) {
+            String[] parts = entry.trim().split("=");
+            Route route = routes.get(parts[0]);
+            if (route == null || parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry + ". Routes: " + routes.keySet());
+            }
+            int weight = Integer.parseInt(parts[1]);
+            if (weight > 0) {
+                selected.add(route);
+                weights.add(weight);
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no routes with weight > 0");
+        }
+        return new Mix(selected, weights);
+    }
+
+    public static final class Mix {
+
+        private final List<Route> routes;
+        private final int[] cumulative;
+
+        private Mix(List<Route> routes, List<Integer> weights) {
+            this.routes = List.copyOf(routes);
+            this.cumulative = new int[weights.size()];
+            int total = 0;
+            for (int i = 0; i < weights.size(); i++) {
+                total += weights.get(i);
+                cumulative[i] = total;
+            }
+        }
+
+        public List<Route> routes() {
+            return routes;
+        }
+
+        public Route next() {
+            int value = ThreadLocalRandom.current().nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (value < cumulative[i]) {
+                    return routes.get(i);
+                }
+            }
+            return routes.get(routes.size() - 1);
+        }
+    }
+
+    private static Route read(String name, Supplier<String> uri) {
+        return new Route(name, HttpMethod.GET, false, uri, () -> null);
+    }
+
+    private static void add(Map<String, Route> routes, Route route) {
+        routes.put(route.name(), route);
+    }
+
+    private static int id(int max) {
+        return 1 + ThreadLocalRandom.current().nextInt(max);
+    }
+}
@@ -0,0 +1,63 @@
+package pe.edu.vallegrande.vg_ms_casas.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import pe.edu.vallegrande.vg_ms_casas.EmbeddedPostgresSupport;
+import pe.edu.vallegrande.vg_ms_casas.VgMsCasasApplication;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prueba de carga de punta a punta: siembra un PostgreSQL embebido, levanta la aplicación
+ * con un JWKS y un servicio de productos locales, ejecuta la mezcla de rutas y reporta
+ * throughput y percentiles de latencia por ruta (consola y JSON).
+ *
+ * Argumentos clave=valor (ver LoadTestConfig), p. ej. mode=open rate=500 duration=2m;
+ * los que empiezan con -- se pasan a Spring Boot.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        LoadRoutes.Mix mix = LoadRoutes.mix(config);
+        Duration tokenValidity = config.warmup().plus(config.duration()).plus(config.drainTimeout()).plusMinutes(10);
+
+        try (StubServer stubs = new StubServer()) {
+            DataSeeder.seed(EmbeddedPostgresSupport.dataSource(), config);
+
+            ConfigurableApplicationContext application = new SpringApplicationBuilder(VgMsCasasApplication.class)
+                    .run(applicationArgs(args, stubs));
+            int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+            try (LoadDriver driver = new LoadDriver("http://localhost:" + port, config, mix,
+                    stubs.sign("USER", tokenValidity), stubs.sign("ADMIN", tokenValidity))) {
+                driver.prepare();
+                Map<String, Object> summary = driver.run();
+                LatencyReport.print(summary);
+                LatencyReport.write(summary, config.result());
+            } finally {
+                application.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    // Argumentos de línea de comandos para que tengan prioridad sobre application.yml
+    private static String[] applicationArgs(String[] args, StubServer stubs) {
+        List<String> applicationArgs = new ArrayList<>();
+        EmbeddedPostgresSupport.register((name, value) -> applicationArgs.add("--" + name + "=" + value.get()));
+        applicationArgs.add("--server.port=0");
+        applicationArgs.add("--spring.security.oauth2.resourceserver.jwt.jwk-set-uri=" + stubs.jwkSetUri());
+        applicationArgs.add("--product.client.base-url=" + stubs.productsUrl());
+        applicationArgs.add("--logging.level.root=WARN");
+        Arrays.stream(args).filter(arg -> arg.startsWith("--")).forEach(applicationArgs::add);
+        return applicationArgs.toArray(String[]::new);
+    }
+}
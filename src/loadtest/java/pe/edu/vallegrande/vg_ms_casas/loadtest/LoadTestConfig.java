@@ -0,0 +1,99 @@
+package pe.edu.vallegrande.vg_ms_casas.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parámetros de la prueba de carga. Se leen de argumentos clave=valor y, si faltan,
+ * de las propiedades del sistema loadtest.&lt;clave&gt;.
+ */
+public class LoadTestConfig {
+
+    public enum Mode { OPEN, CLOSED }
+
+    private final Map<String, String> values;
+
+    private LoadTestConfig(Map<String, String> values) {
+        this.values = values;
+    }
+
+    public static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") && separator > 0) {
+                values.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+        return new LoadTestConfig(values);
+    }
+
+    // OPEN: llegadas a tasa fija, sin esperar respuestas; CLOSED: N clientes en bucle
+    public Mode mode() {
+        return Mode.valueOf(get("mode", "open").toUpperCase());
+    }
+
+    // Peticiones por segundo en modo abierto
+    public double rate() {
+        return Double.parseDouble(get("rate", "200"));
+    }
+
+    // Clientes concurrentes en modo cerrado
+    public int concurrency() {
+        return Integer.parseInt(get("concurrency", "32"));
+    }
+
+    public Duration warmup() {
+        return DurationStyle.detectAndParse(get("warmup", "10s"));
+    }
+
+    public Duration duration() {
+        return DurationStyle.detectAndParse(get("duration", "60s"));
+    }
+
+    // Tiempo máximo para esperar las peticiones en curso al terminar
+    public Duration drainTimeout() {
+        return DurationStyle.detectAndParse(get("drain-timeout", "30s"));
+    }
+
+    // Pesos por ruta, p. ej. transactions.page=20,transactions.create=5; "default" usa LoadRoutes.DEFAULT_MIX
+    public String mix() {
+        String mix = get("mix", "default");
+        return "default".equals(mix) ? LoadRoutes.DEFAULT_MIX : mix;
+    }
+
+    public int maxConnections() {
+        return Integer.parseInt(get("connections", "500"));
+    }
+
+    public int homes() {
+        return Integer.parseInt(get("homes", "200"));
+    }
+
+    public int inventories() {
+        return Integer.parseInt(get("inventories", "500"));
+    }
+
+    public int consumptions() {
+        return Integer.parseInt(get("consumptions", "50000"));
+    }
+
+    public int transactions() {
+        return Integer.parseInt(get("transactions", "50000"));
+    }
+
+    public String result() {
+        return get("result", "target/loadtest-result.json");
+    }
+
+    private String get(String key, String defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            value = System.getProperty("loadtest." + key);
+        }
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,83 @@
+package pe.edu.vallegrande.vg_ms_casas.loadtest;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Reemplaza los servicios externos durante la prueba de carga: publica un JWKS propio en /jwks
+ * (en lugar del de Google) y responde /products/{id} como el microservicio de productos.
+ * Los tokens se firman con la misma llave RSA que publica el JWKS.
+ */
+public class StubServer implements AutoCloseable {
+
+    private final RSAKey key;
+    private final DisposableServer server;
+
+    public StubServer() {
+        try {
+            this.key = new RSAKeyGenerator(2048).keyID("loadtest").generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Could not generate the signing key", e);
+        }
+        String jwks = new JWKSet(key.toPublicJWK()).toString();
+        this.server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get("/jwks", (request, response) -> response
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just(jwks)))
+                        .get("/products/{id}", (request, response) -> response
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"productId\":" + request.param("id") + "}"))))
+                .bindNow();
+    }
+
+    public String jwkSetUri() {
+        return baseUrl() + "/jwks";
+    }
+
+    public String productsUrl() {
+        return baseUrl() + "/products";
+    }
+
+    public String sign(String role, Duration validity) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("loadtest-" + role.toLowerCase())
+                .claim("role", role)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(validity)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        try {
+            jwt.sign(new RSASSASigner(key));
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Could not sign the token", e);
+        }
+        return jwt.serialize();
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
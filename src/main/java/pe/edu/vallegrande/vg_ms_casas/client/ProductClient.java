@@ -0,0 +1,120 @@
+package pe.edu.vallegrande.vg_ms_casas.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import pe.edu.vallegrande.vg_ms_casas.dto.ProductDTO;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cliente del microservicio de productos.
+ *
+ * Cada consulta pasa por una caché con TTL que comparte la misma petición en curso entre
+ * llamadas concurrentes al mismo productId; solo los fallos transitorios (conexión, timeout, 5xx, 429)
+ * se reintentan y cuentan para el circuit breaker. Un 404 se devuelve como Mono vacío.
+ */
+@Component
+@EnableConfigurationProperties(ProductClientProperties.class)
+public class ProductClient {
+
+    private final ProductClientProperties properties;
+    private final ConnectionProvider connectionProvider;
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final AsyncCache<Long, ProductDTO> cache;
+
+    public ProductClient(ProductClientProperties properties) {
+        this.properties = properties;
+        this.connectionProvider = ConnectionProvider.builder("product-client")
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireTimeout(properties.getPendingAcquireTimeout())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getReadTimeout());
+        this.webClient = WebClient.builder()
+                .baseUrl(properties.getBaseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultHeader("Content-Type", "application/json")
+                .build();
+        this.circuitBreaker = CircuitBreaker.of("product-client", CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(properties.getOpenStateWait())
+                .recordException(ProductClient::isTransient)
+                .build());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaxSize())
+                .expireAfterWrite(properties.getCacheTtl())
+                .recordStats()
+                .buildAsync();
+    }
+
+    public Mono<ProductDTO> findById(Long productId) {
+        if (productId == null) {
+            return Mono.error(new IllegalArgumentException("Product id is required"));
+        }
+        // Las respuestas vacías o con error no se guardan en la caché
+        return Mono.fromFuture(() -> cache.get(productId, (id, executor) -> fetch(id).toFuture()), true);
+    }
+
+    public void evict(Long productId) {
+        cache.synchronous().invalidate(productId);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cacheSize", cache.synchronous().estimatedSize());
+        result.put("cacheHits", cache.synchronous().stats().hitCount());
+        result.put("cacheMisses", cache.synchronous().stats().missCount());
+        result.put("circuitState", circuitBreaker.getState().name());
+        result.put("failureRate", circuitBreaker.getMetrics().getFailureRate());
+        return result;
+    }
+
+    private Mono<ProductDTO> fetch(Long productId) {
+        return Mono.defer(() -> webClient.get()
+                        .uri("/{id}", productId)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .retrieve()
+                        .bodyToMono(ProductDTO.class)
+                        .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+                        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)))
+                .retryWhen(Retry.backoff(properties.getMaxRetries(), properties.getRetryBackoff())
+                        .jitter(properties.getRetryJitter())
+                        .filter(ProductClient::isTransient)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    static boolean isTransient(Throwable throwable) {
+        if (throwable instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429;
+        }
+        return throwable instanceof WebClientRequestException || throwable instanceof TimeoutException;
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionProvider.dispose();
+    }
+}
@@ -0,0 +1,39 @@
+package pe.edu.vallegrande.vg_ms_casas.client;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuración del cliente del microservicio de productos (prefijo product.client).
+ */
+@Data
+@ConfigurationProperties(prefix = "product.client")
+public class ProductClientProperties {
+
+    private String baseUrl = "https://ms-product-ix0t.onrender.com/NPH/products";
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(3);
+
+    // Pool de conexiones
+    private int maxConnections = 50;
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    // Reintentos con backoff exponencial y jitter
+    private int maxRetries = 2;
+    private Duration retryBackoff = Duration.ofMillis(200);
+    private double retryJitter = 0.5;
+
+    // Circuit breaker
+    private float failureRateThreshold = 50;
+    private int slidingWindowSize = 20;
+    private int minimumNumberOfCalls = 10;
+    private Duration openStateWait = Duration.ofSeconds(30);
+
+    // Caché de productos
+    private Duration cacheTtl = Duration.ofMinutes(10);
+    private long cacheMaxSize = 5000;
+}
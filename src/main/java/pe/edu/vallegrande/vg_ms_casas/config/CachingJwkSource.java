@@ -0,0 +1,175 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Llaves JWK en memoria con refresco en segundo plano.
+ *
+ * Las peticiones siempre usan el último JWK set descargado, aunque esté vencido: si pasó
+ * refreshInterval se dispara un refresco sin esperarlo, y si la descarga falla o tarda se siguen
+ * usando las llaves anteriores. Solo se espera la descarga cuando aún no hay llaves o cuando llega
+ * un kid desconocido (rotación), y en ese caso como máximo una vez cada minRefreshInterval.
+ * Las descargas simultáneas comparten la misma petición. El refresco programado arranca con el
+ * contexto (SmartLifecycle); con autoStartup en false las llaves se descargan solo al pedirlas.
+ */
+public class CachingJwkSource implements SmartLifecycle {
+
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final Duration refreshInterval;
+    private final Duration minRefreshInterval;
+    private final Duration fetchTimeout;
+    private final Clock clock;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicReference<Mono<JWKSet>> inFlight = new AtomicReference<>();
+    private final List<Consumer<Set<String>>> keyRemovalListeners = new CopyOnWriteArrayList<>();
+    private boolean autoStartup = true;
+    private Disposable scheduledRefresh;
+
+    public CachingJwkSource(WebClient webClient, String jwkSetUri, Duration refreshInterval,
+                            Duration minRefreshInterval, Duration fetchTimeout, Clock clock) {
+        this.webClient = webClient;
+        this.jwkSetUri = jwkSetUri;
+        this.refreshInterval = refreshInterval;
+        this.minRefreshInterval = minRefreshInterval;
+        this.fetchTimeout = fetchTimeout;
+        this.clock = clock;
+    }
+
+    public void setAutoStartup(boolean autoStartup) {
+        this.autoStartup = autoStartup;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return autoStartup;
+    }
+
+    // Primera descarga al arrancar y luego cada refreshInterval; un fallo no corta la programación
+    @Override
+    public synchronized void start() {
+        if (scheduledRefresh == null) {
+            scheduledRefresh = Flux.interval(Duration.ZERO, refreshInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> refresh().onErrorResume(e -> Mono.empty()))
+                    .subscribe();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.dispose();
+            scheduledRefresh = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return scheduledRefresh != null;
+    }
+
+    /**
+     * Llaves candidatas para verificar el JWT (por kid, algoritmo y uso), para NimbusReactiveJwtDecoder.
+     */
+    public Flux<JWK> select(SignedJWT jwt) {
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+        return Flux.defer(() -> {
+            Snapshot current = snapshot.get();
+            if (current == null) {
+                return refresh().flatMapIterable(selector::select);
+            }
+            Instant now = clock.instant();
+            if (current.fetchedAt().plus(refreshInterval).isBefore(now)) {
+                refresh().onErrorResume(e -> Mono.empty()).subscribe();
+            }
+            List<JWK> keys = selector.select(current.keys());
+            if (!keys.isEmpty() || current.fetchedAt().plus(minRefreshInterval).isAfter(now)) {
+                return Flux.fromIterable(keys);
+            }
+            // kid desconocido: puede ser una llave nueva publicada después de la última descarga
+            return refresh()
+                    .map(selector::select)
+                    .onErrorReturn(keys)
+                    .flatMapIterable(selected -> selected);
+        });
+    }
+
+    /**
+     * Registra un callback con los kid que desaparecieron del JWK set en un refresco.
+     */
+    public void onKeysRemoved(Consumer<Set<String>> listener) {
+        keyRemovalListeners.add(listener);
+    }
+
+    public Mono<JWKSet> refresh() {
+        return Mono.defer(() -> {
+            Mono<JWKSet> running = inFlight.get();
+            if (running != null) {
+                return running;
+            }
+            AtomicReference<Mono<JWKSet>> self = new AtomicReference<>();
+            Mono<JWKSet> fetch = fetch()
+                    .doOnNext(this::update)
+                    .doFinally(signal -> inFlight.compareAndSet(self.get(), null))
+                    .cache();
+            self.set(fetch);
+            return inFlight.compareAndSet(null, fetch) ? fetch : Objects.requireNonNullElse(inFlight.get(), fetch);
+        });
+    }
+
+    private Mono<JWKSet> fetch() {
+        return webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(fetchTimeout)
+                .handle((body, sink) -> {
+                    try {
+                        sink.next(JWKSet.parse(body));
+                    } catch (ParseException e) {
+                        sink.error(new IllegalStateException("Invalid JWK set from " + jwkSetUri, e));
+                    }
+                });
+    }
+
+    private void update(JWKSet keys) {
+        Snapshot previous = snapshot.getAndSet(new Snapshot(keys, clock.instant()));
+        if (previous == null) {
+            return;
+        }
+        // Una llave que desapareció o cambió bajo el mismo kid invalida los tokens firmados con ella
+        Set<String> removed = previous.keys().getKeys().stream()
+                .filter(key -> !keys.getKeys().contains(key))
+                .map(key -> Objects.requireNonNullElse(key.getKeyID(), ""))
+                .collect(Collectors.toSet());
+        if (!removed.isEmpty()) {
+            keyRemovalListeners.forEach(listener -> listener.accept(removed));
+        }
+    }
+
+    private record Snapshot(JWKSet keys, Instant fetchedAt) {
+    }
+}
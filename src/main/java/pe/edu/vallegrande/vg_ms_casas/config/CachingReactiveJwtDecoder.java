@@ -0,0 +1,102 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Guarda los JWT ya verificados, con clave el SHA-256 del token, para que un mismo token
+ * no vuelva a verificarse en cada petición. Cada entrada vence en el exp del token (o antes,
+ * por maxTtl), y se descarta cuando la llave que lo firmó sale del JWK set.
+ * Los tokens rechazados no se guardan.
+ */
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    private final ReactiveJwtDecoder delegate;
+    private final AsyncCache<String, Jwt> cache;
+    private final Clock clock;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, long maxSize, Duration maxTtl, Clock clock) {
+        this.delegate = delegate;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+                        return ttl(jwt, maxTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .buildAsync();
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        String key = hash(token);
+        return Mono.defer(() -> {
+            // El reloj manda sobre la expiración de Caffeine: un token vencido nunca sale de la caché
+            CompletableFuture<Jwt> cached = cache.getIfPresent(key);
+            if (cached != null && cached.isDone() && !cached.isCompletedExceptionally() && expired(cached.join())) {
+                cache.synchronous().invalidate(key);
+            }
+            // Las verificaciones simultáneas del mismo token comparten una sola; un error no queda en caché
+            return Mono.fromFuture(() -> cache.get(key, (k, executor) -> delegate.decode(token).toFuture()), true);
+        });
+    }
+
+    // Se llama cuando un refresco del JWK set quita llaves; "" es una llave sin kid y sus tokens sin kid
+    public void evictSignedBy(Set<String> keyIds) {
+        cache.synchronous().asMap().values().removeIf(jwt -> {
+            Object kid = jwt.getHeaders().get("kid");
+            return keyIds.contains(kid == null ? "" : kid.toString());
+        });
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    private boolean expired(Jwt jwt) {
+        return jwt.getExpiresAt() != null && !jwt.getExpiresAt().isAfter(clock.instant());
+    }
+
+    private Duration ttl(Jwt jwt, Duration maxTtl) {
+        if (jwt.getExpiresAt() == null) {
+            return maxTtl;
+        }
+        Duration untilExpiry = Duration.between(clock.instant(), jwt.getExpiresAt());
+        return untilExpiry.isNegative() ? Duration.ZERO : untilExpiry.compareTo(maxTtl) < 0 ? untilExpiry : maxTtl;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import org.springframework.boot.actuate.health.AbstractReactiveHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import reactor.core.publisher.Mono;
+
+/**
+ * Readiness del pool R2DBC: pasa a OUT_OF_SERVICE cuando todas las conexiones están tomadas
+ * y la cola de espera supera maxPending, para que el balanceador deje de enviar tráfico
+ * en lugar de acumular peticiones que terminarán por timeout de adquisición.
+ */
+public class ConnectionPoolHealthIndicator extends AbstractReactiveHealthIndicator {
+
+    private final ConnectionPool pool;
+    private final int maxPending;
+
+    public ConnectionPoolHealthIndicator(ConnectionPool pool, int maxPending) {
+        super("R2DBC pool health check failed");
+        this.pool = pool;
+        this.maxPending = maxPending;
+    }
+
+    @Override
+    protected Mono<Health> doHealthCheck(Health.Builder builder) {
+        PoolMetrics metrics = pool.getMetrics().orElse(null);
+        if (metrics == null) {
+            return Mono.just(builder.unknown().build());
+        }
+        boolean saturated = metrics.acquiredSize() >= metrics.getMaxAllocatedSize()
+                && metrics.pendingAcquireSize() > maxPending;
+        builder.status(saturated ? Status.OUT_OF_SERVICE : Status.UP)
+                .withDetail("acquired", metrics.acquiredSize())
+                .withDetail("idle", metrics.idleSize())
+                .withDetail("pending", metrics.pendingAcquireSize())
+                .withDetail("maxAllocated", metrics.getMaxAllocatedSize())
+                .withDetail("maxPending", maxPending);
+        return Mono.just(builder.build());
+    }
+}
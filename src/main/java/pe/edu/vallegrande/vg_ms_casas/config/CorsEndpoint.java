@@ -0,0 +1,69 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * /actuator/cors: GET muestra los orígenes vigentes y POST los reemplaza sin reiniciar.
+ * Los campos que no se envían conservan el valor configurado. La nueva política se arma sobre una copia
+ * y solo se guarda si todos los patrones compilan; un patrón inválido responde 400 y deja la anterior.
+ * Solo para ADMIN (SecurityConfig).
+ */
+@Component
+@Endpoint(id = "cors")
+public class CorsEndpoint {
+
+    private final CorsProperties properties;
+    private final DynamicCorsConfigurationSource corsConfigurationSource;
+
+    public CorsEndpoint(CorsProperties properties, DynamicCorsConfigurationSource corsConfigurationSource) {
+        this.properties = properties;
+        this.corsConfigurationSource = corsConfigurationSource;
+    }
+
+    @ReadOperation
+    public Map<String, Object> current() {
+        return corsConfigurationSource.describe();
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> reload(@Nullable List<String> allowedOrigins,
+                                                   @Nullable List<String> allowedOriginPatterns) {
+        CorsProperties candidate = copy(properties);
+        if (allowedOrigins != null) {
+            candidate.setAllowedOrigins(new ArrayList<>(allowedOrigins));
+        }
+        if (allowedOriginPatterns != null) {
+            candidate.setAllowedOriginPatterns(new ArrayList<>(allowedOriginPatterns));
+        }
+        try {
+            corsConfigurationSource.reload(candidate);
+        } catch (PatternSyntaxException e) {
+            throw new InvalidEndpointRequestException("Invalid origin pattern: " + e.getPattern(), e.getDescription());
+        }
+        properties.setAllowedOrigins(candidate.getAllowedOrigins());
+        properties.setAllowedOriginPatterns(candidate.getAllowedOriginPatterns());
+        return corsConfigurationSource.describe();
+    }
+
+    private static CorsProperties copy(CorsProperties source) {
+        CorsProperties copy = new CorsProperties();
+        copy.setAllowedOrigins(new ArrayList<>(source.getAllowedOrigins()));
+        copy.setAllowedOriginPatterns(new ArrayList<>(source.getAllowedOriginPatterns()));
+        copy.setAllowedMethods(new ArrayList<>(source.getAllowedMethods()));
+        copy.setAllowedHeaders(new ArrayList<>(source.getAllowedHeaders()));
+        copy.setAllowCredentials(source.isAllowCredentials());
+        copy.setMaxAge(source.getMaxAge());
+        copy.setCacheSize(source.getCacheSize());
+        return copy;
+    }
+}
@@ -0,0 +1,32 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuración de CORS (prefijo cors). Los orígenes y patrones se pueden cambiar en caliente
+ * con el endpoint /actuator/cors.
+ */
+@Data
+@ConfigurationProperties(prefix = "cors")
+public class CorsProperties {
+
+    // Orígenes exactos
+    private List<String> allowedOrigins = new ArrayList<>(List.of("http://localhost:4200"));
+
+    // Expresiones regulares de origen completo, p. ej. entornos Gitpod
+    private List<String> allowedOriginPatterns = new ArrayList<>(List.of(
+            "^https://4200-[a-z0-9\\-]+\\.ws-[a-z0-9]+\\.gitpod\\.io$"));
+
+    private List<String> allowedMethods = new ArrayList<>(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+    private List<String> allowedHeaders = new ArrayList<>(List.of("*"));
+    private boolean allowCredentials = true;
+    private Duration maxAge = Duration.ofHours(1);
+
+    // Decisiones por origen guardadas (también las negativas)
+    private long cacheSize = 1000;
+}
@@ -0,0 +1,93 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Única fuente de CORS de la aplicación (la usa SecurityConfig).
+ *
+ * La decisión por origen se calcula una vez y queda en una caché acotada, incluidas las negativas,
+ * así las expresiones regulares no se evalúan en cada petición. Cada origen permitido tiene su
+ * CorsConfiguration ya armada, que no se modifica después. reload() cambia la política completa
+ * junto con su caché, sin reiniciar.
+ */
+@Component
+@EnableConfigurationProperties(CorsProperties.class)
+public class DynamicCorsConfigurationSource implements CorsConfigurationSource {
+
+    private final AtomicReference<Policy> policy = new AtomicReference<>();
+
+    public DynamicCorsConfigurationSource(CorsProperties properties) {
+        reload(properties);
+    }
+
+    @Override
+    public CorsConfiguration getCorsConfiguration(ServerWebExchange exchange) {
+        String origin = exchange.getRequest().getHeaders().getOrigin();
+        if (origin == null) {
+            return null;
+        }
+        return policy.get().decide(origin);
+    }
+
+    public void reload(CorsProperties properties) {
+        policy.set(new Policy(properties));
+    }
+
+    public Map<String, Object> describe() {
+        Policy current = policy.get();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("allowedOrigins", current.origins);
+        result.put("allowedOriginPatterns", current.patterns.stream().map(Pattern::pattern).toList());
+        result.put("cachedDecisions", current.decisions.estimatedSize());
+        return result;
+    }
+
+    private static final class Policy {
+
+        private final Set<String> origins;
+        private final List<Pattern> patterns;
+        private final CorsConfiguration template;
+        private final Cache<String, Optional<CorsConfiguration>> decisions;
+
+        private Policy(CorsProperties properties) {
+            this.origins = Set.copyOf(properties.getAllowedOrigins());
+            this.patterns = properties.getAllowedOriginPatterns().stream().map(Pattern::compile).toList();
+            this.template = new CorsConfiguration();
+            template.setAllowedMethods(List.copyOf(properties.getAllowedMethods()));
+            template.setAllowedHeaders(List.copyOf(properties.getAllowedHeaders()));
+            template.setAllowCredentials(properties.isAllowCredentials());
+            template.setMaxAge(properties.getMaxAge());
+            this.decisions = Caffeine.newBuilder()
+                    .maximumSize(properties.getCacheSize())
+                    .build();
+        }
+
+        private CorsConfiguration decide(String origin) {
+            return decisions.get(origin, this::evaluate).orElse(null);
+        }
+
+        private Optional<CorsConfiguration> evaluate(String origin) {
+            if (!origins.contains(origin) && patterns.stream().noneMatch(pattern -> pattern.matcher(origin).matches())) {
+                return Optional.empty();
+            }
+            // Solo se devuelve el origen que hizo la petición, nunca la lista completa
+            CorsConfiguration config = new CorsConfiguration(template);
+            config.setAllowedOrigins(List.of(origin));
+            return Optional.of(config);
+        }
+    }
+}
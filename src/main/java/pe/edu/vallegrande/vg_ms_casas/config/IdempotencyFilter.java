@@ -0,0 +1,352 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import pe.edu.vallegrande.vg_ms_casas.dto.IdempotentResponse;
+import pe.edu.vallegrande.vg_ms_casas.repository.IdempotencyKeyRepository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Soporte de Idempotency-Key en POST/PUT/PATCH: la primera petición con una llave se ejecuta y su
+ * respuesta se guarda; los reintentos con la misma llave reciben esa respuesta (con el header
+ * Idempotent-Replayed) sin volver a pasar por los controladores ni tocar las tablas de negocio.
+ *
+ * La llave es por usuario y se guarda en memoria (Caffeine, acotada por bytes y con TTL) y en
+ * idempotency_key, que la comparten las réplicas. Los duplicados que llegan mientras la primera
+ * está en curso esperan su resultado: en el mismo nodo sobre la misma entrada en memoria, desde
+ * otro nodo consultando la tabla cada poll-interval, hasta wait-timeout (luego 409). Reusar la
+ * llave con otro método, ruta o cuerpo responde 422. Si la primera falla con error o 5xx antes de
+ * escribir la respuesta, la llave se libera y el siguiente reintento se ejecuta de nuevo. Si el cliente
+ * se desconecta o la escritura falla cuando el controlador ya respondió (el cambio ya se confirmó), se
+ * guarda lo respondido; si el cuerpo no alcanzó a escribirse completo, se guarda solo el estado.
+ *
+ * El cuerpo se lee completo para calcular la huella, hasta max-body-size; uno mayor responde 413.
+ *
+ * Sin @Order corre después de la cadena de seguridad, así el usuario ya está autenticado.
+ */
+@Component
+public class IdempotencyFilter implements WebFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Set<HttpMethod> METHODS = Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH);
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Value("${idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${idempotency.lock-timeout:30s}")
+    private Duration lockTimeout;
+
+    @Value("${idempotency.wait-timeout:10s}")
+    private Duration waitTimeout;
+
+    @Value("${idempotency.poll-interval:100ms}")
+    private Duration pollInterval;
+
+    @Value("${idempotency.cache-max-bytes:64MB}")
+    private DataSize cacheMaxBytes;
+
+    @Value("${idempotency.max-body-size:1MB}")
+    private DataSize maxBodySize;
+
+    private Cache<String, Entry> entries;
+    private Disposable purge;
+
+    @PostConstruct
+    void start() {
+        entries = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes.toBytes())
+                .weigher((String key, Entry entry) -> entry.weight())
+                .expireAfterWrite(ttl)
+                .build();
+        purge = Flux.interval(Duration.ofHours(1))
+                .onBackpressureDrop()
+                .concatMap(tick -> idempotencyKeyRepository.deleteExpired().onErrorResume(e -> Mono.empty()))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        purge.dispose();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String idempotencyKey = request.getHeaders().getFirst(HEADER);
+        if (idempotencyKey == null || !METHODS.contains(request.getMethod())
+                || request.getPath().value().startsWith("/actuator")) {
+            return chain.filter(exchange);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid " + HEADER + " header"));
+        }
+        return DataBufferUtils.join(request.getBody(), (int) maxBodySize.toBytes())
+                .onErrorMap(DataBufferLimitException.class, e -> new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Request body exceeds " + maxBodySize + " for " + HEADER, e))
+                .map(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .defaultIfEmpty(new byte[0])
+                .zipWith(exchange.getPrincipal().map(Principal::getName).defaultIfEmpty("anonymous"))
+                .flatMap(tuple -> process(exchange, chain, tuple.getT2() + ":" + idempotencyKey,
+                        fingerprint(request, tuple.getT1()), tuple.getT1()));
+    }
+
+    private Mono<Void> process(ServerWebExchange exchange, WebFilterChain chain, String key, String fingerprint,
+                               byte[] body) {
+        Entry entry = new Entry(key, fingerprint);
+        Entry existing = entries.asMap().putIfAbsent(key, entry);
+        if (existing != null) {
+            if (!existing.fingerprint.equals(fingerprint)) {
+                return Mono.error(mismatch());
+            }
+            // Misma petición en este nodo: se espera su resultado; si se abandonó, se vuelve a intentar
+            return existing.result.asMono()
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .timeout(waitTimeout, Mono.error(inProgress()))
+                    .flatMap(result -> result.isPresent()
+                            ? replay(exchange, result.get())
+                            : process(exchange, chain, key, fingerprint, body));
+        }
+        return idempotencyKeyRepository.claim(key, fingerprint, lockTimeout)
+                .onErrorResume(e -> forget(entry).then(Mono.error(e)))
+                .flatMap(claimed -> claimed
+                        ? execute(exchange, chain, entry, body)
+                        : awaitStored(exchange, chain, entry, body));
+    }
+
+    private Mono<Void> execute(ServerWebExchange exchange, WebFilterChain chain, Entry entry, byte[] body) {
+        CapturingResponse response = new CapturingResponse(exchange.getResponse());
+        ServerHttpRequest request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return Flux.defer(() -> Flux.just(response.bufferFactory().wrap(body)));
+            }
+        };
+        return chain.filter(exchange.mutate().request(request).response(response).build())
+                .then(Mono.defer(() -> store(entry, response.toStored(entry.fingerprint))))
+                .onErrorResume(e -> settle(entry, response).then(Mono.error(e)))
+                .doOnCancel(() -> settle(entry, response).subscribe());
+    }
+
+    // Error o desconexión: solo se libera la llave si el controlador no llegó a responder
+    private Mono<Void> settle(Entry entry, CapturingResponse response) {
+        if (!response.responded) {
+            return abandon(entry);
+        }
+        IdempotentResponse stored = response.toStored(entry.fingerprint);
+        if (!response.written) {
+            stored.setContentType(null);
+            stored.setBody(new byte[0]);
+        }
+        return store(entry, stored);
+    }
+
+    // Otra petición (quizá en otra réplica) tiene la llave o ya la respondió
+    private Mono<Void> awaitStored(ServerWebExchange exchange, WebFilterChain chain, Entry entry, byte[] body) {
+        return Flux.interval(Duration.ZERO, pollInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> idempotencyKeyRepository.find(entry.key)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty()))
+                .filter(found -> found.isEmpty() || found.get().isCompleted())
+                .next()
+                .timeout(waitTimeout, Mono.error(inProgress()))
+                .onErrorResume(e -> forget(entry).then(Mono.error(e)))
+                .flatMap(found -> {
+                    if (found.isEmpty()) {
+                        return forget(entry).then(Mono.defer(() ->
+                                process(exchange, chain, entry.key, entry.fingerprint, body)));
+                    }
+                    if (!found.get().getFingerprint().equals(entry.fingerprint)) {
+                        return forget(entry).then(Mono.error(mismatch()));
+                    }
+                    remember(entry, found.get());
+                    return replay(exchange, found.get());
+                });
+    }
+
+    private Mono<Void> store(Entry entry, IdempotentResponse response) {
+        if (response.getStatus() >= 500) {
+            return abandon(entry);
+        }
+        // Si no se puede guardar en la tabla, la llave queda IN_PROGRESS hasta lock-timeout en vez de liberarse
+        return idempotencyKeyRepository.complete(entry.key, response, ttl)
+                .onErrorResume(e -> Mono.empty())
+                .then(Mono.fromRunnable(() -> remember(entry, response)));
+    }
+
+    private void remember(Entry entry, IdempotentResponse response) {
+        entry.response = response;
+        // Se vuelve a escribir para que el peso incluya la respuesta y el TTL cuente desde aquí
+        entries.asMap().replace(entry.key, entry, entry);
+        entry.result.tryEmitValue(response);
+    }
+
+    // La petición no terminó: se libera la llave en la tabla y en memoria
+    private Mono<Void> abandon(Entry entry) {
+        return idempotencyKeyRepository.release(entry.key)
+                .onErrorResume(e -> Mono.empty())
+                .then(forget(entry));
+    }
+
+    private Mono<Void> forget(Entry entry) {
+        return Mono.fromRunnable(() -> {
+            entries.asMap().remove(entry.key, entry);
+            entry.result.tryEmitEmpty();
+        });
+    }
+
+    private static Mono<Void> replay(ServerWebExchange exchange, IdempotentResponse stored) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatusCode.valueOf(stored.getStatus()));
+        HttpHeaders headers = response.getHeaders();
+        if (stored.getContentType() != null) {
+            headers.set(HttpHeaders.CONTENT_TYPE, stored.getContentType());
+        }
+        if (stored.getLocation() != null) {
+            headers.set(HttpHeaders.LOCATION, stored.getLocation());
+        }
+        headers.set(REPLAYED_HEADER, "true");
+        byte[] body = stored.getBody();
+        if (body == null || body.length == 0) {
+            return response.setComplete();
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    private static String fingerprint(ServerHttpRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod().name() + " " + request.getURI().getRawPath() + "?"
+                    + request.getURI().getRawQuery() + "\n").getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ResponseStatusException mismatch() {
+        return new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                HEADER + " was already used with a different request");
+    }
+
+    private static ResponseStatusException inProgress() {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "A request with this " + HEADER + " is still in progress");
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final String fingerprint;
+        private final Sinks.One<IdempotentResponse> result = Sinks.one();
+        private volatile IdempotentResponse response;
+
+        private Entry(String key, String fingerprint) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+        }
+
+        private int weight() {
+            IdempotentResponse current = response;
+            int bodySize = current == null || current.getBody() == null ? 0 : current.getBody().length;
+            return 2 * key.length() + fingerprint.length() + bodySize + 64;
+        }
+    }
+
+    /**
+     * Deja pasar la respuesta al cliente y guarda una copia de lo escrito. responded: el controlador
+     * ya entregó su respuesta (empezó a escribirla o la cerró sin cuerpo); written: se escribió completa.
+     */
+    private static final class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private volatile boolean responded;
+        private volatile boolean written;
+
+        private CapturingResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            responded = true;
+            return super.writeWith(Flux.from(body).doOnNext(this::capture))
+                    .doOnSuccess(done -> written = true);
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            responded = true;
+            return super.writeAndFlushWith(Flux.from(body).map(part -> Flux.from(part).doOnNext(this::capture)))
+                    .doOnSuccess(done -> written = true);
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            responded = true;
+            return super.setComplete().doOnSuccess(done -> written = true);
+        }
+
+        private synchronized void capture(DataBuffer buffer) {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), 0, bytes.length);
+            body.write(bytes, 0, bytes.length);
+        }
+
+        private synchronized IdempotentResponse toStored(String fingerprint) {
+            HttpStatusCode status = getStatusCode();
+            return new IdempotentResponse(fingerprint, true, status == null ? 200 : status.value(),
+                    getHeaders().getFirst(HttpHeaders.CONTENT_TYPE), getHeaders().getFirst(HttpHeaders.LOCATION),
+                    body.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Convierte el JWT validado en CustomAuthenticationToken: el claim "role" pasa a ROLE_&lt;ROLE&gt;.
+ * Las listas de autoridades se crean una vez por valor del claim y se reutilizan.
+ */
+public class JwtAuthorityConverter implements Converter<Jwt, Mono<CustomAuthenticationToken>> {
+
+    // Tope de roles distintos guardados, por si llegan valores inesperados en el claim
+    private static final int MAX_ROLES = 64;
+
+    private final Map<String, List<GrantedAuthority>> authoritiesByRole = new ConcurrentHashMap<>();
+
+    public JwtAuthorityConverter() {
+        authoritiesFor("USER");
+        authoritiesFor("ADMIN");
+    }
+
+    @Override
+    public Mono<CustomAuthenticationToken> convert(Jwt jwt) {
+        String role = jwt.getClaimAsString("role");
+        return Mono.just(new CustomAuthenticationToken(jwt, role != null ? authoritiesFor(role) : List.of()));
+    }
+
+    private List<GrantedAuthority> authoritiesFor(String role) {
+        List<GrantedAuthority> authorities = authoritiesByRole.get(role);
+        if (authorities != null) {
+            return authorities;
+        }
+        authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()));
+        if (authoritiesByRole.size() < MAX_ROLES) {
+            authoritiesByRole.putIfAbsent(role, authorities);
+        }
+        return authorities;
+    }
+}
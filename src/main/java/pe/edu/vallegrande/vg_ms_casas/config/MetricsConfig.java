@@ -0,0 +1,74 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import pe.edu.vallegrande.vg_ms_casas.VgMsCasasApplication;
+
+import java.util.Arrays;
+
+/**
+ * Métricas por endpoint y por repositorio. Spring Boot ya mide http.server.requests por patrón de ruta
+ * (los histogramas se activan en management.metrics); aquí se instrumentan los repositorios de la
+ * aplicación y se deja el exchange en el contexto de Reactor para RequestObservations.
+ */
+@Configuration
+public class MetricsConfig {
+
+    private static final String APPLICATION_PACKAGE = VgMsCasasApplication.class.getPackageName();
+
+    @Bean
+    public ServerWebExchangeContextFilter serverWebExchangeContextFilter() {
+        return new ServerWebExchangeContextFilter();
+    }
+
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                String repository = repositoryName(bean);
+                MeterRegistry registry = repository != null ? meterRegistry.getIfAvailable() : null;
+                if (registry == null) {
+                    return bean;
+                }
+                RepositoryMetrics metrics = new RepositoryMetrics(registry, repository);
+                // Los repositorios de Spring Data ya son proxies: se agrega el interceptor al inicio de la cadena
+                if (bean instanceof Advised advised && !advised.isFrozen()) {
+                    advised.addAdvice(0, metrics);
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.setProxyTargetClass(true);
+                proxyFactory.addAdvice(metrics);
+                return proxyFactory.getProxy(ClassUtils.getDefaultClassLoader());
+            }
+        };
+    }
+
+    // Nombre de la interfaz de Spring Data o de la clase @Repository; null si el bean no es un repositorio de la aplicación
+    private static String repositoryName(Object bean) {
+        if (bean instanceof Repository<?, ?>) {
+            return Arrays.stream(ClassUtils.getAllInterfaces(bean))
+                    .filter(type -> type.getPackageName().startsWith(APPLICATION_PACKAGE))
+                    .map(Class::getSimpleName)
+                    .findFirst()
+                    .orElse(null);
+        }
+        Class<?> type = AopUtils.getTargetClass(bean);
+        if (type.getPackageName().startsWith(APPLICATION_PACKAGE)
+                && AnnotationUtils.findAnnotation(type, org.springframework.stereotype.Repository.class) != null) {
+            return type.getSimpleName();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,27 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.vg_ms_casas.client.ProductClient;
+
+import java.util.Map;
+
+/**
+ * /actuator/productclient: estado del cliente de productos (caché y circuit breaker). Solo para ADMIN (SecurityConfig).
+ */
+@Component
+@Endpoint(id = "productclient")
+public class ProductClientEndpoint {
+
+    private final ProductClient productClient;
+
+    public ProductClientEndpoint(ProductClient productClient) {
+        this.productClient = productClient;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return productClient.stats();
+    }
+}
@@ -0,0 +1,34 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normaliza una sentencia SQL a su huella: sin comentarios, literales ni parámetros, con las listas
+ * IN (...) y las filas de VALUES colapsadas. Dos ejecuciones de la misma consulta con distintos
+ * valores o distinto largo de lista dan la misma huella.
+ */
+public final class QueryFingerprint {
+
+    private static final Pattern LINE_COMMENT = Pattern.compile("--[^\\n]*");
+    private static final Pattern BLOCK_COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern PARAMETER = Pattern.compile("\\$\\d+");
+    private static final Pattern NUMBER = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern ROWS = Pattern.compile("(\\(\\?(?:, \\.\\.\\.)?\\))(?:\\s*,\\s*\\(\\?(?:, \\.\\.\\.)?\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private QueryFingerprint() {
+    }
+
+    public static String of(String sql) {
+        String normalized = BLOCK_COMMENT.matcher(sql).replaceAll(" ");
+        normalized = LINE_COMMENT.matcher(normalized).replaceAll(" ");
+        normalized = STRING_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = PARAMETER.matcher(normalized).replaceAll("?");
+        normalized = NUMBER.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        normalized = LIST.matcher(normalized).replaceAll("(?, ...)");
+        return ROWS.matcher(normalized).replaceAll("$1, ...");
+    }
+}
@@ -0,0 +1,180 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.TimeWindowMax;
+import io.micrometer.core.instrument.distribution.TimeWindowPercentileHistogram;
+import io.r2dbc.proxy.core.Binding;
+import io.r2dbc.proxy.core.Bindings;
+import io.r2dbc.proxy.core.BoundValue;
+import io.r2dbc.proxy.core.QueryExecutionInfo;
+import io.r2dbc.proxy.core.QueryInfo;
+import io.r2dbc.proxy.listener.ProxyExecutionListener;
+import io.r2dbc.spi.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estadísticas por huella de consulta (QueryFingerprint) de cada sentencia que pasa por el proxy R2DBC:
+ * ejecuciones, errores y tiempo total desde el arranque o el último reset, y máximo y p99 de la ventana
+ * reciente (window). Las que superan slow-threshold se registran en el log con el tipo de cada
+ * parámetro, nunca con su valor.
+ */
+@Component
+public class QueryStats implements ProxyExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryStats.class);
+
+    private final Duration slowThreshold;
+    private final int maxFingerprints;
+    private final DistributionStatisticConfig windowConfig;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final LongAdder untracked = new LongAdder();
+    // La misma sentencia se repite casi siempre igual: se normaliza una vez por texto
+    private final Cache<String, String> fingerprints;
+
+    public QueryStats(@Value("${query-stats.slow-threshold:500ms}") Duration slowThreshold,
+                      @Value("${query-stats.window:5m}") Duration window,
+                      @Value("${query-stats.max-fingerprints:500}") int maxFingerprints) {
+        this.slowThreshold = slowThreshold;
+        this.maxFingerprints = maxFingerprints;
+        this.windowConfig = DistributionStatisticConfig.builder()
+                .percentiles(0.99)
+                .percentilePrecision(2)
+                .expiry(window)
+                .bufferLength(5)
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+        this.fingerprints = Caffeine.newBuilder().maximumSize(maxFingerprints * 4L).build();
+    }
+
+    @Override
+    public void afterQuery(QueryExecutionInfo execution) {
+        long nanos = execution.getExecuteDuration().toNanos();
+        for (QueryInfo query : execution.getQueries()) {
+            String fingerprint = fingerprints.get(query.getQuery(), QueryFingerprint::of);
+            Stats entry = stats.get(fingerprint);
+            if (entry == null) {
+                if (stats.size() >= maxFingerprints) {
+                    untracked.increment();
+                    continue;
+                }
+                entry = stats.computeIfAbsent(fingerprint, Stats::new);
+            }
+            entry.record(nanos, execution.isSuccess());
+        }
+        if (nanos >= slowThreshold.toNanos()) {
+            logSlow(execution);
+        }
+    }
+
+    /**
+     * Las limit huellas con mayor valor en orderBy (total, max, p99, count o errors).
+     */
+    public List<Map<String, Object>> top(int limit, String orderBy) {
+        Comparator<Map<String, Object>> order = Comparator.comparingDouble(row -> ((Number) row.get(orderBy)).doubleValue());
+        return stats.values().stream()
+                .map(Stats::describe)
+                .sorted(order.reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public long untracked() {
+        return untracked.sum();
+    }
+
+    public void reset() {
+        stats.clear();
+        untracked.reset();
+    }
+
+    private void logSlow(QueryExecutionInfo execution) {
+        for (QueryInfo query : execution.getQueries()) {
+            log.warn("Slow query {} ms ({}, {}): {} params={}", execution.getExecuteDuration().toMillis(),
+                    execution.isSuccess() ? "success" : "error", execution.getType(),
+                    fingerprints.get(query.getQuery(), QueryFingerprint::of), shape(query.getBindingsList()));
+        }
+    }
+
+    // Tipos de los parámetros del primer juego de bindings; en un batch se indica cuántos juegos hubo
+    static String shape(List<Bindings> bindingsList) {
+        if (bindingsList.isEmpty()) {
+            return "[]";
+        }
+        Bindings first = bindingsList.get(0);
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (Binding binding : first.getIndexBindings()) {
+            joiner.add("$" + ((Integer) binding.getKey() + 1) + ":" + type(binding.getBoundValue()));
+        }
+        for (Binding binding : first.getNamedBindings()) {
+            joiner.add(binding.getKey() + ":" + type(binding.getBoundValue()));
+        }
+        return bindingsList.size() > 1 ? joiner + " x" + bindingsList.size() : joiner.toString();
+    }
+
+    // DatabaseClient envía los valores como Parameter: se informa el tipo del valor que lleva adentro
+    private static String type(BoundValue bound) {
+        if (bound.isNull()) {
+            return "null(" + bound.getNullType().getSimpleName() + ")";
+        }
+        Object value = bound.getValue();
+        if (value instanceof Parameter parameter) {
+            return parameter.getValue() != null ? parameter.getValue().getClass().getSimpleName()
+                    : "null(" + parameter.getType().getJavaType().getSimpleName() + ")";
+        }
+        return value == null ? "null" : value.getClass().getSimpleName();
+    }
+
+    private final class Stats {
+
+        private final String fingerprint;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final TimeWindowMax max = new TimeWindowMax(Clock.SYSTEM, windowConfig);
+        private final TimeWindowPercentileHistogram histogram = new TimeWindowPercentileHistogram(Clock.SYSTEM, windowConfig, false);
+
+        private Stats(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        private void record(long nanos, boolean success) {
+            count.increment();
+            if (!success) {
+                errors.increment();
+            }
+            totalNanos.add(nanos);
+            max.record(nanos, TimeUnit.NANOSECONDS);
+            histogram.recordLong(nanos);
+        }
+
+        private Map<String, Object> describe() {
+            long executions = count.sum();
+            double totalMs = totalNanos.sum() / 1_000_000.0;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("fingerprint", fingerprint);
+            row.put("count", executions);
+            row.put("errors", errors.sum());
+            row.put("total", totalMs);
+            row.put("mean", executions == 0 ? 0.0 : totalMs / executions);
+            row.put("max", max.poll(TimeUnit.MILLISECONDS));
+            row.put("p99", histogram.takeSnapshot(0, 0, 0).percentileValues()[0].value(TimeUnit.MILLISECONDS));
+            return row;
+        }
+    }
+}
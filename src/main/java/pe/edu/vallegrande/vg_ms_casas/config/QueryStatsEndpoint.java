@@ -0,0 +1,47 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * /actuator/queries: GET devuelve las huellas de consulta más costosas (?limit=20&orderBy=total|max|p99|count|errors)
+ * y DELETE reinicia los contadores. Los tiempos van en milisegundos. Solo para ADMIN (SecurityConfig).
+ */
+@Component
+@Endpoint(id = "queries")
+public class QueryStatsEndpoint {
+
+    private static final Set<String> ORDERS = Set.of("total", "max", "p99", "count", "errors");
+
+    private final QueryStats queryStats;
+
+    public QueryStatsEndpoint(QueryStats queryStats) {
+        this.queryStats = queryStats;
+    }
+
+    @ReadOperation
+    public Map<String, Object> top(@Nullable Integer limit, @Nullable String orderBy) {
+        String order = orderBy != null ? orderBy : "total";
+        if (!ORDERS.contains(order)) {
+            throw new InvalidEndpointRequestException("orderBy must be one of " + ORDERS, "Invalid orderBy");
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("orderBy", order);
+        result.put("untracked", queryStats.untracked());
+        result.put("queries", queryStats.top(limit != null ? Math.max(1, limit) : 20, order));
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        queryStats.reset();
+    }
+}
@@ -0,0 +1,64 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.proxy.ProxyConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.r2dbc.ConnectionFactoryDecorator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Instrumentación del pool R2DBC. El tamaño y los timeouts del pool se configuran en spring.r2dbc.pool;
+ * Spring Boot publica los gauges r2dbc.pool.* (acquired, idle, pending...), aquí se agrega
+ * el histograma de espera por conexión y el indicador de saturación para readiness.
+ * Bajo el pool, cada conexión pasa por un proxy que mide cada sentencia (QueryStats, /actuator/queries).
+ */
+@Configuration
+public class R2dbcPoolConfig {
+
+    @Bean
+    public static BeanPostProcessor timedConnectionFactoryPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${spring.r2dbc.pool.max-acquire-time:5s}") Duration maxAcquireTime) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof ConnectionPool pool)) {
+                    return bean;
+                }
+                MeterRegistry registry = meterRegistry.getIfAvailable();
+                return registry != null ? new TimedConnectionFactory(pool, registry, maxAcquireTime) : bean;
+            }
+        };
+    }
+
+    // Spring Boot aplica los decorators a la fábrica sin pool, así el proxy mide la ejecución y no la espera
+    @Bean
+    public ConnectionFactoryDecorator queryStatsConnectionFactoryDecorator(QueryStats queryStats) {
+        return connectionFactory -> ProxyConnectionFactory.builder(connectionFactory).listener(queryStats).build();
+    }
+
+    @Bean
+    public ConnectionPoolHealthIndicator r2dbcPoolHealthIndicator(ConnectionFactory connectionFactory,
+                                                                  @Value("${r2dbc.pool.readiness.max-pending:0}") int maxPending) {
+        return new ConnectionPoolHealthIndicator(unwrapPool(connectionFactory), maxPending);
+    }
+
+    private static ConnectionPool unwrapPool(ConnectionFactory connectionFactory) {
+        Object candidate = connectionFactory;
+        while (candidate instanceof Wrapped<?> wrapped && !(candidate instanceof ConnectionPool)) {
+            candidate = wrapped.unwrap();
+        }
+        if (candidate instanceof ConnectionPool pool) {
+            return pool;
+        }
+        throw new IllegalStateException("spring.r2dbc.pool must be enabled: no ConnectionPool found");
+    }
+}
@@ -0,0 +1,114 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide cada método reactivo de un repositorio: repository.query (desde la suscripción hasta que
+ * termina, por outcome) y, para los Flux, repository.rows (filas emitidas por llamada).
+ *
+ * Los medidores de cada método se crean una vez; por llamada solo se toma el tiempo y se cuentan
+ * las filas, para que pueda quedar activo en producción.
+ */
+public class RepositoryMetrics implements MethodInterceptor {
+
+    private static final double[] ROW_BUCKETS = {1, 10, 100, 1_000, 10_000};
+
+    private final MeterRegistry registry;
+    private final String repository;
+    private final Map<Method, Meters> meters = new ConcurrentHashMap<>();
+
+    public RepositoryMetrics(MeterRegistry registry, String repository) {
+        this.registry = registry;
+        this.repository = repository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Class<?> returnType = method.getReturnType();
+        if (returnType != Flux.class && returnType != Mono.class) {
+            return invocation.proceed();
+        }
+        Meters methodMeters = meters.computeIfAbsent(method, this::register);
+        Object result = invocation.proceed();
+        if (result instanceof Flux<?> flux) {
+            return methodMeters.time(flux);
+        }
+        if (result instanceof Mono<?> mono) {
+            return methodMeters.time(mono);
+        }
+        return result;
+    }
+
+    private Meters register(Method method) {
+        String name = method.getName();
+        DistributionSummary rows = method.getReturnType() != Flux.class ? null
+                : DistributionSummary.builder("repository.rows")
+                        .description("Filas emitidas por llamada")
+                        .tags("repository", repository, "method", name)
+                        .serviceLevelObjectives(ROW_BUCKETS)
+                        .register(registry);
+        return new Meters(timer(name, "success"), timer(name, "error"), timer(name, "cancel"), rows);
+    }
+
+    // Prometheus exige el mismo tipo para todas las series de un nombre: todas llevan histograma
+    private Timer timer(String method, String outcome) {
+        return Timer.builder("repository.query")
+                .description("Duración de las consultas por método de repositorio")
+                .tags("repository", repository, "method", method, "outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    private record Meters(Timer success, Timer error, Timer cancel, DistributionSummary rows) {
+
+        // Se registra antes de propagar el onComplete/onError, así quien espera el resultado ya ve la medición
+        private <T> Flux<T> time(Flux<T> flux) {
+            return Flux.defer(() -> {
+                long start = System.nanoTime();
+                long[] count = new long[1];
+                return flux.doOnEach(signal -> {
+                            if (signal.isOnNext()) {
+                                count[0]++;
+                            } else if (signal.isOnComplete() || signal.isOnError()) {
+                                record(signal.getType(), start);
+                                rows.record(count[0]);
+                            }
+                        })
+                        .doOnCancel(() -> record(SignalType.CANCEL, start));
+            });
+        }
+
+        private <T> Mono<T> time(Mono<T> mono) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return mono.doOnEach(signal -> {
+                            if (signal.isOnComplete() || signal.isOnError()) {
+                                record(signal.getType(), start);
+                            }
+                        })
+                        .doOnCancel(() -> record(SignalType.CANCEL, start));
+            });
+        }
+
+        private void record(SignalType signal, long start) {
+            Timer timer = signal == SignalType.ON_COMPLETE ? success : signal == SignalType.ON_ERROR ? error : cancel;
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.server.reactive.observation.ServerRequestObservationContext;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import reactor.core.publisher.Mono;
+
+/**
+ * Los controladores que convierten un error en 400 dejan http.server.requests con exception=none.
+ * recordError anota la causa en la observación de la petición antes de esa conversión, así el
+ * desglose por endpoint muestra qué excepción produjo cada 4xx.
+ */
+public final class RequestObservations {
+
+    private RequestObservations() {
+    }
+
+    // Uso: .onErrorResume(RequestObservations::recordError) justo antes del onErrorReturn
+    public static <T> Mono<T> recordError(Throwable error) {
+        return Mono.deferContextual(context -> {
+            ServerWebExchangeContextFilter.getExchange(context)
+                    .flatMap(exchange -> ServerRequestObservationContext.findCurrent(exchange.getAttributes()))
+                    .ifPresent(observation -> observation.setError(NestedExceptionUtils.getMostSpecificCause(error)));
+            return Mono.error(error);
+        });
+    }
+}
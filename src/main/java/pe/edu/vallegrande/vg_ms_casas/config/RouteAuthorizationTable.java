@@ -0,0 +1,185 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reglas de acceso por ruta compiladas en una tabla indexada por (método HTTP, primer segmento del path).
+ *
+ * Las reglas se declaran en orden, como con pathMatchers, y gana la primera que coincide; si ninguna
+ * coincide se exige autenticación. Al compilar, cada celda de la tabla guarda solo las reglas que pueden
+ * coincidir con ese método y ese primer segmento, en su orden original, así una petición revisa una o dos
+ * reglas en lugar de toda la cadena. Los patrones se interpretan igual que en Spring Security
+ * (PathPatternParser.defaultInstance sobre pathWithinApplication).
+ */
+public class RouteAuthorizationTable implements ReactiveAuthorizationManager<AuthorizationContext> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+    private static final Mono<AuthorizationDecision> GRANTED_MONO = Mono.just(GRANTED);
+    private static final AuthenticationTrustResolver TRUST_RESOLVER = new AuthenticationTrustResolverImpl();
+    private static final Access AUTHENTICATED = new Access(false, null);
+
+    private final Map<HttpMethod, MethodTable> byMethod = new HashMap<>();
+    private final MethodTable otherMethods;
+
+    private RouteAuthorizationTable(List<Rule> rules) {
+        Set<String> segments = new LinkedHashSet<>();
+        rules.forEach(rule -> {
+            if (rule.segment() != null) {
+                segments.add(rule.segment());
+            }
+        });
+        for (HttpMethod method : HttpMethod.values()) {
+            byMethod.put(method, compile(rules, method, segments));
+        }
+        this.otherMethods = compile(rules, null, segments);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Mono<AuthorizationDecision> check(Mono<Authentication> authentication, AuthorizationContext context) {
+        ServerHttpRequest request = context.getExchange().getRequest();
+        return resolve(request.getMethod(), request.getPath().pathWithinApplication()).check(authentication);
+    }
+
+    private Access resolve(HttpMethod method, PathContainer path) {
+        MethodTable table = byMethod.getOrDefault(method, otherMethods);
+        Rule[] candidates = table.bySegment().getOrDefault(firstSegment(path), table.otherSegments());
+        for (Rule rule : candidates) {
+            if (rule.pattern().matches(path)) {
+                return rule.access();
+            }
+        }
+        return AUTHENTICATED;
+    }
+
+    // Un patrón con primer segmento literal L solo coincide con paths cuyo primer elemento tras "/" es L
+    private static String firstSegment(PathContainer path) {
+        List<PathContainer.Element> elements = path.elements();
+        if (elements.size() > 1 && elements.get(0) instanceof PathContainer.Separator
+                && elements.get(1) instanceof PathContainer.PathSegment segment) {
+            return segment.valueToMatch();
+        }
+        return "";
+    }
+
+    private static MethodTable compile(List<Rule> rules, HttpMethod method, Set<String> segments) {
+        Map<String, Rule[]> bySegment = new HashMap<>();
+        for (String segment : segments) {
+            bySegment.put(segment, rules.stream()
+                    .filter(rule -> rule.appliesTo(method) && (rule.segment() == null || rule.segment().equals(segment)))
+                    .toArray(Rule[]::new));
+        }
+        Rule[] otherSegments = rules.stream()
+                .filter(rule -> rule.appliesTo(method) && rule.segment() == null)
+                .toArray(Rule[]::new);
+        return new MethodTable(Map.copyOf(bySegment), otherSegments);
+    }
+
+    public static final class Builder {
+
+        private final List<Rule> rules = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        // method null: cualquier método
+        public Builder permitAll(HttpMethod method, String... patterns) {
+            return add(method, patterns, new Access(true, null));
+        }
+
+        public Builder hasAnyRole(HttpMethod method, String pattern, String... roles) {
+            Set<String> authorities = Set.copyOf(Arrays.stream(roles).map(role -> "ROLE_" + role).toList());
+            return add(method, new String[]{pattern}, new Access(false, authorities));
+        }
+
+        public Builder authenticated(HttpMethod method, String... patterns) {
+            return add(method, patterns, AUTHENTICATED);
+        }
+
+        public RouteAuthorizationTable build() {
+            return new RouteAuthorizationTable(rules);
+        }
+
+        private Builder add(HttpMethod method, String[] patterns, Access access) {
+            for (String pattern : patterns) {
+                PathPatternParser parser = PathPatternParser.defaultInstance;
+                String fullPattern = parser.initFullPathPattern(pattern);
+                rules.add(new Rule(method, parser.parse(fullPattern), literalFirstSegment(fullPattern), access));
+            }
+            return this;
+        }
+
+        // null si el primer segmento del patrón no es literal (comodines, variables) o no existe
+        private static String literalFirstSegment(String pattern) {
+            int end = pattern.indexOf('/', 1);
+            String segment = pattern.substring(1, end < 0 ? pattern.length() : end);
+            return segment.isEmpty() || segment.chars().anyMatch(c -> c == '*' || c == '?' || c == '{') ? null : segment;
+        }
+    }
+
+    private record Rule(HttpMethod method, PathPattern pattern, String segment, Access access) {
+
+        private boolean appliesTo(HttpMethod requestMethod) {
+            return method == null || method.equals(requestMethod);
+        }
+    }
+
+    private record MethodTable(Map<String, Rule[]> bySegment, Rule[] otherSegments) {
+    }
+
+    /**
+     * permitAll no consulta la autenticación; sin autoridades equivale a authenticated() y con
+     * autoridades a hasAnyAuthority(), con la misma semántica que los managers de Spring Security.
+     */
+    private record Access(boolean permitAll, Set<String> authorities) {
+
+        private Mono<AuthorizationDecision> check(Mono<Authentication> authentication) {
+            if (permitAll) {
+                return GRANTED_MONO;
+            }
+            if (authorities == null) {
+                return authentication
+                        .filter(a -> !TRUST_RESOLVER.isAnonymous(a))
+                        .map(a -> a.isAuthenticated() ? GRANTED : DENIED)
+                        .defaultIfEmpty(DENIED);
+            }
+            return authentication
+                    .filter(Authentication::isAuthenticated)
+                    .map(a -> hasAny(a) ? GRANTED : DENIED)
+                    .defaultIfEmpty(DENIED);
+        }
+
+        private boolean hasAny(Authentication authentication) {
+            for (GrantedAuthority authority : authentication.getAuthorities()) {
+                if (authorities.contains(authority.getAuthority())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package pe.edu.vallegrande.vg_ms_casas.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,22 +8,13 @@ import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
-import org.springframework.web.cors.CorsConfiguration;
-import org.springframework.web.cors.reactive.CorsConfigurationSource;
-import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
-import org.springframework.web.server.ServerWebExchange;
-import reactor.core.publisher.Mono;
+import org.springframework.web.reactive.function.client.WebClient;
 
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
-import java.util.regex.Pattern;
+import java.time.Clock;
+import java.time.Duration;
 
 @Configuration
 @EnableWebFluxSecurity
@@ -32,101 +24,114 @@ public class SecurityConfig {
     @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
     private String jwkSetUri;
 
-    // Orígenes permitidos estáticos
-    private static final List<String> STATIC_ALLOWED_ORIGINS = Arrays.asList(
-            "http://localhost:4200"
-    );
+    @Value("${jwt.jwk.refresh-interval:5m}")
+    private Duration jwkRefreshInterval;
 
-    // Regex para entornos Gitpod
-    private static final Pattern GITPOD_REGEX = Pattern.compile(
-            "^https://4200-[a-z0-9\\-]+\\.ws-[a-z0-9]+\\.gitpod\\.io$"
-    );
+    @Value("${jwt.jwk.min-refresh-interval:30s}")
+    private Duration jwkMinRefreshInterval;
+
+    @Value("${jwt.jwk.fetch-timeout:5s}")
+    private Duration jwkFetchTimeout;
+
+    @Value("${jwt.jwk.scheduled-refresh:true}")
+    private boolean jwkScheduledRefresh;
+
+    @Value("${jwt.cache.max-size:10000}")
+    private long tokenCacheMaxSize;
+
+    @Value("${jwt.cache.max-ttl:1h}")
+    private Duration tokenCacheMaxTtl;
+
+    // Orígenes permitidos (cors.* en application.yml, recargables por /actuator/cors)
+    @Autowired
+    private DynamicCorsConfigurationSource corsConfigurationSource;
+
+    private final JwtAuthorityConverter jwtAuthorityConverter = new JwtAuthorityConverter();
 
     @Bean
     public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
         return http
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
-                .authorizeExchange(auth -> auth
-                        // Permitir preflight (CORS)
-                        .pathMatchers(HttpMethod.OPTIONS, "/**").permitAll()
-
-                        // Swagger sin protección
-                        .pathMatchers("/swagger-ui.html", "/v3/api-docs/**", "/swagger-ui/**").permitAll()
-
-                        // Seguridad para /consumption
-                        .pathMatchers(HttpMethod.GET, "/consumption/**").hasAnyRole("USER", "ADMIN")
-                        .pathMatchers(HttpMethod.POST, "/consumption/**").hasRole("ADMIN")
-                        .pathMatchers(HttpMethod.PUT, "/consumption/**").hasRole("ADMIN")
-                        .pathMatchers(HttpMethod.DELETE, "/consumption/**").hasRole("ADMIN")
-
-                        // Seguridad para /inventories
-                        .pathMatchers(HttpMethod.GET, "/inventories/**").hasAnyRole("USER", "ADMIN")
-                        .pathMatchers(HttpMethod.POST, "/inventories/**").hasRole("ADMIN")
-                        .pathMatchers(HttpMethod.PUT, "/inventories/**").hasRole("ADMIN")
-                        .pathMatchers(HttpMethod.DELETE, "/inventories/**").hasRole("ADMIN")
-
-                        // Seguridad para /homes
-                        .pathMatchers(HttpMethod.GET, "/homes/**").hasAnyRole("USER", "ADMIN")
-                        .pathMatchers(HttpMethod.POST, "/homes/**").hasRole("ADMIN")
-                        .pathMatchers(HttpMethod.PUT, "/homes/**").hasRole("ADMIN")
-                        .pathMatchers(HttpMethod.DELETE, "/homes/**").hasRole("ADMIN")
-
-                        // Seguridad para /transactions 🚀
-                        .pathMatchers(HttpMethod.GET, "/transactions/**").hasAnyRole("USER", "ADMIN")
-                        .pathMatchers(HttpMethod.POST, "/transactions/**").hasRole("ADMIN")
-                        .pathMatchers(HttpMethod.PUT, "/transactions/**").hasRole("ADMIN")
-                        .pathMatchers(HttpMethod.DELETE, "/transactions/**").hasRole("ADMIN")
-
-                        // Cualquier otra ruta requiere autenticación
-                        .anyExchange().authenticated()
-                )
+                .authorizeExchange(auth -> auth.anyExchange().access(routeAuthorization()))
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt
                                 .jwtDecoder(jwtDecoder())
-                                .jwtAuthenticationConverter(this::convertJwt)
+                                .jwtAuthenticationConverter(jwtAuthorityConverter)
                         )
                 )
-                .cors(cors -> cors.configurationSource(dynamicCorsConfigurationSource()))
+                .cors(cors -> cors.configurationSource(corsConfigurationSource))
                 .build();
     }
 
-    @Bean
-    public ReactiveJwtDecoder jwtDecoder() {
-        return NimbusReactiveJwtDecoder.withJwkSetUri(jwkSetUri).build();
-    }
-
-    private Mono<CustomAuthenticationToken> convertJwt(Jwt jwt) {
-        String role = jwt.getClaimAsString("role");
-
-        Collection<GrantedAuthority> authorities = role != null
-                ? List.of(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()))
-                : List.of();
-
-        return Mono.just(new CustomAuthenticationToken(jwt, authorities));
+    /**
+     * Reglas de acceso por ruta, evaluadas en orden; lo que no coincide con ninguna requiere autenticación.
+     */
+    public static RouteAuthorizationTable routeAuthorization() {
+        return RouteAuthorizationTable.builder()
+                // Permitir preflight (CORS)
+                .permitAll(HttpMethod.OPTIONS, "/**")
+
+                // Swagger sin protección
+                .permitAll(null, "/swagger-ui.html", "/v3/api-docs/**", "/swagger-ui/**")
+
+                // Probes de liveness/readiness; solo el estado, el detalle por componente pide ADMIN
+                .permitAll(HttpMethod.GET, "/actuator/health", "/actuator/health/liveness", "/actuator/health/readiness")
+
+                // Scrape de Prometheus: el scraper envía un JWT con rol METRICS (authorization en su scrape_config)
+                .hasAnyRole(HttpMethod.GET, "/actuator/prometheus", "METRICS", "ADMIN")
+                .hasAnyRole(HttpMethod.GET, "/actuator/metrics/**", "METRICS", "ADMIN")
+
+                // Recarga de orígenes CORS
+                .hasAnyRole(null, "/actuator/cors", "ADMIN")
+
+                // Estadísticas de consultas SQL
+                .hasAnyRole(null, "/actuator/queries", "ADMIN")
+
+                // Caché y circuit breaker del cliente de productos
+                .hasAnyRole(null, "/actuator/productclient", "ADMIN")
+
+                // Seguridad para /consumption
+                .hasAnyRole(HttpMethod.GET, "/consumption/**", "USER", "ADMIN")
+                .hasAnyRole(HttpMethod.POST, "/consumption/**", "ADMIN")
+                .hasAnyRole(HttpMethod.PUT, "/consumption/**", "ADMIN")
+                .hasAnyRole(HttpMethod.DELETE, "/consumption/**", "ADMIN")
+
+                // Seguridad para /inventories
+                .hasAnyRole(HttpMethod.GET, "/inventories/**", "USER", "ADMIN")
+                .hasAnyRole(HttpMethod.POST, "/inventories/**", "ADMIN")
+                .hasAnyRole(HttpMethod.PUT, "/inventories/**", "ADMIN")
+                .hasAnyRole(HttpMethod.DELETE, "/inventories/**", "ADMIN")
+
+                // Seguridad para /homes
+                .hasAnyRole(HttpMethod.GET, "/homes/**", "USER", "ADMIN")
+                .hasAnyRole(HttpMethod.POST, "/homes/**", "ADMIN")
+                .hasAnyRole(HttpMethod.PUT, "/homes/**", "ADMIN")
+                .hasAnyRole(HttpMethod.DELETE, "/homes/**", "ADMIN")
+
+                // Seguridad para /transactions 🚀
+                .hasAnyRole(HttpMethod.GET, "/transactions/**", "USER", "ADMIN")
+                .hasAnyRole(HttpMethod.POST, "/transactions/**", "ADMIN")
+                .hasAnyRole(HttpMethod.PUT, "/transactions/**", "ADMIN")
+                .hasAnyRole(HttpMethod.DELETE, "/transactions/**", "ADMIN")
+                .build();
     }
 
-    private CorsConfigurationSource dynamicCorsConfigurationSource() {
-        return new UrlBasedCorsConfigurationSource() {
-            @Override
-            public CorsConfiguration getCorsConfiguration(ServerWebExchange exchange) {
-                String origin = exchange.getRequest().getHeaders().getOrigin();
-
-                if (isAllowedOrigin(origin)) {
-                    CorsConfiguration config = new CorsConfiguration();
-                    config.setAllowedOrigins(List.of(origin));
-                    config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-                    config.setAllowedHeaders(List.of("*"));
-                    config.setAllowCredentials(true);
-                    config.setMaxAge(3600L);
-                    return config;
-                }
-                return null;
-            }
-        };
+    @Bean
+    public CachingJwkSource jwkSource() {
+        CachingJwkSource jwkSource = new CachingJwkSource(WebClient.create(), jwkSetUri, jwkRefreshInterval,
+                jwkMinRefreshInterval, jwkFetchTimeout, Clock.systemUTC());
+        jwkSource.setAutoStartup(jwkScheduledRefresh);
+        return jwkSource;
     }
 
-    private boolean isAllowedOrigin(String origin) {
-        if (origin == null) return false;
-        return STATIC_ALLOWED_ORIGINS.contains(origin) || GITPOD_REGEX.matcher(origin).matches();
+    // Verifica con las llaves en memoria y guarda los tokens ya verificados hasta su exp
+    @Bean
+    public ReactiveJwtDecoder jwtDecoder() {
+        CachingJwkSource jwkSource = jwkSource();
+        CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(
+                NimbusReactiveJwtDecoder.withJwkSource(jwkSource::select).build(),
+                tokenCacheMaxSize, tokenCacheMaxTtl, Clock.systemUTC());
+        jwkSource.onKeysRemoved(decoder::evictSignedBy);
+        return decoder;
     }
 }
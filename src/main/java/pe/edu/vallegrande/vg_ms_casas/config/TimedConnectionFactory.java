@@ -0,0 +1,68 @@
+package pe.edu.vallegrande.vg_ms_casas.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Envuelve el pool de conexiones para medir cuánto espera cada petición hasta obtener una conexión
+ * (histograma r2dbc.pool.acquire). Implementa Wrapped para que las métricas del pool de Spring Boot
+ * y los indicadores de salud sigan encontrando el ConnectionPool original.
+ */
+public class TimedConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, DisposableBean {
+
+    private final ConnectionFactory delegate;
+    private final Timer acquired;
+    private final Timer failed;
+
+    public TimedConnectionFactory(ConnectionFactory delegate, MeterRegistry registry, Duration maxExpected) {
+        this.delegate = delegate;
+        this.acquired = timer(registry, "success", maxExpected);
+        this.failed = timer(registry, "error", maxExpected);
+    }
+
+    private static Timer timer(MeterRegistry registry, String outcome, Duration maxExpected) {
+        return Timer.builder("r2dbc.pool.acquire")
+                .description("Tiempo de espera para obtener una conexión del pool")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(maxExpected)
+                .register(registry);
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.from(delegate.create())
+                    .doOnSuccess(connection -> acquired.record(Duration.ofNanos(System.nanoTime() - start)))
+                    .doOnError(e -> failed.record(Duration.ofNanos(System.nanoTime() - start)));
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return delegate;
+    }
+
+    @Override
+    public void destroy() {
+        if (delegate instanceof Disposable disposable) {
+            disposable.dispose();
+        }
+    }
+}
@@ -2,12 +2,17 @@ package pe.edu.vallegrande.vg_ms_casas.controller;
 
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -16,21 +21,39 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import pe.edu.vallegrande.vg_ms_casas.dto.ConsumptionReportRow;
+import pe.edu.vallegrande.vg_ms_casas.dto.ImportJob;
+import pe.edu.vallegrande.vg_ms_casas.dto.ImportReject;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageResponse;
 import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
 import pe.edu.vallegrande.vg_ms_casas.service.ConsumptionService;
+import pe.edu.vallegrande.vg_ms_casas.service.ExportService;
+import pe.edu.vallegrande.vg_ms_casas.service.ImportService;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
-@CrossOrigin(origins = "*")
 @RequestMapping("/consumption")
 public class ConsumptionController {
 
     @Autowired
     private ConsumptionService consumptionService;
 
-    @GetMapping
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ImportService importService;
+
+    @GetMapping(params = "limit")
+    public Mono<PageResponse<Consumption>> getPage(@RequestParam int limit,
+                                                   @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(consumptionService.findPage(cursor, limit));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Consumption> getAll() {
         return consumptionService.findAll();
     }
@@ -74,22 +97,105 @@ public class ConsumptionController {
                 .thenReturn(createResponse("El consumo ha sido restaurado."));
     }
 
-    @GetMapping("/lista-activos")
-    public Flux<Consumption> listActive() {
-        return consumptionService.findActive();
+    @GetMapping(value = "/lista-activos", params = "limit")
+    public Mono<PageResponse<Consumption>> listActivePage(@RequestParam int limit,
+                                                          @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(consumptionService.findActivePage(cursor, limit));
+    }
+
+    @GetMapping(value = "/lista-activos", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Consumption> listActive(@RequestParam(name = "includeProduct", defaultValue = "false") boolean includeProduct) {
+        return consumptionService.findActive(includeProduct);
+    }
+
+    @GetMapping(value = "/lista-inactivos", params = "limit")
+    public Mono<PageResponse<Consumption>> listInactivePage(@RequestParam int limit,
+                                                            @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(consumptionService.findInactivePage(cursor, limit));
     }
 
-    @GetMapping("/lista-inactivos")
+    @GetMapping(value = "/lista-inactivos", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Consumption> listInactive() {
         return consumptionService.findInactive();
     }
 
-    @GetMapping("/by-date-range")
+    @GetMapping(value = "/by-date-range", params = "limit")
+    public Mono<PageResponse<Consumption>> getByDateRangePage(
+            @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(name = "activeOnly", defaultValue = "true") boolean activeOnly,
+            @RequestParam(name = "includeProduct", defaultValue = "false") boolean includeProduct,
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(consumptionService.findByDateRangePage(startDate, endDate, activeOnly, includeProduct,
+                cursor, limit));
+    }
+
+    @GetMapping(value = "/by-date-range", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Consumption> getByDateRange(
             @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(name = "activeOnly", defaultValue = "true") boolean activeOnly,
+            @RequestParam(name = "includeProduct", defaultValue = "false") boolean includeProduct) {
+        return consumptionService.findByDateRange(startDate, endDate, activeOnly, includeProduct);
+    }
+
+    // Reporte agregado, p. ej. /consumption/report?startDate=2024-01-01&endDate=2024-12-31&period=month&groupBy=home
+    @GetMapping(value = "/report", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<ConsumptionReportRow> getReport(
+            @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(name = "period", required = false) String period,
+            @RequestParam(name = "groupBy", required = false) List<String> groupBy,
             @RequestParam(name = "activeOnly", defaultValue = "true") boolean activeOnly) {
-        return consumptionService.findByDateRange(startDate, endDate, activeOnly);
+        return consumptionService.report(startDate, endDate, period, groupBy, activeOnly)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    // Historial completo en CSV, escrito por partes; p. ej. /consumption/export?startDate=2024-01-01&endDate=2024-12-31&status=A
+    @GetMapping(value = "/export", produces = "text/csv")
+    public ResponseEntity<Flux<DataBuffer>> export(
+            @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(name = "status", required = false) String status,
+            @RequestParam(name = "idHome", required = false) Integer idHome,
+            @RequestParam(name = "productId", required = false) Long productId,
+            ServerHttpResponse response) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"consumption.csv\"")
+                .body(exportService.consumptionsCsv(startDate, endDate, status, idHome, productId, response.bufferFactory())
+                        .onErrorMap(IllegalArgumentException.class,
+                                e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e)));
+    }
+
+    // Importación CSV por bloques con COPY; responde el avance del job (NDJSON). Con jobId reanuda una carga interrumpida
+    @PostMapping(value = "/import", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ImportJob> importCsv(@RequestBody Flux<DataBuffer> csv,
+                                     @RequestParam(name = "jobId", required = false) Integer jobId) {
+        return importService.importConsumption(csv, jobId)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    @GetMapping("/import/{jobId}")
+    public Mono<ImportJob> getImport(@PathVariable Integer jobId) {
+        return importService.findJob(ImportJob.CONSUMPTION, jobId);
+    }
+
+    @GetMapping("/import/{jobId}/rejects")
+    public Flux<ImportReject> getImportRejects(@PathVariable Integer jobId) {
+        return importService.findRejects(ImportJob.CONSUMPTION, jobId);
+    }
+
+    // Backfill del rollup diario; sin fechas recalcula todo el rango de consumption
+    @PostMapping("/report/rollup/rebuild")
+    public Mono<Map<String, Object>> rebuildRollup(
+            @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return consumptionService.rebuildRollup(startDate, endDate)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
     }
 
     private ResponseEntity<Map<String, String>> createResponse(String message) {
@@ -97,4 +203,4 @@ public class ConsumptionController {
         response.put("message", message);
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+}
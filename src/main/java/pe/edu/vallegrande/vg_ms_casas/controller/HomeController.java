@@ -1,14 +1,18 @@
 package pe.edu.vallegrande.vg_ms_casas.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageResponse;
 import pe.edu.vallegrande.vg_ms_casas.model.Home;
 import pe.edu.vallegrande.vg_ms_casas.service.HomeService;
+import pe.edu.vallegrande.vg_ms_casas.service.VersionConflictException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
-@CrossOrigin(origins = "*")
 @RequestMapping("/homes")
 public class HomeController {
 
@@ -16,7 +20,13 @@ public class HomeController {
     @Autowired
     private HomeService homeService;
 
-    @GetMapping
+    @GetMapping(params = "limit")
+    public Mono<PageResponse<Home>> getPage(@RequestParam int limit,
+                                            @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(homeService.findPage(cursor, limit));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Home> getAll() {
         return homeService.findAll();
     }
@@ -31,9 +41,13 @@ public class HomeController {
         return homeService.save(home);
     }
 
+    // Con version en el cuerpo, una versión desactualizada responde 409 con la casa actual
     @PutMapping("/{id}")
-    public Mono<Home> update(@PathVariable Integer id, @RequestBody Home home) {
-        return homeService.update(id, home);
+    public Mono<ResponseEntity<Home>> update(@PathVariable Integer id, @RequestBody Home home) {
+        return homeService.update(id, home)
+                .map(ResponseEntity::ok)
+                .onErrorResume(VersionConflictException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.CONFLICT).body((Home) e.getCurrent())));
     }
 
     @PutMapping("/{id}/deactivate")
@@ -46,13 +60,25 @@ public class HomeController {
         return homeService.restore(id);
     }
 
-    @GetMapping("/active")
+    @GetMapping(value = "/active", params = "limit")
+    public Mono<PageResponse<Home>> listActivePage(@RequestParam int limit,
+                                                   @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(homeService.findActivePage(cursor, limit));
+    }
+
+    @GetMapping(value = "/active", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Home> listActive() {
         return homeService.findActive();
     }
 
-    @GetMapping("/inactive")
+    @GetMapping(value = "/inactive", params = "limit")
+    public Mono<PageResponse<Home>> listInactivePage(@RequestParam int limit,
+                                                     @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(homeService.findInactivePage(cursor, limit));
+    }
+
+    @GetMapping(value = "/inactive", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Home> listInactive() {
         return homeService.findInactive();
     }
-}
\ No newline at end of file
+}
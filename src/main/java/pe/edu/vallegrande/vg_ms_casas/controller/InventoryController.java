@@ -1,23 +1,50 @@
 package pe.edu.vallegrande.vg_ms_casas.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import pe.edu.vallegrande.vg_ms_casas.config.RequestObservations;
+import pe.edu.vallegrande.vg_ms_casas.dto.ImportJob;
+import pe.edu.vallegrande.vg_ms_casas.dto.ImportReject;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageResponse;
+import pe.edu.vallegrande.vg_ms_casas.dto.StockAtTime;
+import pe.edu.vallegrande.vg_ms_casas.dto.StockCheck;
 import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.service.ImportService;
 import pe.edu.vallegrande.vg_ms_casas.service.InventoryService;
+import pe.edu.vallegrande.vg_ms_casas.service.InventorySnapshotService;
+import pe.edu.vallegrande.vg_ms_casas.service.VersionConflictException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+
 @RestController
-@CrossOrigin(origins = "*")
 @RequestMapping("/inventories")
 public class InventoryController {
 
     @Autowired
     private InventoryService inventoryService;
 
-    @GetMapping
+    @Autowired
+    private InventorySnapshotService inventorySnapshotService;
+
+    @Autowired
+    private ImportService importService;
+
+    @GetMapping(params = "limit")
+    public Mono<PageResponse<Inventory>> getPage(@RequestParam int limit,
+                                                 @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(inventoryService.findPage(cursor, limit));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Inventory> getAll() {
         return inventoryService.findAll();
     }
@@ -27,17 +54,72 @@ public class InventoryController {
         return inventoryService.findById(id);
     }
 
+    @GetMapping("/product/{productId}")
+    public Mono<Inventory> getByProductId(@PathVariable Integer productId) {
+        return inventoryService.findByProductId(productId);
+    }
+
+    // Contadores de la caché de inventario (aciertos, fallos, desalojos)
+    @GetMapping("/cache/stats")
+    public Mono<Map<String, Object>> cacheStats() {
+        return Mono.fromSupplier(inventoryService::cacheStats);
+    }
+
+    // Stock en una fecha y hora (por defecto ahora), desde el snapshot diario más cercano
+    @GetMapping("/{id}/stock")
+    public Mono<StockAtTime> getStockAt(@PathVariable Integer id,
+                                        @RequestParam(name = "at", required = false)
+                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return inventorySnapshotService.stockAt(id, at);
+    }
+
+    // Recalcula los snapshots desde transactions y devuelve los inventarios que no cuadran con current_stock
+    @PostMapping("/snapshots/rebuild")
+    public Mono<Map<String, Object>> rebuildSnapshots() {
+        return inventorySnapshotService.rebuild();
+    }
+
+    // Inventarios cuyo current_stock difiere del snapshot más movimientos o del historial completo
+    @PostMapping("/snapshots/verify")
+    public Flux<StockCheck> verifySnapshots() {
+        return inventorySnapshotService.verify();
+    }
+
+    // Importación CSV por bloques con COPY; responde el avance del job (NDJSON). Con jobId reanuda una carga interrumpida
+    @PostMapping(value = "/import", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ImportJob> importCsv(@RequestBody Flux<DataBuffer> csv,
+                                     @RequestParam(required = false) Integer jobId) {
+        return importService.importInventory(csv, jobId)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    @GetMapping("/import/{jobId}")
+    public Mono<ImportJob> getImport(@PathVariable Integer jobId) {
+        return importService.findJob(ImportJob.INVENTORY, jobId);
+    }
+
+    @GetMapping("/import/{jobId}/rejects")
+    public Flux<ImportReject> getImportRejects(@PathVariable Integer jobId) {
+        return importService.findRejects(ImportJob.INVENTORY, jobId);
+    }
+
     @PostMapping
     public Mono<ResponseEntity<Inventory>> create(@RequestBody Inventory inventory) {
         return inventoryService.save(inventory)
                 .map(savedInventory -> ResponseEntity.status(HttpStatus.CREATED).body(savedInventory))
+                .onErrorResume(RequestObservations::recordError)
                 .onErrorReturn(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
     }
 
+    // Con version en el cuerpo, una versión desactualizada responde 409 con el inventario actual
     @PutMapping("/{id}")
     public Mono<ResponseEntity<Inventory>> update(@PathVariable Integer id, @RequestBody Inventory inventory) {
         return inventoryService.update(id, inventory)
                 .map(updatedInventory -> ResponseEntity.ok(updatedInventory))
+                .onErrorResume(VersionConflictException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.CONFLICT).body((Inventory) e.getCurrent())))
+                .onErrorResume(RequestObservations::recordError)
                 .onErrorReturn(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
     }
 
@@ -51,12 +133,24 @@ public class InventoryController {
         return inventoryService.restore(id);
     }
 
-    @GetMapping("/active")
+    @GetMapping(value = "/active", params = "limit")
+    public Mono<PageResponse<Inventory>> listActivePage(@RequestParam int limit,
+                                                        @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(inventoryService.findActivePage(cursor, limit));
+    }
+
+    @GetMapping(value = "/active", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Inventory> listActive() {
         return inventoryService.findActive();
     }
 
-    @GetMapping("/inactive")
+    @GetMapping(value = "/inactive", params = "limit")
+    public Mono<PageResponse<Inventory>> listInactivePage(@RequestParam int limit,
+                                                          @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(inventoryService.findInactivePage(cursor, limit));
+    }
+
+    @GetMapping(value = "/inactive", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Inventory> listInactive() {
         return inventoryService.findInactive();
     }
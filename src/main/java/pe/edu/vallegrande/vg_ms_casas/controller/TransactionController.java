@@ -1,53 +1,159 @@
 package pe.edu.vallegrande.vg_ms_casas.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import pe.edu.vallegrande.vg_ms_casas.config.RequestObservations;
+import pe.edu.vallegrande.vg_ms_casas.dto.BulkTransactionResult;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageResponse;
+import pe.edu.vallegrande.vg_ms_casas.dto.TransactionEvent;
 import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import pe.edu.vallegrande.vg_ms_casas.service.ExportService;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionEventStream;
 import pe.edu.vallegrande.vg_ms_casas.service.TransactionService;
+import pe.edu.vallegrande.vg_ms_casas.service.VersionConflictException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDate;
+
 @RestController
-@CrossOrigin(origins = "*")
 @RequestMapping("/transactions")
 public class TransactionController {
 
     @Autowired
     private TransactionService transactionService;
 
-    @GetMapping
+    @Autowired
+    private TransactionEventStream transactionEventStream;
+
+    @Autowired
+    private ExportService exportService;
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Transaction> getAll() {
         return transactionService.findAll();
     }
 
+    @GetMapping(params = "limit")
+    public Mono<PageResponse<Transaction>> getPage(@RequestParam int limit,
+                                                   @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(transactionService.findPage(cursor, limit));
+    }
+
+    /**
+     * Cambios de transacciones en vivo (SSE), filtrables por inventario, producto y tipo.
+     * Reanuda desde Last-Event-ID (cabecera o parámetro); overflow=drop|latest decide qué se
+     * descarta cuando el cliente no lee al ritmo de los eventos.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<TransactionEvent>> stream(
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventIdHeader,
+            @RequestParam(name = "lastEventId", required = false) Long lastEventId,
+            @RequestParam(name = "inventoryId", required = false) Integer inventoryId,
+            @RequestParam(name = "productId", required = false) Integer productId,
+            @RequestParam(name = "type", required = false) String type,
+            @RequestParam(name = "overflow", defaultValue = "latest") String overflow) {
+        if (!"latest".equals(overflow) && !"drop".equals(overflow)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "overflow must be drop or latest"));
+        }
+        Flux<ServerSentEvent<TransactionEvent>> events = transactionEventStream
+                .subscribe(lastEventIdHeader != null ? lastEventIdHeader : lastEventId,
+                        t -> (inventoryId == null || inventoryId.equals(t.getInventoryId()))
+                                && (productId == null || productId.equals(t.getProductId()))
+                                && (type == null || type.equals(t.getType())),
+                        "latest".equals(overflow))
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(Long.toString(event.getId()))
+                        .event(event.getType())
+                        .build());
+        // Comentarios periódicos para que proxies y balanceadores no corten conexiones inactivas
+        return events.mergeWith(transactionEventStream.heartbeats()
+                .map(tick -> ServerSentEvent.<TransactionEvent>builder().comment("keepalive").build()));
+    }
+
     @GetMapping("/{id}")
     public Mono<Transaction> getById(@PathVariable Integer id) {
         return transactionService.findById(id);
     }
 
-    @GetMapping("/inventory/{inventoryId}")
+    @GetMapping(value = "/inventory/{inventoryId}", params = "limit")
+    public Mono<PageResponse<Transaction>> getByInventoryIdPage(@PathVariable Integer inventoryId, @RequestParam int limit,
+                                                                @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(transactionService.findPageByInventoryId(inventoryId, cursor, limit));
+    }
+
+    @GetMapping(value = "/inventory/{inventoryId}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Transaction> getByInventoryId(@PathVariable Integer inventoryId) {
         return transactionService.findByInventoryId(inventoryId);
     }
 
-    @GetMapping("/product/{productId}")
+    @GetMapping(value = "/product/{productId}", params = "limit")
+    public Mono<PageResponse<Transaction>> getByProductIdPage(@PathVariable Integer productId, @RequestParam int limit,
+                                                              @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(transactionService.findPageByProductId(productId, cursor, limit));
+    }
+
+    @GetMapping(value = "/product/{productId}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Transaction> getByProductId(@PathVariable Integer productId) {
         return transactionService.findByProductId(productId);
     }
 
-    @GetMapping("/type/{type}")
+    @GetMapping(value = "/type/{type}", params = "limit")
+    public Mono<PageResponse<Transaction>> getByTypePage(@PathVariable String type, @RequestParam int limit,
+                                                         @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(transactionService.findPageByType(type, cursor, limit));
+    }
+
+    @GetMapping(value = "/type/{type}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Transaction> getByType(@PathVariable String type) {
         return transactionService.findByType(type);
     }
 
-    @GetMapping("/active")
+    @GetMapping(value = "/active", params = "limit")
+    public Mono<PageResponse<Transaction>> listActivePage(@RequestParam int limit,
+                                                          @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(transactionService.findActivePage(cursor, limit));
+    }
+
+    @GetMapping(value = "/active", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Transaction> listActive() {
         return transactionService.findActive();
     }
 
-    @GetMapping("/consumption/{consumptionId}")
+    // Historial completo en CSV, escrito por partes; p. ej. /transactions/export?startDate=2024-01-01&endDate=2024-12-31&type=SALIDA
+    @GetMapping(value = "/export", produces = "text/csv")
+    public ResponseEntity<Flux<DataBuffer>> export(
+            @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(name = "status", required = false) String status,
+            @RequestParam(name = "inventoryId", required = false) Integer inventoryId,
+            @RequestParam(name = "productId", required = false) Integer productId,
+            @RequestParam(name = "type", required = false) String type,
+            ServerHttpResponse response) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions.csv\"")
+                .body(exportService.transactionsCsv(startDate, endDate, status, inventoryId, productId, type,
+                                response.bufferFactory())
+                        .onErrorMap(IllegalArgumentException.class,
+                                e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e)));
+    }
+
+    @GetMapping(value = "/consumption/{consumptionId}", params = "limit")
+    public Mono<PageResponse<Transaction>> getByConsumptionIdPage(@PathVariable Integer consumptionId, @RequestParam int limit,
+                                                                  @RequestParam(required = false) String cursor) {
+        return PageResponse.paged(transactionService.findPageByConsumptionId(consumptionId, cursor, limit));
+    }
+
+    @GetMapping(value = "/consumption/{consumptionId}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     public Flux<Transaction> getByConsumptionId(@PathVariable Integer consumptionId) {
         return transactionService.findByConsumptionId(consumptionId);
     }
@@ -56,13 +162,24 @@ public class TransactionController {
     public Mono<ResponseEntity<Transaction>> create(@RequestBody Transaction transaction) {
         return transactionService.save(transaction)
                 .map(savedTransaction -> ResponseEntity.status(HttpStatus.CREATED).body(savedTransaction))
+                .onErrorResume(RequestObservations::recordError)
                 .onErrorReturn(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
     }
 
+    // Acepta un arreglo JSON o un flujo NDJSON; devuelve un resultado por elemento
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<BulkTransactionResult> createBulk(@RequestBody Flux<Transaction> transactions) {
+        return transactionService.saveAll(transactions);
+    }
+
+    // Con version en el cuerpo, una versión desactualizada responde 409 con la transacción actual
     @PutMapping("/{id}")
     public Mono<ResponseEntity<Transaction>> update(@PathVariable Integer id, @RequestBody Transaction transaction) {
         return transactionService.update(id, transaction)
                 .map(updatedTransaction -> ResponseEntity.ok(updatedTransaction))
+                .onErrorResume(VersionConflictException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.CONFLICT).body((Transaction) e.getCurrent())))
+                .onErrorResume(RequestObservations::recordError)
                 .onErrorReturn(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
     }
 
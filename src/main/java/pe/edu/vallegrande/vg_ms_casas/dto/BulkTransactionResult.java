@@ -0,0 +1,34 @@
+package pe.edu.vallegrande.vg_ms_casas.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+
+/**
+ * Resultado de un elemento de la carga masiva de transacciones.
+ * index es la posición del elemento en el lote recibido (desde 0).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkTransactionResult {
+
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+
+    private long index;
+    private String status;
+    private Transaction transaction;
+    private String error;
+
+    public static BulkTransactionResult created(long index, Transaction transaction) {
+        return new BulkTransactionResult(index, CREATED, transaction, null);
+    }
+
+    public static BulkTransactionResult rejected(long index, String error) {
+        return new BulkTransactionResult(index, REJECTED, null, error);
+    }
+}
@@ -0,0 +1,42 @@
+package pe.edu.vallegrande.vg_ms_casas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fila de change_log / notificación del canal change_log. refId es el inventario de una
+ * TRANSACTION o el producto de una CONSUMPTION; origin identifica al nodo que hizo el cambio.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChangeEvent {
+
+    public static final String TRANSACTION = "TRANSACTION";
+    public static final String INVENTORY = "INVENTORY";
+    public static final String CONSUMPTION = "CONSUMPTION";
+    public static final String HOME = "HOME";
+
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DEACTIVATED = "DEACTIVATED";
+    public static final String RESTORED = "RESTORED";
+
+    private long id;
+    private String entity;
+    private Integer entityId;
+    private Long refId;
+    private String action;
+    private String origin;
+
+    // Carga de pg_notify: id,entity,entity_id,ref_id,action,origin
+    public static ChangeEvent parse(String payload) {
+        String[] parts = payload.split(",", -1);
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("Invalid change notification: " + payload);
+        }
+        return new ChangeEvent(Long.parseLong(parts[0]), parts[1], Integer.valueOf(parts[2]),
+                parts[3].isEmpty() ? null : Long.valueOf(parts[3]), parts[4], parts[5]);
+    }
+}
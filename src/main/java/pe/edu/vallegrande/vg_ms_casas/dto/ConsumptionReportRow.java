@@ -0,0 +1,33 @@
+package pe.edu.vallegrande.vg_ms_casas.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Fila de un reporte agregado de consumo. period, idHome y productId solo vienen
+ * cuando forman parte de la agrupación pedida; los promedios son por registro.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConsumptionReportRow {
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate period;
+    private Integer idHome;
+    private Long productId;
+
+    private long count;
+    private long totalQuantity;
+    private double totalWeight;
+    private double totalSaleValue;
+    private double averageQuantity;
+    private double averageWeight;
+    private double averageSaleValue;
+}
@@ -0,0 +1,22 @@
+package pe.edu.vallegrande.vg_ms_casas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fila de idempotency_key: la huella de la petición original y, cuando completed es true,
+ * la respuesta guardada que se devuelve a los reintentos.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdempotentResponse {
+
+    private String fingerprint;
+    private boolean completed;
+    private int status;
+    private String contentType;
+    private String location;
+    private byte[] body;
+}
@@ -0,0 +1,36 @@
+package pe.edu.vallegrande.vg_ms_casas.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Estado de una importación CSV. lastRow es la última fila de datos confirmada (desde 1, sin la
+ * cabecera); loaded y rejected cuentan las filas cargadas y rechazadas hasta ahí.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportJob {
+
+    public static final String CONSUMPTION = "CONSUMPTION";
+    public static final String INVENTORY = "INVENTORY";
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private Integer id;
+    private String kind;
+    private String status;
+    private long lastRow;
+    private long loaded;
+    private long rejected;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
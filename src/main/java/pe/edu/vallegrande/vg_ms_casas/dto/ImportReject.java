@@ -0,0 +1,18 @@
+package pe.edu.vallegrande.vg_ms_casas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fila rechazada de una importación: número de fila de datos (desde 1), motivo y valores recibidos.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportReject {
+
+    private long row;
+    private String reason;
+    private String raw;
+}
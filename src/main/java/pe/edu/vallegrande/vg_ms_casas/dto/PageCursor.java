@@ -0,0 +1,73 @@
+package pe.edu.vallegrande.vg_ms_casas.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor opaco para paginación keyset: codifica la clave de orden (fecha, si aplica)
+ * y el id de la última fila entregada. Una fila sin fecha deja la clave vacía y la fecha vuelve como null.
+ */
+public final class PageCursor {
+
+    // Centinelas para la primera página: cualquier fila real queda "antes" o "después" de ellos
+    public static final LocalDateTime MAX_DATE_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    public static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31);
+
+    private final String key;
+    private final int id;
+
+    private PageCursor(String key, int id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    public static String encode(Object key, Integer id) {
+        String raw = (key == null ? "" : key.toString()) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new PageCursor(raw.substring(0, separator), Integer.parseInt(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public LocalDateTime getDateTime() {
+        if (key.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public LocalDate getDate() {
+        if (key.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
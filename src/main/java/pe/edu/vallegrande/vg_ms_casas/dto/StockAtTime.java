@@ -0,0 +1,29 @@
+package pe.edu.vallegrande.vg_ms_casas.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Stock de un inventario en un instante. snapshotDay es el snapshot del que se partió (ausente si se
+ * recorrió todo el historial) y replayedMovements los movimientos aplicados encima.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StockAtTime {
+
+    private Integer inventoryId;
+    private LocalDateTime at;
+    private long stock;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate snapshotDay;
+    private long replayedMovements;
+}
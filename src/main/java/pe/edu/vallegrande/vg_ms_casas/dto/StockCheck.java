@@ -0,0 +1,20 @@
+package pe.edu.vallegrande.vg_ms_casas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Inventario cuyo stock no cuadra: currentStock es el de inventory_consumption, snapshotStock el último
+ * snapshot más los movimientos posteriores y ledgerStock la suma de todos los movimientos.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockCheck {
+
+    private Integer inventoryId;
+    private long currentStock;
+    private long snapshotStock;
+    private long ledgerStock;
+}
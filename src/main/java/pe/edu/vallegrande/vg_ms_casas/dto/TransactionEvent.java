@@ -0,0 +1,26 @@
+package pe.edu.vallegrande.vg_ms_casas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+
+/**
+ * Cambio confirmado de una transacción. id es correlativo en el nodo y sirve como Last-Event-ID;
+ * type es CREATED, UPDATED, DEACTIVATED, RESTORED o RESET (se perdieron eventos, hay que recargar).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionEvent {
+
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DEACTIVATED = "DEACTIVATED";
+    public static final String RESTORED = "RESTORED";
+    public static final String RESET = "RESET";
+
+    private long id;
+    private String type;
+    private Transaction transaction;
+}
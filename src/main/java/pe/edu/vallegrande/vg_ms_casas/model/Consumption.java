@@ -1,12 +1,16 @@
 package pe.edu.vallegrande.vg_ms_casas.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
+import pe.edu.vallegrande.vg_ms_casas.dto.ProductDTO;
+
 import java.time.LocalDate;
 
 @Data
@@ -27,10 +31,16 @@ public class Consumption {
     private Long productId;
 
     // Mantener los demás campos igual
+    @Transient // no es columna de consumption: lo completa HomeNameDictionary
     private String names;
     private Integer quantity;
     private Double weight;
     private Integer price;
     private Double salevalue;
     private String status;
+
+    // Detalle del producto, solo cuando se pide includeProduct
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ProductDTO product;
 }
\ No newline at end of file
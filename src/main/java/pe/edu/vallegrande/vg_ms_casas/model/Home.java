@@ -1,6 +1,7 @@
 package pe.edu.vallegrande.vg_ms_casas.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Table;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -20,4 +21,8 @@ public class Home {
     private String names;
     private String address;
     private String status; // "A" = Active, "I" = Inactive
+
+    // Control de concurrencia optimista: se incrementa en cada UPDATE
+    @Version
+    private Long version;
 }
\ No newline at end of file
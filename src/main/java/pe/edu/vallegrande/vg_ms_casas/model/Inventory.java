@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -27,4 +28,8 @@ public class Inventory {
     private Integer currentStock;
 
     private String status;
+
+    // Control de concurrencia optimista: se incrementa en cada UPDATE
+    @Version
+    private Long version;
 }
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -51,4 +52,8 @@ public class Transaction {
 
     @Column("consumption_id")
     private Integer consumptionId;
+
+    // Control de concurrencia optimista: se incrementa en cada UPDATE
+    @Version
+    private Long version;
 }
@@ -0,0 +1,129 @@
+package pe.edu.vallegrande.vg_ms_casas.repository;
+
+import io.netty.buffer.Unpooled;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Wrapped;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Carga de filas con COPY FROM STDIN para las importaciones CSV. Los id se reservan antes en la
+ * secuencia de cada tabla, así el COPY inserta con id explícito y el llamador los tiene para el
+ * change_log y el rollup. Debe ejecutarse dentro de una transacción: el COPY va por la misma conexión.
+ */
+@Repository
+public class BulkLoadRepository {
+
+    private static final String COPY_CONSUMPTION = """
+            COPY consumption (id_consumption, date, id_home, product_id, quantity, weight, price, salevalue, status)
+            FROM STDIN WITH (FORMAT csv)
+            """;
+
+    private static final String COPY_INVENTORY = """
+            COPY inventory_consumption (id_inventory, product_id, initial_stock, current_stock, status)
+            FROM STDIN WITH (FORMAT csv)
+            """;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    // Asigna id_consumption a cada fila y las carga en un solo COPY; los id vuelven en el orden de la lista
+    public Mono<List<Integer>> copyConsumptions(List<Consumption> consumptions) {
+        if (consumptions.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return nextIds("consumption", "id_consumption", consumptions.size())
+                .flatMap(ids -> {
+                    StringBuilder csv = new StringBuilder(consumptions.size() * 64);
+                    for (int i = 0; i < consumptions.size(); i++) {
+                        Consumption consumption = consumptions.get(i);
+                        consumption.setId_consumption(ids.get(i));
+                        line(csv, consumption.getId_consumption(), consumption.getDate(), consumption.getId_home(),
+                                consumption.getProductId(), consumption.getQuantity(), consumption.getWeight(),
+                                consumption.getPrice(), consumption.getSalevalue(), consumption.getStatus());
+                    }
+                    return copy(COPY_CONSUMPTION, csv).thenReturn(ids);
+                });
+    }
+
+    public Mono<List<Integer>> copyInventories(List<Inventory> inventories) {
+        if (inventories.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return nextIds("inventory_consumption", "id_inventory", inventories.size())
+                .flatMap(ids -> {
+                    StringBuilder csv = new StringBuilder(inventories.size() * 32);
+                    for (int i = 0; i < inventories.size(); i++) {
+                        Inventory inventory = inventories.get(i);
+                        inventory.setIdInventory(ids.get(i));
+                        inventory.setVersion(0L);
+                        line(csv, inventory.getIdInventory(), inventory.getProductId(), inventory.getInitialStock(),
+                                inventory.getCurrentStock(), inventory.getStatus());
+                    }
+                    return copy(COPY_INVENTORY, csv).thenReturn(ids);
+                });
+    }
+
+    // De los id_home recibidos, los que existen en home
+    public Mono<Set<Integer>> existingHomes(Collection<Integer> homeIds) {
+        if (homeIds.isEmpty()) {
+            return Mono.just(Set.of());
+        }
+        return databaseClient.sql("SELECT id_home FROM home WHERE id_home = ANY(:ids)")
+                .bind("ids", homeIds.toArray(new Integer[0]))
+                .map((row, metadata) -> row.get("id_home", Integer.class))
+                .all()
+                .collect(HashSet::new, Set::add);
+    }
+
+    private Mono<List<Integer>> nextIds(String table, String column, int count) {
+        return databaseClient.sql("SELECT nextval(pg_get_serial_sequence(:table, :column)) AS id FROM generate_series(1, :count)")
+                .bind("table", table)
+                .bind("column", column)
+                .bind("count", count)
+                .map((row, metadata) -> row.get("id", Long.class).intValue())
+                .all()
+                .collectList();
+    }
+
+    // El COPY no pasa por DatabaseClient: se usa la conexión de la transacción, sin los envoltorios del pool y del proxy
+    private Mono<Long> copy(String sql, CharSequence csv) {
+        return databaseClient.inConnection(connection -> postgres(connection)
+                .copyIn(sql, Mono.fromSupplier(() -> Unpooled.wrappedBuffer(csv.toString().getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    private static PostgresqlConnection postgres(Connection connection) {
+        Object candidate = connection;
+        while (!(candidate instanceof PostgresqlConnection) && candidate instanceof Wrapped<?> wrapped) {
+            candidate = wrapped.unwrap();
+        }
+        if (candidate instanceof PostgresqlConnection postgres) {
+            return postgres;
+        }
+        throw new IllegalStateException("COPY requires an r2dbc-postgresql connection");
+    }
+
+    // Valores ya validados (números, fechas y estados de una letra): no necesitan comillas; null va vacío
+    private static void line(StringBuilder csv, Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            if (values[i] != null) {
+                csv.append(values[i]);
+            }
+        }
+        csv.append('\n');
+    }
+}
@@ -0,0 +1,87 @@
+package pe.edu.vallegrande.vg_ms_casas.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.edu.vallegrande.vg_ms_casas.dto.ChangeEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Escribe y lee change_log. Cada instancia tiene su propio nodeId, que va como origin
+ * en las filas que inserta para reconocer sus propios cambios al recibirlos de vuelta.
+ */
+@Repository
+public class ChangeLogRepository {
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    // Debe ejecutarse en la misma transacción que el cambio, así la notificación sale solo si confirma
+    public Mono<Void> append(String entity, Integer entityId, Number refId, String action) {
+        return appendAll(entity, List.of(entityId), refId == null ? null : List.of(refId.longValue()), action);
+    }
+
+    // Una fila por id en un solo INSERT; refIds, si viene, va en el mismo orden que entityIds.
+    // Los id de change_log siguen el orden de la lista: se inserta ordenado por la ordinalidad del unnest
+    public Mono<Void> appendAll(String entity, List<Integer> entityIds, List<Long> refIds, String action) {
+        if (entityIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.sql("""
+                        INSERT INTO change_log (entity, entity_id, ref_id, action, origin)
+                        SELECT :entity, u.entity_id, u.ref_id, :action, :origin
+                        FROM unnest(CAST(:entityIds AS INTEGER[]), CAST(:refIds AS BIGINT[]))
+                            WITH ORDINALITY AS u(entity_id, ref_id, ord)
+                        ORDER BY u.ord
+                        """)
+                .bind("entity", entity)
+                .bind("action", action)
+                .bind("origin", nodeId)
+                .bind("entityIds", entityIds.toArray(new Integer[0]))
+                .bind("refIds", refIds == null ? new Long[entityIds.size()] : refIds.toArray(new Long[0]))
+                .then();
+    }
+
+    public Mono<Long> maxId() {
+        return databaseClient.sql("SELECT COALESCE(MAX(id), 0) AS max_id FROM change_log")
+                .map((row, metadata) -> row.get("max_id", Long.class))
+                .one();
+    }
+
+    // Filas posteriores a afterId en orden, para ponerse al día tras una reconexión o un hueco
+    public Flux<ChangeEvent> findAfter(long afterId) {
+        return databaseClient.sql("""
+                        SELECT id, entity, entity_id, ref_id, action, origin
+                        FROM change_log
+                        WHERE id > :afterId
+                        ORDER BY id
+                        """)
+                .bind("afterId", afterId)
+                .map((row, metadata) -> new ChangeEvent(
+                        row.get("id", Long.class),
+                        row.get("entity", String.class),
+                        row.get("entity_id", Integer.class),
+                        row.get("ref_id", Long.class),
+                        row.get("action", String.class),
+                        row.get("origin", String.class)))
+                .all();
+    }
+
+    public Mono<Long> deleteOlderThan(LocalDateTime cutoff) {
+        return databaseClient.sql("DELETE FROM change_log WHERE created_at < :cutoff")
+                .bind("cutoff", cutoff)
+                .fetch()
+                .rowsUpdated();
+    }
+}
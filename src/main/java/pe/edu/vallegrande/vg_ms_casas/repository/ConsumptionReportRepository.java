@@ -0,0 +1,89 @@
+package pe.edu.vallegrande.vg_ms_casas.repository;
+
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.edu.vallegrande.vg_ms_casas.dto.ConsumptionReportRow;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reportes de consumo agregados en la base de datos (GROUP BY), para no mover filas crudas al cliente.
+ * Se leen de consumption_daily_rollup, así el costo depende de los días del rango y no de las filas.
+ * Los fragmentos de SQL salen de listas fijas, nunca del texto recibido.
+ */
+@Repository
+public class ConsumptionReportRepository {
+
+    public static final Set<String> PERIODS = Set.of("day", "week", "month");
+    public static final String HOME = "home";
+    public static final String PRODUCT = "product";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Flux<ConsumptionReportRow> aggregate(LocalDate startDate, LocalDate endDate, String period,
+                                                Set<String> dimensions, boolean activeOnly) {
+        List<String> groups = new ArrayList<>();
+        StringBuilder select = new StringBuilder("SELECT ");
+        if (period != null) {
+            select.append("date_trunc('").append(period).append("', r.day)::date AS period, ");
+            groups.add("period");
+        }
+        if (dimensions.contains(HOME)) {
+            select.append("r.id_home, ");
+            groups.add("r.id_home");
+        }
+        if (dimensions.contains(PRODUCT)) {
+            select.append("r.product_id, ");
+            groups.add("r.product_id");
+        }
+        select.append("""
+                COALESCE(SUM(r.row_count), 0)::bigint AS row_count,
+                COALESCE(SUM(r.total_quantity), 0)::bigint AS total_quantity,
+                COALESCE(SUM(r.total_weight), 0) AS total_weight,
+                COALESCE(SUM(r.total_salevalue), 0) AS total_salevalue
+                FROM consumption_daily_rollup r
+                WHERE r.day BETWEEN :startDate AND :endDate
+                """);
+        if (activeOnly) {
+            select.append("AND r.status = 'A'\n");
+        }
+        if (!groups.isEmpty()) {
+            String columns = String.join(", ", groups);
+            // Las claves que solo quedaron con deltas en cero no se reportan
+            select.append("GROUP BY ").append(columns)
+                    .append("\nHAVING SUM(r.row_count) > 0")
+                    .append("\nORDER BY ").append(columns);
+        }
+
+        return databaseClient.sql(select.toString())
+                .bind("startDate", startDate)
+                .bind("endDate", endDate)
+                .map((row, metadata) -> toReportRow(row,
+                        period != null, dimensions.contains(HOME), dimensions.contains(PRODUCT)))
+                .all();
+    }
+
+    private static ConsumptionReportRow toReportRow(Row row, boolean withPeriod, boolean withHome, boolean withProduct) {
+        long count = row.get("row_count", Long.class);
+        long quantity = row.get("total_quantity", Long.class);
+        double weight = row.get("total_weight", Double.class);
+        double saleValue = row.get("total_salevalue", Double.class);
+        return new ConsumptionReportRow(
+                withPeriod ? row.get("period", LocalDate.class) : null,
+                withHome ? row.get("id_home", Integer.class) : null,
+                withProduct ? row.get("product_id", Long.class) : null,
+                count, quantity, weight, saleValue,
+                average(quantity, count), average(weight, count), average(saleValue, count));
+    }
+
+    private static double average(double total, long count) {
+        return count == 0 ? 0 : total / count;
+    }
+}
@@ -10,29 +10,19 @@ import java.time.LocalDate;
 
 public interface ConsumptionRepository extends ReactiveCrudRepository<Consumption, Integer> {
 
-    @Query("""
-           SELECT c.id_consumption, c.date, c.id_home, c.product_id, c.quantity, c.weight, 
-                  c.price, c.salevalue, c.status, h.names
-           FROM consumption c
-           INNER JOIN home h ON c.id_home = h.id_home
-           WHERE c.status = :status
-           """)
-    Flux<Consumption> findByStatusWithNames(String status);
+    // names no sale de la base: lo completa HomeNameDictionary en ConsumptionService
+    @Query("SELECT * FROM consumption WHERE status = :status")
+    Flux<Consumption> findByStatus(String status);
 
-    @Query("""
-           SELECT c.id_consumption, c.date, c.id_home, c.product_id, c.quantity, c.weight,
-                  c.price, c.salevalue, c.status, h.names
-           FROM consumption c
-           INNER JOIN home h ON c.id_home = h.id_home
-           WHERE c.id_consumption = :id
-           """)
-    Mono<Consumption> findByIdWithNames(Integer id);
+    @Query("SELECT * FROM consumption WHERE id_consumption = :id FOR UPDATE")
+    Mono<Consumption> findByIdForUpdate(Integer id);
 
-    @Query("UPDATE consumption SET status = 'I' WHERE id_consumption = :id")
-    Mono<Void> inactivateConsumption(Integer id);
+    // Devuelven el product_id afectado: los triggers mueven el stock de ese producto
+    @Query("UPDATE consumption SET status = 'I' WHERE id_consumption = :id RETURNING product_id")
+    Mono<Long> inactivateConsumption(Integer id);
 
-    @Query("UPDATE consumption SET status = 'A' WHERE id_consumption = :id")
-    Mono<Void> restoreConsumption(Integer id);
+    @Query("UPDATE consumption SET status = 'A' WHERE id_consumption = :id RETURNING product_id")
+    Mono<Long> restoreConsumption(Integer id);
 
     @Query("""
            UPDATE consumption 
@@ -43,22 +33,62 @@ public interface ConsumptionRepository extends ReactiveCrudRepository<Consumptio
     Mono<Void> updateConsumption(Integer id, LocalDate date, Integer idHome, Long productId,
                                  Integer quantity, Double weight, Integer price, Double saleValue);
 
+    @Query("SELECT * FROM consumption WHERE date BETWEEN :startDate AND :endDate")
+    Flux<Consumption> findByDateRange(LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT * FROM consumption WHERE date BETWEEN :startDate AND :endDate AND status = :status")
+    Flux<Consumption> findByDateRangeAndStatus(LocalDate startDate, LocalDate endDate, String status);
+
+    // Paginación keyset de un rango de fechas; el rango excluye las filas sin fecha
     @Query("""
-           SELECT c.id_consumption, c.date, c.id_home, c.product_id, c.quantity, c.weight,
-                  c.price, c.salevalue, c.status, h.names
-           FROM consumption c
-           INNER JOIN home h ON c.id_home = h.id_home
-           WHERE c.date BETWEEN :startDate AND :endDate
+           SELECT * FROM consumption
+           WHERE date BETWEEN :startDate AND :endDate AND (date, id_consumption) < (:date, :id)
+           ORDER BY date DESC, id_consumption DESC
+           LIMIT :limit
            """)
-    Flux<Consumption> findByDateRange(LocalDate startDate, LocalDate endDate);
+    Flux<Consumption> findPageByDateRange(LocalDate startDate, LocalDate endDate, LocalDate date, Integer id, int limit);
 
     @Query("""
-           SELECT c.id_consumption, c.date, c.id_home, c.product_id, c.quantity, c.weight,
-                  c.price, c.salevalue, c.status, h.names
-           FROM consumption c
-           INNER JOIN home h ON c.id_home = h.id_home
-           WHERE c.date BETWEEN :startDate AND :endDate
-             AND c.status = :status
+           SELECT * FROM consumption
+           WHERE date BETWEEN :startDate AND :endDate AND status = :status AND (date, id_consumption) < (:date, :id)
+           ORDER BY date DESC, id_consumption DESC
+           LIMIT :limit
            """)
-    Flux<Consumption> findByDateRangeAndStatus(LocalDate startDate, LocalDate endDate, String status);
+    Flux<Consumption> findPageByDateRangeAndStatus(LocalDate startDate, LocalDate endDate, String status,
+                                                   LocalDate date, Integer id, int limit);
+
+    // Paginación keyset sobre (date, id_consumption) descendente; las filas sin fecha van al final, por id
+    @Query("""
+           SELECT * FROM (
+               (SELECT * FROM consumption
+                WHERE CAST(:date AS DATE) IS NOT NULL AND (date, id_consumption) < (:date, :id)
+                ORDER BY date DESC, id_consumption DESC
+                LIMIT :limit)
+               UNION ALL
+               (SELECT * FROM consumption
+                WHERE date IS NULL AND (CAST(:date AS DATE) IS NOT NULL OR id_consumption < :id)
+                ORDER BY id_consumption DESC
+                LIMIT :limit)
+           ) AS page
+           ORDER BY date DESC NULLS LAST, id_consumption DESC
+           LIMIT :limit
+           """)
+    Flux<Consumption> findPage(LocalDate date, Integer id, int limit);
+
+    @Query("""
+           SELECT * FROM (
+               (SELECT * FROM consumption
+                WHERE status = :status AND CAST(:date AS DATE) IS NOT NULL AND (date, id_consumption) < (:date, :id)
+                ORDER BY date DESC, id_consumption DESC
+                LIMIT :limit)
+               UNION ALL
+               (SELECT * FROM consumption
+                WHERE status = :status AND date IS NULL AND (CAST(:date AS DATE) IS NOT NULL OR id_consumption < :id)
+                ORDER BY id_consumption DESC
+                LIMIT :limit)
+           ) AS page
+           ORDER BY date DESC NULLS LAST, id_consumption DESC
+           LIMIT :limit
+           """)
+    Flux<Consumption> findPageByStatus(String status, LocalDate date, Integer id, int limit);
 }
\ No newline at end of file
@@ -0,0 +1,205 @@
+package pe.edu.vallegrande.vg_ms_casas.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mantiene consumption_daily_rollup: totales por día, casa, producto y estado.
+ * Un id_home o product_id nulo se guarda como 0, porque forman parte de la clave primaria.
+ */
+@Repository
+public class ConsumptionRollupRepository {
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::day)
+            .thenComparingInt(Key::idHome)
+            .thenComparingLong(Key::productId)
+            .thenComparing(Key::status);
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    /**
+     * Resta la versión anterior de la fila y suma la nueva (cualquiera puede ser null) en un solo upsert.
+     * Debe ejecutarse en la misma transacción que el cambio de la fila.
+     */
+    public Mono<Void> replace(Consumption previous, Consumption current) {
+        Map<Key, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        accumulate(deltas, previous, -1);
+        accumulate(deltas, current, 1);
+        deltas.values().removeIf(Delta::isZero);
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+
+        // Las claves van ordenadas para que dos escrituras concurrentes bloqueen en el mismo orden
+        List<Key> keys = new ArrayList<>(deltas.keySet());
+        StringBuilder sql = new StringBuilder("""
+                INSERT INTO consumption_daily_rollup AS r
+                    (day, id_home, product_id, status, row_count, total_quantity, total_weight, total_salevalue)
+                VALUES
+                """);
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                sql.append(",\n");
+            }
+            sql.append("(:day").append(i).append(", :home").append(i).append(", :product").append(i)
+                    .append(", :status").append(i).append(", :count").append(i).append(", :quantity").append(i)
+                    .append(", :weight").append(i).append(", :saleValue").append(i).append(')');
+        }
+        sql.append("""
+
+                ON CONFLICT (day, id_home, product_id, status) DO UPDATE SET
+                    row_count = r.row_count + EXCLUDED.row_count,
+                    total_quantity = r.total_quantity + EXCLUDED.total_quantity,
+                    total_weight = r.total_weight + EXCLUDED.total_weight,
+                    total_salevalue = r.total_salevalue + EXCLUDED.total_salevalue
+                """);
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < keys.size(); i++) {
+            Key key = keys.get(i);
+            Delta delta = deltas.get(key);
+            spec = spec.bind("day" + i, key.day())
+                    .bind("home" + i, key.idHome())
+                    .bind("product" + i, key.productId())
+                    .bind("status" + i, key.status())
+                    .bind("count" + i, delta.count)
+                    .bind("quantity" + i, delta.quantity)
+                    .bind("weight" + i, delta.weight)
+                    .bind("saleValue" + i, delta.saleValue);
+        }
+        return spec.then();
+    }
+
+    /**
+     * Suma al rollup filas de consumption recién insertadas (importación), agregadas en la base.
+     * Debe ejecutarse en la misma transacción que el insert; las claves se bloquean en el mismo orden que replace.
+     */
+    public Mono<Void> addAll(List<Integer> consumptionIds) {
+        if (consumptionIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.sql("""
+                        INSERT INTO consumption_daily_rollup AS r
+                            (day, id_home, product_id, status, row_count, total_quantity, total_weight, total_salevalue)
+                        SELECT date, COALESCE(id_home, 0), COALESCE(product_id, 0), COALESCE(status, 'A'), COUNT(*),
+                               COALESCE(SUM(quantity), 0), COALESCE(SUM(weight), 0), COALESCE(SUM(salevalue), 0)
+                        FROM consumption
+                        WHERE id_consumption = ANY(:ids) AND date IS NOT NULL
+                        GROUP BY 1, 2, 3, 4
+                        ORDER BY 1, 2, 3, 4
+                        ON CONFLICT (day, id_home, product_id, status) DO UPDATE SET
+                            row_count = r.row_count + EXCLUDED.row_count,
+                            total_quantity = r.total_quantity + EXCLUDED.total_quantity,
+                            total_weight = r.total_weight + EXCLUDED.total_weight,
+                            total_salevalue = r.total_salevalue + EXCLUDED.total_salevalue
+                        """)
+                .bind("ids", consumptionIds.toArray(new Integer[0]))
+                .then();
+    }
+
+    /**
+     * Recalcula el rango de días desde consumption sin bloquear sus escrituras y devuelve cuántas claves
+     * del rollup cambiaron. Primero bloquea las claves existentes del rango en el mismo orden que replace:
+     * una escritura en curso sobre esas claves confirma antes, o espera y suma su diferencia encima del
+     * valor recalculado. Después, con una sola lectura de consumption, solo se escriben las claves cuyo
+     * total no coincide y se borran las que ya no tienen filas. Una clave nueva creada por una escritura
+     * concurrente puede quedar desfasada; la corrige la siguiente conciliación. Va dentro de una transacción.
+     */
+    public Mono<Long> rebuild(LocalDate startDate, LocalDate endDate) {
+        return databaseClient.sql("""
+                        SELECT 1 FROM consumption_daily_rollup
+                        WHERE day BETWEEN :startDate AND :endDate
+                        ORDER BY day, id_home, product_id, status
+                        FOR UPDATE
+                        """)
+                .bind("startDate", startDate)
+                .bind("endDate", endDate)
+                .then()
+                .then(databaseClient.sql("""
+                                WITH fresh AS (
+                                    SELECT date AS day, COALESCE(id_home, 0) AS id_home, COALESCE(product_id, 0) AS product_id,
+                                           COALESCE(status, 'A') AS status, COUNT(*) AS row_count,
+                                           COALESCE(SUM(quantity), 0) AS total_quantity, COALESCE(SUM(weight), 0) AS total_weight,
+                                           COALESCE(SUM(salevalue), 0) AS total_salevalue
+                                    FROM consumption
+                                    WHERE date BETWEEN :startDate AND :endDate
+                                    GROUP BY 1, 2, 3, 4
+                                ), upserted AS (
+                                    INSERT INTO consumption_daily_rollup AS r
+                                        (day, id_home, product_id, status, row_count, total_quantity, total_weight, total_salevalue)
+                                    SELECT * FROM fresh
+                                    ORDER BY 1, 2, 3, 4
+                                    ON CONFLICT (day, id_home, product_id, status) DO UPDATE SET
+                                        row_count = EXCLUDED.row_count,
+                                        total_quantity = EXCLUDED.total_quantity,
+                                        total_weight = EXCLUDED.total_weight,
+                                        total_salevalue = EXCLUDED.total_salevalue
+                                    WHERE (r.row_count, r.total_quantity, r.total_weight, r.total_salevalue)
+                                        IS DISTINCT FROM (EXCLUDED.row_count, EXCLUDED.total_quantity,
+                                                          EXCLUDED.total_weight, EXCLUDED.total_salevalue)
+                                    RETURNING 1
+                                ), removed AS (
+                                    DELETE FROM consumption_daily_rollup r
+                                    WHERE r.day BETWEEN :startDate AND :endDate
+                                      AND NOT EXISTS (SELECT 1 FROM fresh f
+                                                      WHERE (f.day, f.id_home, f.product_id, f.status)
+                                                          = (r.day, r.id_home, r.product_id, r.status))
+                                    RETURNING 1
+                                )
+                                SELECT (SELECT COUNT(*) FROM upserted) + (SELECT COUNT(*) FROM removed) AS changed
+                                """)
+                        .bind("startDate", startDate)
+                        .bind("endDate", endDate)
+                        .map((row, metadata) -> row.get("changed", Long.class))
+                        .one());
+    }
+
+    // Rango de fechas presente en consumption, para el backfill completo
+    public Mono<LocalDate[]> dateRange() {
+        return databaseClient.sql("SELECT MIN(date) AS first_day, MAX(date) AS last_day FROM consumption")
+                .map((row, metadata) -> new LocalDate[]{
+                        row.get("first_day", LocalDate.class), row.get("last_day", LocalDate.class)})
+                .one()
+                .filter(range -> range[0] != null);
+    }
+
+    private static void accumulate(Map<Key, Delta> deltas, Consumption row, int sign) {
+        if (row == null || row.getDate() == null) {
+            return;
+        }
+        Key key = new Key(row.getDate(),
+                row.getId_home() == null ? 0 : row.getId_home(),
+                row.getProductId() == null ? 0 : row.getProductId(),
+                row.getStatus() == null ? "A" : row.getStatus());
+        Delta delta = deltas.computeIfAbsent(key, k -> new Delta());
+        delta.count += sign;
+        delta.quantity += sign * (long) (row.getQuantity() == null ? 0 : row.getQuantity());
+        delta.weight += sign * (row.getWeight() == null ? 0 : row.getWeight());
+        delta.saleValue += sign * (row.getSalevalue() == null ? 0 : row.getSalevalue());
+    }
+
+    private record Key(LocalDate day, int idHome, long productId, String status) {
+    }
+
+    private static final class Delta {
+        private long count;
+        private long quantity;
+        private double weight;
+        private double saleValue;
+
+        private boolean isZero() {
+            return count == 0 && quantity == 0 && weight == 0 && saleValue == 0;
+        }
+    }
+}
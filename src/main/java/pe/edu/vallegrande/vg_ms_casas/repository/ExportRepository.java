@@ -0,0 +1,115 @@
+package pe.edu.vallegrande.vg_ms_casas.repository;
+
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lecturas completas para exportar, en orden de fecha e id. Las filas llegan por cursor en bloques de
+ * export.fetch-size según lo que pide la respuesta, así la memoria no depende del rango.
+ * Cada filtro nulo se omite; los fragmentos de SQL son fijos y los valores van como parámetros.
+ */
+@Repository
+public class ExportRepository {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Value("${export.fetch-size:5000}")
+    private int fetchSize;
+
+    public Flux<Transaction> transactions(LocalDate startDate, LocalDate endDate, String status,
+                                          Integer inventoryId, Integer productId, String type) {
+        Map<String, Object> filters = new LinkedHashMap<>();
+        filters.put("date >= :startDate", startDate == null ? null : startDate.atStartOfDay());
+        filters.put("date < :endDate", endDate == null ? null : endDate.plusDays(1).atStartOfDay());
+        filters.put("status = :status", status);
+        filters.put("inventory_id = :inventoryId", inventoryId);
+        filters.put("product_id = :productId", productId);
+        filters.put("type = :type", type);
+        return select("""
+                SELECT id_transaction, inventory_id, product_id, type, quantity, previous_stock, new_stock,
+                       reason, date, user_id, status, consumption_id, version
+                FROM transactions
+                """, filters, "ORDER BY date, id_transaction")
+                .map((row, metadata) -> toTransaction(row))
+                .all();
+    }
+
+    public Flux<Consumption> consumptions(LocalDate startDate, LocalDate endDate, String status,
+                                          Integer idHome, Long productId) {
+        Map<String, Object> filters = new LinkedHashMap<>();
+        filters.put("date >= :startDate", startDate);
+        filters.put("date <= :endDate", endDate);
+        filters.put("status = :status", status);
+        filters.put("id_home = :idHome", idHome);
+        filters.put("product_id = :productId", productId);
+        return select("""
+                SELECT id_consumption, date, id_home, product_id, quantity, weight, price, salevalue, status
+                FROM consumption
+                """, filters, "ORDER BY date, id_consumption")
+                .map((row, metadata) -> toConsumption(row))
+                .all();
+    }
+
+    private DatabaseClient.GenericExecuteSpec select(String from, Map<String, Object> filters, String orderBy) {
+        StringBuilder sql = new StringBuilder(from).append("WHERE TRUE\n");
+        filters.forEach((condition, value) -> {
+            if (value != null) {
+                sql.append("AND ").append(condition).append('\n');
+            }
+        });
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.append(orderBy).toString())
+                .filter(statement -> statement.fetchSize(fetchSize));
+        for (Map.Entry<String, Object> filter : filters.entrySet()) {
+            if (filter.getValue() != null) {
+                String condition = filter.getKey();
+                spec = spec.bind(condition.substring(condition.indexOf(':') + 1), filter.getValue());
+            }
+        }
+        return spec;
+    }
+
+    // Por posición, en el orden del SELECT: evita buscar cada columna por nombre en cada fila
+    private static Transaction toTransaction(Row row) {
+        return new Transaction(
+                row.get(0, Integer.class),
+                row.get(1, Integer.class),
+                row.get(2, Integer.class),
+                row.get(3, String.class),
+                row.get(4, Integer.class),
+                row.get(5, Integer.class),
+                row.get(6, Integer.class),
+                row.get(7, String.class),
+                row.get(8, LocalDateTime.class),
+                row.get(9, Integer.class),
+                row.get(10, String.class),
+                row.get(11, Integer.class),
+                row.get(12, Long.class));
+    }
+
+    private static Consumption toConsumption(Row row) {
+        return new Consumption(
+                row.get(0, Integer.class),
+                row.get(1, LocalDate.class),
+                row.get(2, Integer.class),
+                row.get(3, Long.class),
+                null,
+                row.get(4, Integer.class),
+                row.get(5, Double.class),
+                row.get(6, Integer.class),
+                row.get(7, Double.class),
+                row.get(8, String.class),
+                null);
+    }
+}
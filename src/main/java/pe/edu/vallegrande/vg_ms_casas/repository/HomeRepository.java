@@ -1,9 +1,31 @@
 package pe.edu.vallegrande.vg_ms_casas.repository;
 
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import pe.edu.vallegrande.vg_ms_casas.model.Home;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface HomeRepository extends ReactiveCrudRepository<Home, Integer> {
     Flux<Home> findByStatus(String status);
-}
\ No newline at end of file
+
+    // Paginación keyset sobre id_home ascendente
+    @Query("SELECT * FROM home WHERE id_home > :afterId ORDER BY id_home LIMIT :limit")
+    Flux<Home> findPage(Integer afterId, int limit);
+
+    @Query("SELECT * FROM home WHERE status = :status AND id_home > :afterId ORDER BY id_home LIMIT :limit")
+    Flux<Home> findPageByStatus(String status, Integer afterId, int limit);
+
+    // Reemplaza nombre y dirección en una sola sentencia; con version solo si coincide con la guardada
+    @Query("""
+           UPDATE home
+           SET names = :names, address = :address, version = version + 1
+           WHERE id_home = :id
+             AND (CAST(:version AS BIGINT) IS NULL OR version = :version)
+           RETURNING *
+           """)
+    Mono<Home> updateDetails(Integer id, String names, String address, Long version);
+
+    @Query("UPDATE home SET status = :status, version = version + 1 WHERE id_home = :id RETURNING *")
+    Mono<Home> updateStatus(Integer id, String status);
+}
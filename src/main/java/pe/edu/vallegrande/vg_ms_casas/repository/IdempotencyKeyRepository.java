@@ -0,0 +1,94 @@
+package pe.edu.vallegrande.vg_ms_casas.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.edu.vallegrande.vg_ms_casas.dto.IdempotentResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Llaves de idempotencia compartidas entre réplicas. Una llave vencida (respuesta vieja o
+ * IN_PROGRESS de un nodo caído) se trata como inexistente y se puede volver a tomar.
+ */
+@Repository
+public class IdempotencyKeyRepository {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    // true si esta petición tomó la llave; false si otra la tiene (en curso o ya respondida)
+    public Mono<Boolean> claim(String key, String fingerprint, Duration lockTimeout) {
+        return databaseClient.sql("""
+                        INSERT INTO idempotency_key (key, fingerprint, state, expires_at)
+                        VALUES (:key, :fingerprint, 'IN_PROGRESS', CURRENT_TIMESTAMP + :lockMillis * INTERVAL '1 millisecond')
+                        ON CONFLICT (key) DO UPDATE
+                            SET fingerprint = EXCLUDED.fingerprint, state = EXCLUDED.state,
+                                response_status = NULL, content_type = NULL, location = NULL, body = NULL,
+                                created_at = CURRENT_TIMESTAMP, expires_at = EXCLUDED.expires_at
+                            WHERE idempotency_key.expires_at < CURRENT_TIMESTAMP
+                        RETURNING key
+                        """)
+                .bind("key", key)
+                .bind("fingerprint", fingerprint)
+                .bind("lockMillis", lockTimeout.toMillis())
+                .map((row, metadata) -> Boolean.TRUE)
+                .one()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    public Mono<IdempotentResponse> find(String key) {
+        return databaseClient.sql("""
+                        SELECT fingerprint, state, response_status, content_type, location, body
+                        FROM idempotency_key
+                        WHERE key = :key AND expires_at >= CURRENT_TIMESTAMP
+                        """)
+                .bind("key", key)
+                .map((row, metadata) -> {
+                    Integer status = row.get("response_status", Integer.class);
+                    return new IdempotentResponse(
+                            row.get("fingerprint", String.class),
+                            "COMPLETED".equals(row.get("state", String.class)),
+                            status == null ? 0 : status,
+                            row.get("content_type", String.class),
+                            row.get("location", String.class),
+                            row.get("body", byte[].class));
+                })
+                .one();
+    }
+
+    public Mono<Void> complete(String key, IdempotentResponse response, Duration ttl) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("""
+                        UPDATE idempotency_key
+                        SET state = 'COMPLETED', response_status = :status, content_type = :contentType,
+                            location = :location, body = :body,
+                            expires_at = CURRENT_TIMESTAMP + :ttlMillis * INTERVAL '1 millisecond'
+                        WHERE key = :key
+                        """)
+                .bind("key", key)
+                .bind("status", response.getStatus())
+                .bind("body", response.getBody())
+                .bind("ttlMillis", ttl.toMillis());
+        spec = response.getContentType() == null
+                ? spec.bindNull("contentType", String.class)
+                : spec.bind("contentType", response.getContentType());
+        spec = response.getLocation() == null
+                ? spec.bindNull("location", String.class)
+                : spec.bind("location", response.getLocation());
+        return spec.then();
+    }
+
+    // Libera la llave de una petición que no terminó, para que el siguiente reintento la ejecute
+    public Mono<Void> release(String key) {
+        return databaseClient.sql("DELETE FROM idempotency_key WHERE key = :key AND state = 'IN_PROGRESS'")
+                .bind("key", key)
+                .then();
+    }
+
+    public Mono<Long> deleteExpired() {
+        return databaseClient.sql("DELETE FROM idempotency_key WHERE expires_at < CURRENT_TIMESTAMP")
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,134 @@
+package pe.edu.vallegrande.vg_ms_casas.repository;
+
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.edu.vallegrande.vg_ms_casas.dto.ImportJob;
+import pe.edu.vallegrande.vg_ms_casas.dto.ImportReject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lee y escribe import_job e import_reject.
+ */
+@Repository
+public class ImportJobRepository {
+
+    private static final String COLUMNS = "id, kind, status, last_row, loaded, rejected, error, created_at, updated_at";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Mono<ImportJob> create(String kind) {
+        return databaseClient.sql("INSERT INTO import_job (kind, status) VALUES (:kind, 'RUNNING') RETURNING " + COLUMNS)
+                .bind("kind", kind)
+                .map((row, metadata) -> toJob(row))
+                .one();
+    }
+
+    public Mono<ImportJob> findById(Integer id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM import_job WHERE id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> toJob(row))
+                .one();
+    }
+
+    // Vuelve a RUNNING un job no terminado para reanudarlo; vacío si no existe, es de otro tipo o ya terminó
+    public Mono<ImportJob> resume(Integer id, String kind) {
+        return databaseClient.sql("""
+                        UPDATE import_job
+                        SET status = 'RUNNING', error = NULL, updated_at = CURRENT_TIMESTAMP
+                        WHERE id = :id AND kind = :kind AND status <> 'COMPLETED'
+                        RETURNING\s""" + COLUMNS)
+                .bind("id", id)
+                .bind("kind", kind)
+                .map((row, metadata) -> toJob(row))
+                .one();
+    }
+
+    /**
+     * Avanza el job hasta lastRow sumando las filas del bloque. Solo aplica si sigue en expectedLastRow:
+     * dos cargas del mismo job a la vez no pueden confirmar el mismo bloque. Va en la transacción del bloque.
+     */
+    public Mono<ImportJob> advance(Integer id, long expectedLastRow, long lastRow, long loaded, long rejected) {
+        return databaseClient.sql("""
+                        UPDATE import_job
+                        SET last_row = :lastRow, loaded = loaded + :loaded, rejected = rejected + :rejected,
+                            updated_at = CURRENT_TIMESTAMP
+                        WHERE id = :id AND last_row = :expectedLastRow
+                        RETURNING\s""" + COLUMNS)
+                .bind("id", id)
+                .bind("expectedLastRow", expectedLastRow)
+                .bind("lastRow", lastRow)
+                .bind("loaded", loaded)
+                .bind("rejected", rejected)
+                .map((row, metadata) -> toJob(row))
+                .one();
+    }
+
+    public Mono<ImportJob> finish(Integer id, String status, String error) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("""
+                        UPDATE import_job
+                        SET status = :status, error = :error, updated_at = CURRENT_TIMESTAMP
+                        WHERE id = :id
+                        RETURNING\s""" + COLUMNS)
+                .bind("id", id)
+                .bind("status", status);
+        spec = error == null ? spec.bindNull("error", String.class) : spec.bind("error", error);
+        return spec.map((row, metadata) -> toJob(row)).one();
+    }
+
+    // Un solo INSERT por bloque; el motivo se recorta al largo de la columna
+    public Mono<Void> insertRejects(Integer jobId, List<ImportReject> rejects) {
+        if (rejects.isEmpty()) {
+            return Mono.empty();
+        }
+        Long[] rows = new Long[rejects.size()];
+        String[] reasons = new String[rejects.size()];
+        String[] raws = new String[rejects.size()];
+        for (int i = 0; i < rejects.size(); i++) {
+            ImportReject reject = rejects.get(i);
+            rows[i] = reject.getRow();
+            reasons[i] = reject.getReason().length() > 500 ? reject.getReason().substring(0, 500) : reject.getReason();
+            raws[i] = reject.getRaw();
+        }
+        return databaseClient.sql("""
+                        INSERT INTO import_reject (job_id, row_number, reason, raw)
+                        SELECT :jobId, r.row_number, r.reason, r.raw
+                        FROM unnest(CAST(:rows AS BIGINT[]), CAST(:reasons AS VARCHAR[]), CAST(:raws AS TEXT[]))
+                            AS r(row_number, reason, raw)
+                        """)
+                .bind("jobId", jobId)
+                .bind("rows", rows)
+                .bind("reasons", reasons)
+                .bind("raws", raws)
+                .then();
+    }
+
+    public Flux<ImportReject> findRejects(Integer jobId) {
+        return databaseClient.sql("SELECT row_number, reason, raw FROM import_reject WHERE job_id = :jobId ORDER BY row_number")
+                .bind("jobId", jobId)
+                .map((row, metadata) -> new ImportReject(
+                        row.get("row_number", Long.class),
+                        row.get("reason", String.class),
+                        row.get("raw", String.class)))
+                .all();
+    }
+
+    private static ImportJob toJob(Row row) {
+        return new ImportJob(
+                row.get("id", Integer.class),
+                row.get("kind", String.class),
+                row.get("status", String.class),
+                row.get("last_row", Long.class),
+                row.get("loaded", Long.class),
+                row.get("rejected", Long.class),
+                row.get("error", String.class),
+                row.get("created_at", LocalDateTime.class),
+                row.get("updated_at", LocalDateTime.class));
+    }
+}
@@ -1,11 +1,78 @@
 package pe.edu.vallegrande.vg_ms_casas.repository;
 
 import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Repository
 public interface InventoryRepository extends ReactiveCrudRepository<Inventory, Integer> {
     Flux<Inventory> findByStatus(String status);
+
+    Mono<Inventory> findFirstByProductIdOrderByIdInventory(Integer productId);
+
+    // Paginación keyset sobre id_inventory ascendente
+    @Query("SELECT * FROM inventory_consumption WHERE id_inventory > :afterId ORDER BY id_inventory LIMIT :limit")
+    Flux<Inventory> findPage(Integer afterId, int limit);
+
+    @Query("""
+           SELECT * FROM inventory_consumption
+           WHERE status = :status AND id_inventory > :afterId
+           ORDER BY id_inventory
+           LIMIT :limit
+           """)
+    Flux<Inventory> findPageByStatus(String status, Integer afterId, int limit);
+
+    // Aplica el movimiento en una sola sentencia; vacío si el inventario no está activo o el stock quedaría negativo
+    @Query("""
+           UPDATE inventory_consumption
+           SET current_stock = current_stock + :delta, version = version + 1
+           WHERE id_inventory = :id
+             AND status = 'A'
+             AND current_stock + :delta >= 0
+           RETURNING current_stock
+           """)
+    Mono<Integer> applyStockDelta(Integer id, Integer delta);
+
+    // Fija el stock (AJUSTE) y devuelve el stock anterior
+    @Query("""
+           WITH previous AS (
+               SELECT id_inventory, current_stock
+               FROM inventory_consumption
+               WHERE id_inventory = :id AND status = 'A'
+               FOR UPDATE
+           )
+           UPDATE inventory_consumption i
+           SET current_stock = :stock, version = i.version + 1
+           FROM previous p
+           WHERE i.id_inventory = p.id_inventory
+           RETURNING p.current_stock
+           """)
+    Mono<Integer> overwriteStock(Integer id, Integer stock);
+
+    // Actualización parcial en una sola sentencia: los campos nulos se conservan.
+    // Con version solo se aplica si coincide con la guardada; vacío si no existe o no coincide
+    @Query("""
+           UPDATE inventory_consumption
+           SET product_id = COALESCE(:productId, product_id),
+               initial_stock = COALESCE(:initialStock, initial_stock),
+               current_stock = COALESCE(:currentStock, current_stock),
+               status = COALESCE(:status, status),
+               version = version + 1
+           WHERE id_inventory = :id
+             AND (CAST(:version AS BIGINT) IS NULL OR version = :version)
+           RETURNING *
+           """)
+    Mono<Inventory> updatePartial(Integer id, Integer productId, Integer initialStock, Integer currentStock,
+                                  String status, Long version);
+
+    @Query("""
+           UPDATE inventory_consumption
+           SET status = :status, version = version + 1
+           WHERE id_inventory = :id
+           RETURNING *
+           """)
+    Mono<Inventory> updateStatus(Integer id, String status);
 }
@@ -0,0 +1,147 @@
+package pe.edu.vallegrande.vg_ms_casas.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.edu.vallegrande.vg_ms_casas.dto.StockAtTime;
+import pe.edu.vallegrande.vg_ms_casas.dto.StockCheck;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Mantiene inventory_stock_snapshot y responde el stock de un inventario en un instante
+ * partiendo del snapshot más cercano. Cada movimiento aporta new_stock - previous_stock,
+ * así también cuentan los AJUSTE y el stock inicial es 0.
+ */
+@Repository
+public class InventorySnapshotRepository {
+
+    // Último snapshot de cada inventario
+    private static final String LAST_SNAPSHOTS = """
+            last AS (
+                SELECT DISTINCT ON (inventory_id) inventory_id, day, stock
+                FROM inventory_stock_snapshot
+                ORDER BY inventory_id, day DESC
+            )
+            """;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    /**
+     * Snapshot del último día cerrado antes de at (su cierre es day + 1 <= at) más los movimientos
+     * desde ese cierre hasta at, inclusive. Vacío si el inventario no existe.
+     */
+    public Mono<StockAtTime> stockAt(Integer inventoryId, LocalDateTime at) {
+        return databaseClient.sql("""
+                        WITH snapshot AS (
+                            SELECT day, stock
+                            FROM inventory_stock_snapshot
+                            WHERE inventory_id = :inventoryId AND day <= CAST(:at - INTERVAL '1 day' AS DATE)
+                            ORDER BY day DESC
+                            LIMIT 1
+                        )
+                        SELECT s.day AS snapshot_day,
+                               COALESCE(s.stock, 0) + COALESCE(SUM(t.new_stock - t.previous_stock), 0) AS stock,
+                               COUNT(t.id_transaction) AS movements
+                        FROM inventory_consumption i
+                        LEFT JOIN snapshot s ON true
+                        LEFT JOIN transactions t ON t.inventory_id = i.id_inventory
+                            AND t.date <= :at
+                            AND (s.day IS NULL OR t.date >= s.day + 1)
+                        WHERE i.id_inventory = :inventoryId
+                        GROUP BY s.day, s.stock
+                        """)
+                .bind("inventoryId", inventoryId)
+                .bind("at", at)
+                .map((row, metadata) -> new StockAtTime(inventoryId, at,
+                        row.get("stock", Long.class),
+                        row.get("snapshot_day", LocalDate.class),
+                        row.get("movements", Long.class)))
+                .one();
+    }
+
+    /**
+     * Agrega los días cerrados hasta through que aún no tienen snapshot, continuando desde el último
+     * de cada inventario. El bloqueo lo serializa con el trigger de transactions (V9), que toma ROW EXCLUSIVE
+     * sobre la tabla: espera a que confirmen los movimientos en curso, así este cálculo los incluye.
+     * Debe ejecutarse dentro de una transacción.
+     */
+    public Mono<Long> refresh(LocalDate through) {
+        return databaseClient.sql("LOCK TABLE inventory_stock_snapshot IN SHARE ROW EXCLUSIVE MODE")
+                .then()
+                .then(databaseClient.sql("WITH " + LAST_SNAPSHOTS + """
+                                , days AS (
+                                    SELECT t.inventory_id, CAST(t.date AS DATE) AS day,
+                                           COALESCE(SUM(t.new_stock - t.previous_stock), 0) AS delta
+                                    FROM transactions t
+                                    LEFT JOIN last l ON l.inventory_id = t.inventory_id
+                                    WHERE t.inventory_id IS NOT NULL
+                                      AND t.date < CAST(:through AS DATE) + 1
+                                      AND (l.day IS NULL OR t.date >= l.day + 1)
+                                    GROUP BY 1, 2
+                                )
+                                INSERT INTO inventory_stock_snapshot (inventory_id, day, stock)
+                                SELECT d.inventory_id, d.day,
+                                       COALESCE(l.stock, 0) + SUM(d.delta) OVER (PARTITION BY d.inventory_id ORDER BY d.day)
+                                FROM days d
+                                LEFT JOIN last l ON l.inventory_id = d.inventory_id
+                                ON CONFLICT (inventory_id, day) DO NOTHING
+                                """)
+                        .bind("through", through)
+                        .fetch()
+                        .rowsUpdated());
+    }
+
+    // Descarta todos los snapshots para volver a calcularlos con refresh en la misma transacción
+    public Mono<Long> clear() {
+        return databaseClient.sql("LOCK TABLE inventory_stock_snapshot IN SHARE ROW EXCLUSIVE MODE")
+                .then()
+                .then(databaseClient.sql("DELETE FROM inventory_stock_snapshot")
+                        .fetch()
+                        .rowsUpdated());
+    }
+
+    // Borra todos los snapshots de los inventarios indicados, para recalcularlos con refresh en la misma transacción
+    public Mono<Long> clear(List<Integer> inventoryIds) {
+        return databaseClient.sql("LOCK TABLE inventory_stock_snapshot IN SHARE ROW EXCLUSIVE MODE")
+                .then()
+                .then(databaseClient.sql("DELETE FROM inventory_stock_snapshot WHERE inventory_id = ANY(:ids)")
+                        .bind("ids", inventoryIds.toArray(new Integer[0]))
+                        .fetch()
+                        .rowsUpdated());
+    }
+
+    /**
+     * Compara para cada inventario current_stock con el último snapshot más los movimientos posteriores
+     * y con la suma de todo el historial; devuelve solo los que no cuadran.
+     */
+    public Flux<StockCheck> verify() {
+        return databaseClient.sql("WITH " + LAST_SNAPSHOTS + """
+                        , totals AS (
+                            SELECT i.id_inventory, i.current_stock,
+                                   COALESCE(l.stock, 0) + COALESCE(SUM(t.new_stock - t.previous_stock)
+                                       FILTER (WHERE l.day IS NULL OR t.date >= l.day + 1), 0) AS snapshot_stock,
+                                   COALESCE(SUM(t.new_stock - t.previous_stock), 0) AS ledger_stock
+                            FROM inventory_consumption i
+                            LEFT JOIN last l ON l.inventory_id = i.id_inventory
+                            LEFT JOIN transactions t ON t.inventory_id = i.id_inventory
+                            GROUP BY i.id_inventory, i.current_stock, l.day, l.stock
+                        )
+                        SELECT id_inventory, current_stock, snapshot_stock, ledger_stock
+                        FROM totals
+                        WHERE snapshot_stock <> current_stock OR ledger_stock <> current_stock
+                        ORDER BY id_inventory
+                        """)
+                .map((row, metadata) -> new StockCheck(
+                        row.get("id_inventory", Integer.class),
+                        row.get("current_stock", Long.class),
+                        row.get("snapshot_stock", Long.class),
+                        row.get("ledger_stock", Long.class)))
+                .all();
+    }
+}
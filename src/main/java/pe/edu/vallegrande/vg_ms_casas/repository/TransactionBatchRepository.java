@@ -0,0 +1,140 @@
+package pe.edu.vallegrande.vg_ms_casas.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escrituras por lotes de transacciones con DatabaseClient:
+ * un round trip para bloquear los stocks, uno para actualizarlos y uno para insertar todas las filas.
+ */
+@Repository
+public class TransactionBatchRepository {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    // Bloquea las filas en orden de id para evitar interbloqueos entre lotes concurrentes
+    public Mono<Map<Integer, Integer>> lockStocks(Collection<Integer> inventoryIds) {
+        return databaseClient.sql("""
+                        SELECT id_inventory, current_stock
+                        FROM inventory_consumption
+                        WHERE id_inventory = ANY(:ids) AND status = 'A'
+                        ORDER BY id_inventory
+                        FOR UPDATE
+                        """)
+                .bind("ids", inventoryIds.toArray(new Integer[0]))
+                .map((row, metadata) -> Map.entry(row.get("id_inventory", Integer.class), row.get("current_stock", Integer.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, HashMap::new);
+    }
+
+    public Mono<Void> updateStocks(Map<Integer, Integer> stocks) {
+        if (stocks.isEmpty()) {
+            return Mono.empty();
+        }
+        Integer[] ids = new Integer[stocks.size()];
+        Integer[] values = new Integer[stocks.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : stocks.entrySet()) {
+            ids[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return databaseClient.sql("""
+                        UPDATE inventory_consumption i
+                        SET current_stock = v.stock, version = i.version + 1
+                        FROM unnest(:ids, :stocks) AS v(id, stock)
+                        WHERE i.id_inventory = v.id
+                        """)
+                .bind("ids", ids)
+                .bind("stocks", values)
+                .then();
+    }
+
+    /**
+     * Inserta todas las filas en un solo INSERT ... SELECT FROM unnest, con 11 parámetros sin importar el tamaño.
+     * Los id se reservan en la secuencia junto con la ordinalidad de cada fila y se devuelven ordenados por ella,
+     * así el id de la posición i es el de transactions.get(i) sin depender del orden de RETURNING.
+     */
+    public Mono<List<Integer>> insertAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        int size = transactions.size();
+        Integer[] inventoryIds = new Integer[size];
+        Integer[] productIds = new Integer[size];
+        String[] types = new String[size];
+        Integer[] quantities = new Integer[size];
+        Integer[] previousStocks = new Integer[size];
+        Integer[] newStocks = new Integer[size];
+        String[] reasons = new String[size];
+        LocalDateTime[] dates = new LocalDateTime[size];
+        Integer[] userIds = new Integer[size];
+        String[] statuses = new String[size];
+        Integer[] consumptionIds = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            Transaction t = transactions.get(i);
+            inventoryIds[i] = t.getInventoryId();
+            productIds[i] = t.getProductId();
+            types[i] = t.getType();
+            quantities[i] = t.getQuantity();
+            previousStocks[i] = t.getPreviousStock();
+            newStocks[i] = t.getNewStock();
+            reasons[i] = t.getReason();
+            dates[i] = t.getDate();
+            userIds[i] = t.getUserId();
+            statuses[i] = t.getStatus();
+            consumptionIds[i] = t.getConsumptionId();
+        }
+
+        return databaseClient.sql("""
+                        WITH input AS (
+                            SELECT nextval(pg_get_serial_sequence('transactions', 'id_transaction'))::int AS id, u.*
+                            FROM unnest(CAST(:inventoryIds AS INTEGER[]), CAST(:productIds AS INTEGER[]),
+                                        CAST(:types AS VARCHAR[]), CAST(:quantities AS INTEGER[]),
+                                        CAST(:previousStocks AS INTEGER[]), CAST(:newStocks AS INTEGER[]),
+                                        CAST(:reasons AS TEXT[]), CAST(:dates AS TIMESTAMP[]),
+                                        CAST(:userIds AS INTEGER[]), CAST(:statuses AS VARCHAR[]),
+                                        CAST(:consumptionIds AS INTEGER[]))
+                                WITH ORDINALITY AS u(inventory_id, product_id, type, quantity, previous_stock, new_stock,
+                                                     reason, date, user_id, status, consumption_id, ord)
+                        ), inserted AS (
+                            INSERT INTO transactions (id_transaction, inventory_id, product_id, type, quantity, previous_stock,
+                                                      new_stock, reason, date, user_id, status, consumption_id)
+                            SELECT id, inventory_id, product_id, type, quantity, previous_stock,
+                                   new_stock, reason, date, user_id, status, consumption_id
+                            FROM input
+                            ORDER BY ord
+                            RETURNING id_transaction
+                        )
+                        SELECT input.id, input.ord
+                        FROM input
+                        JOIN inserted ON inserted.id_transaction = input.id
+                        ORDER BY input.ord
+                        """)
+                .bind("inventoryIds", inventoryIds)
+                .bind("productIds", productIds)
+                .bind("types", types)
+                .bind("quantities", quantities)
+                .bind("previousStocks", previousStocks)
+                .bind("newStocks", newStocks)
+                .bind("reasons", reasons)
+                .bind("dates", dates)
+                .bind("userIds", userIds)
+                .bind("statuses", statuses)
+                .bind("consumptionIds", consumptionIds)
+                .map((row, metadata) -> row.get("id", Integer.class))
+                .all()
+                .collectList()
+                .flatMap(ids -> ids.size() == size ? Mono.just(ids)
+                        : Mono.error(new IllegalStateException("Inserted " + ids.size() + " of " + size + " transactions")));
+    }
+}
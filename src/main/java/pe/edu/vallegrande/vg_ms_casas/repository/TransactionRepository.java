@@ -1,9 +1,13 @@
 package pe.edu.vallegrande.vg_ms_casas.repository;
 
 import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
 
 @Repository
 public interface TransactionRepository extends ReactiveCrudRepository<Transaction, Integer> {
@@ -19,4 +23,132 @@ public interface TransactionRepository extends ReactiveCrudRepository<Transactio
     Flux<Transaction> findAllByOrderByDateDesc();
 
     Flux<Transaction> findByConsumptionIdOrderByDateDesc(Integer consumptionId);
+
+    /**
+     * Paginación keyset sobre (date, id_transaction) descendente. Las filas sin fecha van al final, ordenadas
+     * por id: el cursor de una de ellas no trae fecha (date null) y solo sigue por id_transaction.
+     * Cada rama usa el índice (filtro, date DESC, id_transaction DESC); el orden final es sobre 2 * limit filas.
+     */
+    @Query("""
+           SELECT * FROM (
+               (SELECT * FROM transactions
+                WHERE CAST(:date AS TIMESTAMP) IS NOT NULL AND (date, id_transaction) < (:date, :id)
+                ORDER BY date DESC, id_transaction DESC
+                LIMIT :limit)
+               UNION ALL
+               (SELECT * FROM transactions
+                WHERE date IS NULL AND (CAST(:date AS TIMESTAMP) IS NOT NULL OR id_transaction < :id)
+                ORDER BY id_transaction DESC
+                LIMIT :limit)
+           ) AS page
+           ORDER BY date DESC NULLS LAST, id_transaction DESC
+           LIMIT :limit
+           """)
+    Flux<Transaction> findPage(LocalDateTime date, Integer id, int limit);
+
+    @Query("""
+           SELECT * FROM (
+               (SELECT * FROM transactions
+                WHERE status = :status AND CAST(:date AS TIMESTAMP) IS NOT NULL AND (date, id_transaction) < (:date, :id)
+                ORDER BY date DESC, id_transaction DESC
+                LIMIT :limit)
+               UNION ALL
+               (SELECT * FROM transactions
+                WHERE status = :status AND date IS NULL AND (CAST(:date AS TIMESTAMP) IS NOT NULL OR id_transaction < :id)
+                ORDER BY id_transaction DESC
+                LIMIT :limit)
+           ) AS page
+           ORDER BY date DESC NULLS LAST, id_transaction DESC
+           LIMIT :limit
+           """)
+    Flux<Transaction> findPageByStatus(String status, LocalDateTime date, Integer id, int limit);
+
+    @Query("""
+           SELECT * FROM (
+               (SELECT * FROM transactions
+                WHERE inventory_id = :inventoryId AND CAST(:date AS TIMESTAMP) IS NOT NULL AND (date, id_transaction) < (:date, :id)
+                ORDER BY date DESC, id_transaction DESC
+                LIMIT :limit)
+               UNION ALL
+               (SELECT * FROM transactions
+                WHERE inventory_id = :inventoryId AND date IS NULL AND (CAST(:date AS TIMESTAMP) IS NOT NULL OR id_transaction < :id)
+                ORDER BY id_transaction DESC
+                LIMIT :limit)
+           ) AS page
+           ORDER BY date DESC NULLS LAST, id_transaction DESC
+           LIMIT :limit
+           """)
+    Flux<Transaction> findPageByInventoryId(Integer inventoryId, LocalDateTime date, Integer id, int limit);
+
+    @Query("""
+           SELECT * FROM (
+               (SELECT * FROM transactions
+                WHERE product_id = :productId AND CAST(:date AS TIMESTAMP) IS NOT NULL AND (date, id_transaction) < (:date, :id)
+                ORDER BY date DESC, id_transaction DESC
+                LIMIT :limit)
+               UNION ALL
+               (SELECT * FROM transactions
+                WHERE product_id = :productId AND date IS NULL AND (CAST(:date AS TIMESTAMP) IS NOT NULL OR id_transaction < :id)
+                ORDER BY id_transaction DESC
+                LIMIT :limit)
+           ) AS page
+           ORDER BY date DESC NULLS LAST, id_transaction DESC
+           LIMIT :limit
+           """)
+    Flux<Transaction> findPageByProductId(Integer productId, LocalDateTime date, Integer id, int limit);
+
+    @Query("""
+           SELECT * FROM (
+               (SELECT * FROM transactions
+                WHERE type = :type AND CAST(:date AS TIMESTAMP) IS NOT NULL AND (date, id_transaction) < (:date, :id)
+                ORDER BY date DESC, id_transaction DESC
+                LIMIT :limit)
+               UNION ALL
+               (SELECT * FROM transactions
+                WHERE type = :type AND date IS NULL AND (CAST(:date AS TIMESTAMP) IS NOT NULL OR id_transaction < :id)
+                ORDER BY id_transaction DESC
+                LIMIT :limit)
+           ) AS page
+           ORDER BY date DESC NULLS LAST, id_transaction DESC
+           LIMIT :limit
+           """)
+    Flux<Transaction> findPageByType(String type, LocalDateTime date, Integer id, int limit);
+
+    @Query("""
+           SELECT * FROM (
+               (SELECT * FROM transactions
+                WHERE consumption_id = :consumptionId AND CAST(:date AS TIMESTAMP) IS NOT NULL AND (date, id_transaction) < (:date, :id)
+                ORDER BY date DESC, id_transaction DESC
+                LIMIT :limit)
+               UNION ALL
+               (SELECT * FROM transactions
+                WHERE consumption_id = :consumptionId AND date IS NULL AND (CAST(:date AS TIMESTAMP) IS NOT NULL OR id_transaction < :id)
+                ORDER BY id_transaction DESC
+                LIMIT :limit)
+           ) AS page
+           ORDER BY date DESC NULLS LAST, id_transaction DESC
+           LIMIT :limit
+           """)
+    Flux<Transaction> findPageByConsumptionId(Integer consumptionId, LocalDateTime date, Integer id, int limit);
+
+    // Solo reason, status y user_id son editables; los nulos se conservan. Con version solo si coincide
+    @Query("""
+           UPDATE transactions
+           SET reason = COALESCE(:reason, reason),
+               status = COALESCE(:status, status),
+               user_id = COALESCE(:userId, user_id),
+               version = version + 1
+           WHERE id_transaction = :id
+             AND (CAST(:version AS BIGINT) IS NULL OR version = :version)
+           RETURNING *
+           """)
+    Mono<Transaction> updatePartial(Integer id, String reason, String status, Integer userId, Long version);
+
+    @Query("""
+           UPDATE transactions
+           SET status = :status, version = version + 1
+           WHERE id_transaction = :id
+           RETURNING *
+           """)
+    Mono<Transaction> updateStatus(Integer id, String status);
 }
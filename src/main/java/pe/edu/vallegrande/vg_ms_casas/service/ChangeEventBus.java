@@ -0,0 +1,239 @@
+package pe.edu.vallegrande.vg_ms_casas.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.vg_ms_casas.dto.ChangeEvent;
+import pe.edu.vallegrande.vg_ms_casas.repository.ChangeLogRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.TransactionRepository;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recibe los cambios hechos por otras réplicas (LISTEN change_log) e invalida las cachés locales
+ * y alimenta /transactions/stream. Los cambios del propio nodo ya se aplicaron al escribir.
+ *
+ * Usa una conexión propia, fuera del pool, y reconecta con backoff. Al conectar lee de change_log
+ * lo que se perdió mientras no escuchaba; si llega un id con huecos por debajo, espera gap-grace
+ * (una transacción con id menor puede confirmar después) y vuelve a leer desde el último id continuo.
+ * Los id que siguen sin aparecer se dan por descartados (transacciones revertidas) y se cuentan en
+ * change.events.skipped. Todo el trabajo pasa por una sola cola, así el estado de id no necesita bloqueos.
+ */
+@Service
+public class ChangeEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeEventBus.class);
+
+    private static final String CHANNEL = "change_log";
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryCache inventoryCache;
+
+    @Autowired
+    private HomeNameDictionary homeNameDictionary;
+
+    @Autowired
+    private TransactionEventStream transactionEventStream;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${spring.r2dbc.url}")
+    private String url;
+
+    @Value("${spring.r2dbc.username}")
+    private String username;
+
+    @Value("${spring.r2dbc.password}")
+    private String password;
+
+    @Value("${change-events.enabled:true}")
+    private boolean enabled;
+
+    @Value("${change-events.gap-grace:2s}")
+    private Duration gapGrace;
+
+    @Value("${change-events.reconnect-min-backoff:1s}")
+    private Duration reconnectMinBackoff;
+
+    @Value("${change-events.reconnect-max-backoff:30s}")
+    private Duration reconnectMaxBackoff;
+
+    @Value("${change-events.retention:1d}")
+    private Duration retention;
+
+    private final Sinks.Many<Mono<Void>> work = Sinks.many().unicast().onBackpressureBuffer();
+    private final Sinks.Many<ChangeEvent> remoteEvents = Sinks.many().multicast().directBestEffort();
+    private final AtomicBoolean gapCheckPending = new AtomicBoolean();
+    private final Disposable.Composite subscriptions = Disposables.composite();
+    // Como mucho una revisión de huecos pendiente: cada una reemplaza a la anterior, ya terminada
+    private final Disposable.Swap gapCheck = Disposables.swap();
+    private Counter skipped;
+
+    // Ids recientes ya atendidos (notificación y lectura de recuperación pueden repetirse)
+    private final Cache<Long, Boolean> seen = Caffeine.newBuilder().maximumSize(10_000).build();
+    // Todo id <= watermark está atendido o se dio por descartado; highest es el mayor id visto
+    private long watermark = -1;
+    private long highest;
+
+    @PostConstruct
+    void start() {
+        skipped = meterRegistry.counter("change.events.skipped");
+        if (!enabled) {
+            return;
+        }
+        subscriptions.add(work.asFlux()
+                .concatMap(task -> task.onErrorResume(e -> Mono.empty()))
+                .subscribe());
+        ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+        subscriptions.add(Flux.usingWhen(connectionFactory.create(), connection -> listen((PostgresqlConnection) connection),
+                        connection -> connection.close())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, reconnectMinBackoff)
+                        .maxBackoff(reconnectMaxBackoff)
+                        .transientErrors(true))
+                .subscribe());
+        subscriptions.add(Flux.interval(Duration.ofHours(1))
+                .onBackpressureDrop()
+                .concatMap(tick -> changeLogRepository.deleteOlderThan(LocalDateTime.now().minus(retention))
+                        .onErrorResume(e -> Mono.empty()))
+                .subscribe());
+    }
+
+    @PreDestroy
+    void stop() {
+        subscriptions.dispose();
+        gapCheck.dispose();
+    }
+
+    // Cambios de otras réplicas, después de aplicarlos a las cachés locales
+    public Flux<ChangeEvent> remoteEvents() {
+        return remoteEvents.asFlux();
+    }
+
+    private Flux<ChangeEvent> listen(PostgresqlConnection connection) {
+        return connection.createStatement("LISTEN " + CHANNEL)
+                .execute()
+                .flatMap(PostgresqlResult::getRowsUpdated)
+                .then(Mono.fromRunnable(() -> submit(Mono.defer(this::catchUp))))
+                .thenMany(connection.getNotifications())
+                .map(notification -> ChangeEvent.parse(notification.getParameter()))
+                .doOnNext(event -> submit(Mono.defer(() -> receive(event))))
+                .concatWith(Flux.error(new IllegalStateException("Change notification connection closed")));
+    }
+
+    private void submit(Mono<Void> task) {
+        work.emitNext(task, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+    }
+
+    private Mono<Void> receive(ChangeEvent event) {
+        Mono<Void> applied = apply(event);
+        if (watermark >= 0 && watermark < highest && gapCheckPending.compareAndSet(false, true)) {
+            gapCheck.update(Mono.delay(gapGrace)
+                    .subscribe(tick -> submit(Mono.defer(() -> {
+                        gapCheckPending.set(false);
+                        return catchUp();
+                    }))));
+        }
+        return applied;
+    }
+
+    // Primera conexión: se empieza desde el último id existente. Después: se lee todo lo posterior al id continuo
+    private Mono<Void> catchUp() {
+        if (watermark < 0) {
+            return changeLogRepository.maxId()
+                    .doOnNext(maxId -> {
+                        watermark = Math.max(maxId, highest);
+                        highest = watermark;
+                    })
+                    .then();
+        }
+        return changeLogRepository.findAfter(watermark)
+                .concatMap(this::apply)
+                .then(Mono.fromRunnable(this::skipMissing));
+    }
+
+    // Lo que sigue faltando por debajo de highest después de releer change_log no va a llegar
+    private void skipMissing() {
+        long missing = 0;
+        for (long id = watermark + 1; id < highest; id++) {
+            if (seen.getIfPresent(id) == null) {
+                missing++;
+            }
+        }
+        if (missing > 0) {
+            skipped.increment(missing);
+            log.info("Skipped {} change_log ids between {} and {} that never committed", missing, watermark, highest);
+        }
+        watermark = highest;
+    }
+
+    private Mono<Void> apply(ChangeEvent event) {
+        if (seen.asMap().putIfAbsent(event.getId(), Boolean.TRUE) != null) {
+            return Mono.empty();
+        }
+        highest = Math.max(highest, event.getId());
+        if (watermark >= 0) {
+            while (seen.getIfPresent(watermark + 1) != null) {
+                watermark++;
+            }
+        }
+        if (changeLogRepository.nodeId().equals(event.getOrigin())) {
+            return Mono.empty();
+        }
+        return dispatch(event).doFinally(signal -> remoteEvents.tryEmitNext(event));
+    }
+
+    private Mono<Void> dispatch(ChangeEvent event) {
+        switch (event.getEntity()) {
+            case ChangeEvent.TRANSACTION:
+                if (event.getRefId() != null) {
+                    inventoryCache.evict(event.getRefId().intValue());
+                }
+                return transactionRepository.findById(event.getEntityId())
+                        .doOnNext(transaction -> transactionEventStream.publish(event.getAction(), transaction))
+                        .then();
+            case ChangeEvent.INVENTORY:
+                inventoryCache.evict(event.getEntityId());
+                return Mono.empty();
+            case ChangeEvent.HOME:
+                return homeNameDictionary.refresh(event.getEntityId());
+            case ChangeEvent.CONSUMPTION:
+                if (event.getRefId() != null) {
+                    inventoryCache.evictByProductId(event.getRefId());
+                }
+                return Mono.empty();
+            default:
+                return Mono.empty();
+        }
+    }
+}
@@ -1,46 +1,133 @@
 package pe.edu.vallegrande.vg_ms_casas.service;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.MediaType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
 
+import pe.edu.vallegrande.vg_ms_casas.client.ProductClient;
+import pe.edu.vallegrande.vg_ms_casas.dto.ChangeEvent;
+import pe.edu.vallegrande.vg_ms_casas.dto.ConsumptionReportRow;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageCursor;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageResponse;
 import pe.edu.vallegrande.vg_ms_casas.dto.ProductDTO;
 import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import pe.edu.vallegrande.vg_ms_casas.repository.ChangeLogRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.ConsumptionReportRepository;
 import pe.edu.vallegrande.vg_ms_casas.repository.ConsumptionRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.ConsumptionRollupRepository;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Service
 public class ConsumptionService {
 
+    private static final Logger log = LoggerFactory.getLogger(ConsumptionService.class);
+
     @Autowired
     private ConsumptionRepository consumptionRepository;
 
-    private final WebClient productWebClient = WebClient.builder()
-            .baseUrl("https://ms-product-ix0t.onrender.com/NPH/products")
-            .defaultHeader("Content-Type", "application/json")
-            .build();
+    @Autowired
+    private InventoryCache inventoryCache;
+
+    @Autowired
+    private HomeNameDictionary homeNameDictionary;
+
+    @Autowired
+    private ConsumptionReportRepository consumptionReportRepository;
+
+    @Autowired
+    private ConsumptionRollupRepository consumptionRollupRepository;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private ProductClient productClient;
+
+    @Value("${consumption.enrichment.window-size:500}")
+    private int enrichmentWindowSize;
+
+    @Value("${consumption.enrichment.concurrency:8}")
+    private int enrichmentConcurrency;
+
+    @Value("${consumption.rollup.chunk-days:31}")
+    private int rollupChunkDays;
+
+    @Value("${consumption.rollup.reconcile-interval:1h}")
+    private Duration rollupReconcileInterval;
+
+    @Value("${consumption.rollup.reconcile-days:7}")
+    private int rollupReconcileDays;
+
+    // Rango recalculado por rebuildRollup desde la última conciliación, que se vuelve a revisar en la siguiente
+    private final AtomicReference<LocalDate[]> rebuiltSinceReconcile = new AtomicReference<>();
+
+    private Disposable scheduledReconcile;
+
+    @PostConstruct
+    void scheduleReconcile() {
+        // Un fallo no corta la programación; el siguiente ciclo vuelve a intentarlo
+        scheduledReconcile = Flux.interval(rollupReconcileInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> reconcileRollup().onErrorResume(e -> {
+                    log.warn("Consumption rollup reconciliation failed", e);
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void cancelReconcile() {
+        scheduledReconcile.dispose();
+    }
 
     public Flux<Consumption> findAll() {
-        return consumptionRepository.findAll();
+        return homeNameDictionary.withNames(consumptionRepository.findAll());
     }
 
     public Mono<Consumption> findById(Integer id) {
-        return consumptionRepository.findByIdWithNames(id);
+        return homeNameDictionary.withNames(consumptionRepository.findById(id));
     }
 
     public Mono<Consumption> save(Consumption consumption) {
+        // Un id enviado por el cliente convertiría el INSERT en UPDATE y el rollup sumaría la fila dos veces
+        consumption.setId_consumption(null);
         if (consumption.getStatus() == null) {
             consumption.setStatus("A");
         }
-        return consumptionRepository.save(consumption);
+        // El rollup diario se actualiza en la misma transacción que la fila
+        return consumptionRepository.save(consumption)
+                .flatMap(saved -> consumptionRollupRepository.replace(null, saved).thenReturn(saved))
+                .flatMap(saved -> logChange(saved, ChangeEvent.CREATED))
+                .as(transactionalOperator::transactional)
+                .doOnNext(saved -> inventoryCache.evictByProductId(saved.getProductId()));
     }
 
     public Mono<Consumption> update(Integer id, Consumption consumption) {
-        return consumptionRepository.updateConsumption(
+        return changeRow(id, ChangeEvent.UPDATED, consumptionRepository.updateConsumption(
                 id,
                 consumption.getDate(),
                 consumption.getId_home(),
@@ -49,38 +136,243 @@ public class ConsumptionService {
                 consumption.getWeight(),
                 consumption.getPrice(),
                 consumption.getSalevalue()
-        ).then(findById(id));
+        )).then(findById(id));
     }
 
     public Mono<Void> delete(Integer id) {
-        return consumptionRepository.inactivateConsumption(id);
+        return changeRow(id, ChangeEvent.DEACTIVATED, consumptionRepository.inactivateConsumption(id))
+                .then();
     }
 
     public Mono<Void> restore(Integer id) {
-        return consumptionRepository.restoreConsumption(id);
+        return changeRow(id, ChangeEvent.RESTORED, consumptionRepository.restoreConsumption(id))
+                .then();
+    }
+
+    /**
+     * Bloquea la fila, aplica el cambio y pasa al rollup la diferencia entre la versión anterior y la nueva.
+     * Tras el commit invalida el inventario del producto anterior y del nuevo, que difieren si cambió productId.
+     */
+    private Mono<Consumption> changeRow(Integer id, String action, Mono<?> change) {
+        return consumptionRepository.findByIdForUpdate(id)
+                .flatMap(previous -> change
+                        .then(consumptionRepository.findByIdForUpdate(id))
+                        .flatMap(current -> consumptionRollupRepository.replace(previous, current).thenReturn(current))
+                        .flatMap(current -> logChange(current, action))
+                        .map(current -> Map.entry(previous, current)))
+                .as(transactionalOperator::transactional)
+                .map(rows -> {
+                    inventoryCache.evictByProductId(rows.getKey().getProductId());
+                    if (!Objects.equals(rows.getKey().getProductId(), rows.getValue().getProductId())) {
+                        inventoryCache.evictByProductId(rows.getValue().getProductId());
+                    }
+                    return rows.getValue();
+                });
+    }
+
+    // Aviso para las demás réplicas; va en la misma transacción que el cambio
+    private Mono<Consumption> logChange(Consumption consumption, String action) {
+        return changeLogRepository.append(ChangeEvent.CONSUMPTION, consumption.getId_consumption(),
+                consumption.getProductId(), action).thenReturn(consumption);
+    }
+
+    /**
+     * Recalcula consumption_daily_rollup desde consumption, en bloques de consumption.rollup.chunk-days días
+     * y una transacción por bloque, sin bloquear las escrituras. Sin fechas recorre todo el rango presente
+     * en consumption. changedRows cuenta las claves del rollup que cambiaron.
+     */
+    public Mono<Map<String, Object>> rebuildRollup(LocalDate startDate, LocalDate endDate) {
+        Mono<LocalDate[]> range = startDate != null && endDate != null
+                ? Mono.just(new LocalDate[]{startDate, endDate})
+                : consumptionRollupRepository.dateRange();
+        return range.flatMap(days -> {
+                    if (days[1].isBefore(days[0])) {
+                        return Mono.error(new IllegalArgumentException("Invalid date range"));
+                    }
+                    return rebuildChunks(days)
+                            .doOnSuccess(result -> rebuiltSinceReconcile.accumulateAndGet(days, (pending, added) ->
+                                    pending == null ? added
+                                            : new LocalDate[]{min(pending[0], added[0]), max(pending[1], added[1])}));
+                })
+                .defaultIfEmpty(Map.of("chunks", 0L, "changedRows", 0L));
+    }
+
+    /**
+     * Compara con consumption el rollup de los últimos consumption.rollup.reconcile-days días y el rango
+     * recalculado desde la conciliación anterior, y corrige las claves que no cuadran. Lo que una escritura
+     * concurrente con rebuildRollup dejó desfasado se arregla aquí.
+     */
+    public Mono<Map<String, Object>> reconcileRollup() {
+        return Mono.defer(() -> {
+            LocalDate today = LocalDate.now();
+            LocalDate[] days = {today.minusDays(rollupReconcileDays - 1L), today};
+            LocalDate[] rebuilt = rebuiltSinceReconcile.getAndSet(null);
+            Flux<Map<String, Object>> passes = rebuilt == null ? rebuildChunks(days).flux()
+                    : rebuildChunks(days).concatWith(rebuildChunks(rebuilt));
+            return passes.reduce(0L, (changed, result) -> changed + (Long) result.get("changedRows"))
+                    .doOnNext(changed -> {
+                        if (changed > 0) {
+                            log.warn("Consumption rollup reconciliation corrected {} keys", changed);
+                        }
+                    })
+                    .map(changed -> Map.<String, Object>of("changedRows", changed));
+        });
+    }
+
+    private Mono<Map<String, Object>> rebuildChunks(LocalDate[] days) {
+        return Flux.fromStream(Stream.iterate(days[0], day -> !day.isAfter(days[1]),
+                        day -> day.plusDays(rollupChunkDays)))
+                .concatMap(chunkStart -> {
+                    LocalDate chunkEnd = chunkStart.plusDays(rollupChunkDays - 1L);
+                    return consumptionRollupRepository
+                            .rebuild(chunkStart, chunkEnd.isAfter(days[1]) ? days[1] : chunkEnd)
+                            .as(transactionalOperator::transactional);
+                })
+                .reduceWith(() -> new long[2], (totals, rows) -> {
+                    totals[0]++;
+                    totals[1] += rows;
+                    return totals;
+                })
+                .map(totals -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("startDate", days[0]);
+                    result.put("endDate", days[1]);
+                    result.put("chunks", totals[0]);
+                    result.put("changedRows", totals[1]);
+                    return result;
+                });
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
     }
 
     public Flux<Consumption> findActive() {
-        return consumptionRepository.findByStatusWithNames("A");
+        return homeNameDictionary.withNames(consumptionRepository.findByStatus("A"));
+    }
+
+    public Flux<Consumption> findActive(boolean includeProduct) {
+        return includeProduct ? withProducts(findActive()) : findActive();
     }
 
     public Flux<Consumption> findInactive() {
-        return consumptionRepository.findByStatusWithNames("I");
+        return homeNameDictionary.withNames(consumptionRepository.findByStatus("I"));
+    }
+
+    public Mono<PageResponse<Consumption>> findPage(String cursor, int limit) {
+        return page(cursor, limit, (date, id) -> consumptionRepository.findPage(date, id, limit + 1));
+    }
+
+    public Mono<PageResponse<Consumption>> findActivePage(String cursor, int limit) {
+        return page(cursor, limit, (date, id) -> consumptionRepository.findPageByStatus("A", date, id, limit + 1));
+    }
+
+    public Mono<PageResponse<Consumption>> findInactivePage(String cursor, int limit) {
+        return page(cursor, limit, (date, id) -> consumptionRepository.findPageByStatus("I", date, id, limit + 1));
+    }
+
+    public Mono<PageResponse<Consumption>> findByDateRangePage(LocalDate startDate, LocalDate endDate, boolean activeOnly,
+                                                               boolean includeProduct, String cursor, int limit) {
+        return page(cursor, limit, (date, id) -> {
+            Flux<Consumption> rows = activeOnly
+                    ? consumptionRepository.findPageByDateRangeAndStatus(startDate, endDate, "A", date, id, limit + 1)
+                    : consumptionRepository.findPageByDateRange(startDate, endDate, date, id, limit + 1);
+            return includeProduct ? withProducts(rows) : rows;
+        });
+    }
+
+    private Mono<PageResponse<Consumption>> page(String cursor, int limit,
+                                                 BiFunction<LocalDate, Integer, Flux<Consumption>> query) {
+        return Mono.defer(() -> {
+            PageResponse.checkLimit(limit);
+            PageCursor after = PageCursor.decode(cursor);
+            return homeNameDictionary.withNames(query.apply(after == null ? PageCursor.MAX_DATE : after.getDate(),
+                            after == null ? Integer.MAX_VALUE : after.getId()))
+                    .collectList()
+                    .map(rows -> PageResponse.of(rows, limit, c -> PageCursor.encode(c.getDate(), c.getId_consumption())));
+        });
     }
 
     public Flux<Consumption> findByDateRange(LocalDate startDate, LocalDate endDate, boolean activeOnly) {
         if (activeOnly) {
-            return consumptionRepository.findByDateRangeAndStatus(startDate, endDate, "A");
+            return homeNameDictionary.withNames(consumptionRepository.findByDateRangeAndStatus(startDate, endDate, "A"));
         } else {
-            return consumptionRepository.findByDateRange(startDate, endDate);
+            return homeNameDictionary.withNames(consumptionRepository.findByDateRange(startDate, endDate));
+        }
+    }
+
+    public Flux<Consumption> findByDateRange(LocalDate startDate, LocalDate endDate, boolean activeOnly,
+                                             boolean includeProduct) {
+        Flux<Consumption> consumptions = findByDateRange(startDate, endDate, activeOnly);
+        return includeProduct ? withProducts(consumptions) : consumptions;
+    }
+
+    /**
+     * Totales, promedios y cantidad de registros agrupados por periodo (day, week, month)
+     * y/o por las dimensiones home y product.
+     */
+    public Flux<ConsumptionReportRow> report(LocalDate startDate, LocalDate endDate, String period,
+                                             List<String> groupBy, boolean activeOnly) {
+        return Flux.defer(() -> {
+            if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+                return Flux.error(new IllegalArgumentException("Invalid date range"));
+            }
+            String normalizedPeriod = period == null ? null : period.toLowerCase(Locale.ROOT);
+            if (normalizedPeriod != null && !ConsumptionReportRepository.PERIODS.contains(normalizedPeriod)) {
+                return Flux.error(new IllegalArgumentException("Invalid period: " + period));
+            }
+            Set<String> dimensions = new LinkedHashSet<>();
+            if (groupBy != null) {
+                for (String dimension : groupBy) {
+                    String normalized = dimension.trim().toLowerCase(Locale.ROOT);
+                    if (!ConsumptionReportRepository.HOME.equals(normalized)
+                            && !ConsumptionReportRepository.PRODUCT.equals(normalized)) {
+                        return Flux.error(new IllegalArgumentException("Invalid groupBy: " + dimension));
+                    }
+                    dimensions.add(normalized);
+                }
+            }
+            return consumptionReportRepository.aggregate(startDate, endDate, normalizedPeriod, dimensions, activeOnly);
+        });
+    }
+
+    /**
+     * Agrega el producto a cada consumo sin una llamada HTTP por fila: las filas se agrupan en ventanas,
+     * se consultan solo los productId que aún no se resolvieron en esta petición (con concurrencia acotada)
+     * y las filas salen en el mismo orden. Si un producto no se puede resolver, la fila sale sin él.
+     */
+    private Flux<Consumption> withProducts(Flux<Consumption> consumptions) {
+        return Flux.defer(() -> {
+            Map<Long, ProductDTO> resolved = new HashMap<>();
+            Set<Long> attempted = new HashSet<>();
+            return consumptions.buffer(enrichmentWindowSize)
+                    .concatMap(window -> resolveProducts(window, attempted)
+                            .doOnNext(resolved::putAll)
+                            .thenMany(Flux.fromIterable(window))
+                            .doOnNext(consumption -> consumption.setProduct(resolved.get(consumption.getProductId()))));
+        });
+    }
+
+    private Mono<Map<Long, ProductDTO>> resolveProducts(List<Consumption> window, Set<Long> attempted) {
+        Set<Long> pending = new LinkedHashSet<>();
+        for (Consumption consumption : window) {
+            Long productId = consumption.getProductId();
+            if (productId != null && attempted.add(productId)) {
+                pending.add(productId);
+            }
         }
+        return Flux.fromIterable(pending)
+                .flatMap(productId -> productClient.findById(productId)
+                        .onErrorResume(e -> Mono.empty())
+                        .map(product -> Map.entry(productId, product)), enrichmentConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
     }
 
     public Mono<ProductDTO> getProductFromExternal(Long productId) {
-        return productWebClient.get()
-                .uri("/{id}", productId)
-                .accept(MediaType.APPLICATION_JSON)
-                .retrieve()
-                .bodyToMono(ProductDTO.class);
+        return productClient.findById(productId);
     }
 }
\ No newline at end of file
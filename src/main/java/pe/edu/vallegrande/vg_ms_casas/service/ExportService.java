@@ -0,0 +1,138 @@
+package pe.edu.vallegrande.vg_ms_casas.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import pe.edu.vallegrande.vg_ms_casas.repository.ExportRepository;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.function.BiConsumer;
+
+/**
+ * Exportación CSV (RFC 4180, UTF-8) del historial de transacciones y consumos. Las filas se escriben
+ * en bloques de export.chunk-rows filas por DataBuffer a medida que la respuesta los pide, sin armar
+ * la lista completa en memoria.
+ */
+@Service
+public class ExportService {
+
+    private static final String TRANSACTION_HEADER = "id_transaction,inventory_id,product_id,type,quantity,"
+            + "previous_stock,new_stock,reason,date,user_id,status,consumption_id";
+    private static final String CONSUMPTION_HEADER = "id_consumption,date,id_home,names,product_id,quantity,"
+            + "weight,price,salevalue,status";
+
+    @Autowired
+    private ExportRepository exportRepository;
+
+    @Autowired
+    private HomeNameDictionary homeNameDictionary;
+
+    @Value("${export.chunk-rows:500}")
+    private int chunkRows;
+
+    public Flux<DataBuffer> transactionsCsv(LocalDate startDate, LocalDate endDate, String status, Integer inventoryId,
+                                            Integer productId, String type, DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+            checkRange(startDate, endDate);
+            return csv(TRANSACTION_HEADER, exportRepository.transactions(startDate, endDate, status, inventoryId, productId, type),
+                    ExportService::appendTransaction, bufferFactory);
+        });
+    }
+
+    public Flux<DataBuffer> consumptionsCsv(LocalDate startDate, LocalDate endDate, String status, Integer idHome,
+                                            Long productId, DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+            checkRange(startDate, endDate);
+            return csv(CONSUMPTION_HEADER, homeNameDictionary.withNames(
+                            exportRepository.consumptions(startDate, endDate, status, idHome, productId)),
+                    ExportService::appendConsumption, bufferFactory);
+        });
+    }
+
+    private static void checkRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate != null && endDate != null && endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("Invalid date range");
+        }
+    }
+
+    private <T> Flux<DataBuffer> csv(String header, Flux<T> rows, BiConsumer<StringBuilder, T> writer,
+                                     DataBufferFactory bufferFactory) {
+        Flux<DataBuffer> body = rows.buffer(chunkRows)
+                .map(chunk -> {
+                    StringBuilder text = new StringBuilder(chunk.size() * 96);
+                    for (T row : chunk) {
+                        writer.accept(text, row);
+                        text.append("\r\n");
+                    }
+                    return encode(text, bufferFactory);
+                });
+        return Flux.just(header + "\r\n")
+                .map(line -> encode(line, bufferFactory))
+                .concatWith(body);
+    }
+
+    private static DataBuffer encode(CharSequence text, DataBufferFactory bufferFactory) {
+        return bufferFactory.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void appendTransaction(StringBuilder line, Transaction transaction) {
+        value(line, transaction.getIdTransaction());
+        value(line.append(','), transaction.getInventoryId());
+        value(line.append(','), transaction.getProductId());
+        text(line.append(','), transaction.getType());
+        value(line.append(','), transaction.getQuantity());
+        value(line.append(','), transaction.getPreviousStock());
+        value(line.append(','), transaction.getNewStock());
+        text(line.append(','), transaction.getReason());
+        value(line.append(','), transaction.getDate());
+        value(line.append(','), transaction.getUserId());
+        text(line.append(','), transaction.getStatus());
+        value(line.append(','), transaction.getConsumptionId());
+    }
+
+    private static void appendConsumption(StringBuilder line, Consumption consumption) {
+        value(line, consumption.getId_consumption());
+        value(line.append(','), consumption.getDate());
+        value(line.append(','), consumption.getId_home());
+        text(line.append(','), consumption.getNames());
+        value(line.append(','), consumption.getProductId());
+        value(line.append(','), consumption.getQuantity());
+        value(line.append(','), consumption.getWeight());
+        value(line.append(','), consumption.getPrice());
+        value(line.append(','), consumption.getSalevalue());
+        text(line.append(','), consumption.getStatus());
+    }
+
+    // Números y fechas (ISO-8601) nunca llevan comas ni comillas; null queda como campo vacío
+    private static void value(StringBuilder line, Object value) {
+        if (value != null) {
+            line.append(value);
+        }
+    }
+
+    // Texto libre: entre comillas si hace falta, y con ' delante si una hoja de cálculo lo tomaría como fórmula
+    // (también un tabulador o retorno de carro inicial, que algunas hojas descartan antes de evaluar)
+    private static void text(StringBuilder line, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean formula = "=+-@\t\r".indexOf(value.charAt(0)) >= 0;
+        boolean quote = formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        if (formula) {
+            line.append('\'');
+        }
+        line.append(value.replace("\"", "\"\"")).append('"');
+    }
+}
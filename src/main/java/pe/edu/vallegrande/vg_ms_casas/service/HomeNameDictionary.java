@@ -0,0 +1,143 @@
+package pe.edu.vallegrande.vg_ms_casas.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import pe.edu.vallegrande.vg_ms_casas.model.Home;
+import pe.edu.vallegrande.vg_ms_casas.repository.HomeRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diccionario en memoria id_home → names para completar Consumption.names sin hacer JOIN con home.
+ *
+ * Se carga entero al arrancar; HomeService lo actualiza tras cada escritura y ChangeEventBus con los
+ * cambios de otras réplicas. Cada entrada guarda la versión de la fila, así una lectura que llega
+ * tarde nunca reemplaza un nombre más nuevo. Los id que no están se consultan juntos, en una sola
+ * consulta por bloque de filas, y los que tampoco existen en home quedan marcados para no volver a buscarlos.
+ */
+@Component
+public class HomeNameDictionary {
+
+    private record Entry(String names, long version) {
+    }
+
+    // Marca de un id que no existe en home; cualquier versión real la reemplaza
+    private static final Entry MISSING = new Entry(null, -1);
+
+    // Filas de consumo que se completan juntas: una consulta por bloque para los id desconocidos
+    private static final int LOOKUP_BATCH = 256;
+
+    @Autowired
+    private HomeRepository homeRepository;
+
+    private volatile Map<Integer, Entry> names = new ConcurrentHashMap<>();
+
+    // Escrituras que llegan mientras corre un reload; se aplican sobre el mapa nuevo antes de publicarlo
+    private final Set<Map<Integer, Entry>> reloads = ConcurrentHashMap.newKeySet();
+
+    // Carga completa compartida por las primeras lecturas; si falla se reintenta en la siguiente
+    private Mono<Boolean> loaded;
+
+    @PostConstruct
+    void load() {
+        loaded = reload()
+                .then(Mono.just(Boolean.TRUE))
+                .cacheInvalidateIf(done -> false);
+        loaded.subscribe(done -> { }, error -> { });
+    }
+
+    public void put(Home home) {
+        if (home == null || home.getId_home() == null) {
+            return;
+        }
+        put(home.getId_home(), new Entry(home.getNames(), home.getVersion() == null ? 0 : home.getVersion()));
+    }
+
+    private synchronized void put(Integer idHome, Entry entry) {
+        merge(names, idHome, entry);
+        reloads.forEach(pending -> merge(pending, idHome, entry));
+    }
+
+    private static void merge(Map<Integer, Entry> map, Integer idHome, Entry entry) {
+        map.merge(idHome, entry, (current, candidate) -> candidate.version() >= current.version() ? candidate : current);
+    }
+
+    // Reemplaza todo el contenido de una vez; para cuando la tabla home cambió por fuera del servicio
+    public Mono<Void> reload() {
+        return Mono.defer(() -> {
+            Map<Integer, Entry> pending = new ConcurrentHashMap<>();
+            reloads.add(pending);
+            return homeRepository.findAll()
+                    .collectList()
+                    .doOnNext(homes -> swap(homes, pending))
+                    .doFinally(signal -> reloads.remove(pending))
+                    .then();
+        });
+    }
+
+    private synchronized void swap(List<Home> homes, Map<Integer, Entry> pending) {
+        Map<Integer, Entry> fresh = new ConcurrentHashMap<>(homes.size() * 2);
+        for (Home home : homes) {
+            if (home.getId_home() != null) {
+                merge(fresh, home.getId_home(), new Entry(home.getNames(), home.getVersion() == null ? 0 : home.getVersion()));
+            }
+        }
+        pending.forEach((idHome, entry) -> merge(fresh, idHome, entry));
+        names = fresh;
+    }
+
+    // Relee una casa cambiada en otra réplica
+    public Mono<Void> refresh(Integer idHome) {
+        return homeRepository.findById(idHome)
+                .doOnNext(this::put)
+                .switchIfEmpty(Mono.fromRunnable(() -> put(idHome, MISSING)))
+                .then();
+    }
+
+    public String get(Integer idHome) {
+        Entry entry = idHome == null ? null : names.get(idHome);
+        return entry == null ? null : entry.names();
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public Flux<Consumption> withNames(Flux<Consumption> consumptions) {
+        return loaded.thenMany(consumptions.buffer(LOOKUP_BATCH)
+                .concatMap(this::fill)
+                .concatMapIterable(batch -> batch));
+    }
+
+    public Mono<Consumption> withNames(Mono<Consumption> consumption) {
+        return loaded.then(consumption.flatMap(row -> fill(List.of(row)).thenReturn(row)));
+    }
+
+    private Mono<List<Consumption>> fill(List<Consumption> consumptions) {
+        Map<Integer, Entry> current = names;
+        Set<Integer> unknown = new HashSet<>();
+        for (Consumption consumption : consumptions) {
+            if (consumption.getId_home() != null && !current.containsKey(consumption.getId_home())) {
+                unknown.add(consumption.getId_home());
+            }
+        }
+        Mono<Void> lookup = unknown.isEmpty() ? Mono.empty() : homeRepository.findAllById(unknown)
+                .doOnNext(home -> {
+                    put(home);
+                    unknown.remove(home.getId_home());
+                })
+                .then(Mono.fromRunnable(() -> unknown.forEach(idHome -> put(idHome, MISSING))));
+        return lookup.then(Mono.fromCallable(() -> {
+            consumptions.forEach(consumption -> consumption.setNames(get(consumption.getId_home())));
+            return consumptions;
+        }));
+    }
+}
@@ -2,17 +2,33 @@ package pe.edu.vallegrande.vg_ms_casas.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.vg_ms_casas.dto.ChangeEvent;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageCursor;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageResponse;
 import pe.edu.vallegrande.vg_ms_casas.model.Home;
+import pe.edu.vallegrande.vg_ms_casas.repository.ChangeLogRepository;
 import pe.edu.vallegrande.vg_ms_casas.repository.HomeRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.function.IntFunction;
+
 @Service
 public class HomeService {
 
     @Autowired
     private HomeRepository homeRepository;
 
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    @Autowired
+    private HomeNameDictionary homeNameDictionary;
+
     public Flux<Home> findAll() {
         return homeRepository.findAll();
     }
@@ -22,32 +38,50 @@ public class HomeService {
     }
 
     public Mono<Home> save(Home home) {
-        return homeRepository.save(home);
+        home.setId_home(null);
+        home.setVersion(null);
+        return homeRepository.save(home)
+                .flatMap(saved -> logChange(saved, ChangeEvent.CREATED))
+                .as(transactionalOperator::transactional)
+                .doOnNext(homeNameDictionary::put);
     }
 
+    // Un solo UPDATE; si trae version y no coincide con la guardada, falla con VersionConflictException
     public Mono<Home> update(Integer id, Home home) {
-        return homeRepository.findById(id)
-                .flatMap(existingHome -> {
-                    existingHome.setNames(home.getNames());
-                    existingHome.setAddress(home.getAddress());
-                    return homeRepository.save(existingHome);
-                });
+        return homeRepository.updateDetails(id, home.getNames(), home.getAddress(), home.getVersion())
+                .switchIfEmpty(Mono.defer(() -> versionConflict(id, home.getVersion())))
+                .flatMap(updated -> logChange(updated, ChangeEvent.UPDATED))
+                .as(transactionalOperator::transactional)
+                .doOnNext(homeNameDictionary::put);
     }
 
     public Mono<Void> delete(Integer id) {
-        return homeRepository.findById(id)
-                .flatMap(existingHome -> {
-                    existingHome.setStatus("I");
-                    return homeRepository.save(existingHome);
-                }).then();
+        return homeRepository.updateStatus(id, "I")
+                .flatMap(deactivated -> logChange(deactivated, ChangeEvent.DEACTIVATED))
+                .as(transactionalOperator::transactional)
+                .doOnNext(homeNameDictionary::put)
+                .then();
     }
 
     public Mono<Home> restore(Integer id) {
+        return homeRepository.updateStatus(id, "A")
+                .flatMap(restored -> logChange(restored, ChangeEvent.RESTORED))
+                .as(transactionalOperator::transactional)
+                .doOnNext(homeNameDictionary::put);
+    }
+
+    // Sin filas actualizadas: si se pidió una versión y la casa existe, es un conflicto
+    private Mono<Home> versionConflict(Integer id, Long version) {
+        if (version == null) {
+            return Mono.empty();
+        }
         return homeRepository.findById(id)
-                .flatMap(home -> {
-                    home.setStatus("A");
-                    return homeRepository.save(home);
-                });
+                .flatMap(current -> Mono.error(new VersionConflictException(current, current.getVersion())));
+    }
+
+    // Aviso para las demás réplicas; va en la misma transacción que el cambio
+    private Mono<Home> logChange(Home home, String action) {
+        return changeLogRepository.append(ChangeEvent.HOME, home.getId_home(), null, action).thenReturn(home);
     }
 
     public Flux<Home> findActive() {
@@ -57,4 +91,26 @@ public class HomeService {
     public Flux<Home> findInactive() {
         return homeRepository.findByStatus("I");
     }
+
+    public Mono<PageResponse<Home>> findPage(String cursor, int limit) {
+        return page(cursor, limit, afterId -> homeRepository.findPage(afterId, limit + 1));
+    }
+
+    public Mono<PageResponse<Home>> findActivePage(String cursor, int limit) {
+        return page(cursor, limit, afterId -> homeRepository.findPageByStatus("A", afterId, limit + 1));
+    }
+
+    public Mono<PageResponse<Home>> findInactivePage(String cursor, int limit) {
+        return page(cursor, limit, afterId -> homeRepository.findPageByStatus("I", afterId, limit + 1));
+    }
+
+    private Mono<PageResponse<Home>> page(String cursor, int limit, IntFunction<Flux<Home>> query) {
+        return Mono.defer(() -> {
+            PageResponse.checkLimit(limit);
+            PageCursor after = PageCursor.decode(cursor);
+            return query.apply(after == null ? 0 : after.getId())
+                    .collectList()
+                    .map(rows -> PageResponse.of(rows, limit, h -> PageCursor.encode(null, h.getId_home())));
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,430 @@
+package pe.edu.vallegrande.vg_ms_casas.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.vg_ms_casas.dto.ChangeEvent;
+import pe.edu.vallegrande.vg_ms_casas.dto.ImportJob;
+import pe.edu.vallegrande.vg_ms_casas.dto.ImportReject;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.repository.BulkLoadRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.ChangeLogRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.ConsumptionRollupRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.ImportJobRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Importación CSV de consumo e inventario. El archivo se lee en streaming; cada bloque de
+ * import.chunk-rows filas se valida, se carga con COPY y, en la misma transacción, actualiza el rollup,
+ * escribe change_log y avanza el job. Una fila inválida, o que la base rechaza, queda en import_reject
+ * sin cortar el archivo.
+ *
+ * La primera fila es la cabecera (nombres de columna, en cualquier orden; las que no se usan se ignoran,
+ * así un archivo de /consumption/export se puede volver a importar). Si la carga se interrumpe, se vuelve
+ * a enviar el mismo archivo con jobId y se saltan las filas ya confirmadas.
+ */
+@Service
+public class ImportService {
+
+    private static final List<String> CONSUMPTION_COLUMNS = List.of("date", "id_home", "product_id");
+    private static final List<String> INVENTORY_COLUMNS = List.of("product_id", "initial_stock", "current_stock");
+
+    private static final StringDecoder LINES = StringDecoder.allMimeTypes();
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private BulkLoadRepository bulkLoadRepository;
+
+    @Autowired
+    private ConsumptionRollupRepository consumptionRollupRepository;
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private InventoryCache inventoryCache;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    @Value("${import.chunk-rows:1000}")
+    private int chunkRows;
+
+    // Emite el estado del job después de cada bloque confirmado y al terminar
+    public Flux<ImportJob> importConsumption(Flux<DataBuffer> csv, Integer jobId) {
+        return load(ImportJob.CONSUMPTION, CONSUMPTION_COLUMNS, csv, jobId,
+                ImportService::toConsumption, this::loadConsumptions);
+    }
+
+    public Flux<ImportJob> importInventory(Flux<DataBuffer> csv, Integer jobId) {
+        return load(ImportJob.INVENTORY, INVENTORY_COLUMNS, csv, jobId,
+                ImportService::toInventory, this::loadInventories);
+    }
+
+    public Mono<ImportJob> findJob(String kind, Integer jobId) {
+        return importJobRepository.findById(jobId).filter(job -> kind.equals(job.getKind()));
+    }
+
+    public Flux<ImportReject> findRejects(String kind, Integer jobId) {
+        return findJob(kind, jobId).flatMapMany(job -> importJobRepository.findRejects(jobId));
+    }
+
+    private <T> Flux<ImportJob> load(String kind, List<String> requiredColumns, Flux<DataBuffer> csv, Integer jobId,
+                                     Function<CsvRow, T> parser, ChunkLoader<T> loader) {
+        Mono<ImportJob> job = jobId == null
+                ? importJobRepository.create(kind)
+                : importJobRepository.resume(jobId, kind)
+                        .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                                "Import job " + jobId + " not found or already completed")));
+        return job.flatMapMany(started -> {
+            Integer id = started.getId();
+            long resumeAfter = started.getLastRow();
+            long[] lastRow = {resumeAfter};
+            CsvReader reader = new CsvReader(requiredColumns);
+            return LINES.decode(csv, ResolvableType.forClass(String.class), null, null)
+                    .concatMapIterable(reader::accept)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(reader.finish())))
+                    .filter(row -> row.number() > resumeAfter)
+                    .map(row -> parse(row, parser))
+                    .buffer(chunkRows)
+                    // Si el archivo se corta, el bloque en curso termina de confirmarse antes de propagar el error
+                    .concatMapDelayError(chunk -> loadChunk(id, lastRow, chunk, loader), false, 1)
+                    .concatWith(Mono.defer(() -> importJobRepository.finish(id, ImportJob.COMPLETED, null)))
+                    .onErrorResume(e -> importJobRepository.finish(id, ImportJob.FAILED, String.valueOf(e.getMessage()))
+                            .then(Mono.error(e)))
+                    .doOnCancel(() -> importJobRepository.finish(id, ImportJob.FAILED, "Upload cancelled").subscribe());
+        });
+    }
+
+    // Si el COPY del bloque choca con una restricción de la base, se reintenta fila por fila (como
+    // TransactionService.saveBatch) y la fila que falla sola queda en import_reject; el job sigue avanzando
+    private <T> Mono<ImportJob> loadChunk(Integer jobId, long[] lastRow, List<Parsed<T>> chunk, ChunkLoader<T> loader) {
+        if (chunk.size() == 1) {
+            return commitChunk(jobId, lastRow, chunk, loader.load(chunk))
+                    .onErrorResume(DataIntegrityViolationException.class, e -> commitChunk(jobId, lastRow, chunk,
+                            Mono.just(new Loaded(0, List.of(chunk.get(0).reject(
+                                    "Error saving row: " + e.getMostSpecificCause().getMessage())), () -> { }))));
+        }
+        return commitChunk(jobId, lastRow, chunk, loader.load(chunk))
+                .onErrorResume(DataIntegrityViolationException.class, e -> Flux.fromIterable(chunk)
+                        .concatMap(row -> loadChunk(jobId, lastRow, List.of(row), loader))
+                        .last());
+    }
+
+    private <T> Mono<ImportJob> commitChunk(Integer jobId, long[] lastRow, List<Parsed<T>> chunk, Mono<Loaded> load) {
+        return load
+                .flatMap(loaded -> commit(jobId, lastRow[0], chunk, loaded)
+                        .map(progress -> Map.entry(progress, loaded)))
+                .as(transactionalOperator::transactional)
+                .map(committed -> {
+                    committed.getValue().afterCommit().run();
+                    lastRow[0] = committed.getKey().getLastRow();
+                    return committed.getKey();
+                });
+    }
+
+    // Rechazos del bloque y avance del job; si otra carga del mismo job confirmó antes, se revierte el bloque
+    private <T> Mono<ImportJob> commit(Integer jobId, long expectedLastRow, List<Parsed<T>> chunk, Loaded loaded) {
+        List<ImportReject> rejects = new ArrayList<>(loaded.rejects());
+        rejects.sort(Comparator.comparingLong(ImportReject::getRow));
+        long lastRow = chunk.get(chunk.size() - 1).number();
+        return importJobRepository.insertRejects(jobId, rejects)
+                .then(importJobRepository.advance(jobId, expectedLastRow, lastRow, loaded.rows(), rejects.size()))
+                .switchIfEmpty(Mono.error(new IllegalStateException(
+                        "Import job " + jobId + " was advanced by another upload")));
+    }
+
+    private Mono<Loaded> loadConsumptions(List<Parsed<Consumption>> chunk) {
+        List<ImportReject> rejects = rejectsOf(chunk);
+        Set<Integer> homeIds = new HashSet<>();
+        chunk.stream().filter(Parsed::valid).forEach(parsed -> homeIds.add(parsed.value().getId_home()));
+        return bulkLoadRepository.existingHomes(homeIds)
+                .flatMap(existingHomes -> {
+                    List<Consumption> rows = new ArrayList<>();
+                    for (Parsed<Consumption> parsed : chunk) {
+                        if (!parsed.valid()) {
+                            continue;
+                        }
+                        if (existingHomes.contains(parsed.value().getId_home())) {
+                            rows.add(parsed.value());
+                        } else {
+                            rejects.add(parsed.reject("Unknown home: " + parsed.value().getId_home()));
+                        }
+                    }
+                    List<Long> productIds = rows.stream().map(Consumption::getProductId).toList();
+                    return bulkLoadRepository.copyConsumptions(rows)
+                            .flatMap(ids -> consumptionRollupRepository.addAll(ids)
+                                    .then(changeLogRepository.appendAll(ChangeEvent.CONSUMPTION, ids, productIds,
+                                            ChangeEvent.CREATED)))
+                            .thenReturn(new Loaded(rows.size(), rejects,
+                                    () -> productIds.stream().distinct().forEach(inventoryCache::evictByProductId)));
+                });
+    }
+
+    private Mono<Loaded> loadInventories(List<Parsed<Inventory>> chunk) {
+        List<ImportReject> rejects = rejectsOf(chunk);
+        List<Inventory> rows = chunk.stream().filter(Parsed::valid).map(Parsed::value).toList();
+        return bulkLoadRepository.copyInventories(rows)
+                .flatMap(ids -> changeLogRepository.appendAll(ChangeEvent.INVENTORY, ids, null, ChangeEvent.CREATED)
+                        .thenReturn(new Loaded(rows.size(), rejects, () -> ids.forEach(inventoryCache::evict))));
+    }
+
+    private static <T> List<ImportReject> rejectsOf(List<Parsed<T>> chunk) {
+        List<ImportReject> rejects = new ArrayList<>();
+        for (Parsed<T> parsed : chunk) {
+            if (!parsed.valid()) {
+                rejects.add(parsed.reject(parsed.reason()));
+            }
+        }
+        return rejects;
+    }
+
+    private static <T> Parsed<T> parse(CsvRow row, Function<CsvRow, T> parser) {
+        try {
+            return new Parsed<>(row.number(), parser.apply(row), null, row.raw());
+        } catch (IllegalArgumentException e) {
+            return new Parsed<>(row.number(), null, e.getMessage(), row.raw());
+        }
+    }
+
+    private static Consumption toConsumption(CsvRow row) {
+        Consumption consumption = new Consumption();
+        consumption.setDate(row.date("date"));
+        consumption.setId_home(row.integer("id_home"));
+        consumption.setProductId(row.longValue("product_id"));
+        consumption.setQuantity(nonNegative("quantity", row.integer("quantity")));
+        consumption.setWeight(nonNegative("weight", row.decimal("weight")));
+        consumption.setPrice(nonNegative("price", row.integer("price")));
+        consumption.setSalevalue(nonNegative("salevalue", row.decimal("salevalue")));
+        consumption.setStatus(status(row.text("status")));
+        if (consumption.getDate() == null) {
+            throw new IllegalArgumentException("Date is required");
+        }
+        if (consumption.getId_home() == null) {
+            throw new IllegalArgumentException("Home ID is required");
+        }
+        if (consumption.getProductId() == null) {
+            throw new IllegalArgumentException("Product ID is required");
+        }
+        return consumption;
+    }
+
+    // Mismas reglas que InventoryService.save
+    private static Inventory toInventory(CsvRow row) {
+        Inventory inventory = new Inventory(null, row.integer("product_id"), row.integer("initial_stock"),
+                row.integer("current_stock"), row.text("status"), null);
+        String invalid = InventoryService.checkNew(inventory);
+        if (invalid != null) {
+            throw new IllegalArgumentException(invalid);
+        }
+        inventory.setStatus(status(inventory.getStatus()));
+        return inventory;
+    }
+
+    private static <N extends Number> N nonNegative(String column, N value) {
+        if (value != null && value.doubleValue() < 0) {
+            throw new IllegalArgumentException(column + " must not be negative");
+        }
+        return value;
+    }
+
+    private static String status(String status) {
+        if (status == null) {
+            return "A";
+        }
+        String normalized = status.toUpperCase(Locale.ROOT);
+        if (!"A".equals(normalized) && !"I".equals(normalized)) {
+            throw new IllegalArgumentException("Invalid status: " + status);
+        }
+        return normalized;
+    }
+
+    @FunctionalInterface
+    private interface ChunkLoader<T> {
+        // Carga las filas válidas del bloque dentro de la transacción del bloque
+        Mono<Loaded> load(List<Parsed<T>> chunk);
+    }
+
+    // afterCommit invalida las cachés locales una vez confirmado el bloque
+    private record Loaded(long rows, List<ImportReject> rejects, Runnable afterCommit) {
+    }
+
+    private record Parsed<T>(long number, T value, String reason, String raw) {
+
+        private boolean valid() {
+            return reason == null;
+        }
+
+        private ImportReject reject(String why) {
+            return new ImportReject(number, why, raw);
+        }
+    }
+
+    /**
+     * Una fila de datos con acceso por nombre de columna. Vacío o columna ausente es null;
+     * un valor que no se puede convertir falla con IllegalArgumentException.
+     */
+    private record CsvRow(long number, Map<String, Integer> columns, List<String> values) {
+
+        private String text(String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= values.size()) {
+                return null;
+            }
+            String value = values.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private Integer integer(String column) {
+            String value = text(column);
+            try {
+                return value == null ? null : Integer.valueOf(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": " + value);
+            }
+        }
+
+        private Long longValue(String column) {
+            String value = text(column);
+            try {
+                return value == null ? null : Long.valueOf(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": " + value);
+            }
+        }
+
+        private Double decimal(String column) {
+            String value = text(column);
+            try {
+                Double parsed = value == null ? null : Double.valueOf(value);
+                if (parsed != null && !Double.isFinite(parsed)) {
+                    throw new NumberFormatException(value);
+                }
+                return parsed;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": " + value);
+            }
+        }
+
+        private LocalDate date(String column) {
+            String value = text(column);
+            try {
+                return value == null ? null : LocalDate.parse(value);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": " + value);
+            }
+        }
+
+        private String raw() {
+            return String.join(",", values);
+        }
+    }
+
+    /**
+     * Lector CSV (RFC 4180) línea por línea: un campo entre comillas puede contener comas, comillas dobles
+     * y saltos de línea. La primera fila es la cabecera; las filas en blanco se saltan y no se numeran.
+     */
+    private static final class CsvReader {
+
+        private final List<String> requiredColumns;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private Map<String, Integer> columns;
+        private boolean quoted;
+        private long number;
+
+        private CsvReader(List<String> requiredColumns) {
+            this.requiredColumns = requiredColumns;
+        }
+
+        private List<CsvRow> accept(String line) {
+            boolean startOfRecord = !quoted && fields.isEmpty() && field.length() == 0;
+            if (startOfRecord && columns == null && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            if (startOfRecord && line.isBlank()) {
+                return List.of();
+            }
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"') {
+                    quoted = true;
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                field.append('\n');
+                return List.of();
+            }
+            return endRecord();
+        }
+
+        // Al terminar el archivo: una comilla sin cerrar deja la última fila con lo leído hasta ahí
+        private List<CsvRow> finish() {
+            if (!quoted && fields.isEmpty() && field.length() == 0) {
+                return List.of();
+            }
+            quoted = false;
+            return endRecord();
+        }
+
+        private List<CsvRow> endRecord() {
+            fields.add(field.toString());
+            field.setLength(0);
+            List<String> values = List.copyOf(fields);
+            fields.clear();
+            if (columns == null) {
+                columns = header(values);
+                return List.of();
+            }
+            return List.of(new CsvRow(++number, columns, values));
+        }
+
+        private Map<String, Integer> header(List<String> names) {
+            Map<String, Integer> header = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                header.putIfAbsent(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String column : requiredColumns) {
+                if (!header.containsKey(column)) {
+                    throw new IllegalArgumentException("Missing column: " + column);
+                }
+            }
+            return header;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package pe.edu.vallegrande.vg_ms_casas.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché en memoria de filas de inventory_consumption, por idInventory y por productId,
+ * más una instantánea de la lista de inventarios activos.
+ *
+ * Toda escritura invalida la entrada después del commit. Cada lectura desde la base de datos
+ * toma una marca de generación antes de consultar y la entrada se guarda con esa marca; al leer de
+ * la caché solo se sirve si la marca sigue vigente. Así una escritura que ocurre entre la comprobación
+ * y el put no deja servir el valor viejo, aunque la entrada llegue a guardarse.
+ */
+@Component
+public class InventoryCache {
+
+    private static final int STRIPES = 64;
+
+    private final Cache<Integer, Entry> byId;
+    private final Map<Integer, Integer> idByProduct = new ConcurrentHashMap<>();
+    private final AtomicReference<Snapshot> active = new AtomicReference<>();
+
+    // Generaciones por franja de id, global (invalidaciones masivas) y de la lista de activos
+    private final AtomicLongArray stripeGenerations = new AtomicLongArray(STRIPES);
+    private final AtomicLong globalGeneration = new AtomicLong();
+    private final AtomicLong activeGeneration = new AtomicLong();
+
+    private final LongAdder productHits = new LongAdder();
+    private final LongAdder productMisses = new LongAdder();
+    private final LongAdder activeHits = new LongAdder();
+    private final LongAdder activeMisses = new LongAdder();
+
+    public InventoryCache(@Value("${inventory.cache.max-size:10000}") long maxSize,
+                          @Value("${inventory.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .removalListener((Integer id, Entry entry, RemovalCause cause) -> {
+                    if (cause != RemovalCause.REPLACED && entry != null && entry.inventory().getProductId() != null) {
+                        idByProduct.remove(entry.inventory().getProductId(), id);
+                    }
+                })
+                .build();
+    }
+
+    public Inventory get(Integer id) {
+        Inventory inventory = current(id);
+        return inventory == null ? null : copy(inventory);
+    }
+
+    public Inventory getByProductId(Integer productId) {
+        Integer id = idByProduct.get(productId);
+        Inventory inventory = id == null ? null : current(id);
+        if (inventory == null || !productId.equals(inventory.getProductId())) {
+            productMisses.increment();
+            return null;
+        }
+        productHits.increment();
+        return copy(inventory);
+    }
+
+    public List<Inventory> getActive() {
+        Snapshot snapshot = active.get();
+        if (snapshot == null || snapshot.generation() != activeGeneration.get()) {
+            activeMisses.increment();
+            return null;
+        }
+        activeHits.increment();
+        return snapshot.inventories().stream().map(InventoryCache::copy).toList();
+    }
+
+    // La entrada solo vale si ninguna escritura sobre su id empezó después de tomar su marca
+    private Inventory current(Integer id) {
+        Entry entry = byId.getIfPresent(id);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.stamp() != readStamp(id)) {
+            byId.asMap().remove(id, entry);
+            return null;
+        }
+        return entry.inventory();
+    }
+
+    /**
+     * Marca de lectura para un id: debe tomarse antes de consultar la base de datos.
+     */
+    public long readStamp(Integer id) {
+        return (globalGeneration.get() << 32) | (stripeGenerations.get(stripe(id)) & 0xFFFFFFFFL);
+    }
+
+    public long activeStamp() {
+        return activeGeneration.get();
+    }
+
+    public void putIfFresh(Inventory inventory, long stamp) {
+        if (inventory == null || readStamp(inventory.getIdInventory()) != stamp) {
+            return;
+        }
+        byId.put(inventory.getIdInventory(), new Entry(copy(inventory), stamp));
+        if (inventory.getProductId() != null) {
+            idByProduct.put(inventory.getProductId(), inventory.getIdInventory());
+        }
+    }
+
+    /**
+     * Marca para lecturas por productId, donde el id aún no se conoce: cualquier escritura la invalida.
+     */
+    public long productStamp() {
+        return activeGeneration.get();
+    }
+
+    /**
+     * La marca del id se toma antes de comprobar la de producto: toda invalidación sube primero la de
+     * producto, así si la del id ya cambió la comprobación falla, y si cambia después la entrada no se sirve.
+     */
+    public void putByProductIfFresh(Inventory inventory, long stamp) {
+        if (inventory == null) {
+            return;
+        }
+        long idStamp = readStamp(inventory.getIdInventory());
+        if (activeGeneration.get() != stamp) {
+            return;
+        }
+        byId.put(inventory.getIdInventory(), new Entry(copy(inventory), idStamp));
+        idByProduct.put(inventory.getProductId(), inventory.getIdInventory());
+    }
+
+    // No reemplaza una instantánea de una generación posterior; getActive descarta las de generaciones pasadas
+    public void putActiveIfFresh(List<Inventory> inventories, long stamp) {
+        if (activeGeneration.get() != stamp) {
+            return;
+        }
+        Snapshot fresh = new Snapshot(stamp, inventories.stream().map(InventoryCache::copy).toList());
+        Snapshot previous;
+        do {
+            previous = active.get();
+            if (previous != null && previous.generation() > stamp) {
+                return;
+            }
+        } while (!active.compareAndSet(previous, fresh));
+    }
+
+    public void evict(Integer id) {
+        if (id == null) {
+            return;
+        }
+        evictActive();
+        stripeGenerations.incrementAndGet(stripe(id));
+        byId.invalidate(id);
+    }
+
+    // Los triggers de consumo actualizan el stock por product_id
+    public void evictByProductId(Number productId) {
+        if (productId == null) {
+            return;
+        }
+        evictActive();
+        globalGeneration.incrementAndGet();
+        byId.asMap().values().stream()
+                .map(Entry::inventory)
+                .filter(inventory -> inventory.getProductId() != null && inventory.getProductId() == productId.intValue())
+                .map(Inventory::getIdInventory)
+                .toList()
+                .forEach(byId::invalidate);
+    }
+
+    public void evictAll() {
+        evictActive();
+        globalGeneration.incrementAndGet();
+        byId.invalidateAll();
+    }
+
+    private void evictActive() {
+        activeGeneration.incrementAndGet();
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = byId.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", byId.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        result.put("productHits", productHits.sum());
+        result.put("productMisses", productMisses.sum());
+        result.put("activeListHits", activeHits.sum());
+        result.put("activeListMisses", activeMisses.sum());
+        return result;
+    }
+
+    private static int stripe(Integer id) {
+        return Math.floorMod(Objects.hashCode(id), STRIPES);
+    }
+
+    private static Inventory copy(Inventory inventory) {
+        return new Inventory(inventory.getIdInventory(), inventory.getProductId(), inventory.getInitialStock(),
+                inventory.getCurrentStock(), inventory.getStatus(), inventory.getVersion());
+    }
+
+    private record Entry(Inventory inventory, long stamp) {
+    }
+
+    private record Snapshot(long generation, List<Inventory> inventories) {
+    }
+}
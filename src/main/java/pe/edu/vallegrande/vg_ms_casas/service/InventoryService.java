@@ -2,91 +2,191 @@ package pe.edu.vallegrande.vg_ms_casas.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.vg_ms_casas.dto.ChangeEvent;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageCursor;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageResponse;
 import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.repository.ChangeLogRepository;
 import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
 @Service
 public class InventoryService {
 
     @Autowired
     private InventoryRepository inventoryRepository;
 
+    @Autowired
+    private InventoryCache inventoryCache;
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
     public Flux<Inventory> findAll() {
         return inventoryRepository.findAll();
     }
 
     public Mono<Inventory> findById(Integer id) {
-        return inventoryRepository.findById(id);
+        return Mono.defer(() -> {
+            Inventory cached = inventoryCache.get(id);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            long stamp = inventoryCache.readStamp(id);
+            return inventoryRepository.findById(id)
+                    .doOnNext(inventory -> inventoryCache.putIfFresh(inventory, stamp));
+        });
+    }
+
+    public Mono<Inventory> findByProductId(Integer productId) {
+        return Mono.defer(() -> {
+            Inventory cached = inventoryCache.getByProductId(productId);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            long stamp = inventoryCache.productStamp();
+            return inventoryRepository.findFirstByProductIdOrderByIdInventory(productId)
+                    .doOnNext(inventory -> inventoryCache.putByProductIfFresh(inventory, stamp));
+        });
     }
 
     public Mono<Inventory> save(Inventory inventory) {
         inventory.setIdInventory(null);
+        inventory.setVersion(null);
+
+        String invalid = checkNew(inventory);
+        if (invalid != null) {
+            return Mono.error(new IllegalArgumentException(invalid));
+        }
 
+        return inventoryRepository.save(inventory)
+                .flatMap(saved -> logChange(saved, ChangeEvent.CREATED))
+                .as(transactionalOperator::transactional)
+                .doOnNext(saved -> inventoryCache.evict(saved.getIdInventory()))
+                .onErrorMap(throwable -> {
+                    return new RuntimeException("Error saving inventory: " + throwable.getMessage(), throwable);
+                });
+    }
+
+    // Reglas de alta, también para la importación CSV: devuelve el motivo si no es válido y completa el estado
+    static String checkNew(Inventory inventory) {
         if (inventory.getProductId() == null) {
-            return Mono.error(new IllegalArgumentException("Product ID is required"));
+            return "Product ID is required";
         }
         if (inventory.getInitialStock() == null || inventory.getInitialStock() < 0) {
-            return Mono.error(new IllegalArgumentException("Initial stock must be a positive number"));
+            return "Initial stock must be a positive number";
         }
         if (inventory.getCurrentStock() == null || inventory.getCurrentStock() < 0) {
-            return Mono.error(new IllegalArgumentException("Current stock must be a positive number"));
+            return "Current stock must be a positive number";
         }
-
         if (inventory.getStatus() == null || inventory.getStatus().isEmpty()) {
             inventory.setStatus("A");
         }
-
-        return inventoryRepository.save(inventory)
-                .onErrorMap(throwable -> {
-                    return new RuntimeException("Error saving inventory: " + throwable.getMessage(), throwable);
-                });
+        return null;
     }
 
+    /**
+     * Actualización parcial en un solo UPDATE: los campos nulos, los stocks negativos y el estado vacío
+     * se ignoran. Si trae version y no coincide con la guardada, falla con VersionConflictException.
+     */
     public Mono<Inventory> update(Integer id, Inventory inventory) {
-        return inventoryRepository.findById(id)
-                .flatMap(existingInventory -> {
-                    if (inventory.getProductId() != null) {
-                        existingInventory.setProductId(inventory.getProductId());
-                    }
-                    if (inventory.getInitialStock() != null && inventory.getInitialStock() >= 0) {
-                        existingInventory.setInitialStock(inventory.getInitialStock());
-                    }
-                    if (inventory.getCurrentStock() != null && inventory.getCurrentStock() >= 0) {
-                        existingInventory.setCurrentStock(inventory.getCurrentStock());
-                    }
-                    if (inventory.getStatus() != null && !inventory.getStatus().isEmpty()) {
-                        existingInventory.setStatus(inventory.getStatus());
-                    }
-                    return inventoryRepository.save(existingInventory);
-                })
-                .onErrorMap(throwable -> {
+        Integer initialStock = inventory.getInitialStock() != null && inventory.getInitialStock() >= 0
+                ? inventory.getInitialStock() : null;
+        Integer currentStock = inventory.getCurrentStock() != null && inventory.getCurrentStock() >= 0
+                ? inventory.getCurrentStock() : null;
+        String status = inventory.getStatus() != null && !inventory.getStatus().isEmpty() ? inventory.getStatus() : null;
+
+        return inventoryRepository.updatePartial(id, inventory.getProductId(), initialStock, currentStock, status,
+                        inventory.getVersion())
+                .switchIfEmpty(Mono.defer(() -> versionConflict(id, inventory.getVersion())))
+                .flatMap(updated -> logChange(updated, ChangeEvent.UPDATED))
+                .as(transactionalOperator::transactional)
+                .doFinally(signal -> inventoryCache.evict(id))
+                .onErrorMap(throwable -> !(throwable instanceof VersionConflictException), throwable -> {
                     return new RuntimeException("Error updating inventory: " + throwable.getMessage(), throwable);
                 });
     }
 
     public Mono<Void> delete(Integer id) {
-        return inventoryRepository.findById(id)
-                .flatMap(existingInventory -> {
-                    existingInventory.setStatus("I");
-                    return inventoryRepository.save(existingInventory);
-                }).then();
+        return inventoryRepository.updateStatus(id, "I")
+                .flatMap(deactivated -> logChange(deactivated, ChangeEvent.DEACTIVATED))
+                .as(transactionalOperator::transactional)
+                .doFinally(signal -> inventoryCache.evict(id))
+                .then();
     }
 
     public Mono<Inventory> restore(Integer id) {
+        return inventoryRepository.updateStatus(id, "A")
+                .flatMap(restored -> logChange(restored, ChangeEvent.RESTORED))
+                .as(transactionalOperator::transactional)
+                .doFinally(signal -> inventoryCache.evict(id));
+    }
+
+    // Sin filas actualizadas: si se pidió una versión y el inventario existe, es un conflicto
+    private Mono<Inventory> versionConflict(Integer id, Long version) {
+        if (version == null) {
+            return Mono.empty();
+        }
         return inventoryRepository.findById(id)
-                .flatMap(existingInventory -> {
-                    existingInventory.setStatus("A");
-                    return inventoryRepository.save(existingInventory);
-                });
+                .flatMap(current -> Mono.error(new VersionConflictException(current, current.getVersion())));
+    }
+
+    // Aviso para las demás réplicas; va en la misma transacción que el cambio
+    private Mono<Inventory> logChange(Inventory inventory, String action) {
+        return changeLogRepository.append(ChangeEvent.INVENTORY, inventory.getIdInventory(), null, action)
+                .thenReturn(inventory);
     }
 
     public Flux<Inventory> findActive() {
-        return inventoryRepository.findByStatus("A");
+        return Flux.defer(() -> {
+            List<Inventory> cached = inventoryCache.getActive();
+            if (cached != null) {
+                return Flux.fromIterable(cached);
+            }
+            long stamp = inventoryCache.activeStamp();
+            return inventoryRepository.findByStatus("A")
+                    .collectList()
+                    .doOnNext(inventories -> inventoryCache.putActiveIfFresh(inventories, stamp))
+                    .flatMapIterable(inventories -> inventories);
+        });
+    }
+
+    public Map<String, Object> cacheStats() {
+        return inventoryCache.stats();
     }
 
     public Flux<Inventory> findInactive() {
         return inventoryRepository.findByStatus("I");
     }
+
+    public Mono<PageResponse<Inventory>> findPage(String cursor, int limit) {
+        return page(cursor, limit, afterId -> inventoryRepository.findPage(afterId, limit + 1));
+    }
+
+    public Mono<PageResponse<Inventory>> findActivePage(String cursor, int limit) {
+        return page(cursor, limit, afterId -> inventoryRepository.findPageByStatus("A", afterId, limit + 1));
+    }
+
+    public Mono<PageResponse<Inventory>> findInactivePage(String cursor, int limit) {
+        return page(cursor, limit, afterId -> inventoryRepository.findPageByStatus("I", afterId, limit + 1));
+    }
+
+    private Mono<PageResponse<Inventory>> page(String cursor, int limit, IntFunction<Flux<Inventory>> query) {
+        return Mono.defer(() -> {
+            PageResponse.checkLimit(limit);
+            PageCursor after = PageCursor.decode(cursor);
+            return query.apply(after == null ? 0 : after.getId())
+                    .collectList()
+                    .map(rows -> PageResponse.of(rows, limit, i -> PageCursor.encode(null, i.getIdInventory())));
+        });
+    }
 }
@@ -0,0 +1,129 @@
+package pe.edu.vallegrande.vg_ms_casas.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.vg_ms_casas.dto.StockAtTime;
+import pe.edu.vallegrande.vg_ms_casas.dto.StockCheck;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventorySnapshotRepository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock histórico por inventario a partir de snapshots diarios (inventory_stock_snapshot).
+ * Cada inventory.snapshot.refresh-interval se agregan los días ya cerrados; el día en curso
+ * siempre se resuelve con los movimientos. Cada inventory.snapshot.repair-interval se recalculan
+ * los inventarios cuyos snapshots ya no cuadran con el historial.
+ */
+@Service
+public class InventorySnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventorySnapshotService.class);
+
+    @Autowired
+    private InventorySnapshotRepository inventorySnapshotRepository;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    @Value("${inventory.snapshot.refresh-interval:1h}")
+    private Duration refreshInterval;
+
+    @Value("${inventory.snapshot.repair-interval:24h}")
+    private Duration repairInterval;
+
+    private Disposable scheduledRefresh;
+
+    private Disposable scheduledRepair;
+
+    @PostConstruct
+    void scheduleRefresh() {
+        // Un fallo no corta la programación; el siguiente ciclo vuelve a intentarlo
+        scheduledRefresh = Flux.interval(refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh().onErrorResume(e -> Mono.empty()))
+                .subscribe();
+        scheduledRepair = Flux.interval(repairInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> repair().onErrorResume(e -> {
+                    log.warn("Stock snapshot repair failed", e);
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void cancelRefresh() {
+        scheduledRefresh.dispose();
+        scheduledRepair.dispose();
+    }
+
+    // Sin at devuelve el stock actual según los movimientos
+    public Mono<StockAtTime> stockAt(Integer inventoryId, LocalDateTime at) {
+        return inventorySnapshotRepository.stockAt(inventoryId, at == null ? LocalDateTime.now() : at);
+    }
+
+    // Agrega los días cerrados (hasta ayer) que aún no tienen snapshot
+    public Mono<Long> refresh() {
+        return Mono.defer(() -> inventorySnapshotRepository.refresh(LocalDate.now().minusDays(1)))
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Vuelve a calcular todos los snapshots desde transactions en una transacción y luego compara
+     * cada inventario con su current_stock.
+     */
+    public Mono<Map<String, Object>> rebuild() {
+        return Mono.defer(() -> inventorySnapshotRepository.clear()
+                        .then(inventorySnapshotRepository.refresh(LocalDate.now().minusDays(1))))
+                .as(transactionalOperator::transactional)
+                .flatMap(snapshots -> verify().collectList()
+                        .map(mismatches -> {
+                            Map<String, Object> result = new HashMap<>();
+                            result.put("snapshots", snapshots);
+                            result.put("mismatches", mismatches);
+                            return result;
+                        }));
+    }
+
+    public Flux<StockCheck> verify() {
+        return inventorySnapshotRepository.verify();
+    }
+
+    /**
+     * Recalcula desde cero los snapshots de los inventarios cuyo último snapshot más los movimientos
+     * posteriores no coincide con la suma de todo el historial, y devuelve sus id. Un current_stock que
+     * no cuadra con los movimientos no se toca: no hay forma de saber cuál de los dos es el correcto.
+     */
+    public Mono<List<Integer>> repair() {
+        return Mono.defer(() -> verify()
+                        .doOnNext(check -> {
+                            if (check.getCurrentStock() != check.getLedgerStock()) {
+                                log.warn("Inventory {} current_stock {} does not match its movements ({})",
+                                        check.getInventoryId(), check.getCurrentStock(), check.getLedgerStock());
+                            }
+                        })
+                        .filter(check -> check.getSnapshotStock() != check.getLedgerStock())
+                        .map(StockCheck::getInventoryId)
+                        .collectList()
+                        .flatMap(inventoryIds -> inventoryIds.isEmpty() ? Mono.just(inventoryIds)
+                                : inventorySnapshotRepository.clear(inventoryIds)
+                                        .then(inventorySnapshotRepository.refresh(LocalDate.now().minusDays(1)))
+                                        .doOnNext(snapshots -> log.warn("Rebuilt stock snapshots of inventories {}", inventoryIds))
+                                        .thenReturn(inventoryIds)))
+                .as(transactionalOperator::transactional);
+    }
+}
@@ -0,0 +1,84 @@
+package pe.edu.vallegrande.vg_ms_casas.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.vg_ms_casas.dto.TransactionEvent;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Difusión en el nodo de los cambios de transacciones que TransactionService ya confirmó.
+ *
+ * Un solo sink con los últimos replay-size eventos: cada suscriptor se engancha a él, lee del
+ * historial lo que perdió desde su Last-Event-ID y sigue con los nuevos sin huecos. Cada uno tiene
+ * su propio buffer acotado, así un cliente lento pierde eventos (los nuevos con "drop" o los más
+ * viejos con "latest") sin frenar a los demás. Los latidos salen de un único temporizador compartido.
+ */
+@Component
+public class TransactionEventStream {
+
+    private final Sinks.Many<TransactionEvent> sink;
+    private final Flux<Long> heartbeats;
+    private final int replaySize;
+    private final int bufferSize;
+    private final Object lock = new Object();
+    private long lastId;
+
+    public TransactionEventStream(@Value("${transactions.stream.replay-size:1000}") int replaySize,
+                                  @Value("${transactions.stream.buffer-size:256}") int bufferSize,
+                                  @Value("${transactions.stream.heartbeat-interval:15s}") Duration heartbeatInterval) {
+        this.sink = Sinks.many().replay().limit(replaySize);
+        this.heartbeats = Flux.interval(heartbeatInterval, heartbeatInterval).share();
+        this.replaySize = replaySize;
+        this.bufferSize = bufferSize;
+    }
+
+    // Llamar después del commit
+    public void publish(String type, Transaction transaction) {
+        synchronized (lock) {
+            // El sink no admite emisiones concurrentes y los id deben salir en orden
+            sink.tryEmitNext(new TransactionEvent(++lastId, type, copy(transaction)));
+        }
+    }
+
+    /**
+     * Eventos que cumplen el filtro, desde lastEventId (exclusivo) o desde ahora si es null.
+     * Si lastEventId ya salió del historial, o es mayor que el último emitido (p. ej. tras reiniciar el nodo,
+     * que vuelve a numerar desde 1), el flujo empieza con un evento RESET.
+     * Con latest se descartan los eventos más viejos del buffer al llenarse; si no, los nuevos.
+     */
+    public Flux<TransactionEvent> subscribe(Long lastEventId, Predicate<Transaction> filter, boolean latest) {
+        return Flux.defer(() -> {
+            long current;
+            synchronized (lock) {
+                current = lastId;
+            }
+            long from = lastEventId == null || lastEventId > current ? current : lastEventId;
+            Flux<TransactionEvent> events = sink.asFlux()
+                    .filter(event -> event.getId() > from && filter.test(event.getTransaction()));
+            if (from < current - replaySize || lastEventId != null && lastEventId > current) {
+                events = events.startWith(new TransactionEvent(from, TransactionEvent.RESET, null));
+            }
+            // Lo descartado no se reenvía a este suscriptor
+            return events.onBackpressureBuffer(bufferSize, dropped -> { },
+                    latest ? BufferOverflowStrategy.DROP_OLDEST : BufferOverflowStrategy.DROP_LATEST);
+        });
+    }
+
+    // Cada suscriptor descarta los latidos que no pidió: uno detenido no frena el temporizador compartido
+    public Flux<Long> heartbeats() {
+        return heartbeats.onBackpressureDrop();
+    }
+
+    private static Transaction copy(Transaction transaction) {
+        return new Transaction(transaction.getIdTransaction(), transaction.getInventoryId(), transaction.getProductId(),
+                transaction.getType(), transaction.getQuantity(), transaction.getPreviousStock(),
+                transaction.getNewStock(), transaction.getReason(), transaction.getDate(), transaction.getUserId(),
+                transaction.getStatus(), transaction.getConsumptionId(), transaction.getVersion());
+    }
+}
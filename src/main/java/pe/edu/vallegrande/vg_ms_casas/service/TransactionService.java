@@ -1,20 +1,64 @@
 package pe.edu.vallegrande.vg_ms_casas.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.vg_ms_casas.dto.BulkTransactionResult;
+import pe.edu.vallegrande.vg_ms_casas.dto.ChangeEvent;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageCursor;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageResponse;
+import pe.edu.vallegrande.vg_ms_casas.dto.TransactionEvent;
 import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import pe.edu.vallegrande.vg_ms_casas.repository.ChangeLogRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.TransactionBatchRepository;
 import pe.edu.vallegrande.vg_ms_casas.repository.TransactionRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiFunction;
 
 @Service
 public class TransactionService {
 
+    // Tope de filas por bloque: lo que cabría en un INSERT multi-fila de 11 columnas con el límite de 65535
+    // parámetros del protocolo. El INSERT va por unnest, pero el tope acota igual los bloqueos y los arreglos
+    private static final int MAX_BULK_BATCH_SIZE = 65535 / 11;
+
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private TransactionBatchRepository transactionBatchRepository;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    @Autowired
+    private InventoryCache inventoryCache;
+
+    @Autowired
+    private TransactionEventStream transactionEventStream;
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Value("${transactions.bulk.batch-size:500}")
+    private int bulkBatchSize;
+
     public Flux<Transaction> findAll() {
         return transactionRepository.findAllByOrderByDateDesc();
     }
@@ -43,82 +87,291 @@ public class TransactionService {
         return transactionRepository.findByConsumptionIdOrderByDateDesc(consumptionId);
     }
 
-    public Mono<Transaction> save(Transaction transaction) {
-        // Validaciones
-        if (transaction.getInventoryId() == null) {
-            return Mono.error(new IllegalArgumentException("Inventory ID is required"));
-        }
-        if (transaction.getProductId() == null) {
-            return Mono.error(new IllegalArgumentException("Product ID is required"));
-        }
-        if (transaction.getType() == null || transaction.getType().isEmpty()) {
-            return Mono.error(new IllegalArgumentException("Transaction type is required"));
-        }
-        if (transaction.getQuantity() == null || transaction.getQuantity() <= 0) {
-            return Mono.error(new IllegalArgumentException("Quantity must be greater than 0"));
-        }
-        if (transaction.getPreviousStock() == null || transaction.getPreviousStock() < 0) {
-            return Mono.error(new IllegalArgumentException("Previous stock must be non-negative"));
-        }
-        if (transaction.getNewStock() == null || transaction.getNewStock() < 0) {
-            return Mono.error(new IllegalArgumentException("New stock must be non-negative"));
-        }
+    public Mono<PageResponse<Transaction>> findPage(String cursor, int limit) {
+        return page(cursor, limit, (date, id) -> transactionRepository.findPage(date, id, limit + 1));
+    }
 
-        // Validar tipos de transacción permitidos
-        if (!isValidTransactionType(transaction.getType())) {
-            return Mono.error(new IllegalArgumentException("Invalid transaction type. Allowed: ENTRADA, SALIDA, AJUSTE, DAÑO"));
-        }
+    public Mono<PageResponse<Transaction>> findActivePage(String cursor, int limit) {
+        return page(cursor, limit, (date, id) -> transactionRepository.findPageByStatus("A", date, id, limit + 1));
+    }
 
-        // Establecer valores por defecto
-        transaction.setIdTransaction(null); // Auto-generated
-        if (transaction.getDate() == null) {
-            transaction.setDate(LocalDateTime.now());
-        }
-        if (transaction.getStatus() == null || transaction.getStatus().isEmpty()) {
-            transaction.setStatus("A");
+    public Mono<PageResponse<Transaction>> findPageByInventoryId(Integer inventoryId, String cursor, int limit) {
+        return page(cursor, limit, (date, id) -> transactionRepository.findPageByInventoryId(inventoryId, date, id, limit + 1));
+    }
+
+    public Mono<PageResponse<Transaction>> findPageByProductId(Integer productId, String cursor, int limit) {
+        return page(cursor, limit, (date, id) -> transactionRepository.findPageByProductId(productId, date, id, limit + 1));
+    }
+
+    public Mono<PageResponse<Transaction>> findPageByConsumptionId(Integer consumptionId, String cursor, int limit) {
+        return page(cursor, limit, (date, id) -> transactionRepository.findPageByConsumptionId(consumptionId, date, id, limit + 1));
+    }
+
+    public Mono<PageResponse<Transaction>> findPageByType(String type, String cursor, int limit) {
+        return page(cursor, limit, (date, id) -> transactionRepository.findPageByType(type, date, id, limit + 1));
+    }
+
+    private Mono<PageResponse<Transaction>> page(String cursor, int limit,
+                                                 BiFunction<LocalDateTime, Integer, Flux<Transaction>> query) {
+        return Mono.defer(() -> {
+            PageResponse.checkLimit(limit);
+            PageCursor after = PageCursor.decode(cursor);
+            return query.apply(after == null ? PageCursor.MAX_DATE_TIME : after.getDateTime(),
+                            after == null ? Integer.MAX_VALUE : after.getId())
+                    .collectList()
+                    .map(rows -> PageResponse.of(rows, limit, t -> PageCursor.encode(t.getDate(), t.getIdTransaction())));
+        });
+    }
+
+    public Mono<Transaction> save(Transaction transaction) {
+        String error = validate(transaction);
+        if (error != null) {
+            return Mono.error(new IllegalArgumentException(error));
         }
+        applyDefaults(transaction);
 
-        return transactionRepository.save(transaction)
+        // El stock anterior y el nuevo se calculan en la base de datos, nunca se confía en el cliente
+        return applyMovement(transaction)
+                .flatMap(transactionRepository::save)
+                .flatMap(saved -> logChange(saved, ChangeEvent.CREATED))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(saved -> {
+                    inventoryCache.evict(transaction.getInventoryId());
+                    transactionEventStream.publish(TransactionEvent.CREATED, saved);
+                })
                 .onErrorMap(throwable -> {
                     return new RuntimeException("Error saving transaction: " + throwable.getMessage(), throwable);
                 });
     }
 
-    public Mono<Transaction> update(Integer id, Transaction transaction) {
-        return transactionRepository.findById(id)
-                .flatMap(existingTransaction -> {
-                    // Solo permitir actualizar ciertos campos
-                    if (transaction.getReason() != null) {
-                        existingTransaction.setReason(transaction.getReason());
-                    }
-                    if (transaction.getStatus() != null && !transaction.getStatus().isEmpty()) {
-                        existingTransaction.setStatus(transaction.getStatus());
+    /**
+     * Registra un lote de movimientos. Cada elemento pasa por las mismas validaciones que save;
+     * los válidos se escriben por bloques (bloqueo de stocks, un UPDATE y un INSERT por bloque)
+     * y se devuelve un resultado por elemento, en el mismo orden de llegada.
+     */
+    public Flux<BulkTransactionResult> saveAll(Flux<Transaction> transactions) {
+        return transactions.index()
+                .buffer(Math.min(bulkBatchSize, MAX_BULK_BATCH_SIZE))
+                .concatMap(this::saveBatch);
+    }
+
+    // Si el bloque falla en la base (una FK, un CHECK), se reintenta elemento por elemento, cada uno en su
+    // transacción, para que solo el que falla quede rechazado y el resto se registre
+    private Flux<BulkTransactionResult> saveBatch(List<Tuple2<Long, Transaction>> batch) {
+        if (batch.size() == 1) {
+            return writeBatch(batch)
+                    .onErrorResume(DataIntegrityViolationException.class, e -> Flux.just(BulkTransactionResult.rejected(
+                            batch.get(0).getT1(), "Error saving transaction: " + e.getMostSpecificCause().getMessage())));
+        }
+        return writeBatch(batch)
+                .onErrorResume(throwable -> Flux.fromIterable(batch).concatMap(item -> saveBatch(List.of(item))));
+    }
+
+    private Flux<BulkTransactionResult> writeBatch(List<Tuple2<Long, Transaction>> batch) {
+        BulkTransactionResult[] results = new BulkTransactionResult[batch.size()];
+        List<Integer> pending = new ArrayList<>();
+        Set<Integer> inventoryIds = new TreeSet<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            Transaction transaction = batch.get(i).getT2();
+            String error = validate(transaction);
+            if (error != null) {
+                results[i] = BulkTransactionResult.rejected(batch.get(i).getT1(), error);
+            } else {
+                applyDefaults(transaction);
+                pending.add(i);
+                inventoryIds.add(transaction.getInventoryId());
+            }
+        }
+        if (pending.isEmpty()) {
+            return Flux.fromArray(results);
+        }
+
+        return transactionBatchRepository.lockStocks(inventoryIds)
+                .flatMap(stocks -> {
+                    List<Transaction> accepted = new ArrayList<>();
+                    List<Integer> acceptedPositions = new ArrayList<>();
+                    Map<Integer, Integer> initialStocks = new HashMap<>(stocks);
+
+                    // Se aplican en orden de llegada sobre los stocks bloqueados
+                    for (Integer position : pending) {
+                        Transaction transaction = batch.get(position).getT2();
+                        Integer previousStock = stocks.get(transaction.getInventoryId());
+                        if (previousStock == null) {
+                            results[position] = BulkTransactionResult.rejected(batch.get(position).getT1(),
+                                    "Inventory not found or inactive");
+                            continue;
+                        }
+                        int newStock = nextStock(transaction, previousStock);
+                        if (newStock < 0) {
+                            results[position] = BulkTransactionResult.rejected(batch.get(position).getT1(),
+                                    "Insufficient stock. Current stock: " + previousStock);
+                            continue;
+                        }
+                        withStock(transaction, previousStock, newStock);
+                        stocks.put(transaction.getInventoryId(), newStock);
+                        accepted.add(transaction);
+                        acceptedPositions.add(position);
                     }
-                    if (transaction.getUserId() != null) {
-                        existingTransaction.setUserId(transaction.getUserId());
+
+                    stocks.entrySet().removeIf(entry -> entry.getValue().equals(initialStocks.get(entry.getKey())));
+                    // Los snapshots afectados los borra el trigger de transactions (V9)
+                    return transactionBatchRepository.updateStocks(stocks)
+                            .then(transactionBatchRepository.insertAll(accepted))
+                            .doOnNext(ids -> {
+                                for (int i = 0; i < ids.size(); i++) {
+                                    Integer position = acceptedPositions.get(i);
+                                    Transaction transaction = batch.get(position).getT2();
+                                    transaction.setIdTransaction(ids.get(i));
+                                    transaction.setVersion(0L);
+                                    results[position] = BulkTransactionResult.created(batch.get(position).getT1(), transaction);
+                                }
+                            })
+                            .flatMap(ids -> changeLogRepository.appendAll(ChangeEvent.TRANSACTION, ids,
+                                    accepted.stream().map(t -> t.getInventoryId().longValue()).toList(), ChangeEvent.CREATED));
+                })
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(ignored -> {
+                    inventoryIds.forEach(inventoryCache::evict);
+                    for (BulkTransactionResult result : results) {
+                        if (result != null && result.getTransaction() != null) {
+                            transactionEventStream.publish(TransactionEvent.CREATED, result.getTransaction());
+                        }
                     }
-                    
-                    return transactionRepository.save(existingTransaction);
                 })
-                .onErrorMap(throwable -> {
+                .thenMany(Flux.defer(() -> Flux.fromArray(results)));
+    }
+
+    /**
+     * Solo se actualizan reason, status y userId, en un solo UPDATE. Si trae version y no coincide
+     * con la guardada, falla con VersionConflictException.
+     */
+    public Mono<Transaction> update(Integer id, Transaction transaction) {
+        String status = transaction.getStatus() != null && !transaction.getStatus().isEmpty()
+                ? transaction.getStatus() : null;
+
+        return transactionRepository.updatePartial(id, transaction.getReason(), status, transaction.getUserId(),
+                        transaction.getVersion())
+                .switchIfEmpty(Mono.defer(() -> versionConflict(id, transaction.getVersion())))
+                .flatMap(updated -> logChange(updated, ChangeEvent.UPDATED))
+                .as(transactionalOperator::transactional)
+                .doOnNext(updated -> transactionEventStream.publish(TransactionEvent.UPDATED, updated))
+                .onErrorMap(throwable -> !(throwable instanceof VersionConflictException), throwable -> {
                     return new RuntimeException("Error updating transaction: " + throwable.getMessage(), throwable);
                 });
     }
 
     public Mono<Void> delete(Integer id) {
-        return transactionRepository.findById(id)
-                .flatMap(existingTransaction -> {
-                    existingTransaction.setStatus("I");
-                    return transactionRepository.save(existingTransaction);
-                }).then();
+        return transactionRepository.updateStatus(id, "I")
+                .flatMap(deactivated -> logChange(deactivated, ChangeEvent.DEACTIVATED))
+                .as(transactionalOperator::transactional)
+                .doOnNext(deactivated -> transactionEventStream.publish(TransactionEvent.DEACTIVATED, deactivated))
+                .then();
     }
 
     public Mono<Transaction> restore(Integer id) {
+        return transactionRepository.updateStatus(id, "A")
+                .flatMap(restored -> logChange(restored, ChangeEvent.RESTORED))
+                .as(transactionalOperator::transactional)
+                .doOnNext(restored -> transactionEventStream.publish(TransactionEvent.RESTORED, restored));
+    }
+
+    /**
+     * Aplica el movimiento sobre inventory_consumption.current_stock con un UPDATE condicional
+     * y completa previousStock/newStock con el resultado.
+     * ENTRADA suma, SALIDA y DAÑO restan, AJUSTE fija el stock al valor de quantity.
+     */
+    private Mono<Transaction> applyMovement(Transaction transaction) {
+        Integer inventoryId = transaction.getInventoryId();
+        int quantity = transaction.getQuantity();
+
+        if ("AJUSTE".equals(transaction.getType())) {
+            return inventoryRepository.overwriteStock(inventoryId, quantity)
+                    .map(previousStock -> withStock(transaction, previousStock, quantity))
+                    .switchIfEmpty(Mono.defer(() -> rejectMovement(transaction)));
+        }
+
+        int delta = "ENTRADA".equals(transaction.getType()) ? quantity : -quantity;
+        return inventoryRepository.applyStockDelta(inventoryId, delta)
+                .map(newStock -> withStock(transaction, newStock - delta, newStock))
+                .switchIfEmpty(Mono.defer(() -> rejectMovement(transaction)));
+    }
+
+    // Sin filas actualizadas: si se pidió una versión y la transacción existe, es un conflicto
+    private Mono<Transaction> versionConflict(Integer id, Long version) {
+        if (version == null) {
+            return Mono.empty();
+        }
         return transactionRepository.findById(id)
-                .flatMap(existingTransaction -> {
-                    existingTransaction.setStatus("A");
-                    return transactionRepository.save(existingTransaction);
-                });
+                .flatMap(current -> Mono.error(new VersionConflictException(current, current.getVersion())));
+    }
+
+    // Aviso para las demás réplicas; va en la misma transacción que el cambio
+    private Mono<Transaction> logChange(Transaction transaction, String action) {
+        return changeLogRepository.append(ChangeEvent.TRANSACTION, transaction.getIdTransaction(),
+                transaction.getInventoryId(), action).thenReturn(transaction);
+    }
+
+    private int nextStock(Transaction transaction, int previousStock) {
+        switch (transaction.getType()) {
+            case "ENTRADA":
+                return previousStock + transaction.getQuantity();
+            case "AJUSTE":
+                return transaction.getQuantity();
+            default:
+                return previousStock - transaction.getQuantity();
+        }
+    }
+
+    private Transaction withStock(Transaction transaction, int previousStock, int newStock) {
+        transaction.setPreviousStock(previousStock);
+        transaction.setNewStock(newStock);
+        return transaction;
+    }
+
+    // Solo se consulta el inventario cuando el UPDATE no afectó filas, para explicar el rechazo
+    private Mono<Transaction> rejectMovement(Transaction transaction) {
+        return inventoryRepository.findById(transaction.getInventoryId())
+                .flatMap(inventory -> Mono.<Transaction>error(new IllegalArgumentException(
+                        "A".equals(inventory.getStatus())
+                                ? "Insufficient stock. Current stock: " + inventory.getCurrentStock()
+                                : "Inventory is inactive")))
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("Inventory not found")));
+    }
+
+    private String validate(Transaction transaction) {
+        if (transaction == null) {
+            return "Transaction is required";
+        }
+        if (transaction.getInventoryId() == null) {
+            return "Inventory ID is required";
+        }
+        if (transaction.getProductId() == null) {
+            return "Product ID is required";
+        }
+        if (transaction.getType() == null || transaction.getType().isEmpty()) {
+            return "Transaction type is required";
+        }
+        if (transaction.getQuantity() == null || transaction.getQuantity() <= 0) {
+            return "Quantity must be greater than 0";
+        }
+        // Validar tipos de transacción permitidos
+        if (!isValidTransactionType(transaction.getType())) {
+            return "Invalid transaction type. Allowed: ENTRADA, SALIDA, AJUSTE, DAÑO";
+        }
+        return null;
+    }
+
+    // Establecer valores por defecto
+    private void applyDefaults(Transaction transaction) {
+        transaction.setIdTransaction(null); // Auto-generated
+        transaction.setVersion(null);
+        if (transaction.getDate() == null) {
+            transaction.setDate(LocalDateTime.now());
+        }
+        if (transaction.getStatus() == null || transaction.getStatus().isEmpty()) {
+            transaction.setStatus("A");
+        }
     }
 
     private boolean isValidTransactionType(String type) {
@@ -0,0 +1,20 @@
+package pe.edu.vallegrande.vg_ms_casas.service;
+
+import lombok.Getter;
+
+/**
+ * La actualización traía una versión distinta a la guardada. current es el registro tal como
+ * está ahora (con su versión), para que el cliente lo devuelva en el 409 y pueda reintentar.
+ */
+@Getter
+public class VersionConflictException extends RuntimeException {
+
+    private final Object current;
+    private final Long currentVersion;
+
+    public VersionConflictException(Object current, Long currentVersion) {
+        super("Version conflict. Current version: " + currentVersion);
+        this.current = current;
+        this.currentVersion = currentVersion;
+    }
+}
@@ -0,0 +1,44 @@
+-- Esquema base del microservicio. Usa IF NOT EXISTS para poder aplicarse sobre la base ya existente;
+-- los triggers de stock (README) siguen administrándose en la base de datos.
+
+CREATE TABLE IF NOT EXISTS home (
+    id_home SERIAL PRIMARY KEY,
+    names VARCHAR(150),
+    address VARCHAR(255),
+    status CHAR(1) DEFAULT 'A'
+);
+
+CREATE TABLE IF NOT EXISTS inventory_consumption (
+    id_inventory SERIAL PRIMARY KEY,
+    product_id INTEGER NOT NULL,
+    initial_stock INTEGER NOT NULL,
+    current_stock INTEGER NOT NULL CHECK (current_stock >= 0),
+    status CHAR(1) DEFAULT 'A'
+);
+
+CREATE TABLE IF NOT EXISTS consumption (
+    id_consumption SERIAL PRIMARY KEY,
+    date DATE,
+    id_home INTEGER REFERENCES home (id_home),
+    product_id BIGINT,
+    quantity INTEGER,
+    weight DOUBLE PRECISION,
+    price INTEGER,
+    salevalue DOUBLE PRECISION,
+    status CHAR(1) DEFAULT 'A'
+);
+
+CREATE TABLE IF NOT EXISTS transactions (
+    id_transaction SERIAL PRIMARY KEY,
+    inventory_id INTEGER REFERENCES inventory_consumption (id_inventory),
+    product_id INTEGER,
+    type VARCHAR(20) CHECK (type IN ('ENTRADA', 'SALIDA', 'AJUSTE', 'DAÑO')),
+    quantity INTEGER CHECK (quantity > 0),
+    previous_stock INTEGER,
+    new_stock INTEGER,
+    reason TEXT,
+    date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    user_id INTEGER,
+    status CHAR(1) DEFAULT 'A',
+    consumption_id INTEGER REFERENCES consumption (id_consumption)
+);
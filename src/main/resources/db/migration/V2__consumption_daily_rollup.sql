@@ -0,0 +1,14 @@
+-- Totales diarios de consumo por casa, producto y estado.
+-- Lo mantiene ConsumptionService en la misma transacción de cada cambio;
+-- POST /consumption/report/rollup/rebuild lo recalcula por bloques desde consumption.
+CREATE TABLE IF NOT EXISTS consumption_daily_rollup (
+    day DATE NOT NULL,
+    id_home INTEGER NOT NULL,
+    product_id BIGINT NOT NULL,
+    status CHAR(1) NOT NULL,
+    row_count BIGINT NOT NULL DEFAULT 0,
+    total_quantity BIGINT NOT NULL DEFAULT 0,
+    total_weight DOUBLE PRECISION NOT NULL DEFAULT 0,
+    total_salevalue DOUBLE PRECISION NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, id_home, product_id, status)
+);
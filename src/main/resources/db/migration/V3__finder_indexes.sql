@@ -0,0 +1,41 @@
+-- Índices compuestos alineados con los finders de los repositorios.
+-- Las columnas siguen el orden de filtro por igualdad y luego el ORDER BY / cursor keyset.
+--
+-- Se crean con CONCURRENTLY para no bloquear las escrituras en tablas ya pobladas, por eso la migración
+-- corre fuera de transacción (V3__finder_indexes.sql.conf). Si un índice queda INVALID por una falla a
+-- mitad de camino, hay que borrarlo con DROP INDEX CONCURRENTLY antes de reintentar: IF NOT EXISTS lo saltaría.
+
+-- transactions: ...OrderByDateDesc y paginación keyset (date, id_transaction) DESC
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_date
+    ON transactions (date DESC, id_transaction DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_inventory_date
+    ON transactions (inventory_id, date DESC, id_transaction DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_product_date
+    ON transactions (product_id, date DESC, id_transaction DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_type_date
+    ON transactions (type, date DESC, id_transaction DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_status_date
+    ON transactions (status, date DESC, id_transaction DESC);
+-- También lo usa el trigger devolver_stock() al anular el consumo
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_consumption_date
+    ON transactions (consumption_id, date DESC, id_transaction DESC);
+
+-- inventory_consumption: búsquedas por producto (triggers de consumo) y listados por estado
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_inventory_product
+    ON inventory_consumption (product_id, id_inventory);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_inventory_status
+    ON inventory_consumption (status, id_inventory);
+
+-- consumption: rangos de fechas, listados por estado y JOIN con home
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_consumption_date_status
+    ON consumption (date, status);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_consumption_status_date
+    ON consumption (status, date DESC, id_consumption DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_consumption_date_id
+    ON consumption (date DESC, id_consumption DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_consumption_home
+    ON consumption (id_home);
+
+-- home: listados por estado
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_home_status
+    ON home (status, id_home);
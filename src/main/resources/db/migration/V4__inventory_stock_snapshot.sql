@@ -0,0 +1,11 @@
+-- Stock de cada inventario al cierre de cada día con movimientos.
+-- La fila (inventory_id, day) acumula los movimientos de transactions con date < day + 1;
+-- el stock en un instante es el snapshot anterior más la diferencia new_stock - previous_stock
+-- de los movimientos posteriores. InventorySnapshotService agrega los días cerrados y
+-- el trigger de V9 borra los snapshots afectados cuando cambia un movimiento con fecha pasada.
+CREATE TABLE IF NOT EXISTS inventory_stock_snapshot (
+    inventory_id INTEGER NOT NULL,
+    day DATE NOT NULL,
+    stock INTEGER NOT NULL,
+    PRIMARY KEY (inventory_id, day)
+);
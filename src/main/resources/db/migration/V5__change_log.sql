@@ -0,0 +1,32 @@
+-- Registro de cambios para difundir escrituras entre réplicas.
+-- Cada servicio inserta la fila en la misma transacción que el cambio; el trigger la publica con
+-- pg_notify, que Postgres entrega solo al confirmar. Los nodos escuchan el canal change_log y,
+-- tras reconectar o al ver un hueco en los id, leen las filas que se perdieron.
+-- ref_id: inventario de una transacción o producto de un consumo, para invalidar cachés sin consultar.
+CREATE TABLE IF NOT EXISTS change_log (
+    id BIGSERIAL PRIMARY KEY,
+    entity VARCHAR(20) NOT NULL,
+    entity_id INTEGER NOT NULL,
+    ref_id BIGINT,
+    action VARCHAR(20) NOT NULL,
+    origin VARCHAR(36) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_change_log_created_at
+    ON change_log (created_at);
+
+-- Carga: id,entity,entity_id,ref_id,action,origin
+CREATE OR REPLACE FUNCTION notify_change_log()
+RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('change_log', NEW.id || ',' || NEW.entity || ',' || NEW.entity_id || ','
+        || COALESCE(NEW.ref_id::TEXT, '') || ',' || NEW.action || ',' || NEW.origin);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS change_log_notify ON change_log;
+CREATE TRIGGER change_log_notify
+    AFTER INSERT ON change_log
+    FOR EACH ROW EXECUTE FUNCTION notify_change_log();
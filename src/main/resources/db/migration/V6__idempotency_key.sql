@@ -0,0 +1,20 @@
+-- Respuestas guardadas por Idempotency-Key (POST/PUT de escritura).
+-- key: usuario + ':' + valor del header. fingerprint: SHA-256 de método, ruta y cuerpo, para
+-- rechazar la misma llave con otra petición.
+-- Mientras la petición se ejecuta la fila queda IN_PROGRESS con un vencimiento corto; si el nodo
+-- se cae, otra petición con la misma llave la puede tomar al vencer. Al terminar pasa a COMPLETED
+-- con la respuesta y vence según el TTL configurado.
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    key VARCHAR(400) PRIMARY KEY,
+    fingerprint VARCHAR(64) NOT NULL,
+    state VARCHAR(12) NOT NULL,
+    response_status INTEGER,
+    content_type VARCHAR(200),
+    location VARCHAR(500),
+    body BYTEA,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_key_expires_at
+    ON idempotency_key (expires_at);
@@ -0,0 +1,6 @@
+-- Versión para control de concurrencia optimista (@Version en Inventory, Transaction y Home).
+-- Cada UPDATE de la aplicación suma 1; una actualización que trae una versión distinta a la
+-- guardada no modifica nada y se responde con 409.
+ALTER TABLE inventory_consumption ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE home ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,23 @@
+-- Importaciones CSV de consumo e inventario (POST /consumption/import, POST /inventories/import).
+-- Cada bloque de filas se carga con COPY y avanza last_row en la misma transacción, así al
+-- reanudar un job con el mismo archivo se saltan exactamente las filas ya confirmadas.
+-- Las filas rechazadas quedan en import_reject con su número de fila (desde 1, sin la cabecera).
+CREATE TABLE IF NOT EXISTS import_job (
+    id SERIAL PRIMARY KEY,
+    kind VARCHAR(20) NOT NULL,
+    status VARCHAR(12) NOT NULL,
+    last_row BIGINT NOT NULL DEFAULT 0,
+    loaded BIGINT NOT NULL DEFAULT 0,
+    rejected BIGINT NOT NULL DEFAULT 0,
+    error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS import_reject (
+    job_id INTEGER NOT NULL REFERENCES import_job (id) ON DELETE CASCADE,
+    row_number BIGINT NOT NULL,
+    reason VARCHAR(500) NOT NULL,
+    raw TEXT,
+    PRIMARY KEY (job_id, row_number)
+);
@@ -0,0 +1,53 @@
+-- Invalidación de inventory_stock_snapshot desde la base. Cualquier escritura en transactions (el servicio,
+-- los triggers de consumo, una importación o SQL directo) borra los snapshots de los inventarios afectados
+-- desde el día más antiguo que tocó; la siguiente pasada de refresh los vuelve a calcular desde ahí.
+-- El DELETE toma ROW EXCLUSIVE sobre la tabla aunque no borre filas, por eso refresh (SHARE ROW EXCLUSIVE)
+-- espera a que el movimiento confirme y lo incluye: un movimiento de ayer que confirma después de la pasada
+-- de medianoche no queda fuera del snapshot.
+CREATE OR REPLACE FUNCTION invalidate_stock_snapshots()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        DELETE FROM inventory_stock_snapshot s
+        USING (SELECT inventory_id, MIN(date) AS first_date FROM new_rows GROUP BY inventory_id) a
+        WHERE s.inventory_id = a.inventory_id AND s.day >= CAST(a.first_date AS DATE);
+    ELSIF TG_OP = 'DELETE' THEN
+        DELETE FROM inventory_stock_snapshot s
+        USING (SELECT inventory_id, MIN(date) AS first_date FROM old_rows GROUP BY inventory_id) a
+        WHERE s.inventory_id = a.inventory_id AND s.day >= CAST(a.first_date AS DATE);
+    ELSE
+        -- Solo cuentan los cambios de inventario, fecha o stock: los de estado o motivo no mueven el stock
+        DELETE FROM inventory_stock_snapshot s
+        USING (
+            SELECT c.inventory_id, MIN(c.date) AS first_date
+            FROM old_rows o
+            JOIN new_rows n ON n.id_transaction = o.id_transaction
+            CROSS JOIN LATERAL (VALUES (o.inventory_id, o.date), (n.inventory_id, n.date)) AS c(inventory_id, date)
+            WHERE (o.inventory_id, o.date, o.previous_stock, o.new_stock)
+                  IS DISTINCT FROM (n.inventory_id, n.date, n.previous_stock, n.new_stock)
+            GROUP BY c.inventory_id
+        ) a
+        WHERE s.inventory_id = a.inventory_id AND s.day >= CAST(a.first_date AS DATE);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Una tabla de transición solo se admite en triggers de un único evento
+DROP TRIGGER IF EXISTS transactions_snapshot_insert ON transactions;
+CREATE TRIGGER transactions_snapshot_insert
+    AFTER INSERT ON transactions
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION invalidate_stock_snapshots();
+
+DROP TRIGGER IF EXISTS transactions_snapshot_update ON transactions;
+CREATE TRIGGER transactions_snapshot_update
+    AFTER UPDATE ON transactions
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION invalidate_stock_snapshots();
+
+DROP TRIGGER IF EXISTS transactions_snapshot_delete ON transactions;
+CREATE TRIGGER transactions_snapshot_delete
+    AFTER DELETE ON transactions
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION invalidate_stock_snapshots();
@@ -0,0 +1,217 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.dto.ChangeEvent;
+import pe.edu.vallegrande.vg_ms_casas.dto.TransactionEvent;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import pe.edu.vallegrande.vg_ms_casas.repository.ChangeLogRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+import pe.edu.vallegrande.vg_ms_casas.service.ChangeEventBus;
+import pe.edu.vallegrande.vg_ms_casas.service.InventoryCache;
+import pe.edu.vallegrande.vg_ms_casas.service.InventoryService;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionEventStream;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "change-events.gap-grace=200ms",
+        "change-events.reconnect-min-backoff=100ms",
+        "change-events.reconnect-max-backoff=500ms"})
+class ChangeEventBusTest {
+
+    private static final String OTHER_NODE = "other-node";
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private ChangeEventBus changeEventBus;
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryCache inventoryCache;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionEventStream transactionEventStream;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private Integer inventoryId;
+
+    @BeforeEach
+    void cleanTables() {
+        databaseClient.sql("TRUNCATE transactions, inventory_consumption RESTART IDENTITY CASCADE")
+                .then()
+                .block();
+        inventoryId = inventoryRepository.save(new Inventory(null, 100, 10, 10, "A", null)).block().getIdInventory();
+    }
+
+    /**
+     * Verifica que un cambio de otra réplica invalide la caché local de inventario y llegue por remoteEvents.
+     */
+    @Test
+    void remoteInventoryChangeEvictsCache() {
+        List<ChangeEvent> received = new java.util.concurrent.CopyOnWriteArrayList<>();
+        changeEventBus.remoteEvents().subscribe(received::add);
+        cacheInventory();
+
+        insertRemote(ChangeEvent.INVENTORY, inventoryId, null, ChangeEvent.UPDATED);
+
+        await(() -> inventoryCache.get(inventoryId) == null);
+        await(() -> received.stream().anyMatch(event -> inventoryId.equals(event.getEntityId())
+                && OTHER_NODE.equals(event.getOrigin())));
+    }
+
+    /**
+     * Verifica que las transacciones de otra réplica se publiquen en el stream local y que las propias,
+     * aunque también vuelvan por el canal, se publiquen una sola vez.
+     */
+    @Test
+    void remoteTransactionsFeedLocalStreamOnce() {
+        List<TransactionEvent> events = new java.util.concurrent.CopyOnWriteArrayList<>();
+        transactionEventStream.subscribe(null, t -> inventoryId.equals(t.getInventoryId()), true).subscribe(events::add);
+
+        Integer remoteId = databaseClient.sql("""
+                        INSERT INTO transactions (inventory_id, product_id, type, quantity, previous_stock, new_stock, status)
+                        VALUES (:inventoryId, 100, 'ENTRADA', 5, 10, 15, 'A')
+                        RETURNING id_transaction
+                        """)
+                .bind("inventoryId", inventoryId)
+                .map((row, metadata) -> row.get("id_transaction", Integer.class))
+                .one()
+                .block();
+        insertRemote(ChangeEvent.TRANSACTION, remoteId, inventoryId.longValue(), ChangeEvent.CREATED);
+        await(() -> events.stream().anyMatch(event -> remoteId.equals(event.getTransaction().getIdTransaction())));
+
+        Transaction local = transactionService.save(new Transaction(null, inventoryId, 100, "SALIDA", 2,
+                null, null, null, null, null, null, null, null)).block();
+        Long logged = databaseClient.sql("SELECT COUNT(*) AS total FROM change_log WHERE entity = 'TRANSACTION' AND entity_id = :id AND origin = :origin")
+                .bind("id", local.getIdTransaction())
+                .bind("origin", changeLogRepository.nodeId())
+                .map((row, metadata) -> row.get("total", Long.class))
+                .one()
+                .block();
+        assertEquals(1L, logged);
+
+        sleep(Duration.ofMillis(500));
+        assertEquals(1, events.stream()
+                .filter(event -> local.getIdTransaction().equals(event.getTransaction().getIdTransaction()))
+                .count());
+    }
+
+    /**
+     * Verifica que una notificación perdida se recupere al ver el hueco en los id y que lo escrito
+     * mientras la conexión de escucha estaba caída se lea al reconectar.
+     */
+    @Test
+    void missedNotificationsAreRecovered() {
+        // Hueco: la primera fila no notifica, la segunda sí
+        cacheInventory();
+        insertSilently(ChangeEvent.INVENTORY, inventoryId, ChangeEvent.UPDATED);
+        insertRemote(ChangeEvent.HOME, 1, null, ChangeEvent.UPDATED);
+        await(() -> inventoryCache.get(inventoryId) == null);
+
+        // Reconexión: se corta la conexión de escucha y se escribe sin notificar
+        cacheInventory();
+        databaseClient.sql("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE query = 'LISTEN change_log'")
+                .then()
+                .block();
+        insertSilently(ChangeEvent.INVENTORY, inventoryId, ChangeEvent.UPDATED);
+        await(() -> inventoryCache.get(inventoryId) == null);
+    }
+
+    /**
+     * Verifica que los id que nunca confirman (una transacción revertida) se cuenten como descartados
+     * después de gap-grace y que no impidan recibir los cambios siguientes.
+     */
+    @Test
+    void abandonedIdsAreCounted() {
+        cacheInventory();
+        insertRemote(ChangeEvent.HOME, 1, null, ChangeEvent.UPDATED);
+        sleep(Duration.ofMillis(500));
+        double before = meterRegistry.counter("change.events.skipped").count();
+
+        databaseClient.sql("SELECT nextval(pg_get_serial_sequence('change_log', 'id')) FROM generate_series(1, 2)")
+                .then()
+                .block();
+        insertRemote(ChangeEvent.HOME, 1, null, ChangeEvent.UPDATED);
+        await(() -> meterRegistry.counter("change.events.skipped").count() == before + 2);
+
+        insertRemote(ChangeEvent.INVENTORY, inventoryId, null, ChangeEvent.UPDATED);
+        await(() -> inventoryCache.get(inventoryId) == null);
+    }
+
+    private void cacheInventory() {
+        inventoryService.findById(inventoryId).block();
+        assertNotNull(inventoryCache.get(inventoryId));
+    }
+
+    private void insertRemote(String entity, Integer entityId, Long refId, String action) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("""
+                        INSERT INTO change_log (entity, entity_id, ref_id, action, origin)
+                        VALUES (:entity, :entityId, :refId, :action, :origin)
+                        """)
+                .bind("entity", entity)
+                .bind("entityId", entityId)
+                .bind("action", action)
+                .bind("origin", OTHER_NODE);
+        spec = refId == null ? spec.bindNull("refId", Long.class) : spec.bind("refId", refId);
+        spec.then().block();
+    }
+
+    private void insertSilently(String entity, Integer entityId, String action) {
+        databaseClient.sql("ALTER TABLE change_log DISABLE TRIGGER change_log_notify").then().block();
+        try {
+            insertRemote(entity, entityId, null, action);
+        } finally {
+            databaseClient.sql("ALTER TABLE change_log ENABLE TRIGGER change_log_notify").then().block();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 10s");
+            sleep(Duration.ofMillis(50));
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import pe.edu.vallegrande.vg_ms_casas.service.ConsumptionService;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ConsumptionProductEnrichmentTest {
+
+    private static final AtomicInteger calls = new AtomicInteger();
+
+    private static final DisposableServer productService = HttpServer.create()
+            .port(0)
+            .route(routes -> routes.get("/products/{id}", (request, response) -> {
+                calls.incrementAndGet();
+                return Mono.delay(Duration.ofMillis(20))
+                        .then(response.header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"productId\":" + request.param("id") + "}"))
+                                .then());
+            }))
+            .bindNow();
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+        registry.add("product.client.base-url", () -> "http://localhost:" + productService.port() + "/products");
+    }
+
+    @AfterAll
+    static void stopProductService() {
+        productService.disposeNow();
+    }
+
+    @Autowired
+    private ConsumptionService consumptionService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void seed() {
+        databaseClient.sql("TRUNCATE transactions, consumption, home RESTART IDENTITY CASCADE").then().block();
+        databaseClient.sql("INSERT INTO home (names, address) VALUES ('Casa Norte', 'Av. 1')").then().block();
+        databaseClient.sql("""
+                        INSERT INTO consumption (date, id_home, product_id, quantity, weight, price, salevalue, status)
+                        SELECT DATE '2024-01-01' + (i % 365), 1, (i % 25) + 1, 1, 1.0, 10, 10.0, 'A'
+                        FROM generate_series(1, 5000) AS i
+                        """)
+                .then()
+                .block();
+        calls.set(0);
+    }
+
+    /**
+     * Verifica que un rango de 5000 filas consulte cada producto distinto una sola vez
+     * y que todas las filas salgan con su producto.
+     */
+    @Test
+    void dateRangeLooksUpEachDistinctProductOnce() {
+        List<Consumption> rows = consumptionService
+                .findByDateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31), true, true)
+                .collectList()
+                .block();
+
+        assertEquals(5000, rows.size());
+        assertTrue(rows.stream().allMatch(c -> c.getProduct() != null
+                && c.getProduct().getProductId().equals(c.getProductId())));
+        assertTrue(calls.get() <= 25, "llamadas al servicio de productos: " + calls.get());
+
+        assertNull(consumptionService.findActive(false).blockFirst().getProduct());
+    }
+}
@@ -0,0 +1,97 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.dto.ConsumptionReportRow;
+import pe.edu.vallegrande.vg_ms_casas.service.ConsumptionService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ConsumptionReportTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 12, 31);
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private ConsumptionService consumptionService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void seed() {
+        databaseClient.sql("TRUNCATE transactions, consumption, consumption_daily_rollup, home RESTART IDENTITY CASCADE").then().block();
+        databaseClient.sql("INSERT INTO home (names, address) VALUES ('Casa Norte', 'Av. 1'), ('Casa Sur', 'Av. 2')")
+                .then()
+                .block();
+        databaseClient.sql("""
+                        INSERT INTO consumption (date, id_home, product_id, quantity, weight, price, salevalue, status) VALUES
+                        ('2024-01-05', 1, 10, 2, 1.5, 5, 10.0, 'A'),
+                        ('2024-01-20', 1, 11, 4, 2.5, 5, 20.0, 'A'),
+                        ('2024-01-21', 2, 10, 6, 3.0, 5, 30.0, 'A'),
+                        ('2024-02-02', 1, 10, 8, 4.0, 5, 40.0, 'A'),
+                        ('2024-02-03', 1, 10, 100, 50.0, 5, 500.0, 'I')
+                        """)
+                .then()
+                .block();
+        // Filas insertadas por fuera del servicio: el rollup se llena con el backfill
+        consumptionService.rebuildRollup(null, null).block();
+    }
+
+    /**
+     * Verifica los totales, promedios y conteos por mes y casa, ignorando los registros inactivos.
+     */
+    @Test
+    void monthlyReportByHome() {
+        List<ConsumptionReportRow> rows = consumptionService
+                .report(START, END, "month", List.of("home"), true)
+                .collectList()
+                .block();
+
+        assertEquals(3, rows.size());
+        ConsumptionReportRow january = rows.get(0);
+        assertEquals(LocalDate.of(2024, 1, 1), january.getPeriod());
+        assertEquals(1, january.getIdHome());
+        assertNull(january.getProductId());
+        assertEquals(2, january.getCount());
+        assertEquals(6, january.getTotalQuantity());
+        assertEquals(4.0, january.getTotalWeight(), 1e-9);
+        assertEquals(30.0, january.getTotalSaleValue(), 1e-9);
+        assertEquals(3.0, january.getAverageQuantity(), 1e-9);
+
+        assertEquals(2, rows.get(1).getIdHome());
+        assertEquals(LocalDate.of(2024, 2, 1), rows.get(2).getPeriod());
+        assertEquals(8, rows.get(2).getTotalQuantity());
+    }
+
+    /**
+     * Verifica el total general sin agrupación y el rechazo de parámetros inválidos.
+     */
+    @Test
+    void grandTotalAndInvalidInput() {
+        ConsumptionReportRow total = consumptionService.report(START, END, null, null, false).blockFirst();
+        assertEquals(5, total.getCount());
+        assertEquals(120, total.getTotalQuantity());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> consumptionService.report(START, END, "year", null, true).blockFirst());
+        assertThrows(IllegalArgumentException.class,
+                () -> consumptionService.report(START, END, null, List.of("status"), true).blockFirst());
+        assertThrows(IllegalArgumentException.class,
+                () -> consumptionService.report(END, START, null, null, true).blockFirst());
+    }
+}
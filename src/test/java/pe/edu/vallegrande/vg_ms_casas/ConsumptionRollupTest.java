@@ -0,0 +1,183 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.service.InventoryCache;
+import pe.edu.vallegrande.vg_ms_casas.service.ConsumptionService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "consumption.rollup.chunk-days=7")
+class ConsumptionRollupTest {
+
+    private static final String ROLLUP = """
+            SELECT day, id_home, product_id, status, row_count, total_quantity, total_weight, total_salevalue
+            FROM consumption_daily_rollup
+            WHERE row_count <> 0
+            ORDER BY 1, 2, 3, 4
+            """;
+
+    private static final String FROM_BASE_ROWS = """
+            SELECT date AS day, id_home, product_id, status, COUNT(*) AS row_count,
+                   SUM(quantity) AS total_quantity, SUM(weight) AS total_weight, SUM(salevalue) AS total_salevalue
+            FROM consumption
+            GROUP BY 1, 2, 3, 4
+            ORDER BY 1, 2, 3, 4
+            """;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private ConsumptionService consumptionService;
+
+    @Autowired
+    private InventoryCache inventoryCache;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void cleanTables() {
+        databaseClient.sql("TRUNCATE transactions, consumption, consumption_daily_rollup, home RESTART IDENTITY CASCADE")
+                .then()
+                .block();
+        databaseClient.sql("INSERT INTO home (names, address) VALUES ('Casa Norte', 'Av. 1'), ('Casa Sur', 'Av. 2')")
+                .then()
+                .block();
+    }
+
+    /**
+     * Verifica que save, update, delete y restore mantengan el rollup igual a la agregación de las filas base,
+     * y que al cambiar el producto se invalide en caché el inventario del producto anterior y el del nuevo.
+     */
+    @Test
+    void writesKeepRollupInSync() {
+        Consumption first = consumptionService.save(consumption(LocalDate.of(2024, 3, 1), 1, 10L, 5)).block();
+        Consumption second = consumptionService.save(consumption(LocalDate.of(2024, 3, 1), 1, 10L, 3)).block();
+        consumptionService.save(consumption(LocalDate.of(2024, 3, 2), 2, 11L, 7)).block();
+        assertEquals(query(FROM_BASE_ROWS), query(ROLLUP));
+
+        // Cambia día, casa y producto: se resta de una clave y se suma en otra
+        inventoryCache.putIfFresh(new Inventory(901, 10, 50, 50, "A", null), inventoryCache.readStamp(901));
+        inventoryCache.putIfFresh(new Inventory(902, 12, 50, 50, "A", null), inventoryCache.readStamp(902));
+        consumptionService.update(second.getId_consumption(), consumption(LocalDate.of(2024, 3, 5), 2, 12L, 9)).block();
+        assertEquals(query(FROM_BASE_ROWS), query(ROLLUP));
+        assertNull(inventoryCache.getByProductId(10));
+        assertNull(inventoryCache.getByProductId(12));
+
+        consumptionService.delete(first.getId_consumption()).block();
+        assertEquals(query(FROM_BASE_ROWS), query(ROLLUP));
+
+        consumptionService.restore(first.getId_consumption()).block();
+        consumptionService.delete(first.getId_consumption()).block();
+        consumptionService.delete(first.getId_consumption()).block();
+        assertEquals(query(FROM_BASE_ROWS), query(ROLLUP));
+    }
+
+    /**
+     * Verifica que un alta con el id de una fila existente inserte una fila nueva en lugar de sobrescribirla,
+     * de modo que el rollup no cuente dos veces la cantidad.
+     */
+    @Test
+    void saveIgnoresClientSuppliedId() {
+        Consumption first = consumptionService.save(consumption(LocalDate.of(2024, 4, 1), 1, 10L, 5)).block();
+
+        Consumption reused = consumption(LocalDate.of(2024, 4, 1), 1, 10L, 3);
+        reused.setId_consumption(first.getId_consumption());
+        Consumption saved = consumptionService.save(reused).block();
+
+        assertNotEquals(first.getId_consumption(), saved.getId_consumption());
+        assertEquals(5, consumptionService.findById(first.getId_consumption()).block().getQuantity());
+        assertEquals(query(FROM_BASE_ROWS), query(ROLLUP));
+        assertEquals(8L, ((Number) query(ROLLUP).get(0).get("total_quantity")).longValue());
+    }
+
+    /**
+     * Verifica que el backfill por bloques reconstruya el rollup desde cero y que repetirlo no reescriba
+     * ninguna clave que ya cuadra.
+     */
+    @Test
+    void rebuildBackfillsInChunks() {
+        databaseClient.sql("""
+                        INSERT INTO consumption (date, id_home, product_id, quantity, weight, price, salevalue, status)
+                        SELECT DATE '2024-01-01' + (i % 60), 1 + i % 2, (i % 5) + 1, i % 7, 0.5, 10, 2.5,
+                               CASE WHEN i % 10 = 0 THEN 'I' ELSE 'A' END
+                        FROM generate_series(1, 2000) AS i
+                        """)
+                .then()
+                .block();
+
+        Map<String, Object> result = consumptionService.rebuildRollup(null, null).block();
+
+        assertEquals(9L, result.get("chunks"));
+        assertEquals(query(FROM_BASE_ROWS), query(ROLLUP));
+        assertEquals(0L, consumptionService.rebuildRollup(null, null).block().get("changedRows"));
+    }
+
+    /**
+     * Verifica que la conciliación corrija en los días recientes y en el rango recalculado antes las claves
+     * que no cuadran con consumption: filas escritas sin pasar por el servicio, totales alterados y claves sobrantes.
+     */
+    @Test
+    void reconcileRepairsDriftAgainstConsumption() {
+        LocalDate today = LocalDate.now();
+        consumptionService.save(consumption(today, 1, 10L, 5)).block();
+        consumptionService.save(consumption(LocalDate.of(2024, 5, 10), 1, 10L, 2)).block();
+        consumptionService.rebuildRollup(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31)).block();
+        consumptionService.reconcileRollup().block();
+
+        databaseClient.sql("""
+                        INSERT INTO consumption (date, id_home, product_id, quantity, weight, price, salevalue, status)
+                        VALUES (:day, 2, 11, 3, 1.5, 10, 30.0, 'A')
+                        """)
+                .bind("day", today.minusDays(1))
+                .then()
+                .block();
+        databaseClient.sql("UPDATE consumption_daily_rollup SET row_count = 9 WHERE day = :day")
+                .bind("day", today)
+                .then()
+                .block();
+        consumptionService.rebuildRollup(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31)).block();
+        databaseClient.sql("""
+                        INSERT INTO consumption_daily_rollup
+                            (day, id_home, product_id, status, row_count, total_quantity, total_weight, total_salevalue)
+                        VALUES (DATE '2024-05-11', 2, 12, 'A', 1, 1, 0, 0)
+                        """)
+                .then()
+                .block();
+
+        assertEquals(3L, consumptionService.reconcileRollup().block().get("changedRows"));
+        assertEquals(query(FROM_BASE_ROWS), query(ROLLUP));
+        assertEquals(0L, consumptionService.reconcileRollup().block().get("changedRows"));
+    }
+
+    private List<Map<String, Object>> query(String sql) {
+        return databaseClient.sql(sql).fetch().all().collectList().block();
+    }
+
+    private Consumption consumption(LocalDate date, int home, long product, int quantity) {
+        Consumption consumption = new Consumption();
+        consumption.setDate(date);
+        consumption.setId_home(home);
+        consumption.setProductId(product);
+        consumption.setQuantity(quantity);
+        consumption.setWeight(quantity * 0.5);
+        consumption.setPrice(10);
+        consumption.setSalevalue(quantity * 10.0);
+        return consumption;
+    }
+}
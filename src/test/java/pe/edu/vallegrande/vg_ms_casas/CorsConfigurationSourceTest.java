@@ -0,0 +1,101 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.cors.CorsConfiguration;
+import pe.edu.vallegrande.vg_ms_casas.config.CorsEndpoint;
+import pe.edu.vallegrande.vg_ms_casas.config.CorsProperties;
+import pe.edu.vallegrande.vg_ms_casas.config.DynamicCorsConfigurationSource;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorsConfigurationSourceTest {
+
+    private final CorsProperties properties = new CorsProperties();
+    private final DynamicCorsConfigurationSource source = new DynamicCorsConfigurationSource(properties);
+
+    /**
+     * Verifica que un origen permitido reciba siempre la misma configuración, con solo su origen,
+     * y que uno no permitido quede rechazado y también guardado.
+     */
+    @Test
+    void decisionsAreCachedPerOrigin() {
+        CorsConfiguration first = source.getCorsConfiguration(exchange("http://localhost:4200"));
+        CorsConfiguration second = source.getCorsConfiguration(exchange("http://localhost:4200"));
+
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(List.of("http://localhost:4200"), first.getAllowedOrigins());
+        assertEquals(3600L, first.getMaxAge());
+        assertTrue(first.getAllowCredentials());
+
+        assertNull(source.getCorsConfiguration(exchange("https://evil.example.com")));
+        assertNull(source.getCorsConfiguration(exchange("https://evil.example.com")));
+        assertNull(source.getCorsConfiguration(MockServerWebExchange.from(MockServerHttpRequest.get("/homes"))));
+        assertEquals(2L, source.describe().get("cachedDecisions"));
+    }
+
+    /**
+     * Verifica que los orígenes Gitpod se acepten por patrón y solo con el formato esperado.
+     */
+    @Test
+    void gitpodOriginsMatchPattern() {
+        CorsConfiguration config = source.getCorsConfiguration(exchange("https://4200-abc-123.ws-us01.gitpod.io"));
+
+        assertNotNull(config);
+        assertEquals(List.of("https://4200-abc-123.ws-us01.gitpod.io"), config.getAllowedOrigins());
+        assertNull(source.getCorsConfiguration(exchange("https://8080-abc-123.ws-us01.gitpod.io")));
+        assertNull(source.getCorsConfiguration(exchange("https://4200-abc.ws-us01.gitpod.io.evil.com")));
+    }
+
+    /**
+     * Verifica que la recarga por el endpoint cambie las decisiones ya guardadas sin reiniciar.
+     */
+    @Test
+    void reloadReplacesCachedDecisions() {
+        assertNotNull(source.getCorsConfiguration(exchange("http://localhost:4200")));
+        assertNull(source.getCorsConfiguration(exchange("https://app.vallegrande.edu.pe")));
+
+        new CorsEndpoint(properties, source).reload(List.of("https://app.vallegrande.edu.pe"), null);
+
+        assertNull(source.getCorsConfiguration(exchange("http://localhost:4200")));
+        assertNotNull(source.getCorsConfiguration(exchange("https://app.vallegrande.edu.pe")));
+        assertNotNull(source.getCorsConfiguration(exchange("https://4200-abc-123.ws-us01.gitpod.io")));
+    }
+
+    /**
+     * Verifica que un patrón inválido se rechace como petición inválida sin tocar la política vigente
+     * ni las propiedades compartidas, aunque en la misma llamada vengan orígenes válidos.
+     */
+    @Test
+    void invalidPatternKeepsCurrentPolicy() {
+        CorsEndpoint endpoint = new CorsEndpoint(properties, source);
+        List<String> patterns = List.copyOf(properties.getAllowedOriginPatterns());
+
+        assertThrows(InvalidEndpointRequestException.class,
+                () -> endpoint.reload(List.of("https://app.vallegrande.edu.pe"), List.of("^https://(unclosed$")));
+
+        assertEquals(List.of("http://localhost:4200"), properties.getAllowedOrigins());
+        assertEquals(patterns, properties.getAllowedOriginPatterns());
+        assertEquals(Set.of("http://localhost:4200"), source.describe().get("allowedOrigins"));
+        assertNotNull(source.getCorsConfiguration(exchange("http://localhost:4200")));
+        assertNull(source.getCorsConfiguration(exchange("https://app.vallegrande.edu.pe")));
+
+        // La siguiente recarga parcial parte de la configuración anterior, no de la rechazada
+        endpoint.reload(null, List.of("^https://[a-z]+\\.vallegrande\\.edu\\.pe$"));
+        assertNotNull(source.getCorsConfiguration(exchange("http://localhost:4200")));
+        assertNotNull(source.getCorsConfiguration(exchange("https://app.vallegrande.edu.pe")));
+        assertNull(source.getCorsConfiguration(exchange("https://4200-abc-123.ws-us01.gitpod.io")));
+    }
+
+    private static MockServerWebExchange exchange(String origin) {
+        return MockServerWebExchange.from(MockServerHttpRequest.options("/homes")
+                .header(HttpHeaders.ORIGIN, origin));
+    }
+}
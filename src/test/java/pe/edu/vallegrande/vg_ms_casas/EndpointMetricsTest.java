@@ -0,0 +1,151 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.server.reactive.observation.ServerRequestObservationContext;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import pe.edu.vallegrande.vg_ms_casas.config.RequestObservations;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.repository.ChangeLogRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@AutoConfigureObservability
+class EndpointMetricsTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveJwtDecoder jwtDecoder;
+
+    @BeforeEach
+    void cleanTables() {
+        databaseClient.sql("TRUNCATE transactions, inventory_consumption RESTART IDENTITY CASCADE")
+                .then()
+                .block();
+    }
+
+    /**
+     * Verifica que los repositorios de Spring Data y las clases @Repository registren la duración
+     * por método y outcome, y las filas emitidas por los métodos que devuelven Flux.
+     */
+    @Test
+    void repositoryMethodsAreTimed() {
+        inventoryRepository.save(new Inventory(null, 100, 10, 10, "A", null)).block();
+        inventoryRepository.save(new Inventory(null, 101, 10, 10, "A", null)).block();
+        long before = count("InventoryRepository", "findAll", "success");
+
+        List<Inventory> all = inventoryRepository.findAll().collectList().block();
+        assertEquals(2, all.size());
+        assertEquals(before + 1, count("InventoryRepository", "findAll", "success"));
+        DistributionSummary rows = meterRegistry.get("repository.rows")
+                .tags("repository", "InventoryRepository", "method", "findAll")
+                .summary();
+        assertEquals(2.0, rows.max());
+
+        assertThrows(RuntimeException.class,
+                () -> inventoryRepository.save(new Inventory(null, null, null, null, null, null)).block());
+        assertEquals(1, count("InventoryRepository", "save", "error"));
+
+        changeLogRepository.append("INVENTORY", all.get(0).getIdInventory(), null, "UPDATED").block();
+        assertTrue(count("ChangeLogRepository", "append", "success") >= 1);
+    }
+
+    /**
+     * Verifica que /actuator/prometheus pida un token con rol METRICS y exponga los histogramas de
+     * consultas y de rutas, y que sin token el health muestre solo el estado.
+     */
+    @Test
+    void prometheusScrapeExposesHistograms() {
+        when(jwtDecoder.decode("scraper")).thenReturn(Mono.just(Jwt.withTokenValue("scraper")
+                .header("alg", "RS256")
+                .subject("prometheus")
+                .claim("role", "METRICS")
+                .build()));
+        inventoryRepository.findAll().collectList().block();
+        webTestClient.get().uri("/actuator/health")
+                .exchange()
+                .expectBody()
+                .jsonPath("$.status").exists()
+                .jsonPath("$.components").doesNotExist();
+        webTestClient.get().uri("/actuator/health/r2dbcPool").exchange().expectStatus().isUnauthorized();
+        webTestClient.get().uri("/actuator/prometheus").exchange().expectStatus().isUnauthorized();
+
+        String scrape = webTestClient.get().uri("/actuator/prometheus")
+                .headers(headers -> headers.setBearerAuth("scraper"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        assertTrue(scrape.contains("repository_query_seconds_bucket{"));
+        assertTrue(scrape.contains("repository_rows_bucket{"));
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket{"));
+    }
+
+    /**
+     * Verifica que recordError deje la causa en la observación de la petición y propague el error.
+     */
+    @Test
+    void swallowedErrorsAreRecordedOnTheRequestObservation() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/inventory"));
+        ServerRequestObservationContext observation = new ServerRequestObservationContext(
+                exchange.getRequest(), exchange.getResponse(), exchange.getAttributes());
+        exchange.getAttributes().put(ServerRequestObservationContext.CURRENT_OBSERVATION_CONTEXT_ATTRIBUTE, observation);
+
+        IllegalArgumentException cause = new IllegalArgumentException("quantity must be positive");
+        Mono<Object> failed = Mono.error(new IllegalStateException("wrapped", cause))
+                .onErrorResume(RequestObservations::recordError)
+                .contextWrite(context -> context.put(ServerWebExchangeContextFilter.EXCHANGE_CONTEXT_ATTRIBUTE, exchange));
+        assertThrows(IllegalStateException.class, failed::block);
+        assertSame(cause, observation.getError());
+    }
+
+    private long count(String repository, String method, String outcome) {
+        Timer timer = meterRegistry.find("repository.query")
+                .tags("repository", repository, "method", method, "outcome", outcome)
+                .timer();
+        return timer != null ? timer.count() : 0;
+    }
+}
@@ -0,0 +1,151 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+import pe.edu.vallegrande.vg_ms_casas.controller.ConsumptionController;
+import pe.edu.vallegrande.vg_ms_casas.controller.TransactionController;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+import pe.edu.vallegrande.vg_ms_casas.service.HomeNameDictionary;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "export.chunk-rows=100")
+class ExportTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private TransactionController transactionController;
+
+    @Autowired
+    private ConsumptionController consumptionController;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private HomeNameDictionary homeNameDictionary;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private Integer inventoryId;
+
+    @BeforeEach
+    void seed() {
+        databaseClient.sql("TRUNCATE transactions, inventory_consumption, consumption, consumption_daily_rollup, home RESTART IDENTITY CASCADE")
+                .then()
+                .block();
+        inventoryId = inventoryRepository.save(new Inventory(null, 100, 10, 10, "A", null)).block().getIdInventory();
+        // 1000 días, alternando ENTRADA y SALIDA, con el mismo orden (fecha, id) que la exportación
+        databaseClient.sql("""
+                        INSERT INTO transactions (inventory_id, product_id, type, quantity, previous_stock, new_stock, reason, date, status)
+                        SELECT :inventoryId, 100, CASE WHEN i % 2 = 0 THEN 'ENTRADA' ELSE 'SALIDA' END, 1, 10, 11,
+                               'Lote ' || i, TIMESTAMP '2023-01-01 08:00:00' + i * INTERVAL '1 day', 'A'
+                        FROM generate_series(0, 999) AS i
+                        """)
+                .bind("inventoryId", inventoryId)
+                .then()
+                .block();
+    }
+
+    /**
+     * Verifica que la exportación de transacciones salga en bloques de export.chunk-rows filas,
+     * en orden de fecha, con los filtros aplicados y el texto escapado según RFC 4180.
+     */
+    @Test
+    void transactionsAreStreamedInChunks() {
+        databaseClient.sql("""
+                        INSERT INTO transactions (inventory_id, product_id, type, quantity, reason, date, status)
+                        VALUES (:inventoryId, 100, 'AJUSTE', 1, '=SUM(A1), "revisar"', TIMESTAMP '2023-06-15 23:59:00', 'I')
+                        """)
+                .bind("inventoryId", inventoryId)
+                .then()
+                .block();
+
+        List<DataBuffer> chunks = transactionController.export(null, null, null, null, null, null, new MockServerHttpResponse())
+                .getBody()
+                .collectList()
+                .block();
+        assertEquals(1 + 11, chunks.size(), "header + 1001 filas en bloques de 100");
+        List<String> lines = lines(Flux.fromIterable(chunks));
+        assertEquals("id_transaction,inventory_id,product_id,type,quantity,previous_stock,new_stock,reason,date,user_id,status,consumption_id",
+                lines.get(0));
+        assertEquals(1002, lines.size());
+        assertEquals("1," + inventoryId + ",100,ENTRADA,1,10,11,Lote 0,2023-01-01T08:00,,A,", lines.get(1));
+        assertTrue(lines.contains("1001," + inventoryId + ",100,AJUSTE,1,,,\"'=SUM(A1), \"\"revisar\"\"\",2023-06-15T23:59,,I,"));
+
+        List<String> filtered = lines(transactionController.export(LocalDate.of(2023, 6, 15), LocalDate.of(2023, 6, 30),
+                "A", inventoryId, 100, "SALIDA", new MockServerHttpResponse()).getBody());
+        assertEquals(1 + 8, filtered.size());
+        assertTrue(filtered.stream().skip(1).allMatch(line -> line.contains(",SALIDA,") && line.endsWith(",A,")));
+        assertTrue(filtered.get(1).contains("2023-06-15T08:00") && filtered.get(8).contains("2023-06-29T08:00"));
+    }
+
+    /**
+     * Verifica que la exportación de consumos traiga names y aplique los filtros, que un nombre que
+     * empieza con tabulador quede neutralizado como fórmula y que un rango de fechas invertido responda 400.
+     */
+    @Test
+    void consumptionsIncludeNamesAndFilters() {
+        databaseClient.sql("INSERT INTO home (names, address) VALUES ('Casa Norte', 'Av. 1'), ('Casa, Sur', 'Av. 2')").then().block();
+        homeNameDictionary.reload().block();
+        databaseClient.sql("""
+                        INSERT INTO consumption (date, id_home, product_id, quantity, weight, price, salevalue, status)
+                        VALUES (DATE '2024-01-05', 1, 7, 2, 1.5, 10, 20.0, 'A'),
+                               (DATE '2024-01-06', 2, 7, 1, 0.5, 10, 10.0, 'A'),
+                               (DATE '2024-02-01', 1, 8, 3, 2.0, 5, 15.0, 'I')
+                        """)
+                .then()
+                .block();
+
+        List<String> january = lines(consumptionController.export(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                "A", null, 7L, new MockServerHttpResponse()).getBody());
+        assertEquals(List.of("id_consumption,date,id_home,names,product_id,quantity,weight,price,salevalue,status",
+                "1,2024-01-05,1,Casa Norte,7,2,1.5,10,20.0,A",
+                "2,2024-01-06,2,\"Casa, Sur\",7,1,0.5,10,10.0,A"), january);
+        assertEquals(2, lines(consumptionController.export(null, null, null, 1, null, new MockServerHttpResponse()).getBody()).size() - 1);
+
+        databaseClient.sql("INSERT INTO home (names, address) VALUES (E'\\t=1+1', 'Av. 3')").then().block();
+        databaseClient.sql("INSERT INTO consumption (date, id_home, product_id, quantity, status) VALUES (DATE '2024-03-01', 3, 9, 1, 'A')")
+                .then()
+                .block();
+        homeNameDictionary.reload().block();
+        assertEquals("4,2024-03-01,3,\"'\t=1+1\",9,1,,,,A",
+                lines(consumptionController.export(null, null, null, 3, null, new MockServerHttpResponse()).getBody()).get(1));
+
+        ResponseEntity<Flux<DataBuffer>> inverted = consumptionController.export(LocalDate.of(2024, 2, 1),
+                LocalDate.of(2024, 1, 1), null, null, null, new MockServerHttpResponse());
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () -> inverted.getBody().blockLast());
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+    }
+
+    private static List<String> lines(Flux<DataBuffer> body) {
+        String csv = DataBufferUtils.join(body)
+                .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+                .block();
+        assertTrue(csv.endsWith("\r\n"));
+        return Arrays.asList(csv.split("\r\n"));
+    }
+}
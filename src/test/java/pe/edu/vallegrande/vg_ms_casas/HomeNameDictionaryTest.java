@@ -0,0 +1,186 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.config.QueryStats;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import pe.edu.vallegrande.vg_ms_casas.model.Home;
+import pe.edu.vallegrande.vg_ms_casas.service.ConsumptionService;
+import pe.edu.vallegrande.vg_ms_casas.service.HomeNameDictionary;
+import pe.edu.vallegrande.vg_ms_casas.service.HomeService;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class HomeNameDictionaryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private HomeNameDictionary homeNameDictionary;
+
+    @Autowired
+    private HomeService homeService;
+
+    @Autowired
+    private ConsumptionService consumptionService;
+
+    @Autowired
+    private QueryStats queryStats;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private Home north;
+
+    @BeforeEach
+    void seed() {
+        databaseClient.sql("TRUNCATE transactions, inventory_consumption, consumption, consumption_daily_rollup, home RESTART IDENTITY CASCADE")
+                .then()
+                .block();
+        homeNameDictionary.reload().block();
+        north = homeService.save(new Home(null, "Casa Norte", "Av. 1", "A", null)).block();
+        consumptionService.save(consumption(north.getId_home(), "A")).block();
+        consumptionService.save(consumption(north.getId_home(), "I")).block();
+    }
+
+    /**
+     * Verifica que todas las lecturas de consumo traigan names, incluidas las que antes no hacían JOIN,
+     * y que un cambio de nombre por HomeService se vea enseguida sin volver a la base.
+     */
+    @Test
+    void everyReadPathFillsNames() {
+        assertNames("Casa Norte");
+
+        homeService.update(north.getId_home(), new Home(null, "Casa Norte 2", "Av. 1", null, null)).block();
+        assertNames("Casa Norte 2");
+
+        // Una casa que no está en el diccionario se consulta una vez al leer
+        Integer direct = databaseClient.sql("INSERT INTO home (names, address) VALUES ('Casa Directa', 'Av. 9') RETURNING id_home")
+                .map((row, metadata) -> row.get("id_home", Integer.class))
+                .one()
+                .block();
+        assertNull(homeNameDictionary.get(direct));
+        Consumption saved = consumptionService.save(consumption(direct, "A")).block();
+        assertEquals("Casa Directa", consumptionService.findById(saved.getId_consumption()).block().getNames());
+        assertEquals("Casa Directa", homeNameDictionary.get(direct));
+    }
+
+    /**
+     * Verifica que una versión vieja no reemplace a una más nueva y que el cambio de otra réplica
+     * (fila de change_log con otro origin) actualice el diccionario.
+     */
+    @Test
+    void keepsNewestVersionAndFollowsRemoteChanges() {
+        homeNameDictionary.put(new Home(north.getId_home(), "Nueva", null, "A", 5L));
+        homeNameDictionary.put(new Home(north.getId_home(), "Vieja", null, "A", 4L));
+        assertEquals("Nueva", homeNameDictionary.get(north.getId_home()));
+
+        databaseClient.sql("UPDATE home SET names = 'Casa Remota', version = 6 WHERE id_home = :id")
+                .bind("id", north.getId_home())
+                .then()
+                .block();
+        databaseClient.sql("""
+                        INSERT INTO change_log (entity, entity_id, action, origin)
+                        VALUES ('HOME', :id, 'UPDATED', 'other-node')
+                        """)
+                .bind("id", north.getId_home())
+                .then()
+                .block();
+        await(() -> "Casa Remota".equals(homeNameDictionary.get(north.getId_home())));
+    }
+
+    /**
+     * Verifica que los id desconocidos de un bloque de filas se busquen en una sola consulta y que un id
+     * que no existe en home quede marcado, así la siguiente lectura no vuelve a la base.
+     */
+    @Test
+    void unknownIdsAreLookedUpTogetherAndMissesAreCached() {
+        Integer first = insertHome("Casa Uno");
+        Integer second = insertHome("Casa Dos");
+        List<Integer> ids = List.of(first, second, 9999);
+
+        queryStats.reset();
+        List<Consumption> filled = homeNameDictionary.withNames(Flux.range(0, 30)
+                        .map(i -> consumption(ids.get(i % 3), "A")))
+                .collectList()
+                .block();
+        assertEquals(30, filled.size());
+        assertEquals("Casa Uno", filled.get(0).getNames());
+        assertEquals("Casa Dos", filled.get(1).getNames());
+        assertNull(filled.get(2).getNames());
+        assertEquals(1, homeLookups());
+
+        homeNameDictionary.withNames(Flux.range(0, 30).map(i -> consumption(9999, "A"))).blockLast();
+        assertEquals(1, homeLookups());
+
+        // La recarga cambia el mapa de una vez: el nombre cambiado por fuera aparece sin perder los demás
+        databaseClient.sql("UPDATE home SET names = 'Casa Uno bis' WHERE id_home = :id").bind("id", first).then().block();
+        homeNameDictionary.reload().block();
+        assertEquals("Casa Uno bis", homeNameDictionary.get(first));
+        assertEquals("Casa Dos", homeNameDictionary.get(second));
+    }
+
+    private Integer insertHome(String names) {
+        return databaseClient.sql("INSERT INTO home (names, address) VALUES (:names, 'Av. 9') RETURNING id_home")
+                .bind("names", names)
+                .map((row, metadata) -> row.get("id_home", Integer.class))
+                .one()
+                .block();
+    }
+
+    private long homeLookups() {
+        return queryStats.top(100, "count").stream()
+                .filter(row -> ((String) row.get("fingerprint")).contains("FROM home"))
+                .mapToLong(row -> (Long) row.get("count"))
+                .sum();
+    }
+
+    private void assertNames(String expected) {
+        List<Consumption> reads = new ArrayList<>();
+        reads.addAll(consumptionService.findAll().collectList().block());
+        reads.addAll(consumptionService.findActive().collectList().block());
+        reads.addAll(consumptionService.findInactive().collectList().block());
+        reads.addAll(consumptionService.findByDateRange(DAY, DAY, false).collectList().block());
+        reads.addAll(consumptionService.findByDateRange(DAY, DAY, true).collectList().block());
+        reads.addAll(consumptionService.findPage(null, 10).block().getItems());
+        reads.addAll(consumptionService.findActivePage(null, 10).block().getItems());
+        reads.add(consumptionService.findById(reads.get(0).getId_consumption()).block());
+        assertEquals(11, reads.size());
+        reads.forEach(consumption -> assertEquals(expected, consumption.getNames()));
+    }
+
+    private static Consumption consumption(Integer idHome, String status) {
+        return new Consumption(null, DAY, idHome, 1L, null, 2, 1.5, 10, 20.0, status, null);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 10s");
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
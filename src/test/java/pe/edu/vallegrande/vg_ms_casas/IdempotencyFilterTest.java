@@ -0,0 +1,244 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import pe.edu.vallegrande.vg_ms_casas.config.IdempotencyFilter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"idempotency.poll-interval=20ms", "idempotency.max-body-size=1KB"})
+class IdempotencyFilterTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private IdempotencyFilter idempotencyFilter;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void cleanTables() {
+        databaseClient.sql("TRUNCATE idempotency_key").then().block();
+    }
+
+    /**
+     * Verifica que un reintento con la misma llave reciba la respuesta guardada sin ejecutar el
+     * controlador, que la misma llave con otro cuerpo se rechace y que sin llave no cambie nada.
+     */
+    @Test
+    void replaysStoredResponse() {
+        WebFilterChain chain = echo(HttpStatus.CREATED, Duration.ZERO);
+
+        MockServerWebExchange first = post("k-1", "{\"quantity\":5}");
+        idempotencyFilter.filter(first, chain).block();
+        assertEquals(HttpStatus.CREATED, first.getResponse().getStatusCode());
+        assertEquals("{\"created\":1,\"request\":{\"quantity\":5}}", first.getResponse().getBodyAsString().block());
+
+        MockServerWebExchange retry = post("k-1", "{\"quantity\":5}");
+        idempotencyFilter.filter(retry, chain).block();
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getResponse().getStatusCode());
+        assertEquals("true", retry.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals("/transactions/1", retry.getResponse().getHeaders().getFirst(HttpHeaders.LOCATION));
+        assertEquals(MediaType.APPLICATION_JSON, retry.getResponse().getHeaders().getContentType());
+        assertEquals(first.getResponse().getBodyAsString().block(), retry.getResponse().getBodyAsString().block());
+
+        ResponseStatusException reused = assertThrows(ResponseStatusException.class,
+                () -> idempotencyFilter.filter(post("k-1", "{\"quantity\":6}"), chain).block());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, reused.getStatusCode());
+
+        idempotencyFilter.filter(post(null, "{}"), chain).block();
+        idempotencyFilter.filter(post(null, "{}"), chain).block();
+        assertEquals(3, executions.get());
+    }
+
+    /**
+     * Verifica que los duplicados concurrentes esperen a la primera petición en vez de ejecutarse,
+     * y que una llave en curso o respondida en otra réplica (solo en la tabla) también se espere y se reproduzca.
+     */
+    @Test
+    void concurrentDuplicatesWaitForFirstResult() {
+        WebFilterChain slow = echo(HttpStatus.CREATED, Duration.ofMillis(300));
+        List<MockServerWebExchange> exchanges = List.of(post("k-2", "{}"), post("k-2", "{}"), post("k-2", "{}"),
+                post("k-2", "{}"), post("k-2", "{}"));
+        Flux.fromIterable(exchanges)
+                .flatMap(exchange -> idempotencyFilter.filter(exchange, slow).subscribeOn(Schedulers.parallel()))
+                .blockLast();
+        assertEquals(1, executions.get());
+        for (MockServerWebExchange exchange : exchanges) {
+            assertEquals(HttpStatus.CREATED, exchange.getResponse().getStatusCode());
+            assertEquals("{\"created\":1,\"request\":{}}", exchange.getResponse().getBodyAsString().block());
+        }
+
+        // Otra réplica respondió k-3: la fila existe en la tabla pero no en la memoria de este nodo
+        databaseClient.sql("""
+                        INSERT INTO idempotency_key (key, fingerprint, state, response_status, content_type, body, expires_at)
+                        SELECT 'anonymous:k-3', fingerprint, state, response_status, content_type, body, expires_at
+                        FROM idempotency_key WHERE key = 'anonymous:k-2'
+                        """)
+                .then()
+                .block();
+        MockServerWebExchange remote = post("k-3", "{}");
+        idempotencyFilter.filter(remote, slow).block();
+        assertEquals(1, executions.get());
+        assertEquals("true", remote.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER));
+
+        // Otra réplica tiene k-4 en curso: se espera hasta que la fila pasa a COMPLETED
+        databaseClient.sql("""
+                        INSERT INTO idempotency_key (key, fingerprint, state, expires_at)
+                        SELECT 'anonymous:k-4', fingerprint, 'IN_PROGRESS', expires_at
+                        FROM idempotency_key WHERE key = 'anonymous:k-2'
+                        """)
+                .then()
+                .block();
+        MockServerWebExchange waiting = post("k-4", "{}");
+        Mono.delay(Duration.ofMillis(300))
+                .then(databaseClient.sql("""
+                                UPDATE idempotency_key k
+                                SET state = 'COMPLETED', response_status = 202, content_type = s.content_type, body = s.body
+                                FROM idempotency_key s
+                                WHERE k.key = 'anonymous:k-4' AND s.key = 'anonymous:k-2'
+                                """)
+                        .then())
+                .subscribe();
+        idempotencyFilter.filter(waiting, slow).block();
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.ACCEPTED, waiting.getResponse().getStatusCode());
+    }
+
+    /**
+     * Verifica que una petición que falla o responde 5xx libere la llave y el reintento se ejecute.
+     */
+    @Test
+    void failuresReleaseTheKey() {
+        WebFilterChain failing = exchange -> {
+            executions.incrementAndGet();
+            return Mono.error(new IllegalStateException("boom"));
+        };
+        assertThrows(IllegalStateException.class, () -> idempotencyFilter.filter(post("k-5", "{}"), failing).block());
+
+        idempotencyFilter.filter(post("k-5", "{}"), echo(HttpStatus.SERVICE_UNAVAILABLE, Duration.ZERO)).block();
+
+        MockServerWebExchange retry = post("k-5", "{}");
+        idempotencyFilter.filter(retry, echo(HttpStatus.CREATED, Duration.ZERO)).block();
+        assertEquals(3, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getResponse().getStatusCode());
+        assertNull(retry.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    /**
+     * Verifica que si el cliente se desconecta o la escritura falla cuando el controlador ya respondió,
+     * la llave no se libere: el reintento recibe lo respondido en vez de ejecutar de nuevo el cambio.
+     */
+    @Test
+    void responseAfterCommitIsKeptWhenClientDisconnects() {
+        // Desconexión a mitad del cuerpo: se guarda solo el estado
+        WebFilterChain stalled = exchange -> {
+            executions.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.CREATED);
+            DataBuffer first = exchange.getResponse().bufferFactory().wrap("{\"created\":".getBytes(StandardCharsets.UTF_8));
+            return exchange.getResponse().writeWith(Flux.just(first).concatWith(Mono.never()));
+        };
+        Disposable request = idempotencyFilter.filter(post("k-6", "{}"), stalled).subscribe();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (executions.get() == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        request.dispose();
+
+        MockServerWebExchange retry = post("k-6", "{}");
+        idempotencyFilter.filter(retry, echo(HttpStatus.CREATED, Duration.ZERO)).block();
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getResponse().getStatusCode());
+        assertEquals("true", retry.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals("", retry.getResponse().getBodyAsString().defaultIfEmpty("").block());
+
+        // La escritura falla después de responder: también queda guardada
+        WebFilterChain brokenPipe = exchange -> {
+            executions.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.CREATED);
+            return exchange.getResponse().writeWith(Flux.error(new IllegalStateException("broken pipe")));
+        };
+        assertThrows(IllegalStateException.class, () -> idempotencyFilter.filter(post("k-7", "{}"), brokenPipe).block());
+        MockServerWebExchange stored = post("k-7", "{}");
+        idempotencyFilter.filter(stored, echo(HttpStatus.CREATED, Duration.ZERO)).block();
+        assertEquals(2, executions.get());
+        assertEquals("true", stored.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER));
+
+        // Otra réplica también lo ve como respondido
+        assertEquals(List.of("COMPLETED", "COMPLETED"), databaseClient.sql(
+                        "SELECT state FROM idempotency_key WHERE key IN ('anonymous:k-6', 'anonymous:k-7')")
+                .map((row, metadata) -> row.get("state", String.class))
+                .all()
+                .collectList()
+                .block());
+    }
+
+    /**
+     * Verifica que un cuerpo mayor que max-body-size con Idempotency-Key se rechace con 413 sin ejecutar.
+     */
+    @Test
+    void oversizedBodyIsRejected() {
+        ResponseStatusException tooLarge = assertThrows(ResponseStatusException.class, () -> idempotencyFilter
+                .filter(post("k-8", "{\"reason\":\"" + "x".repeat(2048) + "\"}"), echo(HttpStatus.CREATED, Duration.ZERO))
+                .block());
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, tooLarge.getStatusCode());
+        assertEquals(0, executions.get());
+    }
+
+    // Controlador de prueba: devuelve el cuerpo recibido junto con el número de ejecución
+    private WebFilterChain echo(HttpStatus status, Duration delay) {
+        return exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+                .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+                .delayElement(delay)
+                .flatMap(request -> write(exchange, status, "{\"created\":" + executions.incrementAndGet()
+                        + ",\"request\":" + request + "}"));
+    }
+
+    private static Mono<Void> write(ServerWebExchange exchange, HttpStatus status, String body) {
+        exchange.getResponse().setStatusCode(status);
+        exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        exchange.getResponse().getHeaders().set(HttpHeaders.LOCATION, "/transactions/1");
+        return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                .wrap(body.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static MockServerWebExchange post(String key, String body) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.post("/transactions")
+                .contentType(MediaType.APPLICATION_JSON);
+        if (key != null) {
+            request.header(IdempotencyFilter.HEADER, key);
+        }
+        return MockServerWebExchange.from(((MockServerHttpRequest.BodyBuilder) request).body(body));
+    }
+}
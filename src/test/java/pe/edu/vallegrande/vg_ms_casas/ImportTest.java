@@ -0,0 +1,200 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.dto.ImportJob;
+import pe.edu.vallegrande.vg_ms_casas.dto.ImportReject;
+import pe.edu.vallegrande.vg_ms_casas.service.ImportService;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "import.chunk-rows=3")
+class ImportTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void cleanTables() {
+        databaseClient.sql("""
+                        TRUNCATE import_job, import_reject, consumption_daily_rollup, change_log,
+                                 transactions, inventory_consumption, consumption, home RESTART IDENTITY CASCADE
+                        """)
+                .then()
+                .block();
+        databaseClient.sql("INSERT INTO home (names, address) VALUES ('Casa 1', 'Av. 1'), ('Casa 2', 'Av. 2')")
+                .then()
+                .block();
+    }
+
+    /**
+     * Verifica que un archivo con el formato de /consumption/export se cargue por bloques, que las filas
+     * inválidas queden como rechazos sin cortar la carga y que el rollup y change_log reciban las filas cargadas.
+     */
+    @Test
+    void importsConsumptionAndRecordsRejects() {
+        String csv = """
+                id_consumption,date,id_home,names,product_id,quantity,weight,price,salevalue,status\r
+                99,2024-01-01,1,"Casa ""Ñandú"", con
+                salto",10,2,1.5,3,4.5,A\r
+                ,2024-01-01,1,,10,3,,,,\r
+                ,2024-13-01,1,,10,1,,,,A\r
+                \r
+                ,2024-01-02,2,,11,5,2.5,,1,I\r
+                ,2024-01-02,7,,11,5,,,,A\r
+                ,2024-01-03,1,,12,-1,,,,A\r
+                ,2024-01-03,1,,12,4,,,,X\r
+                ,2024-01-03,2,,12,6,,,,a""";
+
+        List<ImportJob> progress = importService.importConsumption(upload(csv, 7), null).collectList().block();
+        assertEquals(4, progress.size());
+        assertEquals(List.of(3L, 6L, 8L, 8L), progress.stream().map(ImportJob::getLastRow).toList());
+        ImportJob done = progress.get(progress.size() - 1);
+        assertEquals(ImportJob.COMPLETED, done.getStatus());
+        assertEquals(4, done.getLoaded());
+        assertEquals(4, done.getRejected());
+
+        List<ImportReject> rejects = importService.findRejects(ImportJob.CONSUMPTION, done.getId()).collectList().block();
+        assertEquals(List.of(3L, 5L, 6L, 7L), rejects.stream().map(ImportReject::getRow).toList());
+        assertEquals("Invalid date: 2024-13-01", rejects.get(0).getReason());
+        assertEquals("Unknown home: 7", rejects.get(1).getReason());
+        assertEquals("quantity must not be negative", rejects.get(2).getReason());
+        assertEquals("Invalid status: X", rejects.get(3).getReason());
+        assertNull(importService.findJob(ImportJob.INVENTORY, done.getId()).block());
+
+        // id_consumption del archivo no se usa; el estado vacío queda en A
+        assertEquals(List.of("2024-01-01|1|10|2|A", "2024-01-01|1|10|3|A", "2024-01-02|2|11|5|I", "2024-01-03|2|12|6|A"),
+                strings("SELECT date || '|' || id_home || '|' || product_id || '|' || quantity || '|' || status AS v "
+                        + "FROM consumption ORDER BY id_consumption"));
+        assertEquals(List.of("0"), strings("SELECT COUNT(*)::text AS v FROM consumption WHERE id_consumption = 99"));
+        assertEquals(List.of("2024-01-01|1|10|2|5|4.5", "2024-01-02|2|11|1|5|1", "2024-01-03|2|12|1|6|0"),
+                strings("SELECT day || '|' || id_home || '|' || product_id || '|' || row_count || '|' || total_quantity "
+                        + "|| '|' || total_salevalue AS v FROM consumption_daily_rollup ORDER BY day"));
+        assertEquals(List.of("4"), strings("SELECT COUNT(*)::text AS v FROM change_log WHERE entity = 'CONSUMPTION'"));
+    }
+
+    /**
+     * Verifica que una carga cortada deje el job en el último bloque confirmado y que al reenviar el
+     * mismo archivo con jobId se carguen solo las filas restantes, sin duplicar filas ni rechazos.
+     */
+    @Test
+    void resumesInterruptedInventoryImport() {
+        StringBuilder csv = new StringBuilder("product_id,initial_stock,current_stock,status\n");
+        for (int i = 1; i <= 10; i++) {
+            csv.append(i == 2 ? "" : String.valueOf(100 + i)).append(',').append(i).append(',').append(i).append(",\n");
+        }
+        int cut = csv.indexOf("108,");
+
+        Flux<DataBuffer> interrupted = upload(csv.substring(0, cut), 5)
+                .concatWith(Flux.error(new IllegalStateException("connection reset")));
+        List<ImportJob> partial = new ArrayList<>();
+        assertThrows(IllegalStateException.class,
+                () -> importService.importInventory(interrupted, null).doOnNext(partial::add).blockLast());
+        Integer jobId = partial.get(0).getId();
+        ImportJob failed = importService.findJob(ImportJob.INVENTORY, jobId).block();
+        assertEquals(ImportJob.FAILED, failed.getStatus());
+        assertEquals(3, failed.getLastRow());
+        assertEquals(2, failed.getLoaded());
+        assertEquals(List.of("2"), strings("SELECT COUNT(*)::text AS v FROM inventory_consumption"));
+
+        ImportJob resumed = importService.importInventory(upload(csv.toString(), 64), jobId)
+                .blockLast();
+        assertEquals(ImportJob.COMPLETED, resumed.getStatus());
+        assertEquals(10, resumed.getLastRow());
+        assertEquals(9, resumed.getLoaded());
+        assertEquals(1, resumed.getRejected());
+        assertEquals(List.of("9"), strings("SELECT COUNT(DISTINCT product_id)::text AS v FROM inventory_consumption"));
+        assertEquals(List.of("9"), strings("SELECT COUNT(*)::text AS v FROM change_log WHERE entity = 'INVENTORY'"));
+        List<ImportReject> rejects = importService.findRejects(ImportJob.INVENTORY, jobId).collectList().block();
+        assertEquals(1, rejects.size());
+        assertEquals("Product ID is required", rejects.get(0).getReason());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> importService.importInventory(upload(csv.toString(), 64), jobId).blockLast());
+        IllegalArgumentException missing = assertThrows(IllegalArgumentException.class,
+                () -> importService.importInventory(upload("product_id,initial_stock\n1,1\n", 64), null).blockLast());
+        assertEquals("Missing column: current_stock", missing.getMessage());
+    }
+
+    /**
+     * Verifica que si la base rechaza una fila del COPY, el bloque se cargue fila por fila, la fila quede
+     * en import_reject con el motivo de la base y el job termine sin perder las demás filas del bloque.
+     */
+    @Test
+    void rowRejectedByDatabaseDoesNotFailTheJob() {
+        databaseClient.sql("ALTER TABLE consumption ADD CONSTRAINT import_test_product CHECK (product_id <> 13)")
+                .then()
+                .block();
+        try {
+            String csv = """
+                    date,id_home,product_id,quantity
+                    2024-02-01,1,10,1
+                    2024-02-31,1,10,2
+                    2024-02-01,2,13,3
+                    2024-02-02,1,11,4
+                    2024-02-02,2,12,5
+                    """;
+
+            List<ImportJob> progress = importService.importConsumption(upload(csv, 16), null).collectList().block();
+            assertEquals(List.of(3L, 5L, 5L), progress.stream().map(ImportJob::getLastRow).toList());
+            ImportJob done = progress.get(progress.size() - 1);
+            assertEquals(ImportJob.COMPLETED, done.getStatus());
+            assertEquals(3, done.getLoaded());
+            assertEquals(2, done.getRejected());
+
+            List<ImportReject> rejects = importService.findRejects(ImportJob.CONSUMPTION, done.getId()).collectList().block();
+            assertEquals(List.of(2L, 3L), rejects.stream().map(ImportReject::getRow).toList());
+            assertTrue(rejects.get(1).getReason().contains("import_test_product"), rejects.get(1).getReason());
+
+            assertEquals(List.of("10|1", "11|4", "12|5"),
+                    strings("SELECT product_id || '|' || quantity AS v FROM consumption ORDER BY id_consumption"));
+            assertEquals(List.of("3|10"), strings("SELECT SUM(row_count) || '|' || SUM(total_quantity) AS v "
+                    + "FROM consumption_daily_rollup"));
+            assertEquals(List.of("3"), strings("SELECT COUNT(*)::text AS v FROM change_log WHERE entity = 'CONSUMPTION'"));
+        } finally {
+            databaseClient.sql("ALTER TABLE consumption DROP CONSTRAINT import_test_product")
+                    .then()
+                    .block();
+        }
+    }
+
+    // El archivo llega en trozos de size bytes, cortando líneas y caracteres multibyte
+    private static Flux<DataBuffer> upload(String csv, int size) {
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size) {
+            byte[] part = new byte[Math.min(size, bytes.length - i)];
+            System.arraycopy(bytes, i, part, 0, part.length);
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(part));
+        }
+        return Flux.fromIterable(buffers);
+    }
+
+    private List<String> strings(String sql) {
+        return databaseClient.sql(sql)
+                .map((row, metadata) -> row.get("v", String.class))
+                .all()
+                .collectList()
+                .block();
+    }
+}
@@ -0,0 +1,122 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.service.InventoryCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryCacheTest {
+
+    private final InventoryCache cache = new InventoryCache(100, Duration.ofMinutes(10));
+
+    /**
+     * Verifica que una lectura iniciada antes de una escritura no repueble la caché con el valor viejo.
+     */
+    @Test
+    void staleReadIsNotCachedAfterEviction() {
+        long stamp = cache.readStamp(1);
+        cache.evict(1);
+        cache.putIfFresh(new Inventory(1, 7, 10, 10, "A", null), stamp);
+        assertNull(cache.get(1));
+
+        cache.putIfFresh(new Inventory(1, 7, 10, 8, "A", null), cache.readStamp(1));
+        assertEquals(8, cache.get(1).getCurrentStock());
+        assertEquals(8, cache.getByProductId(7).getCurrentStock());
+    }
+
+    /**
+     * Verifica que los cambios por producto (triggers de consumo) invaliden la fila y la lista de activos.
+     */
+    @Test
+    void evictByProductIdDropsRowAndActiveSnapshot() {
+        cache.putIfFresh(new Inventory(1, 7, 10, 10, "A", null), cache.readStamp(1));
+        cache.putActiveIfFresh(List.of(new Inventory(1, 7, 10, 10, "A", null)), cache.activeStamp());
+        assertNotNull(cache.getActive());
+
+        long stamp = cache.readStamp(1);
+        cache.evictByProductId(7L);
+        cache.putIfFresh(new Inventory(1, 7, 10, 10, "A", null), stamp);
+
+        assertNull(cache.get(1));
+        assertNull(cache.getByProductId(7));
+        assertNull(cache.getActive());
+    }
+
+    /**
+     * Verifica con lectores concurrentes que, una vez que evict termina, ninguna lectura de la caché
+     * (por id, por producto o lista de activos) devuelva un stock anterior a la escritura, aunque un
+     * lector haya guardado su valor entre la comprobación de la marca y el put.
+     */
+    @Test
+    void concurrentReadersNeverServeStaleRowsAfterEviction() throws Exception {
+        AtomicInteger database = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(3);
+        List<Thread> readers = new ArrayList<>();
+        for (int kind = 0; kind < 3; kind++) {
+            int reader = kind;
+            Thread thread = new Thread(() -> {
+                started.countDown();
+                while (running.get()) {
+                    if (reader == 0) {
+                        long stamp = cache.readStamp(1);
+                        int stock = database.get();
+                        Thread.yield();
+                        cache.putIfFresh(new Inventory(1, 7, 0, stock, "A", null), stamp);
+                    } else if (reader == 1) {
+                        long stamp = cache.productStamp();
+                        int stock = database.get();
+                        Thread.yield();
+                        cache.putByProductIfFresh(new Inventory(1, 7, 0, stock, "A", null), stamp);
+                    } else {
+                        long stamp = cache.activeStamp();
+                        int stock = database.get();
+                        Thread.yield();
+                        cache.putActiveIfFresh(List.of(new Inventory(1, 7, 0, stock, "A", null)), stamp);
+                    }
+                }
+            });
+            thread.start();
+            readers.add(thread);
+        }
+        started.await();
+
+        List<String> stale = new ArrayList<>();
+        try {
+            for (int write = 1; write <= 20_000; write++) {
+                database.set(write);
+                if (write % 2 == 0) {
+                    cache.evict(1);
+                } else {
+                    cache.evictByProductId(7);
+                }
+                Inventory byId = cache.get(1);
+                Inventory byProduct = cache.getByProductId(7);
+                List<Inventory> active = cache.getActive();
+                if (byId != null && byId.getCurrentStock() < write) {
+                    stale.add("id " + byId.getCurrentStock() + " < " + write);
+                }
+                if (byProduct != null && byProduct.getCurrentStock() < write) {
+                    stale.add("product " + byProduct.getCurrentStock() + " < " + write);
+                }
+                if (active != null && active.get(0).getCurrentStock() < write) {
+                    stale.add("active " + active.get(0).getCurrentStock() + " < " + write);
+                }
+            }
+        } finally {
+            running.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+        assertTrue(stale.isEmpty(), stale.size() + " stale reads, first: " + (stale.isEmpty() ? "" : stale.get(0)));
+    }
+}
@@ -0,0 +1,239 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.dto.StockAtTime;
+import pe.edu.vallegrande.vg_ms_casas.dto.StockCheck;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.TransactionRepository;
+import pe.edu.vallegrande.vg_ms_casas.service.InventorySnapshotService;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionService;
+import reactor.core.publisher.Flux;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class InventorySnapshotTest {
+
+    private static final LocalDateTime[] INSTANTS = {
+            LocalDateTime.of(2023, 12, 31, 23, 0),
+            LocalDateTime.of(2024, 1, 1, 10, 0),
+            LocalDateTime.of(2024, 1, 2, 0, 0),
+            LocalDateTime.of(2024, 1, 2, 12, 0),
+            LocalDateTime.of(2024, 1, 3, 0, 0),
+            LocalDateTime.of(2024, 1, 3, 12, 0),
+            LocalDateTime.of(2024, 1, 10, 0, 0)};
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private InventorySnapshotService inventorySnapshotService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private Integer inventoryId;
+
+    @BeforeEach
+    void cleanTables() {
+        databaseClient.sql("TRUNCATE transactions, inventory_consumption, inventory_stock_snapshot RESTART IDENTITY CASCADE")
+                .then()
+                .block();
+        inventoryId = inventoryRepository.save(new Inventory(null, 100, 0, 0, "A", null)).block().getIdInventory();
+
+        save("ENTRADA", 10, LocalDateTime.of(2024, 1, 1, 9, 0));
+        save("SALIDA", 3, LocalDateTime.of(2024, 1, 2, 9, 0));
+        save("AJUSTE", 20, LocalDateTime.of(2024, 1, 3, 9, 0));
+        save("ENTRADA", 5, LocalDateTime.of(2024, 1, 3, 15, 0));
+        save("ENTRADA", 1, null);
+    }
+
+    /**
+     * Verifica que el stock en cada instante, partiendo del snapshot más cercano, sea igual
+     * al que resulta de recorrer todo el historial, y que el día en curso no tenga snapshot.
+     */
+    @Test
+    void stockAtMatchesFullReplay() {
+        assertEquals(3L, inventorySnapshotService.refresh().block());
+        assertEquals(List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 3)), snapshotDays());
+
+        assertStockMatchesReplay();
+
+        StockAtTime midDay = inventorySnapshotService.stockAt(inventoryId, LocalDateTime.of(2024, 1, 2, 12, 0)).block();
+        assertEquals(7L, midDay.getStock());
+        assertEquals(LocalDate.of(2024, 1, 1), midDay.getSnapshotDay());
+        assertEquals(1L, midDay.getReplayedMovements());
+
+        StockAtTime now = inventorySnapshotService.stockAt(inventoryId, null).block();
+        assertEquals(26L, now.getStock());
+        assertEquals(LocalDate.of(2024, 1, 3), now.getSnapshotDay());
+        assertEquals(1L, now.getReplayedMovements());
+
+        // Una segunda pasada no duplica ni recalcula días
+        assertEquals(0L, inventorySnapshotService.refresh().block());
+        assertNull(inventorySnapshotService.stockAt(999, null).block());
+    }
+
+    /**
+     * Verifica que un movimiento con fecha pasada (individual o en lote) borre los snapshots
+     * desde su día y que la siguiente pasada los reconstruya con el movimiento incluido.
+     */
+    @Test
+    void backdatedMovementsInvalidateSnapshots() {
+        inventorySnapshotService.refresh().block();
+
+        save("SALIDA", 2, LocalDateTime.of(2024, 1, 2, 8, 0));
+        assertEquals(List.of(LocalDate.of(2024, 1, 1)), snapshotDays());
+        assertStockMatchesReplay();
+
+        inventorySnapshotService.refresh().block();
+        Transaction late = new Transaction(null, inventoryId, 100, "ENTRADA", 4, null, null, null,
+                LocalDateTime.of(2024, 1, 3, 10, 0), null, null, null, null);
+        transactionService.saveAll(Flux.just(late)).blockLast();
+        assertEquals(List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2)), snapshotDays());
+
+        inventorySnapshotService.refresh().block();
+        assertEquals(3, snapshotDays().size());
+        assertStockMatchesReplay();
+        assertTrue(inventorySnapshotService.verify().collectList().block().isEmpty());
+    }
+
+    /**
+     * Verifica que un movimiento escrito fuera del servicio (SQL directo, importación o trigger) también
+     * borre los snapshots desde su día, y que refresh espere a un movimiento de un día cerrado que
+     * confirma después de empezar la pasada.
+     */
+    @Test
+    void writesOutsideTheServiceInvalidateSnapshots() throws Exception {
+        inventorySnapshotService.refresh().block();
+        databaseClient.sql("""
+                        INSERT INTO transactions (inventory_id, product_id, type, quantity, previous_stock, new_stock, date)
+                        VALUES (:id, 100, 'SALIDA', 1, 0, -1, TIMESTAMP '2024-01-02 18:00')
+                        """)
+                .bind("id", inventoryId)
+                .then()
+                .block();
+        assertEquals(List.of(LocalDate.of(2024, 1, 1)), snapshotDays());
+        assertStockMatchesReplay();
+
+        try (Connection connection = EmbeddedPostgresSupport.dataSource().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement("""
+                    INSERT INTO transactions (inventory_id, product_id, type, quantity, previous_stock, new_stock, date)
+                    VALUES (?, 100, 'ENTRADA', 7, 0, 7, ?)
+                    """)) {
+                insert.setInt(1, inventoryId);
+                insert.setTimestamp(2, Timestamp.valueOf(LocalDateTime.of(2024, 1, 3, 20, 0)));
+                insert.executeUpdate();
+            }
+            CompletableFuture<Long> refresh = inventorySnapshotService.refresh().toFuture();
+            Thread.sleep(300);
+            assertFalse(refresh.isDone());
+            connection.commit();
+            refresh.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(3, snapshotDays().size());
+        assertStockMatchesReplay();
+    }
+
+    /**
+     * Verifica que repair recalcule los snapshots de un inventario cuyo snapshot ya no cuadra con el
+     * historial y que deje sin tocar un current_stock que no cuadra.
+     */
+    @Test
+    void repairRebuildsDriftedSnapshots() {
+        inventorySnapshotService.refresh().block();
+        databaseClient.sql("UPDATE inventory_stock_snapshot SET stock = stock + 5 WHERE inventory_id = :id")
+                .bind("id", inventoryId)
+                .then()
+                .block();
+        databaseClient.sql("UPDATE inventory_consumption SET current_stock = 99 WHERE id_inventory = :id")
+                .bind("id", inventoryId)
+                .then()
+                .block();
+        assertEquals(List.of(new StockCheck(inventoryId, 99L, 31L, 26L)),
+                inventorySnapshotService.verify().collectList().block());
+
+        assertEquals(List.of(inventoryId), inventorySnapshotService.repair().block());
+        assertEquals(3, snapshotDays().size());
+        assertStockMatchesReplay();
+        assertEquals(List.of(new StockCheck(inventoryId, 99L, 26L, 26L)),
+                inventorySnapshotService.verify().collectList().block());
+        assertEquals(List.of(), inventorySnapshotService.repair().block());
+    }
+
+    /**
+     * Verifica que verify y rebuild informen un current_stock que no cuadra con los movimientos.
+     */
+    @Test
+    void verifyReportsStockDrift() {
+        inventorySnapshotService.refresh().block();
+        assertTrue(inventorySnapshotService.verify().collectList().block().isEmpty());
+
+        databaseClient.sql("UPDATE inventory_consumption SET current_stock = 99 WHERE id_inventory = :id")
+                .bind("id", inventoryId)
+                .then()
+                .block();
+
+        List<StockCheck> mismatches = inventorySnapshotService.verify().collectList().block();
+        assertEquals(List.of(new StockCheck(inventoryId, 99L, 26L, 26L)), mismatches);
+
+        Map<String, Object> rebuilt = inventorySnapshotService.rebuild().block();
+        assertEquals(3L, rebuilt.get("snapshots"));
+        assertEquals(mismatches, rebuilt.get("mismatches"));
+    }
+
+    private void assertStockMatchesReplay() {
+        List<Transaction> history = transactionRepository.findByInventoryIdOrderByDateDesc(inventoryId).collectList().block();
+        for (LocalDateTime at : INSTANTS) {
+            long expected = history.stream()
+                    .filter(t -> !t.getDate().isAfter(at))
+                    .mapToLong(t -> t.getNewStock() - t.getPreviousStock())
+                    .sum();
+            assertEquals(expected, inventorySnapshotService.stockAt(inventoryId, at).block().getStock(), at.toString());
+        }
+    }
+
+    private List<LocalDate> snapshotDays() {
+        return databaseClient.sql("SELECT day FROM inventory_stock_snapshot WHERE inventory_id = :id ORDER BY day")
+                .bind("id", inventoryId)
+                .map((row, metadata) -> row.get("day", LocalDate.class))
+                .all()
+                .collectList()
+                .block();
+    }
+
+    private void save(String type, int quantity, LocalDateTime date) {
+        transactionService.save(new Transaction(null, inventoryId, 100, type, quantity, null, null, null,
+                date, null, null, null, null)).block();
+    }
+}
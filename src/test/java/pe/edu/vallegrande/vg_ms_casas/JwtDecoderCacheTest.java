@@ -0,0 +1,205 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import pe.edu.vallegrande.vg_ms_casas.config.CachingJwkSource;
+import pe.edu.vallegrande.vg_ms_casas.config.CachingReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtDecoderCacheTest {
+
+    private final AtomicReference<String> jwks = new AtomicReference<>();
+    private final AtomicReference<Duration> jwksDelay = new AtomicReference<>(Duration.ZERO);
+    private final AtomicInteger jwksCalls = new AtomicInteger();
+    private final AtomicInteger verifications = new AtomicInteger();
+    private DisposableServer server;
+    private CachingJwkSource jwkSource;
+    private CachingReactiveJwtDecoder decoder;
+
+    @AfterEach
+    void stop() {
+        if (jwkSource != null) {
+            jwkSource.stop();
+        }
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    /**
+     * Verifica que un token repetido no se vuelva a verificar y que deje de servirse al llegar su exp.
+     */
+    @Test
+    void verifiedTokensAreCachedUntilExpiry() throws Exception {
+        RSAKey key = key("k1");
+        start(Duration.ofMinutes(5), key);
+
+        String token = sign(key, Duration.ofMinutes(30));
+        assertEquals("user-1", decoder.decode(token).block().getSubject());
+        assertEquals("user-1", decoder.decode(token).block().getSubject());
+        assertEquals(1, verifications.get());
+
+        String shortLived = sign(key, Duration.ofSeconds(1));
+        decoder.decode(shortLived).block();
+        decoder.decode(shortLived).block();
+        assertEquals(2, verifications.get());
+        Thread.sleep(1200);
+        decoder.decode(shortLived).block();
+        assertEquals(3, verifications.get());
+    }
+
+    /**
+     * Verifica que al rotar las llaves los tokens de la llave retirada salgan de la caché
+     * y que un kid nuevo provoque una descarga del JWK set.
+     */
+    @Test
+    void keyRotationInvalidatesCachedTokens() throws Exception {
+        RSAKey oldKey = key("old");
+        RSAKey newKey = key("new");
+        start(Duration.ofMinutes(5), oldKey);
+
+        String oldToken = sign(oldKey, Duration.ofMinutes(30));
+        decoder.decode(oldToken).block();
+        assertEquals(1, decoder.size());
+
+        int fetches = jwksCalls.get();
+        jwks.set(new JWKSet(newKey.toPublicJWK()).toString());
+        assertEquals("new", decoder.decode(sign(newKey, Duration.ofMinutes(30))).block().getHeaders().get("kid"));
+        assertEquals(fetches + 1, jwksCalls.get());
+        assertEquals(1, decoder.size());
+
+        assertThrows(Exception.class, () -> decoder.decode(oldToken).block());
+    }
+
+    /**
+     * Verifica que al quitar una llave con kid solo salgan los tokens de ese kid, no los que no traen kid,
+     * y que estos salgan cuando se quita una llave sin kid.
+     */
+    @Test
+    void tokensWithoutKidSurviveUnrelatedKeyRemoval() throws Exception {
+        RSAKey key = key("k1");
+        start(Duration.ofMinutes(5), key);
+        decoder.decode(sign(key, Duration.ofMinutes(30))).block();
+        decoder.decode(sign(key, null, Duration.ofMinutes(30))).block();
+        assertEquals(2, decoder.size());
+
+        decoder.evictSignedBy(Set.of("k1"));
+        assertEquals(1, decoder.size());
+        decoder.evictSignedBy(Set.of(""));
+        assertEquals(0, decoder.size());
+    }
+
+    /**
+     * Verifica que el refresco programado no corra hasta que el ciclo de vida llama a start, y que stop lo detenga.
+     */
+    @Test
+    void scheduledRefreshFollowsLifecycle() throws Exception {
+        start(Duration.ofMillis(50), key("k1"));
+        int fetches = jwksCalls.get();
+        Thread.sleep(200);
+        assertEquals(fetches, jwksCalls.get());
+        assertFalse(jwkSource.isRunning());
+
+        jwkSource.start();
+        assertTrue(jwkSource.isRunning());
+        Thread.sleep(300);
+        assertTrue(jwksCalls.get() > fetches + 1);
+
+        jwkSource.stop();
+        assertFalse(jwkSource.isRunning());
+        Thread.sleep(100);
+        fetches = jwksCalls.get();
+        Thread.sleep(200);
+        assertEquals(fetches, jwksCalls.get());
+    }
+
+    /**
+     * Verifica que con las llaves vencidas se responda con las anteriores sin esperar
+     * a un servidor JWK lento ni fallar si está caído.
+     */
+    @Test
+    void staleKeysAreServedWhileRevalidating() throws Exception {
+        RSAKey key = key("k1");
+        start(Duration.ofMillis(100), key);
+        Thread.sleep(150);
+
+        jwksDelay.set(Duration.ofSeconds(3));
+        long started = System.nanoTime();
+        decoder.decode(sign(key, Duration.ofMinutes(30))).block();
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).compareTo(Duration.ofSeconds(1)) < 0);
+
+        jwks.set("not json");
+        jwksDelay.set(Duration.ZERO);
+        Thread.sleep(300);
+        assertNotNull(decoder.decode(sign(key, Duration.ofMinutes(30))).block());
+    }
+
+    private void start(Duration refreshInterval, RSAKey key) {
+        jwks.set(new JWKSet(key.toPublicJWK()).toString());
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get("/jwks", (request, response) -> {
+                    jwksCalls.incrementAndGet();
+                    return response.header("Content-Type", "application/json")
+                            .sendString(Mono.delay(jwksDelay.get()).then(Mono.fromSupplier(jwks::get)));
+                }))
+                .bindNow();
+
+        jwkSource = new CachingJwkSource(WebClient.create(), "http://localhost:" + server.port() + "/jwks",
+                refreshInterval, Duration.ZERO, Duration.ofSeconds(5), Clock.systemUTC());
+        ReactiveJwtDecoder nimbus = NimbusReactiveJwtDecoder.withJwkSource(jwkSource::select).build();
+        decoder = new CachingReactiveJwtDecoder(
+                token -> Mono.defer(() -> {
+                    verifications.incrementAndGet();
+                    return nimbus.decode(token);
+                }),
+                100, Duration.ofHours(1), Clock.systemUTC());
+        jwkSource.onKeysRemoved(decoder::evictSignedBy);
+        jwkSource.refresh().block();
+    }
+
+    private static RSAKey key(String kid) throws Exception {
+        return new RSAKeyGenerator(2048).keyID(kid).generate();
+    }
+
+    private static String sign(RSAKey key, Duration validity) throws Exception {
+        return sign(key, key.getKeyID(), validity);
+    }
+
+    private static String sign(RSAKey key, String kid, Duration validity) throws Exception {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("user-1")
+                .claim("role", "user")
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(validity)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(kid).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,204 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.dto.PageResponse;
+import pe.edu.vallegrande.vg_ms_casas.model.Consumption;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+import pe.edu.vallegrande.vg_ms_casas.service.ConsumptionService;
+import pe.edu.vallegrande.vg_ms_casas.service.InventoryService;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionService;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class KeysetPaginationTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ConsumptionService consumptionService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void cleanTables() {
+        databaseClient.sql("TRUNCATE transactions, inventory_consumption, consumption RESTART IDENTITY CASCADE")
+                .then()
+                .block();
+    }
+
+    /**
+     * Verifica que recorrer las páginas con el cursor devuelva todas las transacciones una sola vez,
+     * en orden descendente de fecha, aunque varias compartan la misma fecha.
+     */
+    @Test
+    void transactionPagesCoverEveryRowOnce() {
+        Inventory inventory = inventoryRepository.save(new Inventory(null, 1, 0, 0, "A", null)).block();
+        LocalDateTime sameDate = LocalDateTime.of(2024, 5, 1, 10, 0);
+        int total = 57;
+        Flux.range(0, total)
+                .concatMap(i -> {
+                    Transaction transaction = new Transaction();
+                    transaction.setInventoryId(inventory.getIdInventory());
+                    transaction.setProductId(1);
+                    transaction.setType("ENTRADA");
+                    transaction.setQuantity(1);
+                    transaction.setDate(i % 3 == 0 ? sameDate : sameDate.plusMinutes(i));
+                    return transactionService.save(transaction);
+                })
+                .blockLast();
+
+        List<Transaction> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            PageResponse<Transaction> page = transactionService.findPage(cursor, 10).block();
+            seen.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(6, pages);
+        assertEquals(total, seen.size());
+        Set<Integer> ids = new HashSet<>();
+        seen.forEach(t -> assertTrue(ids.add(t.getIdTransaction()), "Transacción repetida entre páginas"));
+        for (int i = 1; i < seen.size(); i++) {
+            assertFalse(seen.get(i).getDate().isAfter(seen.get(i - 1).getDate()));
+        }
+    }
+
+    /**
+     * Verifica que las filas sin fecha salgan al final, ordenadas por id, tanto en el listado general como
+     * en las transacciones de un consumo, y que su cursor (sin fecha) siga el recorrido sin repetir ni saltar filas.
+     */
+    @Test
+    void rowsWithoutDateComeLastInEveryPage() {
+        Inventory inventory = inventoryRepository.save(new Inventory(null, 1, 0, 0, "A", null)).block();
+        Integer consumptionId = databaseClient.sql("INSERT INTO consumption (date, quantity) VALUES (DATE '2024-05-01', 1) RETURNING id_consumption")
+                .map((row, metadata) -> row.get("id_consumption", Integer.class))
+                .one()
+                .block();
+        // Ids 1 a 7: los impares con fecha, los pares sin fecha
+        databaseClient.sql("""
+                        INSERT INTO transactions (inventory_id, product_id, type, quantity, previous_stock, new_stock,
+                                                  date, status, consumption_id)
+                        SELECT :inventoryId, 1, 'SALIDA', 1, 1, 0,
+                               CASE WHEN g % 2 = 1 THEN TIMESTAMP '2024-05-01 10:00:00' + g * INTERVAL '1 day' END,
+                               'A', :consumptionId
+                        FROM generate_series(1, 7) g
+                        """)
+                .bind("inventoryId", inventory.getIdInventory())
+                .bind("consumptionId", consumptionId)
+                .then()
+                .block();
+        List<Integer> expected = List.of(7, 5, 3, 1, 6, 4, 2);
+
+        List<Integer> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageResponse<Transaction> page = transactionService.findPageByConsumptionId(consumptionId, cursor, 2).block();
+            page.getItems().forEach(t -> seen.add(t.getIdTransaction()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(expected, seen);
+
+        List<Integer> all = new ArrayList<>();
+        cursor = null;
+        do {
+            PageResponse<Transaction> page = transactionService.findPage(cursor, 3).block();
+            page.getItems().forEach(t -> all.add(t.getIdTransaction()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(expected, all);
+    }
+
+    /**
+     * Verifica que las páginas de un rango de fechas entreguen solo las filas del rango (y activas, si se pide)
+     * una sola vez, en orden descendente de fecha e id aunque varias compartan la fecha.
+     */
+    @Test
+    void consumptionDateRangePagesStayInsideTheRange() {
+        // Ids 1 a 20: fechas del 2024-04-28 al 2024-05-04, dos o tres por día; cada quinta fila inactiva
+        databaseClient.sql("""
+                        INSERT INTO consumption (date, quantity, status)
+                        SELECT DATE '2024-04-28' + (g * 7 / 20), 1, CASE WHEN g % 5 = 0 THEN 'I' ELSE 'A' END
+                        FROM generate_series(1, 20) g
+                        """)
+                .then()
+                .block();
+        LocalDate startDate = LocalDate.of(2024, 4, 30);
+        LocalDate endDate = LocalDate.of(2024, 5, 2);
+        List<Integer> expectedAll = consumptionService.findByDateRange(startDate, endDate, false)
+                .sort((a, b) -> b.getDate().equals(a.getDate())
+                        ? b.getId_consumption().compareTo(a.getId_consumption())
+                        : b.getDate().compareTo(a.getDate()))
+                .map(Consumption::getId_consumption)
+                .collectList()
+                .block();
+        assertEquals(9, expectedAll.size());
+
+        for (boolean activeOnly : new boolean[] {false, true}) {
+            List<Consumption> seen = new ArrayList<>();
+            String cursor = null;
+            do {
+                PageResponse<Consumption> page = consumptionService
+                        .findByDateRangePage(startDate, endDate, activeOnly, false, cursor, 2)
+                        .block();
+                seen.addAll(page.getItems());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
+            List<Integer> expected = expectedAll.stream().filter(id -> !activeOnly || id % 5 != 0).toList();
+            assertEquals(expected, seen.stream().map(Consumption::getId_consumption).toList());
+            seen.forEach(c -> assertFalse(c.getDate().isBefore(startDate) || c.getDate().isAfter(endDate)));
+        }
+    }
+
+    /**
+     * Verifica el recorrido por id de los inventarios y el rechazo de cursores o límites inválidos.
+     */
+    @Test
+    void inventoryPagesAndInvalidInput() {
+        Flux.range(0, 5).concatMap(i -> inventoryRepository.save(new Inventory(null, i, 1, 1, "A", null))).blockLast();
+
+        PageResponse<Inventory> first = inventoryService.findPage(null, 3).block();
+        assertEquals(3, first.getItems().size());
+        assertNotNull(first.getNextCursor());
+
+        PageResponse<Inventory> second = inventoryService.findPage(first.getNextCursor(), 3).block();
+        assertEquals(2, second.getItems().size());
+        assertNull(second.getNextCursor());
+
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.findPage("no-es-un-cursor", 3).block());
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.findPage(null, 0).block());
+    }
+}
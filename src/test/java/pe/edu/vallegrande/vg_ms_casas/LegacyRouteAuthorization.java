@@ -0,0 +1,50 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthenticatedReactiveAuthorizationManager;
+import org.springframework.security.authorization.AuthorityReactiveAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.security.web.server.authorization.DelegatingReactiveAuthorizationManager;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcherEntry;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cadena de pathMatchers que tenía SecurityConfig antes de RouteAuthorizationTable, armada como
+ * la arma authorizeExchange(). Sirve de referencia para la matriz de pruebas y el benchmark.
+ */
+public final class LegacyRouteAuthorization {
+
+    private LegacyRouteAuthorization() {
+    }
+
+    public static ReactiveAuthorizationManager<ServerWebExchange> build() {
+        ReactiveAuthorizationManager<AuthorizationContext> permitAll = (authentication, context) ->
+                Mono.just(new AuthorizationDecision(true));
+        ReactiveAuthorizationManager<AuthorizationContext> userOrAdmin = AuthorityReactiveAuthorizationManager.hasAnyRole("USER", "ADMIN");
+        ReactiveAuthorizationManager<AuthorizationContext> admin = AuthorityReactiveAuthorizationManager.hasRole("ADMIN");
+
+        DelegatingReactiveAuthorizationManager.Builder builder = DelegatingReactiveAuthorizationManager.builder();
+        add(builder, ServerWebExchangeMatchers.pathMatchers(HttpMethod.OPTIONS, "/**"), permitAll);
+        add(builder, ServerWebExchangeMatchers.pathMatchers("/swagger-ui.html", "/v3/api-docs/**", "/swagger-ui/**"), permitAll);
+        add(builder, ServerWebExchangeMatchers.pathMatchers(HttpMethod.GET, "/actuator/health", "/actuator/health/**"), permitAll);
+        for (String resource : new String[]{"consumption", "inventories", "homes", "transactions"}) {
+            String pattern = "/" + resource + "/**";
+            add(builder, ServerWebExchangeMatchers.pathMatchers(HttpMethod.GET, pattern), userOrAdmin);
+            add(builder, ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, pattern), admin);
+            add(builder, ServerWebExchangeMatchers.pathMatchers(HttpMethod.PUT, pattern), admin);
+            add(builder, ServerWebExchangeMatchers.pathMatchers(HttpMethod.DELETE, pattern), admin);
+        }
+        add(builder, ServerWebExchangeMatchers.anyExchange(), AuthenticatedReactiveAuthorizationManager.authenticated());
+        return builder.build();
+    }
+
+    private static void add(DelegatingReactiveAuthorizationManager.Builder builder, ServerWebExchangeMatcher matcher,
+                            ReactiveAuthorizationManager<AuthorizationContext> manager) {
+        builder.add(new ServerWebExchangeMatcherEntry<>(matcher, manager));
+    }
+}
@@ -0,0 +1,147 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.controller.HomeController;
+import pe.edu.vallegrande.vg_ms_casas.controller.InventoryController;
+import pe.edu.vallegrande.vg_ms_casas.model.Home;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import pe.edu.vallegrande.vg_ms_casas.service.HomeService;
+import pe.edu.vallegrande.vg_ms_casas.service.InventoryService;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionService;
+import pe.edu.vallegrande.vg_ms_casas.service.VersionConflictException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class OptimisticLockingTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private HomeService homeService;
+
+    @Autowired
+    private InventoryController inventoryController;
+
+    @Autowired
+    private HomeController homeController;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void cleanTables() {
+        databaseClient.sql("TRUNCATE transactions, inventory_consumption, consumption, home RESTART IDENTITY CASCADE")
+                .then()
+                .block();
+    }
+
+    /**
+     * Verifica que la actualización parcial de inventario aplique solo con la versión vigente, que los
+     * movimientos de stock también la incrementen y que el 409 traiga el inventario con su versión actual.
+     */
+    @Test
+    void staleInventoryVersionIsRejected() {
+        Inventory created = inventoryService.save(new Inventory(null, 100, 10, 10, null, 7L)).block();
+        assertEquals(0L, created.getVersion());
+
+        Inventory updated = inventoryService.update(created.getIdInventory(), patch(12, 0L)).block();
+        assertEquals(1L, updated.getVersion());
+        assertEquals(12, updated.getCurrentStock());
+        assertEquals(10, updated.getInitialStock());
+        assertEquals(100, updated.getProductId());
+
+        VersionConflictException conflict = assertThrows(VersionConflictException.class,
+                () -> inventoryService.update(created.getIdInventory(), patch(50, 0L)).block());
+        assertEquals(1L, conflict.getCurrentVersion());
+
+        transactionService.save(new Transaction(null, created.getIdInventory(), 100, "SALIDA", 2,
+                null, null, null, null, null, null, null, null)).block();
+        ResponseEntity<Inventory> response = inventoryController.update(created.getIdInventory(), patch(50, 1L)).block();
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(2L, response.getBody().getVersion());
+        assertEquals(10, response.getBody().getCurrentStock());
+
+        // Sin version se aplica siempre; un id inexistente sigue devolviendo vacío
+        assertEquals(3L, inventoryService.update(created.getIdInventory(), patch(20, null)).block().getVersion());
+        assertNull(inventoryService.update(999, patch(20, 0L)).block());
+        inventoryService.delete(created.getIdInventory()).block();
+        assertEquals(5L, inventoryService.restore(created.getIdInventory()).block().getVersion());
+    }
+
+    /**
+     * Verifica que de varias actualizaciones concurrentes con la misma versión solo una se aplique.
+     */
+    @Test
+    void concurrentUpdatesWithSameVersionApplyOnce() {
+        Integer id = inventoryService.save(new Inventory(null, 100, 10, 10, null, null)).block().getIdInventory();
+
+        List<String> outcomes = Flux.range(1, 8)
+                .flatMap(i -> inventoryService.update(id, patch(100 + i, 0L))
+                        .map(updated -> "ok")
+                        .onErrorResume(VersionConflictException.class, e -> Mono.just("conflict")))
+                .collectList()
+                .block();
+        assertEquals(1, outcomes.stream().filter("ok"::equals).count());
+        assertEquals(7, outcomes.stream().filter("conflict"::equals).count());
+        assertEquals(1L, inventoryService.findById(id).block().getVersion());
+    }
+
+    /**
+     * Verifica el mismo control de versión en transacciones y casas.
+     */
+    @Test
+    void transactionsAndHomesCheckVersion() {
+        Integer inventoryId = inventoryService.save(new Inventory(null, 100, 10, 10, null, null)).block().getIdInventory();
+        Transaction movement = transactionService.save(new Transaction(null, inventoryId, 100, "ENTRADA", 1,
+                null, null, null, null, null, null, null, null)).block();
+        assertEquals(0L, movement.getVersion());
+
+        Transaction reason = new Transaction();
+        reason.setReason("Compra");
+        reason.setVersion(0L);
+        Transaction updated = transactionService.update(movement.getIdTransaction(), reason).block();
+        assertEquals("Compra", updated.getReason());
+        assertEquals("A", updated.getStatus());
+        assertEquals(1L, updated.getVersion());
+        assertThrows(VersionConflictException.class,
+                () -> transactionService.update(movement.getIdTransaction(), reason).block());
+
+        Home home = homeService.save(new Home(5, "Casa", "Av. 1", "A", 3L)).block();
+        assertEquals(0L, home.getVersion());
+        Home renamed = homeService.update(home.getId_home(), new Home(null, "Casa 2", "Av. 2", null, 0L)).block();
+        assertEquals("Casa 2", renamed.getNames());
+        assertEquals(1L, renamed.getVersion());
+
+        ResponseEntity<Home> stale = homeController.update(home.getId_home(), new Home(null, "Casa 3", "Av. 3", null, 0L)).block();
+        assertEquals(HttpStatus.CONFLICT, stale.getStatusCode());
+        assertEquals("Casa 2", stale.getBody().getNames());
+        assertEquals(1L, stale.getBody().getVersion());
+    }
+
+    private static Inventory patch(Integer currentStock, Long version) {
+        return new Inventory(null, null, null, currentStock, null, version);
+    }
+}
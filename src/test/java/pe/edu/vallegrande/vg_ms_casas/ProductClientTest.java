@@ -0,0 +1,125 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.vg_ms_casas.client.ProductClient;
+import pe.edu.vallegrande.vg_ms_casas.client.ProductClientProperties;
+import pe.edu.vallegrande.vg_ms_casas.dto.ProductDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductClientTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private DisposableServer server;
+    private ProductClient client;
+
+    @AfterEach
+    void stop() {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    /**
+     * Verifica que las consultas concurrentes al mismo producto compartan una sola llamada al servicio.
+     */
+    @Test
+    void concurrentLookupsAreCoalesced() {
+        start(call -> false, Duration.ofMillis(200));
+
+        List<ProductDTO> products = Flux.range(0, 20)
+                .flatMap(i -> client.findById(5L))
+                .collectList()
+                .block();
+
+        assertEquals(20, products.size());
+        assertTrue(products.stream().allMatch(p -> p.getProductId() == 5L));
+        assertEquals(1, calls.get());
+
+        client.findById(5L).block();
+        assertEquals(1, calls.get());
+    }
+
+    /**
+     * Verifica que los 5xx se reintenten y que un 404 devuelva vacío sin reintentar.
+     */
+    @Test
+    void transientErrorsAreRetriedAndNotFoundIsEmpty() {
+        start(call -> call <= 2, Duration.ZERO);
+
+        assertEquals(7L, client.findById(7L).block().getProductId());
+        assertEquals(3, calls.get());
+
+        calls.set(0);
+        assertNull(client.findById(404L).block());
+        assertEquals(1, calls.get());
+    }
+
+    /**
+     * Verifica que tras minimumNumberOfCalls fallos el circuito se abra y las llamadas siguientes
+     * fallen sin llegar al servicio, y que stats() lo refleje.
+     */
+    @Test
+    void circuitOpensAfterFailureThreshold() {
+        ProductClientProperties properties = new ProductClientProperties();
+        properties.setMaxRetries(0);
+        properties.setSlidingWindowSize(4);
+        properties.setMinimumNumberOfCalls(4);
+        start(call -> true, Duration.ZERO, properties);
+
+        for (long id = 1; id <= 4; id++) {
+            long productId = id;
+            assertThrows(RuntimeException.class, () -> client.findById(productId).block());
+        }
+        assertEquals(4, calls.get());
+        assertEquals("OPEN", client.stats().get("circuitState"));
+        assertEquals(100f, client.stats().get("failureRate"));
+
+        RuntimeException rejected = assertThrows(RuntimeException.class, () -> client.findById(5L).block());
+        assertInstanceOf(CallNotPermittedException.class, rejected);
+        assertEquals(4, calls.get());
+    }
+
+    private void start(IntPredicate failing, Duration delay) {
+        start(failing, delay, new ProductClientProperties());
+    }
+
+    private void start(IntPredicate failing, Duration delay, ProductClientProperties properties) {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/products/{id}", (request, response) -> {
+                    int call = calls.incrementAndGet();
+                    String id = request.param("id");
+                    if ("404".equals(id)) {
+                        return response.status(HttpResponseStatus.NOT_FOUND).send();
+                    }
+                    if (failing.test(call)) {
+                        return response.status(HttpResponseStatus.SERVICE_UNAVAILABLE).send();
+                    }
+                    return Mono.delay(delay)
+                            .then(response.header("Content-Type", "application/json")
+                                    .sendString(Mono.just("{\"productId\":" + id + "}"))
+                                    .then());
+                }))
+                .bindNow();
+
+        properties.setBaseUrl("http://localhost:" + server.port() + "/products");
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        client = new ProductClient(properties);
+    }
+}
@@ -0,0 +1,114 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.config.QueryFingerprint;
+import pe.edu.vallegrande.vg_ms_casas.config.QueryStats;
+import pe.edu.vallegrande.vg_ms_casas.config.QueryStatsEndpoint;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "query-stats.slow-threshold=100ms")
+@ExtendWith(OutputCaptureExtension.class)
+class QueryStatsTest {
+
+    private static final String SLEEP = "SELECT pg_sleep(?), ? AS label";
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private QueryStats queryStats;
+
+    @Autowired
+    private QueryStatsEndpoint queryStatsEndpoint;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void resetStats() {
+        queryStats.reset();
+    }
+
+    /**
+     * Verifica que la huella ignore literales, parámetros, comentarios, el largo de las listas IN
+     * y la cantidad de filas de un INSERT, sin tocar identificadores ni casts.
+     */
+    @Test
+    void fingerprintNormalizesValuesAndLists() {
+        assertEquals("SELECT * FROM home WHERE id_home IN (?, ...) AND names = ? AND status = ?",
+                QueryFingerprint.of("SELECT *\n  FROM home -- casas\n WHERE id_home IN ($1, $2,$3) AND names = 'O''Higgins' AND status = 'A'"));
+        assertEquals(QueryFingerprint.of("SELECT * FROM home WHERE id_home IN ($1, $2)"),
+                QueryFingerprint.of("SELECT * FROM home WHERE id_home IN ($1, $2, $3, $4)"));
+        assertEquals("INSERT INTO change_log (entity, entity_id) VALUES (?, ...), ...",
+                QueryFingerprint.of("INSERT INTO change_log (entity, entity_id) VALUES ($1, $2), ($3, $4), ($5, $6)"));
+        assertEquals("SELECT v2.col1::text FROM t2 v2 WHERE v2.x > ? LIMIT ? OFFSET ?",
+                QueryFingerprint.of("SELECT v2.col1::text /* cast */ FROM t2 v2 WHERE v2.x > -1.5 LIMIT 10 OFFSET $1"));
+    }
+
+    /**
+     * Verifica que las ejecuciones se acumulen por huella, que el endpoint las ordene y que las lentas
+     * se registren con el tipo de cada parámetro pero sin su valor.
+     */
+    @Test
+    void statementsAreAggregatedAndSlowOnesLogged(CapturedOutput output) {
+        sleep(0.15, "secret-value-1");
+        sleep(0.2, "secret-value-2");
+        for (int i = 0; i < 5; i++) {
+            inventoryRepository.findById(i).block();
+        }
+
+        Map<String, Object> slowest = queryStats.top(1, "max").get(0);
+        assertEquals(SLEEP, slowest.get("fingerprint"));
+        assertEquals(2L, slowest.get("count"));
+        assertEquals(0L, slowest.get("errors"));
+        assertTrue((Double) slowest.get("max") >= 200);
+        assertTrue((Double) slowest.get("p99") >= 150);
+        assertTrue((Double) slowest.get("total") >= 350);
+
+        Map<String, Object> byId = queryStats.top(100, "count").stream()
+                .filter(row -> ((String) row.get("fingerprint")).contains("FROM inventory_consumption"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(5L, byId.get("count"));
+        assertTrue(((String) byId.get("fingerprint")).endsWith("= ? LIMIT ?"), (String) byId.get("fingerprint"));
+
+        assertTrue(output.getOut().contains("Slow query"));
+        assertTrue(output.getOut().contains("params=[$1:Double, $2:String]"));
+        assertFalse(output.getOut().contains("secret-value"));
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> listed = (List<Map<String, Object>>) queryStatsEndpoint.top(10, "total").get("queries");
+        assertEquals(SLEEP, listed.get(0).get("fingerprint"));
+        assertThrows(InvalidEndpointRequestException.class, () -> queryStatsEndpoint.top(10, "rows"));
+        queryStatsEndpoint.reset();
+        assertTrue(queryStats.top(10, "total").isEmpty());
+    }
+
+    private void sleep(double seconds, String label) {
+        databaseClient.sql("SELECT pg_sleep(:seconds), :label AS label")
+                .bind("seconds", seconds)
+                .bind("label", label)
+                .then()
+                .block();
+    }
+}
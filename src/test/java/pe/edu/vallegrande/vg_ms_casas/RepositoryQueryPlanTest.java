@@ -0,0 +1,150 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.r2dbc.repository.Query;
+import pe.edu.vallegrande.vg_ms_casas.repository.ConsumptionRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.HomeRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.TransactionRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryQueryPlanTest {
+
+    // Finders derivados del nombre del método: el SQL equivalente que genera Spring Data
+    private static final Map<String, String> DERIVED_FINDERS = Map.of(
+            "TransactionRepository.findByInventoryIdOrderByDateDesc",
+            "SELECT * FROM transactions WHERE inventory_id = 1 ORDER BY date DESC",
+            "TransactionRepository.findByProductIdOrderByDateDesc",
+            "SELECT * FROM transactions WHERE product_id = 1 ORDER BY date DESC",
+            "TransactionRepository.findByTypeOrderByDateDesc",
+            "SELECT * FROM transactions WHERE type = 'SALIDA' ORDER BY date DESC",
+            "TransactionRepository.findByStatusOrderByDateDesc",
+            "SELECT * FROM transactions WHERE status = 'A' ORDER BY date DESC",
+            "TransactionRepository.findAllByOrderByDateDesc",
+            "SELECT * FROM transactions ORDER BY date DESC",
+            "TransactionRepository.findByConsumptionIdOrderByDateDesc",
+            "SELECT * FROM transactions WHERE consumption_id = 1 ORDER BY date DESC",
+            "InventoryRepository.findByStatus",
+            "SELECT * FROM inventory_consumption WHERE status = 'A'",
+            "InventoryRepository.findFirstByProductIdOrderByIdInventory",
+            "SELECT * FROM inventory_consumption WHERE product_id = 1 ORDER BY id_inventory LIMIT 1",
+            "HomeRepository.findByStatus",
+            "SELECT * FROM home WHERE status = 'A'");
+
+    // Listados que devuelven la mayor parte de la tabla: ahí el Seq Scan es el plan correcto
+    private static final Set<String> FULL_LISTINGS = Set.of(
+            "TransactionRepository.findAllByOrderByDateDesc",
+            "TransactionRepository.findByStatusOrderByDateDesc",
+            "TransactionRepository.findByTypeOrderByDateDesc",
+            "InventoryRepository.findByStatus",
+            "HomeRepository.findByStatus",
+            "ConsumptionRepository.findByStatus");
+
+    // Volumen y distribución parecidos a producción: 5% inactivos, fechas repartidas en dos años
+    private static final String SEED = """
+            SET LOCAL session_replication_role = replica;
+            INSERT INTO home (names, address, status)
+            SELECT 'Casa ' || g, 'Av. ' || g, CASE WHEN g % 20 = 0 THEN 'I' ELSE 'A' END
+            FROM generate_series(1, 1000) g;
+            INSERT INTO inventory_consumption (product_id, initial_stock, current_stock, status)
+            SELECT g % 500 + 1, 100, 100, CASE WHEN g % 20 = 0 THEN 'I' ELSE 'A' END
+            FROM generate_series(1, 2000) g;
+            INSERT INTO consumption (date, id_home, product_id, quantity, weight, price, salevalue, status)
+            SELECT DATE '2023-01-01' + g % 730, g % 1000 + 1, g % 500 + 1, 1, 1, 1, 1,
+                   CASE WHEN g % 20 = 0 THEN 'I' ELSE 'A' END
+            FROM generate_series(1, 50000) g;
+            INSERT INTO transactions (inventory_id, product_id, type, quantity, previous_stock, new_stock,
+                                      date, status, consumption_id)
+            SELECT g % 2000 + 1, g % 500 + 1, (ARRAY['ENTRADA', 'SALIDA', 'AJUSTE', 'DAÑO'])[g % 4 + 1], 1, 0, 1,
+                   TIMESTAMP '2023-01-01' + g * INTERVAL '10 minutes', CASE WHEN g % 20 = 0 THEN 'I' ELSE 'A' END,
+                   CASE WHEN g % 3 = 0 THEN g % 50000 + 1 END
+            FROM generate_series(1, 100000) g;
+            ANALYZE home, inventory_consumption, consumption, transactions;
+            """;
+
+    /**
+     * Verifica que con un volumen realista y la configuración por defecto del planificador, cada finder
+     * selectivo (los @Query y los derivados del nombre) se resuelva con un índice, sin ningún Seq Scan.
+     * Los datos se cargan en una transacción que se descarta al final.
+     */
+    @Test
+    void everyFinderUsesAnIndex() throws SQLException {
+        Map<String, String> queries = new LinkedHashMap<>(DERIVED_FINDERS);
+        queries.keySet().removeAll(FULL_LISTINGS);
+        for (Class<?> repository : List.of(TransactionRepository.class, ConsumptionRepository.class,
+                InventoryRepository.class, HomeRepository.class)) {
+            for (Method method : repository.getDeclaredMethods()) {
+                Query query = method.getAnnotation(Query.class);
+                if (query != null && !FULL_LISTINGS.contains(repository.getSimpleName() + "." + method.getName())) {
+                    queries.put(repository.getSimpleName() + "." + method.getName(), withLiterals(query.value(), method));
+                }
+            }
+        }
+
+        DataSource dataSource = EmbeddedPostgresSupport.dataSource();
+        List<String> failures = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.execute(SEED);
+            for (Map.Entry<String, String> entry : queries.entrySet()) {
+                String plan = explain(statement, entry.getValue());
+                if (plan.contains("Seq Scan")) {
+                    failures.add(entry.getKey() + ":\n" + plan);
+                }
+            }
+            connection.rollback();
+        }
+        assertTrue(failures.isEmpty(), "Finders sin índice:\n" + String.join("\n", failures));
+    }
+
+    private static String explain(Statement statement, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (ResultSet rows = statement.executeQuery("EXPLAIN " + sql)) {
+            while (rows.next()) {
+                plan.append(rows.getString(1)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    // Reemplaza cada :parametro por un literal del tipo del argumento
+    private static String withLiterals(String sql, Method method) {
+        String result = sql;
+        for (Parameter parameter : method.getParameters()) {
+            result = result.replaceAll(":" + parameter.getName() + "\\b", literal(parameter.getType()));
+        }
+        return result;
+    }
+
+    private static String literal(Class<?> type) {
+        if (type == String.class) {
+            return "'A'";
+        }
+        if (type == LocalDate.class) {
+            return "DATE '2024-01-01'";
+        }
+        if (type == LocalDateTime.class) {
+            return "TIMESTAMP '2024-01-01 00:00:00'";
+        }
+        if (type == Double.class) {
+            return "1.0";
+        }
+        return "1";
+    }
+}
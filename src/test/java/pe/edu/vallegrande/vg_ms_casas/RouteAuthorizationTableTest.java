@@ -0,0 +1,161 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.web.server.ServerWebExchange;
+import pe.edu.vallegrande.vg_ms_casas.config.CustomAuthenticationToken;
+import pe.edu.vallegrande.vg_ms_casas.config.RouteAuthorizationTable;
+import pe.edu.vallegrande.vg_ms_casas.config.SecurityConfig;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteAuthorizationTableTest {
+
+    private static final HttpMethod[] METHODS = {
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH,
+            HttpMethod.DELETE, HttpMethod.OPTIONS, HttpMethod.TRACE, HttpMethod.valueOf("PROPFIND")};
+
+    // Rutas de los controladores más casos borde de los patrones, con reglas iguales a las de LegacyRouteAuthorization
+    private static final String[] PATHS = {
+            "/", "/consumption", "/consumption/", "/consumption/15", "/consumption/15/inactivar",
+            "/consumption/report", "/consumption/report/rollup/rebuild", "/consumption/lista-activos",
+            "/inventories", "/inventories/3", "/inventories/product/4", "/inventories/cache/stats", "/inventories/active",
+            "/homes", "/homes/2", "/homes/2/deactivate", "/homes/inactive",
+            "/transactions", "/transactions/9", "/transactions/bulk", "/transactions/type/ENTRADA",
+            "/transactions/inventory/1", "/transactions/consumption/7",
+            "/swagger-ui.html", "/swagger-ui/index.html", "/swagger-ui", "/v3/api-docs", "/v3/api-docs/swagger-config",
+            "/v3/other", "/actuator/health", "/actuator/health/readiness", "/actuator",
+            "/consumptions", "/Consumption/1", "//consumption/1", "/consumption;v=1/1", "/homes%2F1", "/unknown/path"};
+
+    private static final Set<String> EVERYONE = Set.of("none", "anonymous", "user", "admin", "metrics", "other", "noRole");
+    private static final Set<String> AUTHENTICATED = Set.of("user", "admin", "metrics", "other", "noRole");
+
+    private final RouteAuthorizationTable table = SecurityConfig.routeAuthorization();
+    private final ReactiveAuthorizationManager<ServerWebExchange> legacy = LegacyRouteAuthorization.build();
+
+    /**
+     * Verifica que la tabla decida igual que la cadena de pathMatchers anterior para cada
+     * combinación de método, ruta y usuario (anónimo, USER, ADMIN, METRICS, otro rol, sin autenticar).
+     */
+    @Test
+    void tableMatchesLegacyMatcherChain() {
+        Map<String, Mono<Authentication>> principals = principals();
+        List<String> mismatches = new ArrayList<>();
+        int checked = 0;
+        for (HttpMethod method : METHODS) {
+            for (String path : PATHS) {
+                for (Map.Entry<String, Mono<Authentication>> principal : principals.entrySet()) {
+                    boolean expected = granted(legacy.check(principal.getValue(), exchange(method, path)));
+                    boolean actual = granted(table.check(principal.getValue(), new AuthorizationContext(exchange(method, path))));
+                    if (expected != actual) {
+                        mismatches.add(method + " " + path + " as " + principal.getKey() + ": expected " + expected);
+                    }
+                    checked++;
+                }
+            }
+        }
+
+        assertEquals(METHODS.length * PATHS.length * principals.size(), checked);
+        assertTrue(mismatches.isEmpty(), String.join("\n", mismatches));
+    }
+
+    /**
+     * Verifica las rutas de actuator agregadas después de la cadena de referencia: probes públicos,
+     * detalle de health autenticado, métricas y scrape con rol METRICS y endpoints de administración solo para ADMIN.
+     */
+    @Test
+    void actuatorRoutesHaveExpectedAccess() {
+        List<String> mismatches = new ArrayList<>();
+        for (HttpMethod method : METHODS) {
+            boolean get = method == HttpMethod.GET;
+            Set<String> otherwise = method == HttpMethod.OPTIONS ? EVERYONE : AUTHENTICATED;
+            expectAccess(mismatches, method, "/actuator/health", get ? EVERYONE : otherwise);
+            expectAccess(mismatches, method, "/actuator/health/liveness", get ? EVERYONE : otherwise);
+            expectAccess(mismatches, method, "/actuator/health/readiness", get ? EVERYONE : otherwise);
+            expectAccess(mismatches, method, "/actuator/health/r2dbcPool", otherwise);
+            expectAccess(mismatches, method, "/actuator/prometheus", get ? Set.of("metrics", "admin") : otherwise);
+            expectAccess(mismatches, method, "/actuator/metrics", get ? Set.of("metrics", "admin") : otherwise);
+            expectAccess(mismatches, method, "/actuator/metrics/http.server.requests",
+                    get ? Set.of("metrics", "admin") : otherwise);
+            expectAccess(mismatches, method, "/actuator/cors", method == HttpMethod.OPTIONS ? EVERYONE : Set.of("admin"));
+            expectAccess(mismatches, method, "/actuator/queries", method == HttpMethod.OPTIONS ? EVERYONE : Set.of("admin"));
+            expectAccess(mismatches, method, "/actuator/productclient",
+                    method == HttpMethod.OPTIONS ? EVERYONE : Set.of("admin"));
+        }
+        assertTrue(mismatches.isEmpty(), String.join("\n", mismatches));
+    }
+
+    /**
+     * Verifica algunos casos concretos de la matriz para que no dependa solo de la referencia.
+     */
+    @Test
+    void knownRoutesHaveExpectedAccess() {
+        assertTrue(granted(table.check(Mono.just(token("ROLE_USER")), context(HttpMethod.GET, "/transactions/5"))));
+        assertFalse(granted(table.check(Mono.just(token("ROLE_USER")), context(HttpMethod.POST, "/transactions"))));
+        assertTrue(granted(table.check(Mono.just(token("ROLE_ADMIN")), context(HttpMethod.DELETE, "/homes/2"))));
+        assertTrue(granted(table.check(Mono.empty(), context(HttpMethod.OPTIONS, "/consumption/1"))));
+        assertTrue(granted(table.check(Mono.empty(), context(HttpMethod.GET, "/actuator/health/readiness"))));
+        assertFalse(granted(table.check(Mono.empty(), context(HttpMethod.GET, "/actuator/metrics"))));
+        assertFalse(granted(table.check(Mono.empty(), context(HttpMethod.GET, "/actuator/health/r2dbcPool"))));
+        assertFalse(granted(table.check(Mono.empty(), context(HttpMethod.GET, "/actuator/prometheus"))));
+        assertTrue(granted(table.check(Mono.just(token("ROLE_METRICS")), context(HttpMethod.GET, "/actuator/prometheus"))));
+        assertFalse(granted(table.check(Mono.just(token("ROLE_METRICS")), context(HttpMethod.GET, "/transactions/5"))));
+        assertTrue(granted(table.check(Mono.just(token("ROLE_GUEST")), context(HttpMethod.PATCH, "/consumption/1"))));
+    }
+
+    private void expectAccess(List<String> mismatches, HttpMethod method, String path, Set<String> granted) {
+        principals().forEach((name, principal) -> {
+            boolean expected = granted.contains(name);
+            if (granted(table.check(principal, context(method, path))) != expected) {
+                mismatches.add(method + " " + path + " as " + name + ": expected " + expected);
+            }
+        });
+    }
+
+    private static Map<String, Mono<Authentication>> principals() {
+        Map<String, Mono<Authentication>> principals = new LinkedHashMap<>();
+        principals.put("none", Mono.empty());
+        principals.put("anonymous", Mono.just(new AnonymousAuthenticationToken("key", "anonymous",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"))));
+        principals.put("user", Mono.just(token("ROLE_USER")));
+        principals.put("admin", Mono.just(token("ROLE_ADMIN")));
+        principals.put("metrics", Mono.just(token("ROLE_METRICS")));
+        principals.put("other", Mono.just(token("ROLE_GUEST")));
+        principals.put("noRole", Mono.just(token()));
+        return principals;
+    }
+
+    private static boolean granted(Mono<AuthorizationDecision> decision) {
+        AuthorizationDecision result = decision.block();
+        return result != null && result.isGranted();
+    }
+
+    private static AuthorizationContext context(HttpMethod method, String path) {
+        return new AuthorizationContext(exchange(method, path));
+    }
+
+    private static MockServerWebExchange exchange(HttpMethod method, String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.method(method, path));
+    }
+
+    private static CustomAuthenticationToken token(String... authorities) {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject("user-1").build();
+        return new CustomAuthenticationToken(jwt, AuthorityUtils.createAuthorityList(authorities));
+    }
+}
@@ -0,0 +1,133 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.dto.BulkTransactionResult;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.TransactionRepository;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionService;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "transactions.bulk.batch-size=50")
+class TransactionBulkIngestionTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void cleanTables() {
+        databaseClient.sql("TRUNCATE transactions, inventory_consumption RESTART IDENTITY CASCADE")
+                .then()
+                .block();
+    }
+
+    /**
+     * Verifica que el lote devuelva un resultado por elemento, en orden, aplicando las mismas
+     * validaciones que save y encadenando el stock entre bloques.
+     */
+    @Test
+    void bulkReturnsPerItemResultsInOrder() {
+        Inventory inventory = inventoryRepository.save(new Inventory(null, 7, 0, 0, "A", null)).block();
+
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            batch.add(movement(inventory.getIdInventory(), "ENTRADA", 1));
+        }
+        batch.add(movement(inventory.getIdInventory(), "SALIDA", 500)); // stock insuficiente
+        batch.add(movement(inventory.getIdInventory(), "OTRO", 1));     // tipo inválido
+        batch.add(movement(9999, "ENTRADA", 1));                         // inventario inexistente
+        batch.add(movement(inventory.getIdInventory(), "SALIDA", 20));
+
+        List<BulkTransactionResult> results = transactionService.saveAll(Flux.fromIterable(batch))
+                .collectList()
+                .block();
+
+        assertEquals(batch.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+        assertEquals(121, results.stream().filter(r -> BulkTransactionResult.CREATED.equals(r.getStatus())).count());
+        assertEquals(BulkTransactionResult.REJECTED, results.get(120).getStatus());
+        assertEquals(BulkTransactionResult.REJECTED, results.get(121).getStatus());
+        assertEquals(BulkTransactionResult.REJECTED, results.get(122).getStatus());
+
+        Transaction last = results.get(123).getTransaction();
+        assertNotNull(last.getIdTransaction());
+        assertEquals(120, last.getPreviousStock());
+        assertEquals(100, last.getNewStock());
+
+        assertEquals(100, inventoryRepository.findById(inventory.getIdInventory()).block().getCurrentStock());
+        assertEquals(121, transactionRepository.count().block());
+    }
+
+    /**
+     * Verifica que si la base rechaza una fila del bloque (consumo inexistente), el bloque se reintente
+     * elemento por elemento: solo esa fila queda rechazada y el resto se registra con su propio id.
+     */
+    @Test
+    void failedBatchFallsBackToPerItemInserts() {
+        Inventory inventory = inventoryRepository.save(new Inventory(null, 7, 0, 0, "A", null)).block();
+
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Transaction transaction = movement(inventory.getIdInventory(), "ENTRADA", i + 1);
+            if (i == 4) {
+                transaction.setConsumptionId(9999);
+            }
+            batch.add(transaction);
+        }
+
+        List<BulkTransactionResult> results = transactionService.saveAll(Flux.fromIterable(batch))
+                .collectList()
+                .block();
+
+        assertEquals(10, results.size());
+        assertEquals(BulkTransactionResult.REJECTED, results.get(4).getStatus());
+        assertTrue(results.get(4).getError().startsWith("Error saving transaction"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, results.get(i).getIndex());
+            if (i != 4) {
+                Transaction created = results.get(i).getTransaction();
+                assertEquals(i + 1, created.getQuantity());
+                assertEquals(i + 1, transactionRepository.findById(created.getIdTransaction()).block().getQuantity());
+            }
+        }
+        assertEquals(50, inventoryRepository.findById(inventory.getIdInventory()).block().getCurrentStock());
+        assertEquals(9, transactionRepository.count().block());
+    }
+
+    private Transaction movement(Integer inventoryId, String type, int quantity) {
+        Transaction transaction = new Transaction();
+        transaction.setInventoryId(inventoryId);
+        transaction.setProductId(7);
+        transaction.setType(type);
+        transaction.setQuantity(quantity);
+        return transaction;
+    }
+}
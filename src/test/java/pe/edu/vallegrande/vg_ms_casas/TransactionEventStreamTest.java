@@ -0,0 +1,190 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.dto.TransactionEvent;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionEventStream;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionService;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class TransactionEventStreamTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionEventStream transactionEventStream;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    /**
+     * Verifica que un cliente que reconecta con su último id reciba solo lo posterior, filtrado,
+     * y que si ese id ya salió del historial reciba primero un RESET.
+     */
+    @Test
+    void resumesFromLastEventId() {
+        TransactionEventStream stream = new TransactionEventStream(3, 16, Duration.ofMinutes(1));
+        for (int i = 1; i <= 4; i++) {
+            stream.publish(TransactionEvent.CREATED, transaction(i, i % 2 == 0 ? 10 : 20));
+        }
+
+        StepVerifier.create(stream.subscribe(2L, t -> t.getInventoryId() == 10, true).take(1))
+                .assertNext(event -> {
+                    assertEquals(4L, event.getId());
+                    assertEquals(4, event.getTransaction().getIdTransaction());
+                })
+                .verifyComplete();
+
+        StepVerifier.create(stream.subscribe(0L, t -> true, true).take(4))
+                .assertNext(event -> assertEquals(TransactionEvent.RESET, event.getType()))
+                .assertNext(event -> assertEquals(2L, event.getId()))
+                .assertNext(event -> assertEquals(3L, event.getId()))
+                .assertNext(event -> assertEquals(4L, event.getId()))
+                .verifyComplete();
+
+        // Sin id solo llegan los eventos nuevos
+        StepVerifier.create(stream.subscribe(null, t -> true, true).take(1))
+                .then(() -> stream.publish(TransactionEvent.UPDATED, transaction(5, 10)))
+                .assertNext(event -> assertEquals(5L, event.getId()))
+                .verifyComplete();
+    }
+
+    /**
+     * Verifica que un Last-Event-ID mayor que el último emitido (un nodo reiniciado numera desde 1) reciba
+     * un RESET con el id actual y luego solo los eventos nuevos, en lugar de esperar a que el contador lo alcance.
+     */
+    @Test
+    void lastEventIdAheadOfStreamResets() {
+        TransactionEventStream stream = new TransactionEventStream(100, 16, Duration.ofMinutes(1));
+        publish(stream, 2);
+
+        StepVerifier.create(stream.subscribe(50L, t -> true, true).take(2))
+                .assertNext(event -> {
+                    assertEquals(TransactionEvent.RESET, event.getType());
+                    assertEquals(2L, event.getId());
+                })
+                .then(() -> publish(stream, 1))
+                .assertNext(event -> assertEquals(3L, event.getId()))
+                .verifyComplete();
+    }
+
+    /**
+     * Verifica que el buffer de un suscriptor lento se mantenga acotado y descarte según la política.
+     */
+    @Test
+    void slowSubscriberBufferIsBounded() {
+        TransactionEventStream stream = new TransactionEventStream(100, 2, Duration.ofMinutes(1));
+
+        StepVerifier.create(stream.subscribe(null, t -> true, true), 0)
+                .then(() -> publish(stream, 5))
+                .thenRequest(2)
+                .assertNext(event -> assertEquals(4L, event.getId()))
+                .assertNext(event -> assertEquals(5L, event.getId()))
+                .thenCancel()
+                .verify();
+
+        StepVerifier.create(stream.subscribe(null, t -> true, false), 0)
+                .then(() -> publish(stream, 5))
+                .thenRequest(2)
+                .assertNext(event -> assertEquals(6L, event.getId()))
+                .assertNext(event -> assertEquals(7L, event.getId()))
+                .thenCancel()
+                .verify();
+    }
+
+    /**
+     * Verifica que un cliente que nunca pide latidos no detenga el temporizador compartido:
+     * los demás siguen recibiendo muchos más latidos que el prefetch del share.
+     */
+    @Test
+    void stalledClientDoesNotBlockHeartbeats() {
+        TransactionEventStream stream = new TransactionEventStream(100, 16, Duration.ofMillis(1));
+
+        StepVerifier.create(stream.heartbeats(), 0)
+                .then(() -> StepVerifier.create(stream.heartbeats().take(600))
+                        .expectNextCount(600)
+                        .expectComplete()
+                        .verify(Duration.ofSeconds(10)))
+                .thenRequest(1)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    /**
+     * Verifica que TransactionService publique la creación, la actualización, la desactivación
+     * y la restauración después de confirmar cada cambio.
+     */
+    @Test
+    void serviceWritesArePublished() {
+        databaseClient.sql("TRUNCATE transactions, inventory_consumption RESTART IDENTITY CASCADE")
+                .then()
+                .block();
+        Integer inventoryId = inventoryRepository.save(new Inventory(null, 100, 10, 10, "A", null)).block().getIdInventory();
+
+        AtomicLong restoredId = new AtomicLong();
+        StepVerifier.create(transactionEventStream.subscribe(null, t -> inventoryId.equals(t.getInventoryId()), true).take(4))
+                .then(() -> {
+                    Transaction created = transactionService.save(movement(inventoryId, "SALIDA", 4)).block();
+                    transactionService.update(created.getIdTransaction(), new Transaction(null, null, null, null, null,
+                            null, null, "Merma", null, null, null, null, null)).block();
+                    transactionService.delete(created.getIdTransaction()).block();
+                    transactionService.restore(created.getIdTransaction()).block();
+                })
+                .assertNext(event -> {
+                    assertEquals(TransactionEvent.CREATED, event.getType());
+                    assertEquals(6, event.getTransaction().getNewStock());
+                })
+                .assertNext(event -> assertEquals("Merma", event.getTransaction().getReason()))
+                .assertNext(event -> assertEquals("I", event.getTransaction().getStatus()))
+                .assertNext(event -> {
+                    assertEquals(TransactionEvent.RESTORED, event.getType());
+                    assertEquals("A", event.getTransaction().getStatus());
+                    restoredId.set(event.getId());
+                })
+                .verifyComplete();
+
+        // Un movimiento rechazado no se publica: lo siguiente después de RESTORED es la ENTRADA
+        assertThrows(RuntimeException.class, () -> transactionService.save(movement(inventoryId, "SALIDA", 999)).block());
+        transactionService.save(movement(inventoryId, "ENTRADA", 1)).block();
+        StepVerifier.create(transactionEventStream.subscribe(restoredId.get(), t -> true, true).take(1))
+                .assertNext(event -> assertEquals("ENTRADA", event.getTransaction().getType()))
+                .verifyComplete();
+    }
+
+    private static Transaction movement(Integer inventoryId, String type, int quantity) {
+        return new Transaction(null, inventoryId, 100, type, quantity, null, null, null, null, null, null, null, null);
+    }
+
+    private static void publish(TransactionEventStream stream, int count) {
+        for (int i = 0; i < count; i++) {
+            stream.publish(TransactionEvent.CREATED, transaction(i, 10));
+        }
+    }
+
+    private static Transaction transaction(int id, int inventoryId) {
+        return new Transaction(id, inventoryId, 100, "ENTRADA", 1, 0, 1, null, null, null, "A", null, null);
+    }
+}
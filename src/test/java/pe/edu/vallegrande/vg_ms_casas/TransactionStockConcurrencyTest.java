@@ -0,0 +1,138 @@
+package pe.edu.vallegrande.vg_ms_casas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import pe.edu.vallegrande.vg_ms_casas.model.Inventory;
+import pe.edu.vallegrande.vg_ms_casas.model.Transaction;
+import pe.edu.vallegrande.vg_ms_casas.repository.InventoryRepository;
+import pe.edu.vallegrande.vg_ms_casas.repository.TransactionRepository;
+import pe.edu.vallegrande.vg_ms_casas.service.TransactionService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class TransactionStockConcurrencyTest {
+
+    private static final int CONCURRENCY = 32;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.register(registry);
+    }
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void cleanTables() {
+        databaseClient.sql("TRUNCATE transactions, inventory_consumption RESTART IDENTITY CASCADE")
+                .then()
+                .block();
+    }
+
+    /**
+     * Verifica que muchas ENTRADAS concurrentes sobre el mismo inventario no pierdan actualizaciones
+     * y que cada transacción registre un stock anterior/nuevo encadenado y único.
+     */
+    @Test
+    void concurrentEntriesAreNotLost() {
+        Inventory inventory = createInventory(0);
+        int movements = 400;
+
+        List<Transaction> saved = Flux.range(0, movements)
+                .flatMap(i -> transactionService.save(movement(inventory, "ENTRADA", 1)), CONCURRENCY)
+                .collectList()
+                .block();
+
+        assertEquals(movements, saved.size());
+        assertEquals(movements, currentStock(inventory));
+
+        List<Integer> newStocks = saved.stream().map(Transaction::getNewStock).sorted().collect(Collectors.toList());
+        assertEquals(IntStream.rangeClosed(1, movements).boxed().collect(Collectors.toList()), newStocks,
+                "Cada movimiento debe observar un stock distinto");
+        saved.forEach(t -> assertEquals(t.getPreviousStock() + 1, t.getNewStock()));
+    }
+
+    /**
+     * Verifica que las SALIDAS concurrentes nunca dejen el stock en negativo:
+     * solo se aceptan tantas como unidades hay disponibles y el resto se rechaza.
+     */
+    @Test
+    void concurrentExitsNeverGoNegative() {
+        int available = 100;
+        Inventory inventory = createInventory(available);
+
+        List<Boolean> outcomes = Flux.range(0, available * 3)
+                .flatMap(i -> transactionService.save(movement(inventory, i % 2 == 0 ? "SALIDA" : "DAÑO", 1))
+                        .map(t -> true)
+                        .onErrorResume(e -> Mono.just(false)), CONCURRENCY)
+                .collectList()
+                .block();
+
+        assertEquals(available, outcomes.stream().filter(Boolean::booleanValue).count());
+        assertEquals(0, currentStock(inventory));
+        assertEquals(available, transactionRepository.findByInventoryIdOrderByDateDesc(inventory.getIdInventory())
+                .count().block());
+    }
+
+    /**
+     * Verifica que el cliente no pueda imponer el stock anterior/nuevo y que AJUSTE fije el stock.
+     */
+    @Test
+    void stockIsDerivedServerSide() {
+        Inventory inventory = createInventory(10);
+
+        Transaction exit = movement(inventory, "SALIDA", 4);
+        exit.setPreviousStock(999);
+        exit.setNewStock(999);
+        Transaction savedExit = transactionService.save(exit).block();
+        assertEquals(10, savedExit.getPreviousStock());
+        assertEquals(6, savedExit.getNewStock());
+
+        Transaction adjustment = transactionService.save(movement(inventory, "AJUSTE", 20)).block();
+        assertEquals(6, adjustment.getPreviousStock());
+        assertEquals(20, adjustment.getNewStock());
+        assertEquals(20, currentStock(inventory));
+
+        assertThrows(RuntimeException.class, () -> transactionService.save(movement(inventory, "SALIDA", 21)).block());
+        assertEquals(20, currentStock(inventory));
+    }
+
+    private Inventory createInventory(int stock) {
+        return inventoryRepository.save(new Inventory(null, 1, stock, stock, "A", null)).block();
+    }
+
+    private int currentStock(Inventory inventory) {
+        return inventoryRepository.findById(inventory.getIdInventory()).block().getCurrentStock();
+    }
+
+    private Transaction movement(Inventory inventory, String type, int quantity) {
+        Transaction transaction = new Transaction();
+        transaction.setInventoryId(inventory.getIdInventory());
+        transaction.setProductId(inventory.getProductId());
+        transaction.setType(type);
+        transaction.setQuantity(quantity);
+        transaction.setReason("prueba de concurrencia");
+        return transaction;
+    }
+}